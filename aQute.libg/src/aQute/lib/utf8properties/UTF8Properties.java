@@ -22,7 +22,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -53,6 +57,11 @@ public class UTF8Properties extends Properties {
 
 	private final Map<String, Provenance>	provenance	= new HashMap<>();
 
+	private static final AtomicLongFieldUpdater<UTF8Properties>	MODIFICATIONS	= AtomicLongFieldUpdater
+		.newUpdater(UTF8Properties.class, "modifications");
+	private transient volatile long									modifications;
+	private static final AtomicLong									GENERATION		= new AtomicLong();
+
 	public UTF8Properties(Properties p) {
 		super(p);
 	}
@@ -244,7 +253,141 @@ public class UTF8Properties extends Properties {
 	@Override
 	public synchronized Object remove(Object key) {
 		getProvenance().remove(key);
-		return super.remove(key);
+		try {
+			return super.remove(key);
+		} finally {
+			modified();
+		}
+	}
+
+	/**
+	 * Answer the number of modifications of this properties. The count changes
+	 * after every put, remove or clear so a cached view of the properties can
+	 * detect that it is stale. Modifications through the key, value or entry
+	 * views are not counted.
+	 *
+	 * @return the modification count
+	 */
+	public long getModificationCount() {
+		return modifications;
+	}
+
+	/**
+	 * Answer the number of modifications of all properties. A cache that
+	 * depends on several properties can check this single count first and
+	 * only check their modification counts when it changed.
+	 *
+	 * @return the modification count of all properties
+	 */
+	public static long getGeneration() {
+		return GENERATION.get();
+	}
+
+	private void modified() {
+		MODIFICATIONS.incrementAndGet(this);
+		GENERATION.incrementAndGet();
+	}
+
+	@Override
+	public Object put(Object key, Object value) {
+		try {
+			return super.put(key, value);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public synchronized boolean remove(Object key, Object value) {
+		try {
+			return super.remove(key, value);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		try {
+			super.clear();
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public synchronized Object putIfAbsent(Object key, Object value) {
+		try {
+			return super.putIfAbsent(key, value);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public synchronized Object replace(Object key, Object value) {
+		try {
+			return super.replace(key, value);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public synchronized boolean replace(Object key, Object oldValue, Object newValue) {
+		try {
+			return super.replace(key, oldValue, newValue);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public synchronized void replaceAll(BiFunction<? super Object, ? super Object, ?> function) {
+		try {
+			super.replaceAll(function);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public synchronized Object compute(Object key,
+		BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+		try {
+			return super.compute(key, remappingFunction);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public synchronized Object computeIfAbsent(Object key, Function<? super Object, ? extends Object> mappingFunction) {
+		try {
+			return super.computeIfAbsent(key, mappingFunction);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public synchronized Object computeIfPresent(Object key,
+		BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+		try {
+			return super.computeIfPresent(key, remappingFunction);
+		} finally {
+			modified();
+		}
+	}
+
+	@Override
+	public synchronized Object merge(Object key, Object value,
+		BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+		try {
+			return super.merge(key, value, remappingFunction);
+		} finally {
+			modified();
+		}
 	}
 
 	/**
@@ -303,8 +446,13 @@ public class UTF8Properties extends Properties {
 	public synchronized void putAll(Map<?, ?> t) {
 		if (t instanceof Properties p) {
 			load(p, true);
-		} else
-			super.putAll(t);
+		} else {
+			try {
+				super.putAll(t);
+			} finally {
+				modified();
+			}
+		}
 	}
 
 	/**
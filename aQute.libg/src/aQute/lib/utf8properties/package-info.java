@@ -1,4 +1,4 @@
-@Version("4.2.0")
+@Version("4.3.0")
 package aQute.lib.utf8properties;
 
 import org.osgi.annotation.versioning.Version;
@@ -97,6 +97,7 @@ public class ShaCache {
 						IO.rename(tmp, f);
 						break;
 					}
+					IO.delete(tmp);
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
@@ -150,6 +151,7 @@ public class ShaCache {
 						IO.rename(tmp, f);
 						break;
 					}
+					IO.delete(tmp);
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
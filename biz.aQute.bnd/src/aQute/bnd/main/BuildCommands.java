@@ -12,15 +12,16 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 
+import aQute.bnd.build.BuildScheduler;
+import aQute.bnd.build.BuildScheduler.Result;
+import aQute.bnd.build.BuildScheduler.Summary;
 import aQute.bnd.build.Project;
 import aQute.bnd.build.Workspace;
 import aQute.bnd.exceptions.Exceptions;
 import aQute.bnd.main.bnd.PerProject;
 import aQute.bnd.main.bnd.buildoptions;
 import aQute.bnd.main.bnd.devOptions;
-import aQute.libg.forker.Forker;
 
 /**
  * Container for build related commands.
@@ -48,10 +49,9 @@ public class BuildCommands {
 		boolean force = opts.force();
 		if (opts.parallel()) {
 			boolean test = opts.test();
-			long syncms = opts.synctime() <= 0 ? 20000 : opts.synctime();
 			bnd.out.format("Build parallel%n");
 			List<Project> projects = bnd.getFilteredProjects(opts);
-			buildParallelInternal(projects, force, test, syncms);
+			buildParallelInternal(projects, force, test, opts.jobs());
 		} else {
 			bnd.perProject(opts, p -> {
 				p.getGenerate()
@@ -130,9 +130,8 @@ public class BuildCommands {
 
 			if (opts.parallel()) {
 				boolean test = opts.test();
-				long syncms = opts.synctime() <= 0 ? 20000 : opts.synctime();
 				bnd.out.format("Build parallel%n");
-				buildParallelInternal(projects, force, test, syncms);
+				buildParallelInternal(projects, force, test, opts.jobs());
 			} else {
 
 				Set<Project> projectsDone = new HashSet<>(projects.size());
@@ -152,43 +151,39 @@ public class BuildCommands {
 		}
 	}
 
-	public void buildParallelInternal(Collection<Project> projects, boolean force, boolean test, long syncms)
-		throws Exception, InterruptedException {
-		ExecutorService pool = Executors.newCachedThreadPool();
-		final AtomicBoolean quit = new AtomicBoolean();
-
-		try {
-			final Forker<Project> forker = new Forker<>(pool);
-
-			for (final Project proj : projects) {
-				forker.doWhen(proj.getDependson(), proj, () -> {
-					if (!quit.get()) {
-
-						try {
-							proj.getGenerate()
-								.generate(force);
-							if (!quit.get()) {
-								proj.compile(test);
-							}
-							if (!quit.get())
-								proj.build(test);
-
-							if (!proj.isOk()) {
-								quit.set(true);
-							}
-						} catch (Exception e) {
-							e.printStackTrace();
-						}
-					}
-					bnd.getInfo(proj, proj + ": ");
-				});
+	/**
+	 * Build the projects and the projects they depend on concurrently, in
+	 * the order of their dependencies. No new projects are started after a
+	 * project failed.
+	 */
+	public void buildParallelInternal(Collection<Project> projects, boolean force, boolean test, int workers)
+		throws Exception {
+		if (projects.isEmpty()) {
+			return;
+		}
+		Workspace ws = projects.iterator()
+			.next()
+			.getWorkspace();
+		BuildScheduler scheduler = new BuildScheduler(ws, workers);
+		Summary summary = scheduler.run(projects, proj -> {
+			proj.getGenerate()
+				.generate(force);
+			if (proj.isOk()) {
+				proj.compile(test);
 			}
-			bnd.err.flush();
-
-			forker.start(syncms);
-		} finally {
-			pool.shutdownNow();
+			if (proj.isOk()) {
+				proj.build(test);
+			}
+		});
+		for (Result result : summary.getResults()) {
+			Project proj = result.project();
+			if (result.error() != null) {
+				proj.exception(result.error(), "Building %s failed", proj);
+			}
+			bnd.getInfo(proj, proj + ": ");
 		}
+		bnd.getInfo(ws, "workspace: ");
+		bnd.out.print(summary);
 	}
 
 	private void buildAndWatch(boolean undertest, boolean verbose, boolean force, Executor watchExecutor,
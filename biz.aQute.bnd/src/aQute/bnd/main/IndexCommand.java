@@ -41,6 +41,9 @@ public class IndexCommand extends Processor {
 
 		@Description("The name of the index (default: name of the output file directory)")
 		String name();
+
+		@Description("Reuse the entries of the existing repository index file for the bundles whose SHA-256 did not change")
+		boolean incremental();
 	}
 
 	public void _index(indexOptions opts) throws Exception {
@@ -91,6 +94,7 @@ public class IndexCommand extends Processor {
 			.base(base)
 			.name(name)
 			.compress(compress)
+			.previous(opts.incremental() ? repositoryFile : null)
 			.index(repositoryFile);
 	}
 }
@@ -3528,7 +3528,11 @@ public class bnd extends Processor {
 
 	@Description("experimental - parallel build")
 	interface ParallelBuildOptions extends buildBaseOptions {
+		@Description("Ignored, the parallel build waits until all projects are built")
 		long synctime();
+
+		@Description("The maximum number of projects to build concurrently in a parallel build, the default is the number of processors")
+		int jobs();
 	}
 
 	/**
@@ -3541,10 +3545,9 @@ public class bnd extends Processor {
 		List<Project> projects = getFilteredProjects(options);
 		boolean force = options.force();
 		boolean test = options.test();
-		long syncms = options.synctime() <= 0 ? 20000 : options.synctime();
 
 		BuildCommands cmd = new BuildCommands(this);
-		cmd.buildParallelInternal(projects, force, test, syncms);
+		cmd.buildParallelInternal(projects, force, test, options.jobs());
 	}
 
 
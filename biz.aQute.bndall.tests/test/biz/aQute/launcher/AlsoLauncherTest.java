@@ -376,6 +376,51 @@ public class AlsoLauncherTest {
 		}
 	}
 
+	@Test
+	public void testPreparedLaunch() throws Exception {
+		File prepared = new File(testDir, "prepared");
+		project.setProperty(Constants.RUNPROPERTIES, "test.cmd=exit");
+		project.setProperty(Constants.RUNTRACE, "true");
+		project.setProperty("-executable", "prepared=" + prepared.getAbsolutePath());
+		Entry<String, Resource> export = project.export("bnd.executablejar", null);
+		assertThat(project.check()).isTrue();
+		assertThat(export).isNotNull();
+
+		try (Jar jar = new Jar(".", export.getValue()
+			.openInputStream())) {
+			File tmp = File.createTempFile("foo", ".jar", testDir);
+			jar.write(tmp);
+
+			String output = execute(tmp, 0, "-Dlaunch.prepare.only=true");
+			assertThat(output).contains("installing jar/", "prepare only, not starting the framework");
+			assertThat(new File(prepared, "bnd.prepared")).isFile();
+
+			output = execute(tmp, 42);
+			assertThat(output).contains("prepared bundles from")
+				.doesNotContain("installing jar/");
+		}
+	}
+
+	private String execute(File executable, int exitCode, String... options) throws Exception {
+		Command cmd = new Command();
+		cmd.add(project.getJavaExecutable("java"));
+		for (String option : options) {
+			cmd.add(option);
+		}
+		cmd.add("-jar");
+		cmd.add(executable.getAbsolutePath());
+
+		StringBuilder stdout = new StringBuilder();
+		StringBuilder stderr = new StringBuilder();
+		int execute = cmd.execute(stdout, stderr);
+		String output = stdout.append(stderr)
+			.toString();
+		System.out.println(output);
+		assertThat(execute).as(output)
+			.isEqualTo(exitCode);
+		return output;
+	}
+
 	@Test
 	public void testExecutableJarWithStripping() throws Exception {
 		long full = make(project, null);
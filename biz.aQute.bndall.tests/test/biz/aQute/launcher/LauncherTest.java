@@ -19,6 +19,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
 import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.assertj.core.api.SoftAssertions;
 import org.assertj.core.api.junit.jupiter.InjectSoftAssertions;
@@ -105,6 +107,42 @@ public class LauncherTest {
 			.containsPattern("startlevel: notified reached final level 22");
 	}
 
+	@Test
+	public void testRunOrder_1_parallel() throws Exception {
+		File file = buildPackage("order-01.bndrun", run -> {
+			run.setProperty(Constants.RUNOPTIONS, "parallel");
+		});
+
+		System.setProperty("test.cmd", "quit.no.exit");
+
+		String result = runFramework(file);
+
+		softly.assertThat(result)
+			.containsPattern("managed=all")
+			.containsPattern("Startlevel\\s+22")
+			.containsPattern("0\\s+ACTIV\\s+<>\\s+System Bundle")
+			.containsPattern("21\\s+ACTIV\\s+<>\\s+jar/.?org.apache.felix.log")
+			.containsPattern("10\\s+ACTIV\\s+<>\\s+jar/.?demo.jar")
+			.containsPattern("20\\s+ACTIV\\s+<>\\s+jar/.?org.apache.servicemix.bundles.junit")
+			.containsPattern("5\\s+ACTIV\\s+<>\\s+jar/.?org.apache.felix.configadmin")
+			.containsPattern("Timings \\(ms\\)")
+			.containsPattern("startlevel: notified reached final level 22");
+
+		// installed in the order of the run bundles
+		softly.assertThat(Arrays.asList(bundleId(result, "org.apache.felix.log"), bundleId(result, "demo.jar"),
+			bundleId(result, "org.apache.servicemix.bundles.junit"), bundleId(result, "org.apache.felix.configadmin")))
+			.isSorted()
+			.doesNotHaveDuplicates();
+	}
+
+	private static long bundleId(String result, String location) {
+		Matcher m = Pattern.compile("(\\d+)\\s+\\d+\\s+ACTIV\\s+<>\\s+jar/.?" + Pattern.quote(location))
+			.matcher(result);
+		assertThat(m.find()).as("bundle row for %s", location)
+			.isTrue();
+		return Long.parseLong(m.group(1));
+	}
+
 	@Test
 	public void testRunOrder_1_basic_manage_none() throws Exception {
 		File file = buildPackage("order-01.bndrun", run -> {
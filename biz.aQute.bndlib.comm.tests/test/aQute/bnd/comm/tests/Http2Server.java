@@ -0,0 +1,243 @@
+package aQute.bnd.comm.tests;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.bouncycastle.asn1.x500.X500NameBuilder;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+/**
+ * A minimal HTTP/2 server over TLS for tests. It only accepts connections that
+ * negotiate {@code h2} with ALPN and answers every request with the same
+ * content. The headers are sent at once, the content after the given delay.
+ */
+class Http2Server implements Closeable {
+	private final static char[]			PASSWORD	= "123456789".toCharArray();
+	private final static byte[]			PREFACE		= "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(US_ASCII);
+	private final static int			DATA		= 0x0;
+	private final static int			HEADERS		= 0x1;
+	private final static int			SETTINGS	= 0x4;
+	private final static int			PING		= 0x6;
+	private final static int			GOAWAY		= 0x7;
+	private final static int			END_STREAM	= 0x1;
+	private final static int			ACK			= 0x1;
+	private final static int			END_HEADERS	= 0x4;
+
+	private final SSLServerSocket		server;
+	private final SSLContext			clientContext;
+	private final byte[]				content;
+	private final long					delay;
+	private final ExecutorService		executor	= Executors.newCachedThreadPool();
+	private final List<Socket>			sockets		= new CopyOnWriteArrayList<>();
+	private final List<String>			protocols	= new CopyOnWriteArrayList<>();
+	private final AtomicInteger			requests	= new AtomicInteger();
+
+	Http2Server(byte[] content, long delay) throws Exception {
+		this.content = content;
+		this.delay = delay;
+
+		SecureRandom random = new SecureRandom();
+		KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+		keyGen.initialize(2048, random);
+		KeyPair pair = keyGen.generateKeyPair();
+
+		X500NameBuilder nameBuilder = new X500NameBuilder(BCStyle.INSTANCE);
+		nameBuilder.addRDN(BCStyle.CN, "localhost");
+		X509Certificate certificate = new JcaX509CertificateConverter()
+			.getCertificate(new JcaX509v3CertificateBuilder(nameBuilder.build(), new BigInteger(128, random),
+				new Date(), new Date(System.currentTimeMillis() + 24 * 60 * 60 * 1000), nameBuilder.build(),
+				pair.getPublic()).build(new JcaContentSignerBuilder("SHA256WithRSAEncryption")
+					.build(pair.getPrivate())));
+
+		KeyStore keystore = KeyStore.getInstance("JKS");
+		keystore.load(null, null);
+		keystore.setKeyEntry("server", pair.getPrivate(), PASSWORD, new X509Certificate[] {
+			certificate
+		});
+		KeyManagerFactory keyManagers = KeyManagerFactory.getInstance("SunX509");
+		keyManagers.init(keystore, PASSWORD);
+		SSLContext serverContext = SSLContext.getInstance("TLS");
+		serverContext.init(keyManagers.getKeyManagers(), null, random);
+
+		KeyStore truststore = KeyStore.getInstance("JKS");
+		truststore.load(null, null);
+		truststore.setCertificateEntry("server", certificate);
+		TrustManagerFactory trustManagers = TrustManagerFactory.getInstance("SunX509");
+		trustManagers.init(truststore);
+		clientContext = SSLContext.getInstance("TLS");
+		clientContext.init(null, trustManagers.getTrustManagers(), random);
+
+		server = (SSLServerSocket) serverContext.getServerSocketFactory()
+			.createServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		SSLParameters parameters = server.getSSLParameters();
+		parameters.setApplicationProtocols(new String[] {
+			"h2"
+		});
+		server.setSSLParameters(parameters);
+		executor.execute(this::accept);
+	}
+
+	/**
+	 * A context that trusts the certificate of this server.
+	 */
+	SSLContext getClientContext() {
+		return clientContext;
+	}
+
+	URI getBaseURI(String path) {
+		return URI.create("https://localhost:" + server.getLocalPort() + "/" + path);
+	}
+
+	/**
+	 * The application protocol negotiated for each connection.
+	 */
+	List<String> getProtocols() {
+		return protocols;
+	}
+
+	int getRequests() {
+		return requests.get();
+	}
+
+	private void accept() {
+		try {
+			while (!server.isClosed()) {
+				SSLSocket socket = (SSLSocket) server.accept();
+				sockets.add(socket);
+				executor.execute(() -> serve(socket));
+			}
+		} catch (IOException e) {
+			// closed
+		}
+	}
+
+	private void serve(SSLSocket socket) {
+		try (socket) {
+			socket.startHandshake();
+			protocols.add(socket.getApplicationProtocol());
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+			byte[] preface = new byte[PREFACE.length];
+			in.readFully(preface);
+			if (!Arrays.equals(preface, PREFACE)) {
+				return;
+			}
+			frame(out, SETTINGS, 0, 0, new byte[0]);
+			out.flush();
+			while (true) {
+				int length = (in.readUnsignedShort() << 8) | in.readUnsignedByte();
+				int type = in.readUnsignedByte();
+				int flags = in.readUnsignedByte();
+				int stream = in.readInt() & 0x7FFFFFFF;
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				switch (type) {
+					case SETTINGS -> {
+						if ((flags & ACK) == 0) {
+							frame(out, SETTINGS, ACK, 0, new byte[0]);
+						}
+					}
+					case PING -> {
+						if ((flags & ACK) == 0) {
+							frame(out, PING, ACK, 0, payload);
+						}
+					}
+					case HEADERS -> respond(out, stream);
+					case GOAWAY -> {
+						return;
+					}
+					default -> {
+						// window updates, priorities and request bodies
+					}
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			// closed
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+		}
+	}
+
+	private void respond(OutputStream out, int stream) throws IOException, InterruptedException {
+		requests.incrementAndGet();
+		ByteArrayOutputStream block = new ByteArrayOutputStream();
+		block.write(0x88); // indexed :status 200
+		literal(block, "content-length", Integer.toString(content.length));
+		frame(out, HEADERS, END_HEADERS, stream, block.toByteArray());
+		out.flush();
+		if (delay > 0) {
+			Thread.sleep(delay);
+		}
+		frame(out, DATA, END_STREAM, stream, content);
+	}
+
+	/**
+	 * A HPACK literal header field without indexing.
+	 */
+	private static void literal(ByteArrayOutputStream block, String name, String value) {
+		byte[] n = name.getBytes(US_ASCII);
+		byte[] v = value.getBytes(US_ASCII);
+		block.write(0x00);
+		block.write(n.length);
+		block.writeBytes(n);
+		block.write(v.length);
+		block.writeBytes(v);
+	}
+
+	private static void frame(OutputStream out, int type, int flags, int stream, byte[] payload) throws IOException {
+		out.write(payload.length >>> 16);
+		out.write(payload.length >>> 8);
+		out.write(payload.length);
+		out.write(type);
+		out.write(flags);
+		out.write(stream >>> 24);
+		out.write(stream >>> 16);
+		out.write(stream >>> 8);
+		out.write(stream);
+		out.write(payload);
+	}
+
+	@Override
+	public void close() throws IOException {
+		server.close();
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+		executor.shutdownNow();
+	}
+}
@@ -2,14 +2,23 @@ package aQute.bnd.comm.tests;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -58,8 +67,59 @@ public class HttpClientCacheTest {
 			rsp.content = etag != null ? etag.getBytes(StandardCharsets.UTF_8) : new byte[0];
 			return;
 		}
+
+		@SuppressWarnings("unused")
+		public void _ranged(Request rq, Response rsp) throws Exception {
+			String range = rq.headers.get("Range");
+			String ifRange = rq.headers.get("If-Range");
+			ranges.add(range);
+			rsp.headers.put("ETag", "\"ranged\"");
+			if (range == null || (ifRange != null && !ifRange.equals("\"ranged\""))) {
+				rsp.content = ranged;
+				return;
+			}
+			String[] parts = range.substring("bytes=".length())
+				.split("-", -1);
+			int first = Integer.parseInt(parts[0]);
+			int last = parts[1].isEmpty() ? ranged.length - 1
+				: Math.min(Integer.parseInt(parts[1]), ranged.length - 1);
+			rsp.code = HttpURLConnection.HTTP_PARTIAL;
+			rsp.headers.put("Content-Range", "bytes " + first + "-" + last + "/" + ranged.length);
+			rsp.content = Arrays.copyOfRange(ranged, first, last + 1);
+		}
+
+		/*
+		 * Drop the connection after half of the content unless a range is
+		 * requested
+		 */
+		@SuppressWarnings("unused")
+		public InputStream _dropped(Request rq, Response rsp) throws Exception {
+			ifRanges.add(rq.headers.get("If-Range"));
+			if (rq.headers.get("Range") != null) {
+				_ranged(rq, rsp);
+				return null;
+			}
+			ranges.add(null);
+			rsp.headers.put("ETag", "\"ranged\"");
+			rsp.headers.put("Connection", "close");
+			rsp.length = ranged.length;
+			return new FilterInputStream(new ByteArrayInputStream(ranged, 0, ranged.length / 2)) {
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					int n = super.read(b, off, len);
+					if (n < 0) {
+						throw new IOException("dropped");
+					}
+					return n;
+				}
+			};
+		}
 	}
 
+	byte[]			ranged;
+	List<String>	ranges		= Collections.synchronizedList(new ArrayList<>());
+	List<String>	ifRanges	= Collections.synchronizedList(new ArrayList<>());
+
 	@BeforeEach
 	public void setUp() throws Exception {
 		cache = IO.getFile(tmp, "cache");
@@ -189,4 +249,45 @@ public class HttpClientCacheTest {
 		}
 	}
 
+	@Test
+	public void testSegmentedDownload() throws Exception {
+		ranged = new byte[30 * 1024 * 1024 + 17];
+		new Random(42).nextBytes(ranged);
+		try (HttpClient client = new HttpClient().segments(3)) {
+			client.setCache(cache);
+
+			File file = client.build()
+				.useCache()
+				.go(httpServer.getBaseURI("ranged"));
+			assertTrue(Arrays.equals(ranged, IO.read(file)));
+			assertTrue(ranges.contains("bytes=0-8388607"));
+			assertEquals(3, ranges.size());
+			assertFalse(new File(file.getParentFile(), file.getName() + ".partial").exists());
+		}
+	}
+
+	@Test
+	public void testResumeDroppedDownload() throws Exception {
+		ranged = new byte[4 * 1024 * 1024 + 17];
+		new Random(42).nextBytes(ranged);
+		try (HttpClient client = new HttpClient()) {
+			client.setCache(cache);
+			client.retries(0);
+
+			assertThrows(Exception.class, () -> client.build()
+				.useCache()
+				.go(httpServer.getBaseURI("dropped")));
+			assertEquals(Collections.singletonList(null), ranges);
+
+			File file = client.build()
+				.useCache()
+				.go(httpServer.getBaseURI("dropped"));
+			assertTrue(Arrays.equals(ranged, IO.read(file)));
+			assertEquals(2, ranges.size());
+			String range = ranges.get(1);
+			assertTrue(range.matches("bytes=[1-9][0-9]*-"), range);
+			assertEquals("\"ranged\"", ifRanges.get(1));
+			assertFalse(new File(file.getParentFile(), file.getName() + ".partial").exists());
+		}
+	}
 }
@@ -2,6 +2,7 @@ package aQute.bnd.comm.tests;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -23,6 +24,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.net.ssl.SSLContext;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -624,6 +627,74 @@ public class HttpClientTest {
 		}
 	}
 
+	@Test
+	public void testHttp2() throws Exception {
+		try (HttpClient hc = new HttpClient().http2(true)) {
+			String text = hc.build()
+				.get(String.class)
+				.go(httpServer.getBaseURI("get"));
+			assertThat(text).startsWith("{");
+
+			TaggedData data = hc.build()
+				.get(TaggedData.class)
+				.go(httpServer.getBaseURI("redirect/3/200"));
+			assertEquals(200, data.getResponseCode());
+
+			data = hc.build()
+				.get(TaggedData.class)
+				.ifNoneMatch("1234")
+				.go(httpServer.getBaseURI("etag/1234/0"));
+			assertEquals("1234", data.getTag());
+			assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, data.getResponseCode());
+
+			data = hc.build()
+				.get(TaggedData.class)
+				.go(httpServer.getBaseURI("status/404"));
+			assertEquals(State.NOT_FOUND, data.getState());
+		}
+	}
+
+	@Test
+	public void testHttp2Tls() throws Exception {
+		SSLContext defaultContext = SSLContext.getDefault();
+		try (Http2Server server = new Http2Server("h2!".getBytes(UTF_8), 0L)) {
+			SSLContext.setDefault(server.getClientContext());
+			try (HttpClient hc = new HttpClient().http2(true)) {
+				for (int i = 0; i < 2; i++) {
+					String text = hc.build()
+						.get(String.class)
+						.go(server.getBaseURI("get"));
+					assertThat(text).isEqualTo("h2!");
+				}
+			}
+			// both requests are multiplexed over one h2 connection
+			assertThat(server.getProtocols()).containsExactly("h2");
+			assertThat(server.getRequests()).isEqualTo(2);
+		} finally {
+			SSLContext.setDefault(defaultContext);
+		}
+	}
+
+	@Test
+	public void testHttp2ReadTimeout() throws Exception {
+		SSLContext defaultContext = SSLContext.getDefault();
+		try (Http2Server server = new Http2Server("h2!".getBytes(UTF_8), TimeUnit.SECONDS.toMillis(60))) {
+			SSLContext.setDefault(server.getClientContext());
+			try (HttpClient hc = new HttpClient().http2(true)) {
+				long start = System.nanoTime();
+				assertThatThrownBy(() -> hc.build()
+					.timeout(1000)
+					.retries(0)
+					.get(String.class)
+					.go(server.getBaseURI("get")));
+				assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(30000L);
+			}
+			assertThat(server.getProtocols()).containsExactly("h2");
+		} finally {
+			SSLContext.setDefault(defaultContext);
+		}
+	}
+
 	@Test
 	public void testRedirectTooMany() throws Exception {
 		try (HttpClient hc = new HttpClient();) {
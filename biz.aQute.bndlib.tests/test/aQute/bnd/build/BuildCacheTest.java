@@ -0,0 +1,225 @@
+package aQute.bnd.build;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.EmbeddedResource;
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.io.IO;
+
+public class BuildCacheTest {
+	@InjectTemporaryDirectory
+	File tmp;
+
+	@Test
+	public void testDirectory() throws Exception {
+		File cache = IO.getFile(tmp, "cache");
+		try (Workspace ws = getWorkspace()) {
+			Project project = ws.getProject("p-stale-dep");
+			project.setProperty(Constants.BUILDCACHE, IO.absolutePath(cache));
+
+			File[] files = project.build();
+			assertThat(project.check()).isTrue();
+			assertThat(files).hasSize(1);
+			assertThat(entries(cache)).hasSize(1);
+			assertThat(ws.getBuildCache(project)
+				.statistics(project)).isEqualTo("hits=0 misses=1 stores=1");
+
+			project.clean();
+			assertThat(files[0]).doesNotExist();
+			files = project.build();
+			assertThat(project.check()).isTrue();
+			assertThat(ws.getBuildCache(project)
+				.statistics(project)).isEqualTo("hits=1 misses=1 stores=1");
+			try (Jar jar = new Jar(files[0])) {
+				assertThat(jar.getBsn()).isEqualTo("p-stale-dep");
+				assertThat(IO.collect(jar.getResource("p")
+					.openInputStream())).isEqualTo("hello");
+			}
+		}
+	}
+
+	@Test
+	public void testKey() throws Exception {
+		try (Workspace ws = getWorkspace()) {
+			Project project = ws.getProject("p-stale-dep");
+			String key;
+			try (ProjectBuilder builder = project.getBuilder(null)) {
+				key = builder.getBuildCacheKey();
+			}
+			project.getPropertiesFile()
+				.setLastModified(System.currentTimeMillis() - 10000L);
+			project.setProperty(Constants.TSTAMP, "1");
+			try (ProjectBuilder builder = project.getBuilder(null)) {
+				assertThat(builder.getBuildCacheKey()).isEqualTo(key);
+			}
+			IO.store("not an input", IO.getFile(project.getBase(), "notes.txt"));
+			try (ProjectBuilder builder = project.getBuilder(null)) {
+				assertThat(builder.getBuildCacheKey()).isEqualTo(key);
+			}
+			project.setProperty("Include-Resource", "p;literal=\"changed\"");
+			try (ProjectBuilder builder = project.getBuilder(null)) {
+				assertThat(builder.getBuildCacheKey()).isNotEqualTo(key);
+			}
+		}
+	}
+
+	@Test
+	public void testWarnings() throws Exception {
+		File cache = IO.getFile(tmp, "cache");
+		try (Workspace ws = getWorkspace()) {
+			Project project = ws.getProject("p-stale-dep");
+			project.setProperty(Constants.BUILDCACHE, IO.absolutePath(cache));
+			project.setProperty("Bundle-Description", "${warning;cached warning}");
+
+			project.build();
+			assertThat(project.check("cached warning")).isTrue();
+
+			project.clean();
+			project.build();
+			assertThat(ws.getBuildCache(project)
+				.statistics(project)).isEqualTo("hits=1 misses=1 stores=1");
+			assertThat(project.check("cached warning")).isTrue();
+		}
+	}
+
+	@Test
+	public void testEnvironment() throws Exception {
+		File cache = IO.getFile(tmp, "cache");
+		try (Workspace ws = getWorkspace()) {
+			Project project = ws.getProject("p-stale-dep");
+			project.setProperty(Constants.BUILDCACHE, IO.absolutePath(cache));
+			project.setProperty("Bundle-Description", "${env;PATH}");
+
+			project.build();
+			assertThat(project.check()).isTrue();
+			List<File> entries = entries(cache);
+			assertThat(entries).hasSize(1);
+
+			File entry = entries.get(0);
+			try (ZipFile zip = new ZipFile(entry)) {
+				assertThat(IO.collect(zip.getInputStream(zip.getEntry("META-INF/buildcache.properties"))))
+					.contains("env.PATH=");
+			}
+			try (Jar jar = new Jar("p-stale-dep");
+				ZipOutputStream zout = new ZipOutputStream(IO.outputStream(entry))) {
+				jar.putResource("p", new EmbeddedResource("hello", 0L));
+				zout.putNextEntry(new ZipEntry("p-stale-dep"));
+				jar.write(zout);
+				zout.closeEntry();
+				zout.putNextEntry(new ZipEntry("META-INF/buildcache.properties"));
+				zout.write("env.PATH=0000\n".getBytes(UTF_8));
+				zout.closeEntry();
+			}
+
+			project.clean();
+			project.build();
+			assertThat(project.check()).isTrue();
+			assertThat(ws.getBuildCache(project)
+				.statistics(project)).isEqualTo("hits=0 misses=2 stores=2");
+		}
+	}
+
+	@Test
+	public void testHttp() throws Exception {
+		Map<String, byte[]> entries = new ConcurrentHashMap<>();
+		AtomicInteger puts = new AtomicInteger();
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/cache/", exchange -> {
+			String path = exchange.getRequestURI()
+				.getPath();
+			try (InputStream in = exchange.getRequestBody()) {
+				if (exchange.getRequestMethod()
+					.equals("PUT")) {
+					entries.put(path, IO.read(in));
+					puts.incrementAndGet();
+					exchange.sendResponseHeaders(201, -1);
+				} else if (entries.containsKey(path)) {
+					byte[] entry = entries.get(path);
+					exchange.sendResponseHeaders(200, entry.length);
+					exchange.getResponseBody()
+						.write(entry);
+				} else {
+					exchange.sendResponseHeaders(404, -1);
+				}
+			} finally {
+				exchange.close();
+			}
+		});
+		server.start();
+		try (Workspace ws = getWorkspace()) {
+			Project project = ws.getProject("p-stale-dep");
+			project.setProperty(Constants.BUILDCACHE, "http://localhost:" + server.getAddress()
+				.getPort() + "/cache");
+
+			project.build();
+			assertThat(project.check()).isTrue();
+			assertThat(puts.get()).isEqualTo(1);
+			assertThat(entries).hasSize(1);
+
+			project.clean();
+			File[] files = project.build();
+			assertThat(project.check()).isTrue();
+			assertThat(files).hasSize(1);
+			assertThat(puts.get()).isEqualTo(1);
+			assertThat(ws.getBuildCache(project)
+				.statistics(project)).isEqualTo("hits=1 misses=1 stores=1");
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	public void testNoPush() throws Exception {
+		File cache = IO.getFile(tmp, "cache");
+		try (Workspace ws = getWorkspace()) {
+			Project project = ws.getProject("p-stale-dep");
+			project.setProperty(Constants.BUILDCACHE, IO.absolutePath(cache) + ";push=false");
+
+			project.build();
+			assertThat(project.check()).isTrue();
+			assertThat(entries(cache)).isEmpty();
+			assertThat(ws.getBuildCache(project)
+				.statistics(project)).isEqualTo("hits=0 misses=1 stores=0");
+		}
+	}
+
+	private Workspace getWorkspace() throws Exception {
+		File ws = IO.getFile(tmp, "ws");
+		IO.copy(IO.getFile("testresources/ws"), ws);
+		return new Workspace(ws);
+	}
+
+	private static List<File> entries(File cache) throws Exception {
+		if (!cache.isDirectory()) {
+			return Collections.emptyList();
+		}
+		try (Stream<Path> paths = Files.walk(cache.toPath())) {
+			return paths.filter(Files::isRegularFile)
+				.map(Path::toFile)
+				.collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package aQute.bnd.osgi.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.osgi.resource.Resource;
+
+import aQute.bnd.osgi.resource.CapabilityBuilder;
+import aQute.bnd.osgi.resource.ResourceUtils;
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.io.IO;
+
+public class SimpleIndexerTest {
+
+	@Test
+	public void testOrderAndParallel(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File jars = IO.getFile(tmp, "jars");
+		List<File> files = copy(jars, "osgi.jar", "ds.jar", "rox.jar", "beasymock.jar", "com.test.scala.jar");
+
+		File serial = IO.getFile(tmp, "serial.xml");
+		new SimpleIndexer().files(files)
+			.base(tmp.toURI())
+			.increment(1L)
+			.parallel(1)
+			.index(serial);
+
+		File parallel = IO.getFile(tmp, "parallel.xml.gz");
+		new SimpleIndexer().files(files)
+			.base(tmp.toURI())
+			.increment(1L)
+			.parallel(3)
+			.index(parallel);
+
+		List<Resource> resources = XMLResourceParser.getResources(parallel);
+		assertThat(urls(resources)).containsExactly("jars/osgi.jar", "jars/ds.jar", "jars/rox.jar", "jars/beasymock.jar",
+			"jars/com.test.scala.jar");
+		assertThat(XMLResourceParser.getResources(serial)).isEqualTo(resources);
+		assertThat(urls(new SimpleIndexer().files(files)
+			.base(tmp.toURI())
+			.parallel(3)
+			.getResources())).isEqualTo(urls(resources));
+	}
+
+	@Test
+	public void testAnalyzerCalledInOrder(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File jars = IO.getFile(tmp, "jars");
+		List<File> files = copy(jars, "osgi.jar", "ds.jar", "rox.jar", "beasymock.jar", "com.test.scala.jar");
+		List<String> analyzed = new ArrayList<>();
+		Set<Thread> threads = new HashSet<>();
+		new SimpleIndexer().files(files)
+			.base(tmp.toURI())
+			.parallel(3)
+			.analyzer((file, rb) -> {
+				analyzed.add(file.getName());
+				threads.add(Thread.currentThread());
+			})
+			.index(IO.getFile(tmp, "index.xml"));
+		assertThat(analyzed).containsExactly("osgi.jar", "ds.jar", "rox.jar", "beasymock.jar", "com.test.scala.jar");
+		assertThat(threads).containsExactly(Thread.currentThread());
+	}
+
+	@Test
+	public void testIncremental(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File jars = IO.getFile(tmp, "jars");
+		List<File> files = copy(jars, "osgi.jar", "ds.jar", "rox.jar");
+		Set<String> analyzed = ConcurrentHashMap.newKeySet();
+		SimpleIndexer.FileAnalyzer analyzer = (file, rb) -> {
+			analyzed.add(file.getName());
+			rb.addCapability(new CapabilityBuilder("test.analyzed").addAttribute("test.analyzed", file.getName()));
+		};
+
+		File index = IO.getFile(tmp, "index.xml");
+		new SimpleIndexer().files(files)
+			.base(tmp.toURI())
+			.analyzer(analyzer)
+			.previous(index)
+			.index(index);
+		assertThat(analyzed).containsExactlyInAnyOrder("osgi.jar", "ds.jar", "rox.jar");
+		List<Resource> first = XMLResourceParser.getResources(index);
+
+		analyzed.clear();
+		IO.copy(IO.getFile("jar/beasymock.jar"), IO.getFile(jars, "rox.jar"));
+		IO.rename(IO.getFile(jars, "ds.jar"), IO.getFile(jars, "ds-renamed.jar"));
+		files = Arrays.asList(IO.getFile(jars, "osgi.jar"), IO.getFile(jars, "ds-renamed.jar"),
+			IO.getFile(jars, "rox.jar"));
+		new SimpleIndexer().files(files)
+			.base(tmp.toURI())
+			.analyzer(analyzer)
+			.previous(index)
+			.index(index);
+		assertThat(analyzed).containsExactly("rox.jar");
+
+		List<Resource> second = XMLResourceParser.getResources(index);
+		assertThat(urls(second)).containsExactly("jars/osgi.jar", "jars/ds-renamed.jar", "jars/rox.jar");
+		assertThat(second.get(0)).isEqualTo(first.get(0));
+		assertThat(second.get(1)
+			.getCapabilities("test.analyzed")).hasSize(1);
+		assertThat(ResourceUtils.getIdentityCapability(second.get(1))
+			.osgi_identity()).isEqualTo(ResourceUtils.getIdentityCapability(first.get(1))
+				.osgi_identity());
+		assertThat(ResourceUtils.getContentCapability(second.get(2))
+			.osgi_content()).isNotEqualTo(ResourceUtils.getContentCapability(first.get(2))
+				.osgi_content());
+	}
+
+	private static List<File> copy(File dir, String... names) throws Exception {
+		IO.mkdirs(dir);
+		List<File> files = new ArrayList<>();
+		for (String name : names) {
+			File file = IO.getFile(dir, name);
+			IO.copy(IO.getFile("jar/" + name), file);
+			files.add(file);
+		}
+		return files;
+	}
+
+	private static List<String> urls(List<Resource> resources) {
+		return resources.stream()
+			.map(r -> ResourceUtils.getContentCapability(r)
+				.url()
+				.toString())
+			.map(url -> url.substring(url.indexOf("jars/")))
+			.collect(Collectors.toList());
+	}
+}
@@ -1,8 +1,10 @@
 package aQute.bnd.osgi.repository;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
@@ -12,6 +14,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.osgi.resource.Capability;
@@ -46,6 +49,40 @@ public class XMLResourceGeneratorTest {
 			.toString()).endsWith("/name.njbartlett.eclipse.macbadge_1.0.0.201110100042.jar");
 	}
 
+	@Test
+	public void testStreaming() throws URISyntaxException, Exception {
+		URI uri = XMLResourceGeneratorTest.class.getResource("data/macbadge.xml")
+			.toURI();
+		List<Resource> resources = XMLResourceParser.getResources(uri);
+		ByteArrayOutputStream collected = new ByteArrayOutputStream();
+		new XMLResourceGenerator().name("test")
+			.increment(1L)
+			.referral(new URI("http://example.com/index.xml"), 2)
+			.resources(resources)
+			.save(collected);
+
+		ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		new XMLResourceGenerator().name("test")
+			.increment(1L)
+			.referral(new URI("http://example.com/index.xml"), 2)
+			.save(streamed, resources.stream());
+		assertThat(streamed.toString(UTF_8)).isEqualTo(collected.toString(UTF_8));
+
+		// duplicates are skipped like when they are added
+		ByteArrayOutputStream duplicates = new ByteArrayOutputStream();
+		new XMLResourceGenerator().name("test")
+			.increment(1L)
+			.referral(new URI("http://example.com/index.xml"), 2)
+			.resource(resources.get(0))
+			.save(duplicates, Stream.concat(resources.stream(), resources.stream()));
+		assertThat(duplicates.toString(UTF_8)).isEqualTo(collected.toString(UTF_8));
+
+		ByteArrayOutputStream empty = new ByteArrayOutputStream();
+		new XMLResourceGenerator().save(empty, Stream.empty());
+		assertThat(empty.toString(UTF_8)).isEqualTo("<?xml version='1.0' encoding='UTF-8'?>\n"
+			+ "<repository xmlns=\"http://www.osgi.org/xmlns/repository/v1.0.0\"/>\n");
+	}
+
 	private Repository getTestRepository() throws URISyntaxException, Exception {
 		return getRepository(XMLResourceGeneratorTest.class.getResource("data/macbadge.xml")
 			.toURI());
@@ -0,0 +1,108 @@
+package aQute.bnd.osgi.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.osgi.resource.Resource;
+
+import aQute.bnd.service.resource.SupportingResource;
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
+import aQute.lib.io.IO;
+
+class FileResourceCacheTest {
+
+	@Test
+	void restored_from_disk(@InjectTemporaryDirectory
+	Path tmp) throws Exception {
+		File file = IO.getFile("jar/multi-release-ok.jar");
+		URI uri = file.toURI();
+		SupportingResource original = new FileResourceCache(tmp, 1024L * 1024L).getResource(file, uri,
+			() -> ResourceBuilder.parse(file, uri));
+		assertThat(jsonFiles(tmp)).hasSize(1);
+
+		SupportingResource restored = new FileResourceCache(tmp, 1024L * 1024L).getResource(file, uri, () -> {
+			throw new AssertionError("must be read from disk");
+		});
+		assertThat(restored).isEqualTo(original);
+		assertThat(capReqs(restored)).isEqualTo(capReqs(original));
+		assertThat(restored.getSupportingResources()).hasSize(original.getSupportingResources()
+			.size());
+		for (int i = 0; i < original.getSupportingResources()
+			.size(); i++) {
+			Resource supporting = restored.getSupportingResources()
+				.get(i);
+			assertThat(capReqs(supporting)).isEqualTo(capReqs(original.getSupportingResources()
+				.get(i)));
+			assertThat(((SupportingResource) supporting).getParent()).containsSame(restored);
+		}
+	}
+
+	@Test
+	void changed_file_is_parsed_again(@InjectTemporaryDirectory
+	Path tmp) throws Exception {
+		Path cache = tmp.resolve("cache");
+		Path subject = tmp.resolve("subject.jar");
+		IO.copy(IO.getFile("jar/asm.jar"), subject.toFile());
+		File file = subject.toFile();
+		new FileResourceCache(cache, 1024L * 1024L).getResource(file, file.toURI(),
+			() -> ResourceBuilder.parse(file, file.toURI()));
+
+		IO.copy(IO.getFile("jar/osgi.jar"), file);
+		SupportingResource resource = new FileResourceCache(cache, 1024L * 1024L).getResource(file, file.toURI(),
+			() -> ResourceBuilder.parse(file, file.toURI()));
+		assertThat(ResourceUtils.getIdentityCapability(resource)
+			.osgi_identity()).isEqualTo("osgi");
+		assertThat(jsonFiles(cache)).hasSize(2);
+	}
+
+	@Test
+	void least_recently_used_are_evicted(@InjectTemporaryDirectory
+	Path tmp) throws Exception {
+		Path cache = tmp.resolve("cache");
+		FileResourceCache warm = new FileResourceCache(cache, 1024L * 1024L);
+		for (String name : List.of("asm.jar", "osgi.jar", "multi-release-ok.jar")) {
+			File file = IO.getFile("jar/" + name);
+			warm.getResource(file, file.toURI(), () -> ResourceBuilder.parse(file, file.toURI()));
+		}
+		List<Path> files = jsonFiles(cache);
+		long total = 0L;
+		for (Path p : files) {
+			total += Files.size(p);
+		}
+		assertThat(files).hasSize(3);
+
+		File file = IO.getFile("jar/ds.jar");
+		new FileResourceCache(cache, total).getResource(file, file.toURI(),
+			() -> ResourceBuilder.parse(file, file.toURI()));
+		long size = 0L;
+		for (Path p : jsonFiles(cache)) {
+			size += Files.size(p);
+		}
+		assertThat(size).isLessThanOrEqualTo(total);
+	}
+
+	private static List<Path> jsonFiles(Path dir) throws Exception {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(p -> p.toString()
+				.endsWith(".json"))
+				.toList();
+		}
+	}
+
+	private static List<List<Object>> capReqs(Resource resource) {
+		return Stream.concat(resource.getCapabilities(null)
+			.stream()
+			.map(c -> List.<Object> of(c.getNamespace(), c.getAttributes(), c.getDirectives())),
+			resource.getRequirements(null)
+				.stream()
+				.map(r -> List.<Object> of(r.getNamespace(), r.getAttributes(), r.getDirectives())))
+			.toList();
+	}
+}
@@ -0,0 +1,70 @@
+package aQute.bnd.osgi.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Version;
+
+public class FilterImplTest {
+
+	@Test
+	public void testTypedValues() throws Exception {
+		FilterImpl filter = FilterImpl.createFilter("(a>=2)");
+		assertThat(filter.matches(Map.of("a", "3"))).isTrue();
+		assertThat(filter.matches(Map.of("a", 3L))).isTrue();
+		assertThat(filter.matches(Map.of("a", 1))).isFalse();
+		assertThat(filter.matches(Map.of("a", 2.5D))).isTrue();
+		assertThat(filter.matches(Map.of("a", 1.5F))).isFalse();
+		assertThat(filter.matches(Map.of("a", new Version(2, 0, 0)))).isTrue();
+		assertThat(filter.matches(Map.of("a", new aQute.bnd.version.Version(1, 9, 0)))).isFalse();
+		assertThat(filter.matches(Map.of("a", new aQute.bnd.version.Version(2, 1, 0)))).isTrue();
+		assertThat(filter.matches(Map.of("a", new long[] {
+			1L, 5L
+		}))).isTrue();
+
+		filter = FilterImpl.createFilter("(a=true)");
+		assertThat(filter.matches(Map.of("a", Boolean.TRUE))).isTrue();
+		assertThat(filter.matches(Map.of("a", Boolean.FALSE))).isFalse();
+		assertThat(filter.matches(Map.of("a", "true"))).isTrue();
+		assertThat(filter.matches(Map.of("a", "TRUE"))).isFalse();
+	}
+
+	@Test
+	public void testMixedTypesInCollection() throws Exception {
+		FilterImpl filter = FilterImpl.createFilter("(&(version>=1.2)(!(version>=2)))");
+		List<Object> values = Arrays.asList(1L, new Version("1.5.0"));
+		for (int i = 0; i < 3; i++) {
+			assertThat(filter.matches(Map.of("version", values))).isTrue();
+			assertThat(filter.matches(Map.of("version", 1L))).isFalse();
+			assertThat(filter.matches(Map.of("version", new Version("2.0.0")))).isFalse();
+		}
+	}
+
+	@Test
+	public void testInvalidConversion() throws Exception {
+		FilterImpl filter = FilterImpl.createFilter("(a=foo)");
+		for (int i = 0; i < 2; i++) {
+			assertThat(filter.matches(Map.of("a", 1L))).isFalse();
+			assertThat(filter.matches(Map.of("a", 1.0D))).isFalse();
+			assertThat(filter.matches(Map.of("a", Version.emptyVersion))).isFalse();
+			assertThat(filter.matches(Map.of("a", "foo"))).isTrue();
+		}
+	}
+
+	@Test
+	public void testEvaluationOrderKeepsFilterString() throws Exception {
+		String filterString = "(&(!(b=1))(a~=x y)(c=*)(d>=1)(e=f*))";
+		FilterImpl filter = FilterImpl.createFilter(filterString);
+		assertThat(filter).hasToString("(&(!(b=1))(a~=xy)(c=*)(d>=1)(e=f*))");
+		assertThat(filter.matches(Map.of("a", "X Y", "c", "", "d", 2L, "e", "foo"))).isTrue();
+		assertThat(filter.matches(Map.of("a", "X Y", "b", 1L, "c", "", "d", 2L, "e", "foo"))).isFalse();
+
+		filter = FilterImpl.createFilter("(|(e=f*)(!(b=1))(c=*))");
+		assertThat(filter.matches(Map.of("b", 1L))).isFalse();
+		assertThat(filter.matches(Map.of("b", 1L, "e", "foo"))).isTrue();
+	}
+}
@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
@@ -38,6 +39,7 @@ import aQute.bnd.osgi.Packages;
 import aQute.bnd.osgi.Processor;
 import aQute.bnd.osgi.Resource;
 import aQute.bnd.osgi.metainf.MetaInfService;
+import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
 import aQute.lib.io.IO;
 
 class T0 {}
@@ -1415,6 +1417,99 @@ public class AnalyzerTest {
 		}
 	}
 
+	/**
+	 * Parsing the classes in parallel must result in exactly the same manifest
+	 * as the serial analysis.
+	 */
+	@Test
+	public void testParallelAnalysis() throws Exception {
+		String[] manifests = new String[2];
+		for (int i = 0; i < manifests.length; i++) {
+			try (Analyzer h = new Analyzer()) {
+				h.setJar(IO.getFile("jar/bcel.jar"));
+				h.setProperty(Constants.EXPORT_PACKAGE, "*");
+				h.setProperty(Constants.NOEXTRAHEADERS, "true");
+				if (i == 1) {
+					h.setProperty(Constants.PARALLELANALYSIS, "4");
+				}
+				Manifest m = h.calcManifest();
+				assertTrue(h.check());
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				m.write(out);
+				manifests[i] = out.toString("UTF-8");
+			}
+		}
+		assertThat(manifests[1]).isEqualTo(manifests[0]);
+	}
+
+	/**
+	 * A proxy for an interface in the same jar must result in the same
+	 * references whether the classes are parsed serially or in parallel.
+	 */
+	@Test
+	public void testParallelAnalysisProxyInterfaces() throws Exception {
+		String[] manifests = new String[2];
+		for (int i = 0; i < manifests.length; i++) {
+			try (Analyzer h = new Analyzer()) {
+				Jar jar = new Jar(IO.getFile("jar/bcel.jar"));
+				for (String path : new String[] {
+					"test/proxy/ProxyToInterface.class", "test/proxy/api/ProxiedService.class"
+				}) {
+					jar.putResource(path, new FileResource(IO.getFile("bin_test/" + path)));
+				}
+				h.setJar(jar);
+				h.setProperty(Constants.EXPORT_PACKAGE, "*");
+				h.setProperty(Constants.NOEXTRAHEADERS, "true");
+				h.setProperty(Constants.NOPROXYINTERFACES, "false");
+				if (i == 1) {
+					h.setProperty(Constants.PARALLELANALYSIS, "4");
+				}
+				Manifest m = h.calcManifest();
+				assertTrue(h.check());
+				assertThat(h.getUses()
+					.get(h.getPackageRef("test/proxy"))).contains(h.getPackageRef("java/nio/file"));
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				m.write(out);
+				manifests[i] = out.toString("UTF-8");
+			}
+		}
+		assertThat(manifests[1]).isEqualTo(manifests[0]);
+	}
+
+	/**
+	 * A populated class cache must result in exactly the same manifest as
+	 * parsing the class files.
+	 */
+	@Test
+	public void testClassCache(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File cache = new File(tmp, "classes");
+		String[] manifests = new String[3];
+		for (int i = 0; i < manifests.length; i++) {
+			try (Analyzer h = new Analyzer()) {
+				h.setJar(IO.getFile("jar/ds.jar"));
+				h.setClasspath(new File[] {
+					IO.getFile("jar/osgi.jar")
+				});
+				h.setProperty(Constants.EXPORT_PACKAGE, "*");
+				h.setProperty(Constants.NOEXTRAHEADERS, "true");
+				if (i > 0) {
+					h.setProperty(Constants.CLASSCACHE, cache.getAbsolutePath());
+				}
+				Manifest m = h.calcManifest();
+				assertTrue(h.check());
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				m.write(out);
+				manifests[i] = out.toString("UTF-8");
+			}
+			if (i == 1) {
+				assertThat(cache).isDirectory();
+			}
+		}
+		assertThat(manifests[1]).isEqualTo(manifests[0]);
+		assertThat(manifests[2]).isEqualTo(manifests[0]);
+	}
+
 	/**
 	 * We detect that there are instruction on im/export package headers that
 	 * are never used. This usually indicates a misunderstanding or a change in
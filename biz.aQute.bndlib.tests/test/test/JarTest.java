@@ -1,5 +1,6 @@
 package test;
 
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.data.Offset.strictOffset;
@@ -16,12 +17,17 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
 import java.text.Collator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.jar.Attributes;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import org.junit.jupiter.api.Test;
@@ -34,6 +40,7 @@ import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.EmbeddedResource;
 import aQute.bnd.osgi.FileResource;
 import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.JarCache;
 import aQute.bnd.osgi.Resource;
 import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
 import aQute.lib.io.IO;
@@ -323,6 +330,172 @@ public class JarTest {
 		}
 	}
 
+	@Test
+	public void testParallelWrite(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		for (Jar.Compression compression : Jar.Compression.values()) {
+			for (String[] algorithms : new String[][] {
+				null, new String[] {
+					"SHA-256", "MD5"
+				}
+			}) {
+				byte[] serial = write(compression, algorithms, 0);
+				byte[] parallel = write(compression, algorithms, 4);
+				List<String> entries = entries(serial);
+				assertThat(entries(parallel)).isEqualTo(entries);
+
+				File file = new File(tmp, "parallel.jar");
+				IO.copy(parallel, file);
+				try (ZipFile zip = new ZipFile(file)) {
+					assertThat(zip.stream()
+						.map(ZipEntry::getName)
+						.collect(toList())).isEqualTo(entries.stream()
+							.map(entry -> entry.substring(0, entry.indexOf(' ')))
+							.collect(toList()));
+				}
+				try (JarInputStream jin = new JarInputStream(new ByteArrayInputStream(parallel))) {
+					Manifest manifest = jin.getManifest();
+					assertNotNull(manifest);
+					if (algorithms != null) {
+						assertThat(manifest.getAttributes("org/objectweb/asm/ClassReader.class")
+							.getValue("SHA-256-Digest")).isNotNull();
+					}
+				}
+			}
+		}
+	}
+
+	private static byte[] write(Jar.Compression compression, String[] algorithms, int workers) throws Exception {
+		try (Jar jar = new Jar(IO.getFile("jar/asm.jar"))) {
+			jar.putResource("META-INF/services/x/y.txt", new EmbeddedResource("y", 0L));
+			jar.setCompression(compression);
+			jar.setDigestAlgorithms(algorithms);
+			jar.setReproducible("true");
+			jar.setParallelWrite(workers);
+			ByteArrayOutputStream bout = new ByteArrayOutputStream();
+			jar.write(bout);
+			return bout.toByteArray();
+		}
+	}
+
+	private static List<String> entries(byte[] data) throws Exception {
+		List<String> entries = new ArrayList<>();
+		try (ZipInputStream zin = new ZipInputStream(new ByteArrayInputStream(data))) {
+			for (ZipEntry entry; (entry = zin.getNextEntry()) != null;) {
+				entries.add(entry.getName() + " " + entry.getTime() + " " + SHA256.digest(zin.readAllBytes())
+					.asHex());
+			}
+		}
+		return entries;
+	}
+
+	@Test
+	public void testMappedRead(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		for (Jar.Compression compression : Jar.Compression.values()) {
+			File file = new File(tmp, compression + ".jar");
+			try (Jar jar = new Jar(IO.getFile("jar/asm.jar"))) {
+				jar.putResource("META-INF/services/x/y.txt", new EmbeddedResource("y", 0L));
+				jar.setCompression(compression);
+				jar.write(file);
+			}
+			Map<String, String> expected = contents(new Jar(file));
+			assertThat(expected).containsKey("org/objectweb/asm/ClassReader.class");
+
+			assertThat(contents(new Jar(file.getName(), IO.stream(file)))).isEqualTo(expected);
+			if (compression == Jar.Compression.DEFLATE) {
+				try (Jar jar = new Jar(file.getName(), IO.stream(file))) {
+					// the inflated content is retained after the first read
+					Resource r = jar.getResource("org/objectweb/asm/ClassReader.class");
+					assertThat(r.buffer()
+						.array()).isSameAs(r.buffer()
+							.array());
+				}
+			}
+			String old = System.setProperty("bnd.jar.mapped", "true");
+			try {
+				assertThat(contents(new Jar(file))).isEqualTo(expected);
+			} finally {
+				if (old == null) {
+					System.clearProperty("bnd.jar.mapped");
+				} else {
+					System.setProperty("bnd.jar.mapped", old);
+				}
+			}
+		}
+		// not a ZIP file with a central directory
+		try (Jar jar = new Jar("empty", new ByteArrayInputStream(new byte[] {
+			1, 2, 3
+		}))) {
+			assertThat(jar.getResources()).isEmpty();
+		}
+	}
+
+	@Test
+	public void testJarCache(@InjectTemporaryDirectory
+	File tmp) throws Exception {
+		File file = new File(tmp, "asm.jar");
+		IO.copy(IO.getFile("jar/asm.jar"), file);
+		File other = new File(tmp, "osgi.jar");
+		IO.copy(IO.getFile("jar/osgi.jar"), other);
+
+		try (JarCache cache = new JarCache(file.length() + other.length())) {
+			Jar jar;
+			try (JarCache.Lease a = cache.acquire(file); JarCache.Lease b = cache.acquire(file)) {
+				jar = a.getJar();
+				assertThat(b.getJar()).isSameAs(jar);
+				assertThat(jar.getName()).isEqualTo("asm");
+				assertThat(jar.getSource()).isEqualTo(file.getAbsoluteFile());
+				assertThat(contents(jar)).isEqualTo(contents(new Jar(file)));
+			}
+			assertThat(cache.size()).isEqualTo(file.length());
+
+			// unreferenced jars are evicted when the budget is exceeded
+			try (JarCache.Lease a = cache.acquire(other)) {
+				assertThat(cache.size()).isEqualTo(file.length() + other.length());
+			}
+			cache.setBudget(other.length());
+			assertThat(cache.size()).isEqualTo(other.length());
+			cache.setBudget(file.length() + other.length());
+
+			// a changed file is read again
+			try (JarCache.Lease a = cache.acquire(file)) {
+				jar = a.getJar();
+				try (JarCache.Lease b = cache.acquire(file)) {
+					assertThat(b.getJar()).isSameAs(jar);
+				}
+				file.setLastModified(file.lastModified() - 10_000L);
+				try (JarCache.Lease b = cache.acquire(file)) {
+					assertThat(b.getJar()).isNotSameAs(jar);
+				}
+				assertThat(jar.getResources()).isNotEmpty();
+			}
+
+			// not cached
+			assertThat(cache.acquire(tmp)).isNull();
+			assertThat(cache.acquire(new File(tmp, "missing.jar"))).isNull();
+			cache.setBudget(file.length() - 1);
+			assertThat(cache.acquire(file)).isNull();
+		}
+	}
+
+	private static Map<String, String> contents(Jar jar) throws Exception {
+		try (jar) {
+			Map<String, String> contents = new LinkedHashMap<>();
+			for (Map.Entry<String, Resource> entry : jar.getResources()
+				.entrySet()) {
+				Resource resource = entry.getValue();
+				contents.put(entry.getKey(),
+					resource.size() + " " + resource.lastModified() + " " + resource.getExtra() + " "
+						+ SHA256.digest(IO.read(resource.openInputStream()))
+							.asHex()
+						+ " " + SHA256.digest(IO.read(resource.buffer()))
+							.asHex());
+			}
+			return contents;
+		}
+	}
+
 	@Test
 	public void testWriteManifestAttributeDirectiveOrdering() throws Exception {
 		Manifest manifest = new Manifest();
@@ -2164,4 +2164,95 @@ public class MacroTest {
 				.process("${format;%,6d;100000}"));
 		}
 	}
+
+	public static class Counter {
+		int calls;
+
+		public String _counted(String[] args) {
+			calls++;
+			return args[1];
+		}
+	}
+
+	/**
+	 * Check that expansions are memoized and invalidated when a property they
+	 * read changes
+	 */
+	@Test
+	public void testMacroCache() throws IOException {
+		Counter counter = new Counter();
+		try (Processor processor = new Processor() {
+			@Override
+			protected Object[] getMacroDomains() {
+				return new Object[] {
+					counter
+				};
+			}
+		}) {
+			processor.setProperty("a", "${counted;${b}}");
+			processor.setProperty("b", "x");
+			processor.setProperty("c", "${toupper;${b}}");
+
+			assertEquals("x", processor.getProperty("a"));
+			assertEquals("x", processor.getProperty("a"));
+			assertEquals(2, counter.calls);
+
+			processor.setProperty(Constants.MACROCACHE, "true;cache=counted");
+			assertEquals("x", processor.getProperty("a"));
+			assertEquals("x", processor.getProperty("a"));
+			assertEquals(3, counter.calls);
+			assertEquals("X", processor.getProperty("c"));
+
+			processor.setProperty("b", "y");
+			assertEquals("y", processor.getProperty("a"));
+			assertEquals("y", processor.getProperty("a"));
+			assertEquals(4, counter.calls);
+			assertEquals("Y", processor.getProperty("c"));
+
+			processor.setProperty(Constants.MACROCACHE, "true");
+			assertEquals("y", processor.getProperty("a"));
+			assertEquals("y", processor.getProperty("a"));
+			assertEquals(6, counter.calls);
+
+			processor.setProperty(Constants.MACROCACHE, "true;cache=counted;nocache=counted");
+			assertEquals("y", processor.getProperty("a"));
+			assertEquals("y", processor.getProperty("a"));
+			assertEquals(8, counter.calls);
+			assertTrue(processor.check());
+		}
+	}
+
+	/**
+	 * Check that a change of the -macrocache instruction in a parent is seen
+	 */
+	@Test
+	public void testMacroCacheParent() throws IOException {
+		Counter counter = new Counter();
+		try (Processor parent = new Processor(); Processor processor = new Processor(parent) {
+			@Override
+			protected Object[] getMacroDomains() {
+				return new Object[] {
+					counter
+				};
+			}
+		}) {
+			processor.setProperty("a", "${counted;x}");
+			parent.setProperty(Constants.MACROCACHE, "true;cache=counted");
+			assertEquals("x", processor.getProperty("a"));
+			assertEquals("x", processor.getProperty("a"));
+			assertEquals(1, counter.calls);
+
+			parent.setProperty(Constants.MACROCACHE, "false");
+			assertEquals("x", processor.getProperty("a"));
+			assertEquals("x", processor.getProperty("a"));
+			assertEquals(3, counter.calls);
+
+			parent.setProperty(Constants.MACROCACHE, "true;cache=counted");
+			processor.setParent(new Processor());
+			assertEquals("x", processor.getProperty("a"));
+			assertEquals("x", processor.getProperty("a"));
+			assertEquals(5, counter.calls);
+			assertTrue(processor.check());
+		}
+	}
 }
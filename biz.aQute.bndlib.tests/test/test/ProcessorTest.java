@@ -713,6 +713,48 @@ public class ProcessorTest {
 
 	}
 
+	/**
+	 * Check that lookups and merged properties follow changes anywhere in the
+	 * inheritance chain
+	 */
+	@Test
+	public void testPropertyView() throws IOException {
+		try (Processor top = new Processor(); Processor middle = new Processor(top);
+			Processor bottom = new Processor(middle)) {
+			top.setProperty("foo", "top");
+			top.setProperty("merged.top", "a");
+			middle.setProperty("merged.middle", "b");
+			bottom.setProperty("merged", "c");
+
+			assertThat(bottom.getProperty("foo")).isEqualTo("top");
+			assertThat(bottom.mergeProperties("merged")).isEqualTo("c,b,a");
+			assertThat(bottom.mergeProperties("merged")).isEqualTo("c,b,a");
+
+			middle.setProperty("foo", "middle");
+			top.setProperty("merged.a", "d");
+			assertThat(bottom.getProperty("foo")).isEqualTo("middle");
+			assertThat(bottom.mergeProperties("merged")).isEqualTo("c,d,b,a");
+
+			middle.unsetProperty("foo");
+			top.unsetProperty("merged.top");
+			assertThat(bottom.getProperty("foo")).isEqualTo("top");
+			assertThat(bottom.mergeProperties("merged")).isEqualTo("c,d,b");
+
+			bottom.setForceLocal(List.of("foo", "merged.a"));
+			assertThat(bottom.getProperty("foo")).isNull();
+			assertThat(bottom.mergeProperties("merged")).isEqualTo("c,b");
+
+			try (Processor other = new Processor()) {
+				other.setProperty("foo", "other");
+				other.setProperty("merged.other", "e");
+				middle.setParent(other);
+				bottom.setForceLocal(null);
+				assertThat(bottom.getProperty("foo")).isEqualTo("other");
+				assertThat(bottom.mergeProperties("merged")).isEqualTo("c,b,e");
+			}
+		}
+	}
+
 	@Test
 	public void testPropertyKeys() throws IOException {
 		try (Processor top = new Processor()) {
@@ -19,6 +19,9 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.Manifest;
 import java.util.regex.Pattern;
 
@@ -32,6 +35,9 @@ import aQute.bnd.build.Project;
 import aQute.bnd.build.ProjectBuilder;
 import aQute.bnd.build.RepoCollector;
 import aQute.bnd.build.Workspace;
+import aQute.bnd.build.api.ArtifactInfo;
+import aQute.bnd.build.api.BuildInfo;
+import aQute.bnd.build.api.OnWorkspace;
 import aQute.bnd.osgi.About;
 import aQute.bnd.osgi.Builder;
 import aQute.bnd.osgi.Constants;
@@ -504,6 +510,96 @@ public class ProjectTest {
 
 	@Test
 	public void testIsStale() throws Exception {
+		Workspace ws = getWorkspace(IO.getFile("testresources/ws"));
+		Project bottom = ws.getProject("p-stale-dep");
+		assertNotNull(bottom);
+		bottom.build();
+		Project top = ws.getProject("p-stale");
+		assertNotNull(top);
+		top.build();
+		File fingerprint = IO.getFile(top.getTarget(), Constants.BUILDFINGERPRINT);
+		assertTrue(fingerprint.isFile());
+		assertFalse(top.isStale());
+		assertFalse(bottom.isStale());
+
+		// touched but unchanged, the check does not rewrite the fingerprint
+		String recorded = IO.collect(fingerprint);
+		top.getPropertiesFile()
+			.setLastModified(top.getPropertiesFile()
+				.lastModified() + 10000);
+		stale(top, true);
+		assertFalse(top.isStale());
+		assertFalse(bottom.isStale());
+		assertEquals(recorded, IO.collect(fingerprint));
+
+		// changed dependency
+		File bnd = bottom.getPropertiesFile();
+		IO.store(IO.collect(bnd) + "\nFoo: bar\n", bnd);
+		assertTrue(bottom.isStale());
+		assertTrue(top.isStale());
+		bottom.setChanged();
+		bottom.build();
+		assertFalse(bottom.isStale());
+		assertTrue(top.isStale());
+		top.build();
+		assertFalse(top.isStale());
+
+		// changed build file
+		File jar = top.getBuildFiles(false)[0];
+		IO.store("garbage", jar);
+		assertTrue(top.isStale());
+	}
+
+	/**
+	 * Check -skipunchanged
+	 */
+
+	@Test
+	public void testSkipUnchanged() throws Exception {
+		Workspace ws = getWorkspace(IO.getFile("testresources/ws"));
+		Project project = ws.getProject("p-stale-dep");
+		assertNotNull(project);
+		project.setProperty(Constants.SKIPUNCHANGED, "true");
+		BlockingQueue<BuildInfo> builds = new LinkedBlockingQueue<>();
+		try (OnWorkspace on = ws.on("test")) {
+			on.build(builds::add);
+			File jar = project.build()[0];
+			assertTrue(project.check());
+			assertFalse(unchanged(builds, project));
+			long lastModified = jar.lastModified() - 10000;
+			jar.setLastModified(lastModified);
+
+			assertEquals(jar, project.build()[0]);
+			assertTrue(project.check());
+			assertEquals(lastModified, jar.lastModified());
+			assertTrue(unchanged(builds, project));
+
+			project.setProperty("Include-Resource", "p;literal=\"changed\"");
+			assertEquals(jar, project.build()[0]);
+			assertTrue(project.check());
+			assertTrue(lastModified != jar.lastModified());
+			assertFalse(unchanged(builds, project));
+		}
+	}
+
+	private static boolean unchanged(BlockingQueue<BuildInfo> builds, Project project) throws InterruptedException {
+		BuildInfo info;
+		do {
+			info = builds.poll(10, TimeUnit.SECONDS);
+			assertNotNull(info);
+		} while (info.getProject() != project);
+		List<ArtifactInfo> artifacts = info.getArtifactInfos();
+		assertThat(artifacts).hasSize(1);
+		return artifacts.get(0)
+			.isUnchanged();
+	}
+
+	/**
+	 * Check isStale for projects built without a fingerprint
+	 */
+
+	@Test
+	public void testIsStaleWithoutFingerprint() throws Exception {
 		Workspace ws = getWorkspace(IO.getFile("testresources/ws"));
 		Project top = ws.getProject("p-stale");
 		assertNotNull(top);
@@ -511,6 +607,8 @@ public class ProjectTest {
 		Project bottom = ws.getProject("p-stale-dep");
 		assertNotNull(bottom);
 		bottom.build();
+		IO.delete(IO.getFile(top.getTarget(), Constants.BUILDFINGERPRINT));
+		IO.delete(IO.getFile(bottom.getTarget(), Constants.BUILDFINGERPRINT));
 
 		long lastModified = bottom.lastModified();
 		top.getPropertiesFile()
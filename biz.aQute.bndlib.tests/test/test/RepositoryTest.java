@@ -10,6 +10,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 import org.osgi.resource.Capability;
@@ -102,6 +103,40 @@ public class RepositoryTest {
 		}
 	}
 
+	@Test
+	public void testIndexedFindProvider() throws Exception {
+		URL url = RepositoryTest.class.getResource("larger-repo.xml");
+		try (XMLResourceParser xrp = new XMLResourceParser(url.toURI());) {
+			List<Resource> resources = xrp.parse();
+			ResourcesRepository repository = getResourcesRepository(resources);
+
+			List<Requirement> requirements = resources.stream()
+				.flatMap(resource -> resource.getRequirements(null)
+					.stream())
+				.collect(Collectors.toList());
+			requirements.add(new RequirementBuilder("osgi.wiring.package")
+				.addDirective("filter", "(|(osgi.wiring.package=org.osgi.framework)(osgi.wiring.package=javax.xml*))")
+				.buildSyntheticRequirement());
+			requirements.add(new RequirementBuilder("osgi.wiring.package")
+				.addDirective("filter", "(!(osgi.wiring.package=org.osgi.framework))")
+				.buildSyntheticRequirement());
+			requirements.add(new RequirementBuilder("osgi.service")
+				.addDirective("filter", "(objectClass=org.osgi.service.log.LogService)")
+				.buildSyntheticRequirement());
+			requirements.add(new RequirementBuilder("osgi.identity")
+				.addDirective("filter", "(osgi.identity=org.apache.felix.scr)")
+				.buildSyntheticRequirement());
+
+			for (Requirement requirement : requirements) {
+				List<Capability> expected = resources.stream()
+					.flatMap(resource -> ResourceUtils.capabilityStream(resource, requirement.getNamespace()))
+					.filter(ResourceUtils.matcher(requirement))
+					.collect(Collectors.toList());
+				assertEquals(expected, repository.findProvider(requirement), requirement.toString());
+			}
+		}
+	}
+
 	public ResourcesRepository getResourcesRepository(List<Resource> resources) throws Exception {
 		return new ResourcesRepository(resources);
 	}
@@ -17,6 +17,9 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.osgi.framework.Version;
 
+import aQute.bnd.build.BuildScheduler;
+import aQute.bnd.build.BuildScheduler.Result;
+import aQute.bnd.build.BuildScheduler.Summary;
 import aQute.bnd.build.Project;
 import aQute.bnd.build.Workspace;
 import aQute.bnd.header.Attrs;
@@ -417,4 +420,51 @@ public class WorkspaceTest {
 		}
 
 	}
+
+	@Test
+	public void testBuildScheduler() throws Exception {
+		IO.copy(IO.getFile("testresources/ws"), testDir);
+		try (Workspace ws = new Workspace(testDir)) {
+			Project stale = ws.getProject("p-stale");
+			Project dep = ws.getProject("p-stale-dep");
+			Project p3 = ws.getProject("p3");
+
+			List<Project> started = Collections.synchronizedList(new ArrayList<>());
+			Summary summary = new BuildScheduler(ws, 2).run(List.of(stale, p3), p -> {
+				started.add(p);
+				Thread.sleep(50L);
+			});
+			assertThat(summary.isOk()).isTrue();
+			assertThat(summary.getSkipped()).isEmpty();
+			assertThat(started).containsExactlyInAnyOrder(stale, dep, p3);
+			assertThat(started.indexOf(dep)).isLessThan(started.indexOf(stale));
+			assertThat(summary.getResults()).extracting(Result::project)
+				.containsExactlyInAnyOrder(stale, dep, p3);
+			assertThat(summary.getCriticalPath()).extracting(Result::project)
+				.endsWith(stale);
+			assertThat(summary.toString()).contains("p-stale-dep", "Critical path");
+
+			// fail fast, the dependents of a failed project are skipped
+			summary = new BuildScheduler(ws, 1).run(List.of(stale), p -> {
+				if (p == dep) {
+					throw new IllegalStateException("failed");
+				}
+			});
+			assertThat(summary.isOk()).isFalse();
+			assertThat(summary.getResults()).extracting(Result::project)
+				.containsExactly(dep);
+			assertThat(summary.getResults()
+				.get(0)
+				.error()).hasMessage("failed");
+			assertThat(summary.getSkipped()).containsExactly(stale);
+
+			// a canceled scheduler does not start projects
+			BuildScheduler canceled = new BuildScheduler(ws, 2);
+			canceled.cancel();
+			summary = canceled.run(List.of(stale, p3), started::add);
+			assertThat(summary.isCanceled()).isTrue();
+			assertThat(summary.getResults()).isEmpty();
+			assertThat(summary.getSkipped()).containsExactlyInAnyOrder(stale, dep, p3);
+		}
+	}
 }
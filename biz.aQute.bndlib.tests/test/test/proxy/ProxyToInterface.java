@@ -0,0 +1,21 @@
+package test.proxy;
+
+import java.lang.reflect.Proxy;
+
+import test.proxy.api.ProxiedService;
+
+/**
+ * Creates a proxy for an interface in the same bundle. The packages used by
+ * the methods of the interface are only found when the interface is loaded
+ * from the analyzed jar.
+ */
+public class ProxyToInterface {
+
+	public static void main(String[] args) {
+		ProxiedService proxy = (ProxiedService) Proxy.newProxyInstance(ProxyToInterface.class.getClassLoader(),
+			new Class<?>[] {
+				ProxiedService.class
+			}, (proxy1, method, args1) -> null);
+		System.err.println(proxy);
+	}
+}
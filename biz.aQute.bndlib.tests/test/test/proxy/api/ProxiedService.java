@@ -0,0 +1,12 @@
+package test.proxy.api;
+
+import java.nio.file.Path;
+
+/**
+ * Interface in another package than its proxy. Its methods use a package
+ * that the class creating the proxy does not refer to itself.
+ */
+public interface ProxiedService {
+
+	Path getPath();
+}
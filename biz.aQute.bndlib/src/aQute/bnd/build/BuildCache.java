@@ -0,0 +1,315 @@
+package aQute.bnd.build;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.bnd.http.HttpClient;
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.service.BuildCacheStore;
+import aQute.bnd.service.url.TaggedData;
+import aQute.lib.io.IO;
+import aQute.lib.utf8properties.UTF8Properties;
+import aQute.libg.cryptography.SHA256;
+
+/**
+ * A cache of the jars built by the projects of a workspace. An entry is a zip
+ * file that holds the jars of one project build, it is keyed by a digest of
+ * the inputs of that build, see {@link ProjectBuilder#getBuildCacheKey()}.
+ * The entry also holds the warnings of the build and the digests of the
+ * environment variables the build read. An entry that was built with other
+ * values for these variables is a miss.
+ * <p>
+ * The cache counts the hits, misses and stores per project. Failures to access
+ * the store are reported as warnings, the project is then built as if the
+ * cache was not there.
+ */
+class BuildCache {
+	private final static Logger					logger		= LoggerFactory.getLogger(BuildCache.class);
+	private final static String					INFO		= "META-INF/buildcache.properties";
+	private final static String					ENVIRONMENT	= "env.";
+	private final static String					WARNING		= "warning.";
+
+	private final BuildCacheStore				store;
+	private final boolean						push;
+	private final Map<String, AtomicInteger[]>	statistics	= Collections.synchronizedMap(new TreeMap<>());
+
+	BuildCache(BuildCacheStore store, boolean push) {
+		this.store = store;
+		this.push = push;
+	}
+
+	/**
+	 * The jars and the warnings of a project build.
+	 */
+	static class Entry {
+		final Jar[]			jars;
+		final List<String>	warnings;
+
+		Entry(Jar[] jars, List<String> warnings) {
+			this.jars = jars;
+			this.warnings = warnings;
+		}
+	}
+
+	/**
+	 * Fetch the jars of a project build.
+	 *
+	 * @return the entry or {@code null} when there is no entry for the key or
+	 *         when the entry was built with other environment variables
+	 */
+	Entry fetch(Project project, String key) {
+		File tmp = null;
+		try {
+			IO.mkdirs(project.getTarget());
+			tmp = IO.createTempFile(project.getTarget(), "buildcache", ".zip");
+			if (!store.fetch(key, tmp)) {
+				count(project, 1);
+				project.trace("Build cache miss for %s %s, %s", project, key, statistics(project));
+				return null;
+			}
+			List<Jar> jars = new ArrayList<>();
+			UTF8Properties info = new UTF8Properties();
+			try (ZipFile zip = new ZipFile(tmp)) {
+				for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+					ZipEntry entry = entries.nextElement();
+					if (entry.getName()
+						.equals(INFO)) {
+						try (InputStream in = zip.getInputStream(entry)) {
+							info.load(in);
+						}
+						continue;
+					}
+					Jar jar = new Jar(entry.getName(), zip.getInputStream(entry));
+					jar.setDoNotTouchManifest();
+					jars.add(jar);
+				}
+			}
+			List<String> warnings = new ArrayList<>();
+			for (String name : new TreeSet<>(info.stringPropertyNames())) {
+				String value = info.getProperty(name);
+				if (name.startsWith(ENVIRONMENT)) {
+					String variable = name.substring(ENVIRONMENT.length());
+					if (!value.equals(digest(variable))) {
+						jars.forEach(Jar::close);
+						count(project, 1);
+						project.trace("Build cache miss for %s %s, environment variable %s differs, %s", project, key,
+							variable, statistics(project));
+						return null;
+					}
+				} else if (name.startsWith(WARNING)) {
+					warnings.add(value);
+				}
+			}
+			count(project, 0);
+			project.trace("Build cache hit for %s %s, %s", project, key, statistics(project));
+			return new Entry(jars.toArray(new Jar[0]), warnings);
+		} catch (Exception e) {
+			count(project, 1);
+			project.warning("Failed to fetch %s from the build cache: %s", key, e);
+			return null;
+		} finally {
+			if (tmp != null) {
+				IO.delete(tmp);
+			}
+		}
+	}
+
+	/**
+	 * Store the jars of a project build. Nothing is stored when the cache does
+	 * not push.
+	 *
+	 * @param environment the names of the environment variables the build read
+	 * @param warnings the warnings of the build
+	 */
+	void store(Project project, String key, Jar[] jars, Set<String> environment, List<String> warnings) {
+		if (!push) {
+			return;
+		}
+		File tmp = null;
+		try {
+			IO.mkdirs(project.getTarget());
+			tmp = IO.createTempFile(project.getTarget(), "buildcache", ".zip");
+			try (OutputStream out = IO.outputStream(tmp); ZipOutputStream zout = new ZipOutputStream(out)) {
+				for (Jar jar : jars) {
+					zout.putNextEntry(new ZipEntry(jar.getName()));
+					jar.write(zout);
+					zout.closeEntry();
+				}
+				UTF8Properties info = new UTF8Properties();
+				for (String name : environment) {
+					info.setProperty(ENVIRONMENT + name, digest(name));
+				}
+				for (int i = 0; i < warnings.size(); i++) {
+					info.setProperty(String.format("%s%05d", WARNING, i), warnings.get(i));
+				}
+				zout.putNextEntry(new ZipEntry(INFO));
+				info.store(zout);
+				zout.closeEntry();
+			}
+			store.store(key, tmp);
+			count(project, 2);
+			project.trace("Build cache store for %s %s, %s", project, key, statistics(project));
+		} catch (Exception e) {
+			project.warning("Failed to store %s in the build cache: %s", key, e);
+		} finally {
+			if (tmp != null) {
+				IO.delete(tmp);
+			}
+		}
+	}
+
+	/**
+	 * Answer the statistics of a project as text.
+	 */
+	String statistics(Project project) {
+		AtomicInteger[] counts = statistics.get(project.getName());
+		if (counts == null) {
+			return "hits=0 misses=0 stores=0";
+		}
+		return "hits=" + counts[0] + " misses=" + counts[1] + " stores=" + counts[2];
+	}
+
+	/**
+	 * Answer the statistics of all projects as text.
+	 */
+	Map<String, String> statistics() {
+		Map<String, String> result = new TreeMap<>();
+		synchronized (statistics) {
+			statistics.forEach((name, counts) -> result.put(name,
+				"hits=" + counts[0] + " misses=" + counts[1] + " stores=" + counts[2]));
+		}
+		return result;
+	}
+
+	/**
+	 * Answer the digest of the value of an environment variable. The value
+	 * itself is not stored since it can be a secret.
+	 */
+	private static String digest(String variable) throws Exception {
+		return SHA256.digest(Objects.toString(System.getenv(variable), "")
+			.getBytes(UTF_8))
+			.asHex();
+	}
+
+	private void count(Project project, int index) {
+		statistics.computeIfAbsent(project.getName(), name -> new AtomicInteger[] {
+			new AtomicInteger(), new AtomicInteger(), new AtomicInteger()
+		})[index].incrementAndGet();
+	}
+
+	/**
+	 * A store in a local or shared directory. An entry is written to a
+	 * temporary file and then renamed so concurrent builds never see a partial
+	 * entry.
+	 */
+	static class DirectoryStore implements BuildCacheStore {
+		private final File dir;
+
+		DirectoryStore(File dir) {
+			this.dir = dir;
+		}
+
+		@Override
+		public boolean fetch(String key, File target) throws Exception {
+			File entry = entry(key);
+			if (!entry.isFile()) {
+				return false;
+			}
+			IO.copy(entry, target);
+			return true;
+		}
+
+		@Override
+		public void store(String key, File entry) throws Exception {
+			File file = entry(key);
+			IO.mkdirs(file.getParentFile());
+			File tmp = IO.createTempFile(file.getParentFile(), key, ".tmp");
+			try {
+				IO.copy(entry, tmp);
+				IO.rename(tmp, file);
+			} finally {
+				IO.delete(tmp);
+			}
+		}
+
+		private File entry(String key) {
+			return IO.getFile(dir, key.substring(0, 2) + "/" + key + ".zip");
+		}
+
+		@Override
+		public String toString() {
+			return IO.absolutePath(dir);
+		}
+	}
+
+	/**
+	 * A store on an HTTP server. An entry is fetched with a GET and stored with
+	 * a PUT of {@code <base>/<key>.zip}.
+	 */
+	static class HttpStore implements BuildCacheStore {
+		private final HttpClient	client;
+		private final URI			base;
+
+		HttpStore(HttpClient client, String base) {
+			this.client = client;
+			this.base = URI.create(base.endsWith("/") ? base : base + "/");
+		}
+
+		@Override
+		public boolean fetch(String key, File target) throws Exception {
+			try (TaggedData tag = client.build()
+				.get()
+				.asTag()
+				.go(base.resolve(key + ".zip"))) {
+				if (tag.isNotFound()) {
+					return false;
+				}
+				if (!tag.isOk()) {
+					throw new IOException("Could not fetch " + tag);
+				}
+				IO.copy(tag.getInputStream(), target);
+				return true;
+			}
+		}
+
+		@Override
+		public void store(String key, File entry) throws Exception {
+			try (TaggedData tag = client.build()
+				.put()
+				.upload(entry)
+				.asTag()
+				.go(base.resolve(key + ".zip"))) {
+				if (tag.getResponseCode() >= 300) {
+					throw new IOException("Could not store " + tag);
+				}
+				logger.debug("Stored {} in {}", key, base);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return base.toString();
+		}
+	}
+}
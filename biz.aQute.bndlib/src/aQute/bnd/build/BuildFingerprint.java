@@ -0,0 +1,282 @@
+package aQute.bnd.build;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.lib.io.IO;
+import aQute.libg.cryptography.SHA256;
+
+/**
+ * The fingerprint of the effective inputs of a project build: the bnd files,
+ * the class path, the output and source directories, the files included in the
+ * bundles, the build files of the projects it depends on, and the environment
+ * variables read by macros.
+ * <p>
+ * A file is compared by length and last modified time first, its SHA-256 is
+ * only calculated when these changed. A file that was touched but not changed
+ * therefore does not make the build stale, its new time is recorded by the
+ * next build. Build files get the time of their newest input from bnd, so
+ * they are always compared by their digest. A directory is compared by the
+ * names of the files it contains.
+ */
+class BuildFingerprint {
+	private final static Logger			logger		= LoggerFactory.getLogger(BuildFingerprint.class);
+	private final static String			HEADER		= "bnd-fingerprint 1";
+	private final static String			ABSENT		= "-";
+	private final static long			DIGEST		= -1L;
+
+	record FileEntry(long length, long lastModified, String sha256) {}
+
+	private record Content(Path path, long length, long lastModified) {}
+
+	private final Map<File, FileEntry>	files		= new TreeMap<>();
+	private final Map<File, String>		directories	= new TreeMap<>();
+	private final Map<String, String>	environment	= new TreeMap<>();
+	private final BuildFingerprint		previous;
+
+	/**
+	 * @param previous a previous fingerprint whose digests are reused for
+	 *            unchanged files or {@code null}
+	 */
+	BuildFingerprint(BuildFingerprint previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * Add a file or a directory. Files that do not exist are ignored.
+	 */
+	BuildFingerprint file(File file) throws IOException {
+		if (file == null) {
+			return this;
+		}
+		file = file.getAbsoluteFile();
+		if (file.isDirectory()) {
+			return directory(file);
+		}
+		if (file.isFile() && !files.containsKey(file)) {
+			files.put(file, entry(file, file.length(), file.lastModified()));
+		}
+		return this;
+	}
+
+	/**
+	 * Add a file whose last modified time does not tell if it changed, like a
+	 * jar written by bnd with the time of its newest input. It is always
+	 * compared by its digest. Files that do not exist are ignored.
+	 */
+	BuildFingerprint content(File file) throws IOException {
+		if (file == null) {
+			return this;
+		}
+		file = file.getAbsoluteFile();
+		if (file.isFile() && !files.containsKey(file)) {
+			files.put(file, new FileEntry(file.length(), DIGEST, sha256(file)));
+		}
+		return this;
+	}
+
+	/**
+	 * Add a directory and all the files in it. The directory is walked once,
+	 * only the files whose length or last modified time differ from the
+	 * previous fingerprint are digested.
+	 */
+	BuildFingerprint directory(File dir) throws IOException {
+		if (dir == null) {
+			return this;
+		}
+		dir = dir.getAbsoluteFile();
+		if (!dir.isDirectory() || directories.containsKey(dir)) {
+			return this;
+		}
+		List<Content> content = list(dir);
+		directories.put(dir, listing(dir, content));
+		for (Content c : content) {
+			File file = c.path()
+				.toFile();
+			if (!files.containsKey(file)) {
+				files.put(file, entry(file, c.length(), c.lastModified()));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Add the value of an environment variable.
+	 */
+	BuildFingerprint environment(String name) {
+		environment.put(name, digest(System.getenv(name)));
+		return this;
+	}
+
+	/**
+	 * Answer if an input changed since this fingerprint was taken. The
+	 * fingerprint itself is not changed, it is only written by a successful
+	 * build.
+	 *
+	 * @param location the file this fingerprint was read from
+	 */
+	boolean isStale(File location) {
+		try {
+			for (Map.Entry<String, String> entry : environment.entrySet()) {
+				if (!entry.getValue()
+					.equals(digest(System.getenv(entry.getKey())))) {
+					logger.debug("Environment variable {} changed", entry.getKey());
+					return true;
+				}
+			}
+			for (Map.Entry<File, String> entry : directories.entrySet()) {
+				File dir = entry.getKey();
+				if (!dir.isDirectory() || !entry.getValue()
+					.equals(listing(dir, list(dir)))) {
+					logger.debug("Directory {} changed", dir);
+					return true;
+				}
+			}
+			for (Map.Entry<File, FileEntry> entry : files.entrySet()) {
+				File file = entry.getKey();
+				FileEntry known = entry.getValue();
+				if (!file.isFile() || file.length() != known.length()) {
+					logger.debug("File {} changed", file);
+					return true;
+				}
+				if ((known.lastModified() == DIGEST || file.lastModified() != known.lastModified())
+					&& !sha256(file).equals(known.sha256())) {
+					logger.debug("File {} changed", file);
+					return true;
+				}
+			}
+			return false;
+		} catch (Exception e) {
+			logger.debug("Failed to check the fingerprint {}", location, e);
+			return true;
+		}
+	}
+
+	/**
+	 * Read a fingerprint.
+	 *
+	 * @return the fingerprint or {@code null} if it does not exist or cannot
+	 *         be read
+	 */
+	static BuildFingerprint read(File location) {
+		if (!location.isFile()) {
+			return null;
+		}
+		try (BufferedReader reader = IO.reader(location, UTF_8)) {
+			if (!HEADER.equals(reader.readLine())) {
+				return null;
+			}
+			BuildFingerprint fingerprint = new BuildFingerprint(null);
+			for (String line; (line = reader.readLine()) != null;) {
+				String[] parts = line.split("\t", 5);
+				switch (parts[0]) {
+					case "F" -> fingerprint.files.put(new File(parts[4]),
+						new FileEntry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]));
+					case "D" -> fingerprint.directories.put(new File(parts[2]), parts[1]);
+					case "E" -> fingerprint.environment.put(parts[2], parts[1]);
+					default -> {
+						return null;
+					}
+				}
+			}
+			return fingerprint;
+		} catch (Exception e) {
+			logger.debug("Failed to read the fingerprint {}", location, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Write this fingerprint.
+	 */
+	void write(File location) throws IOException {
+		File tmp = IO.createTempFile(location.getParentFile(), location.getName(), ".tmp");
+		try {
+			try (PrintWriter pw = IO.writer(tmp, UTF_8)) {
+				pw.print(HEADER);
+				pw.print('\n');
+				environment.forEach((name, sha256) -> pw.print("E\t" + sha256 + "\t" + name + "\n"));
+				directories.forEach((dir, sha256) -> pw.print("D\t" + sha256 + "\t" + IO.absolutePath(dir) + "\n"));
+				files.forEach((file, entry) -> pw.print("F\t" + entry.length() + "\t" + entry.lastModified() + "\t"
+					+ entry.sha256() + "\t" + IO.absolutePath(file) + "\n"));
+			}
+			IO.rename(tmp, location);
+		} finally {
+			IO.delete(tmp);
+		}
+	}
+
+	/**
+	 * The entry of a file, the digest of the previous fingerprint is reused
+	 * when the length and last modified time did not change.
+	 */
+	private FileEntry entry(File file, long length, long lastModified) throws IOException {
+		FileEntry known = (previous != null) ? previous.files.get(file) : null;
+		if (known != null && known.length() == length && known.lastModified() == lastModified) {
+			return known;
+		}
+		return new FileEntry(length, lastModified, sha256(file));
+	}
+
+	private static String sha256(File file) throws IOException {
+		try {
+			return SHA256.digest(file)
+				.asHex();
+		} catch (Exception e) {
+			throw new IOException("Cannot digest " + file, e);
+		}
+	}
+
+	private static List<Content> list(File dir) throws IOException {
+		List<Content> content = new ArrayList<>();
+		Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile()) {
+					content.add(new Content(file, attrs.size(), attrs.lastModifiedTime()
+						.toMillis()));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		content.sort(Comparator.comparing(Content::path));
+		return content;
+	}
+
+	private static String listing(File dir, List<Content> content) {
+		Path base = dir.toPath();
+		return digest(content.stream()
+			.map(c -> IO.normalizePath(base.relativize(c.path())))
+			.collect(Collectors.joining("\n")));
+	}
+
+	private static String digest(String value) {
+		if (value == null) {
+			return ABSENT;
+		}
+		try {
+			return SHA256.digest(value.getBytes(UTF_8))
+				.asHex();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
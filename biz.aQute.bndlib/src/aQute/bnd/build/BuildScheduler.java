@@ -0,0 +1,376 @@
+package aQute.bnd.build;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.bnd.exceptions.ConsumerWithException;
+import aQute.bnd.exceptions.Exceptions;
+
+/**
+ * Runs an action, typically a build, for projects of a workspace concurrently
+ * in the order of their dependencies.
+ * <p>
+ * The projects and the projects they depend on, see
+ * {@link Project#getDependson()}, form a graph. A project is started as soon
+ * as all the projects it depends on have completed successfully. When several
+ * projects are ready, the project with the longest chain of dependents is
+ * started first. Each action runs while holding the read lock of the
+ * workspace, so the workspace is not refreshed during a build.
+ * <p>
+ * The scheduler fails fast. When an action throws an exception or leaves
+ * errors in its project, or when the scheduler is canceled, no new projects
+ * are started. Running actions are allowed to complete and the remaining
+ * projects are reported as skipped.
+ */
+public class BuildScheduler {
+	private final static Logger	logger	= LoggerFactory.getLogger(BuildScheduler.class);
+	private final Workspace		workspace;
+	private final int			workers;
+	private volatile boolean	canceled;
+
+	/**
+	 * The outcome of the action for a project.
+	 *
+	 * @param project the project
+	 * @param start the start time in milliseconds relative to the start of the
+	 *            schedule
+	 * @param duration the duration of the action in milliseconds
+	 * @param error the exception thrown by the action or {@code null}
+	 * @param ok {@code true} if the action completed without errors
+	 * @param outputs the number of files reported by
+	 *            {@link Project#getBuildFiles(boolean)} after the action
+	 */
+	public record Result(Project project, long start, long duration, Throwable error, boolean ok, int outputs) {}
+
+	/**
+	 * The outcome of a schedule.
+	 */
+	public static final class Summary {
+		private final List<Result>	results;
+		private final List<Project>	skipped;
+		private final List<Result>	criticalPath;
+		private final long			elapsed;
+		private final int			workers;
+		private final boolean		canceled;
+
+		Summary(List<Result> results, List<Project> skipped, List<Result> criticalPath, long elapsed, int workers,
+			boolean canceled) {
+			this.results = Collections.unmodifiableList(results);
+			this.skipped = Collections.unmodifiableList(skipped);
+			this.criticalPath = Collections.unmodifiableList(criticalPath);
+			this.elapsed = elapsed;
+			this.workers = workers;
+			this.canceled = canceled;
+		}
+
+		/**
+		 * Answer the results of the projects that were started, in the order
+		 * they completed.
+		 */
+		public List<Result> getResults() {
+			return results;
+		}
+
+		/**
+		 * Answer the projects that were not started because a project failed,
+		 * the schedule was canceled, or they are part of a dependency cycle.
+		 */
+		public List<Project> getSkipped() {
+			return skipped;
+		}
+
+		/**
+		 * Answer the chain of dependent projects with the longest total
+		 * duration, in build order.
+		 */
+		public List<Result> getCriticalPath() {
+			return criticalPath;
+		}
+
+		/**
+		 * Answer the wall clock time of the schedule in milliseconds.
+		 */
+		public long getElapsed() {
+			return elapsed;
+		}
+
+		public boolean isCanceled() {
+			return canceled;
+		}
+
+		/**
+		 * Answer {@code true} if all projects were built without errors.
+		 */
+		public boolean isOk() {
+			return skipped.isEmpty() && results.stream()
+				.allMatch(Result::ok);
+		}
+
+		@Override
+		public String toString() {
+			try (Formatter f = new Formatter()) {
+				f.format("Built %s project(s) in %s with %s worker(s)%n", results.size(), seconds(elapsed), workers);
+				int width = results.stream()
+					.mapToInt(r -> r.project()
+						.getName()
+						.length())
+					.max()
+					.orElse(0);
+				results.stream()
+					.sorted(Comparator.comparingLong(Result::start))
+					.forEachOrdered(r -> f.format("  %-" + width + "s  %8s  %8s  %s%n", r.project()
+						.getName(), seconds(r.start()), seconds(r.duration()),
+						r.ok() ? r.outputs() + " file(s)" : "FAILED"));
+				if (!criticalPath.isEmpty()) {
+					f.format("Critical path %s: %s%n", seconds(criticalPath.stream()
+						.mapToLong(Result::duration)
+						.sum()), criticalPath.stream()
+							.map(r -> r.project()
+								.getName())
+							.toList());
+				}
+				if (!skipped.isEmpty()) {
+					f.format("Skipped%s: %s%n", canceled ? " after cancel" : "", skipped);
+				}
+				return f.toString();
+			}
+		}
+
+		private static String seconds(long ms) {
+			return String.format("%d.%03ds", ms / 1000L, ms % 1000L);
+		}
+	}
+
+	/**
+	 * @param workspace the workspace of the projects
+	 * @param workers the maximum number of projects to build concurrently, 0
+	 *            or less selects the number of available processors
+	 */
+	public BuildScheduler(Workspace workspace, int workers) {
+		this.workspace = requireNonNull(workspace);
+		this.workers = (workers > 0) ? workers
+			: Runtime.getRuntime()
+				.availableProcessors();
+	}
+
+	/**
+	 * Do not start any more projects. Running actions are allowed to
+	 * complete.
+	 */
+	public void cancel() {
+		canceled = true;
+	}
+
+	public boolean isCanceled() {
+		return canceled;
+	}
+
+	/**
+	 * Run the action for the given projects and the projects they depend on.
+	 *
+	 * @param projects the projects to build
+	 * @param action the action to run for each project, for example
+	 *            {@code p -> p.build(false)}
+	 * @return the summary of the schedule
+	 * @throws Exception when the dependencies of the projects cannot be
+	 *             calculated
+	 */
+	public Summary run(Collection<Project> projects, ConsumerWithException<Project> action) throws Exception {
+		// The graph, calculated in this thread so projects are prepared once
+		Map<Project, Set<Project>> dependencies = new LinkedHashMap<>();
+		List<Project> queue = new ArrayList<>(projects);
+		for (int i = 0; i < queue.size(); i++) {
+			Project project = queue.get(i);
+			if (!dependencies.containsKey(project)) {
+				Set<Project> dependson = new LinkedHashSet<>(project.getDependson());
+				dependson.remove(project);
+				dependencies.put(project, dependson);
+				queue.addAll(dependson);
+			}
+		}
+		Map<Project, List<Project>> dependents = new HashMap<>();
+		Map<Project, Integer> waiting = new HashMap<>();
+		dependencies.forEach((project, dependson) -> {
+			waiting.put(project, dependson.size());
+			dependson.forEach(d -> dependents.computeIfAbsent(d, k -> new ArrayList<>())
+				.add(project));
+		});
+		Map<Project, Integer> heights = new HashMap<>();
+		dependencies.keySet()
+			.forEach(project -> height(project, dependents, heights, new LinkedHashSet<>()));
+		Map<Project, Integer> order = new HashMap<>();
+		dependencies.keySet()
+			.forEach(project -> order.put(project, order.size()));
+		PriorityQueue<Project> ready = new PriorityQueue<>(
+			Comparator.<Project> comparingInt(heights::get)
+				.reversed()
+				.thenComparingInt(order::get));
+		waiting.forEach((project, count) -> {
+			if (count == 0) {
+				ready.add(project);
+			}
+		});
+
+		long begin = System.nanoTime();
+		Map<Project, Result> results = new LinkedHashMap<>();
+		boolean failed = false;
+		boolean interrupted = false;
+		ExecutorService executor = Executors.newFixedThreadPool(workers, new SchedulerThreadFactory());
+		try {
+			CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+			int running = 0;
+			while (true) {
+				while (!failed && !canceled && running < workers && !ready.isEmpty()) {
+					Project project = ready.remove();
+					completion.submit(() -> execute(project, action, begin));
+					running++;
+				}
+				if (running == 0) {
+					break;
+				}
+				Result result;
+				try {
+					result = completion.take()
+						.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+					canceled = true;
+					continue;
+				} catch (ExecutionException e) {
+					throw Exceptions.duck(Exceptions.unrollCause(e, ExecutionException.class));
+				}
+				running--;
+				results.put(result.project(), result);
+				if (!result.ok()) {
+					failed = true;
+					continue;
+				}
+				for (Project dependent : dependents.getOrDefault(result.project(), Collections.emptyList())) {
+					if (waiting.merge(dependent, -1, Integer::sum) == 0) {
+						ready.add(dependent);
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+			if (interrupted) {
+				Thread.currentThread()
+					.interrupt();
+			}
+		}
+
+		List<Project> skipped = new ArrayList<>(dependencies.keySet());
+		skipped.removeAll(results.keySet());
+		if (!failed && !canceled && !skipped.isEmpty()) {
+			workspace.error("Cyclic dependencies between the projects %s, they were not built", skipped);
+		}
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+		return new Summary(new ArrayList<>(results.values()), skipped, criticalPath(results, dependencies), elapsed,
+			workers, canceled);
+	}
+
+	private Result execute(Project project, ConsumerWithException<Project> action, long begin) {
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			workspace.readLocked(() -> {
+				action.accept(project);
+				return null;
+			}, this::isCanceled);
+		} catch (Throwable t) {
+			logger.debug("Building {} failed", project, t);
+			error = t;
+		}
+		long end = System.nanoTime();
+		int outputs = 0;
+		if (error == null) {
+			try {
+				File[] files = project.getBuildFiles(false);
+				outputs = (files != null) ? files.length : 0;
+			} catch (Exception e) {
+				error = e;
+			}
+		}
+		return new Result(project, TimeUnit.NANOSECONDS.toMillis(start - begin),
+			TimeUnit.NANOSECONDS.toMillis(end - start), error, (error == null) && project.isOk(), outputs);
+	}
+
+	private static int height(Project project, Map<Project, List<Project>> dependents, Map<Project, Integer> heights,
+		Set<Project> visiting) {
+		Integer height = heights.get(project);
+		if (height != null) {
+			return height;
+		}
+		int h = 1;
+		if (visiting.add(project)) {
+			for (Project dependent : dependents.getOrDefault(project, Collections.emptyList())) {
+				h = Math.max(h, 1 + height(dependent, dependents, heights, visiting));
+			}
+			visiting.remove(project);
+		}
+		heights.put(project, h);
+		return h;
+	}
+
+	private static List<Result> criticalPath(Map<Project, Result> results, Map<Project, Set<Project>> dependencies) {
+		Map<Project, Long> finish = new HashMap<>();
+		Map<Project, Project> previous = new HashMap<>();
+		Project last = null;
+		// results are in completion order, so dependencies come first
+		for (Result result : results.values()) {
+			Project project = result.project();
+			long longest = 0L;
+			for (Project dependency : dependencies.get(project)) {
+				Long f = finish.get(dependency);
+				if ((f != null) && ((f > longest) || !previous.containsKey(project))) {
+					longest = f;
+					previous.put(project, dependency);
+				}
+			}
+			finish.put(project, longest + result.duration());
+			if ((last == null) || (finish.get(project) > finish.get(last))) {
+				last = project;
+			}
+		}
+		List<Result> path = new ArrayList<>();
+		for (Project project = last; project != null; project = previous.get(project)) {
+			path.add(0, results.get(project));
+		}
+		return path;
+	}
+
+	static final class SchedulerThreadFactory implements ThreadFactory {
+		private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = delegate.newThread(r);
+			t.setName("Bnd-Build,".concat(t.getName()));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -22,6 +22,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -31,6 +32,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.Properties;
@@ -43,6 +45,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -115,6 +120,7 @@ import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 import aQute.lib.utf8properties.UTF8Properties;
 import aQute.libg.command.Command;
+import aQute.libg.cryptography.SHA256;
 import aQute.libg.generics.Create;
 import aQute.libg.glob.Glob;
 import aQute.libg.qtokens.QuotedTokenizer;
@@ -1767,6 +1773,16 @@ public class Project extends Processor {
 
 	/**
 	 * Check if this project needs building. This is defined as:
+	 * <ul>
+	 * <li>the project has not been built, or</li>
+	 * <li>a project it depends on is stale, or</li>
+	 * <li>an input recorded in the fingerprint of the last build changed. The
+	 * inputs are the bnd files, the class path, the output and source
+	 * directories, the included files, the build files of the projects it
+	 * depends on and the environment variables read by macros.</li>
+	 * </ul>
+	 * A project built without a fingerprint is stale when a build file is
+	 * older than the project or than a build file of a project it depends on.
 	 */
 	public boolean isStale() throws Exception {
 		Set<Project> visited = new HashSet<>();
@@ -1782,12 +1798,22 @@ public class Project extends Processor {
 			return false;
 		}
 
-		long buildTime = 0;
-
 		File[] files = getBuildFiles(false);
 		if (files == null)
 			return true;
 
+		BuildFingerprint fingerprint = BuildFingerprint.read(new File(getTarget(), BUILDFINGERPRINT));
+		if (fingerprint != null) {
+			for (Project dependency : getDependson()) {
+				if (dependency != this && dependency.isStale(visited)) {
+					return true;
+				}
+			}
+			return fingerprint.isStale(new File(getTarget(), BUILDFINGERPRINT));
+		}
+
+		long buildTime = 0;
+
 		for (File f : files) {
 			if (f.lastModified() < lastModified())
 				return true;
@@ -1883,6 +1909,7 @@ public class Project extends Processor {
 
 		File[] buildfiles = getBuildFiles(false);
 		File bfs = new File(getTarget(), BUILDFILES);
+		File fps = new File(getTarget(), BUILDFINGERPRINT);
 		files = null;
 
 		//
@@ -1914,6 +1941,14 @@ public class Project extends Processor {
 				return null;
 			}
 
+			BuildFingerprint fingerprint;
+			try {
+				fingerprint = builder.getFingerprint(jars, BuildFingerprint.read(fps));
+			} catch (Exception e) {
+				logger.debug("Failed to take the fingerprint of {}", this, e);
+				fingerprint = null;
+			}
+
 			//
 			// Save the JARs
 			//
@@ -1929,7 +1964,9 @@ public class Project extends Processor {
 
 						Manifest m = jar.getManifest();
 						jar.setCalculateFileDigest(true);
-						File file = saveBuildWithoutClose(jar);
+						File outputFile = getOutputFile(jar.getName(), jar.getVersion());
+						boolean unchanged = is(SKIPUNCHANGED) && isUnchanged(jar, outputFile);
+						File file = unchanged ? outputFile : saveBuildWithoutClose(jar);
 						if (file == null) {
 							error("Could not save %s", jar.getName());
 						} else {
@@ -1937,8 +1974,9 @@ public class Project extends Processor {
 							if (lastModified < jar.lastModified()) {
 								lastModified = jar.lastModified();
 							}
-							Supplier<org.osgi.resource.Resource> indexer = ResourceBuilder.memoize(jar, file.toURI(),
-								getName());
+							Supplier<org.osgi.resource.Resource> indexer = unchanged
+								? ResourceBuilder.memoize(jar, file, file.toURI(), getName())
+								: ResourceBuilder.memoize(jar, file.toURI(), getName());
 							if (indexer != null) {
 								resourceBuilders.add(indexer);
 							}
@@ -1946,6 +1984,7 @@ public class Project extends Processor {
 								ArtifactInfoImpl artifact = buildInfo.artifacts.get(n);
 								artifact.file = file;
 								artifact.indexer = indexer;
+								artifact.unchanged = unchanged;
 							}
 						}
 					} finally {
@@ -1981,6 +2020,11 @@ public class Project extends Processor {
 				}
 
 				if (!selectedRunFiles.isEmpty()) {
+					if (fingerprint != null) {
+						for (File runFile : selectedRunFiles.keySet()) {
+							fingerprint.file(runFile);
+						}
+					}
 					Map<File, Resource> exports = builder.doExports(selectedRunFiles);
 
 					getInfo(builder);
@@ -2030,6 +2074,14 @@ public class Project extends Processor {
 					}
 					getWorkspace().changedFile(bfs);
 				}
+				if (fingerprint != null) {
+					for (File f : buildFilesSet) {
+						fingerprint.content(f);
+					}
+					fingerprint.write(fps);
+				} else {
+					IO.delete(fps);
+				}
 				bfs = null; // avoid delete in finally block
 				builtFiles(buildFilesSet);
 
@@ -2043,6 +2095,7 @@ public class Project extends Processor {
 				unsetProperty(TSTAMP);
 			if (bfs != null) {
 				IO.delete(bfs); // something went wrong, so delete
+				IO.delete(fps);
 				getWorkspace().changedFile(bfs);
 			}
 		}
@@ -2108,6 +2161,67 @@ public class Project extends Processor {
 		return logicalFile;
 	}
 
+	/*
+	 * Answer if the output file has the same manifest, ignoring the
+	 * Bnd-LastModified header, and the same entries as the jar. The output
+	 * file is then not written so its time does not change. The entries are
+	 * compared one by one with digests of their streams so neither jar is
+	 * held in memory.
+	 */
+	private boolean isUnchanged(Jar jar, File outputFile) throws Exception {
+		File canonical = new File(getTarget(), jar.getName() + ".jar");
+		if (!outputFile.isFile() || !canonical.isFile()) {
+			return false;
+		}
+		try (JarFile previous = new JarFile(outputFile, false)) {
+			if (!Objects.equals(withoutLastModified(previous.getManifest()), withoutLastModified(jar.getManifest()))) {
+				return false;
+			}
+			Map<String, Resource> resources = jar.getResources();
+			int compared = 0;
+			for (Enumeration<JarEntry> entries = previous.entries(); entries.hasMoreElements();) {
+				JarEntry entry = entries.nextElement();
+				String name = entry.getName();
+				if (entry.isDirectory() || name.equals(JarFile.MANIFEST_NAME)) {
+					continue;
+				}
+				Resource resource = resources.get(name);
+				if (resource == null) {
+					return false;
+				}
+				if (entry.getSize() >= 0 && entry.getSize() != resource.size()) {
+					return false;
+				}
+				try (InputStream in = previous.getInputStream(entry); InputStream rin = resource.openInputStream()) {
+					if (!SHA256.digest(in)
+						.equals(SHA256.digest(rin))) {
+						return false;
+					}
+				}
+				compared++;
+			}
+			int expected = resources.size() - (resources.containsKey(JarFile.MANIFEST_NAME) ? 1 : 0);
+			if (compared != expected) {
+				return false;
+			}
+			logger.debug("{} is unchanged, not written", outputFile);
+			return true;
+		} catch (Exception e) {
+			logger.debug("Could not compare {} with the previous build", outputFile, e);
+			return false;
+		}
+	}
+
+	private static Manifest withoutLastModified(Manifest manifest) {
+		if (manifest == null) {
+			return null;
+		}
+		Manifest copy = new Manifest(manifest);
+		copy.getMainAttributes()
+			.remove(new Attributes.Name(BND_LASTMODIFIED));
+		return copy;
+	}
+
 	private File write(ConsumerWithException<File> jar, File outputFile)
 		throws IOException, InterruptedException, Exception {
 		File logicalFile = outputFile;
@@ -1,8 +1,14 @@
 package aQute.bnd.build;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
@@ -15,11 +21,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.jar.Manifest;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipException;
 
 import org.slf4j.Logger;
@@ -34,14 +43,18 @@ import aQute.bnd.differ.Baseline.Info;
 import aQute.bnd.differ.DiffPluginImpl;
 import aQute.bnd.header.Attrs;
 import aQute.bnd.header.Parameters;
+import aQute.bnd.osgi.About;
 import aQute.bnd.osgi.Builder;
 import aQute.bnd.osgi.BundleId;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Descriptors.TypeRef;
+import aQute.bnd.osgi.Domain;
 import aQute.bnd.osgi.EmbeddedResource;
+import aQute.bnd.osgi.FileResource;
 import aQute.bnd.osgi.Instruction;
 import aQute.bnd.osgi.Instructions;
 import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.JarCache;
 import aQute.bnd.osgi.Packages;
 import aQute.bnd.osgi.Resource;
 import aQute.bnd.osgi.Verifier;
@@ -54,6 +67,8 @@ import aQute.bnd.version.Version;
 import aQute.lib.collections.SortedList;
 import aQute.lib.io.IO;
 import aQute.lib.utf8properties.UTF8Properties;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA256;
 import aQute.libg.glob.PathSet;
 import aQute.libg.reporter.ReporterAdapter;
 
@@ -66,6 +81,7 @@ public class ProjectBuilder extends Builder {
 	boolean									initialized;
 	boolean									includeTestpath		= false;
 	BuildInfoImpl							buildInfo;
+	private final Set<File>					subInputs			= new LinkedHashSet<>();
 
 	static class BuildInfoImpl extends ReporterAdapter implements BuildInfo {
 
@@ -103,6 +119,7 @@ public class ProjectBuilder extends Builder {
 		File									file;
 		List<Location>							errors;
 		Supplier<org.osgi.resource.Resource>	indexer;
+		boolean									unchanged;
 
 		public ArtifactInfoImpl(Builder builder) throws Exception {
 			String bsn = builder.getBsn();
@@ -119,6 +136,14 @@ public class ProjectBuilder extends Builder {
 			getInfo(builder);
 		}
 
+		ArtifactInfoImpl(Jar jar, Packages exports, Packages imports, Packages contained) throws Exception {
+			bundleId = new BundleId(jar.getBsn(), jar.getVersion());
+			manifest = jar.getManifest();
+			this.exports = exports;
+			this.imports = imports;
+			this.contained = contained;
+		}
+
 		@Override
 		public BundleId getBundleId() {
 			return bundleId;
@@ -139,6 +164,11 @@ public class ProjectBuilder extends Builder {
 			return contained;
 		}
 
+		@Override
+		public boolean isUnchanged() {
+			return unchanged;
+		}
+
 		@Override
 		public String toString() {
 			return "Artifact[" + bundleId + "]";
@@ -253,8 +283,17 @@ public class ProjectBuilder extends Builder {
 		if ((c.getType() == TYPE.PROJECT) && !file.exists()) {
 			return;
 		}
-		Jar jar = new Jar(file);
-		super.addClasspath(jar);
+		Jar jar;
+		JarCache cache = (c.getType() != TYPE.PROJECT) ? project.getWorkspace()
+			.getJarCache() : null;
+		JarCache.Lease lease = (cache != null) ? cache.acquire(file) : null;
+		if (lease != null) {
+			jar = lease.getJar();
+			super.addClasspath(jar, lease);
+		} else {
+			jar = new Jar(file);
+			super.addClasspath(jar);
+		}
 		project.unreferencedClasspathEntries.put(jar.getName(), c);
 		Map<String, String> containerAttributes = c.getAttributes();
 		if ((dependencies != null)
@@ -895,7 +934,9 @@ public class ProjectBuilder extends Builder {
 	}
 
 	/**
-	 * Add some extra stuff to the builds() method like exporting.
+	 * Add some extra stuff to the builds() method like exporting. When a build
+	 * cache is enabled, the jars are fetched from it if it has the key of this
+	 * build, otherwise the built jars are stored in it.
 	 */
 
 	@Override
@@ -904,7 +945,274 @@ public class ProjectBuilder extends Builder {
 		project.importedPackages.clear();
 		project.containedPackages.clear();
 		buildInfo = new BuildInfoImpl(project);
-		return super.builds();
+		subInputs.clear();
+
+		BuildCache cache = project.getWorkspace()
+			.getBuildCache(project);
+		if (cache == null || getProperty(CONDUIT) != null) {
+			return super.builds();
+		}
+		String key = getBuildCacheKey();
+		BuildCache.Entry entry = cache.fetch(project, key);
+		if (entry != null) {
+			cached(entry);
+			return entry.jars;
+		}
+		Jar[] jars = super.builds();
+		if (isOk() && jars.length > 0) {
+			Set<String> environment = new TreeSet<>(project.getAccessedEnvironment());
+			environment.addAll(getAccessedEnvironment());
+			cache.store(project, key, jars, environment, getWarnings());
+		}
+		return jars;
+	}
+
+	/**
+	 * Answer the key of this build in the build cache. It is the SHA-256 of
+	 * the bnd version, the unexpanded properties, without the time stamp and
+	 * the base directory and with the workspace directory replaced by a
+	 * placeholder, and the content of the inputs of the build: the bnd files
+	 * of the bundles, the files they include as resources, the class path, the
+	 * output directory and the source directories. The key is therefore the
+	 * same on other machines. The environment variables are not part of the
+	 * key since the macros that read them can run during the build, they are
+	 * checked when the entry is fetched.
+	 */
+	String getBuildCacheKey() throws Exception {
+		String workspace = IO.absolutePath(project.getWorkspace()
+			.getBase());
+		Digester<SHA256> digester = SHA256.getDigester();
+		try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(digester, UTF_8))) {
+			pw.print("bnd-buildcache 1\t" + About.getBndVersion() + "\n");
+			for (String key : new TreeSet<>(getPropertyKeys(true))) {
+				String value = getUnexpandedProperty(key);
+				if (value == null || key.equals(TSTAMP) || key.equals(BUILDCACHE) || key.equals("basedir")) {
+					continue;
+				}
+				pw.print("P\t" + key + "\t" + value.replace(workspace, "${workspace}")
+					.replace("\\", "\\\\")
+					.replace("\n", "\\n") + "\n");
+			}
+			Set<File> inputs = new LinkedHashSet<>();
+			for (Builder builder : getSubBuilders()) {
+				getBuildCacheInputs(builder, inputs);
+			}
+			for (Jar jar : getClasspath()) {
+				File source = jar.getSource();
+				if (source != null) {
+					inputs.add(source);
+				}
+			}
+			inputs.add(project.getOutput());
+			inputs.addAll(project.getSourcePath());
+			File base = project.getBase();
+			for (File input : inputs) {
+				if (isInside(base, input)) {
+					pw.print("I\t" + IO.normalizePath(base.toPath()
+						.relativize(input.getAbsoluteFile()
+							.toPath())) + "\n");
+				} else {
+					pw.print("I\n");
+				}
+				digest(pw, input);
+			}
+		}
+		return digester.digest()
+			.asHex();
+	}
+
+	/**
+	 * Add the files a builder reads besides the class path: its bnd files, its
+	 * manifest and the sources of its included resources.
+	 */
+	private static void getBuildCacheInputs(Builder builder, Set<File> inputs) {
+		File properties = builder.getPropertiesFile();
+		if (properties != null) {
+			inputs.add(properties);
+		}
+		inputs.addAll(builder.getIncluded());
+		String manifest = builder.getProperty(MANIFEST);
+		if (manifest != null) {
+			inputs.add(builder.getFile(manifest));
+		}
+		Parameters resources = builder.decorated(INCLUDERESOURCE);
+		resources.putAll(builder.parseHeader(builder.getProperty(WAB)));
+		resources.putAll(builder.parseHeader(builder.getProperty(WABLIB)));
+		resources.forEach((clause, attrs) -> {
+			if (attrs.containsKey("cmd") || attrs.containsKey(LITERAL_ATTRIBUTE)
+				|| attrs.containsKey(CLASS_ATTRIBUTE)) {
+				return;
+			}
+			String source = removeDuplicateMarker(clause);
+			if (source.startsWith("{") && source.endsWith("}")) {
+				source = source.substring(1, source.length() - 1)
+					.trim();
+			}
+			String[] parts = source.split("\\s*=\\s*");
+			source = parts[parts.length - 1];
+			if (source.startsWith("-")) {
+				source = source.substring(1);
+			}
+			if (source.startsWith("@")) {
+				int n = source.indexOf("!/");
+				source = source.substring(1, n < 0 ? source.length() : n);
+			}
+			inputs.add(builder.getFile(source));
+		});
+	}
+
+	private void digest(PrintWriter pw, File file) throws Exception {
+		if (file.isFile()) {
+			pw.print(SHA256.digest(file)
+				.asHex() + "\n");
+			return;
+		}
+		if (!file.isDirectory()) {
+			return;
+		}
+		Path base = file.toPath();
+		Path target = project.getTarget()
+			.toPath();
+		List<Path> paths;
+		try (Stream<Path> stream = Files.walk(base)) {
+			paths = stream.filter(path -> !path.startsWith(target) && !isHidden(base.relativize(path)))
+				.filter(Files::isRegularFile)
+				.sorted()
+				.collect(Collectors.toList());
+		}
+		for (Path path : paths) {
+			pw.print(IO.normalizePath(base.relativize(path)) + "\t" + SHA256.digest(path.toFile())
+				.asHex() + "\n");
+		}
+	}
+
+	private static boolean isInside(File dir, File file) {
+		return file.getAbsoluteFile()
+			.toPath()
+			.startsWith(dir.getAbsoluteFile()
+				.toPath());
+	}
+
+	private static boolean isHidden(Path relative) {
+		for (Path name : relative) {
+			if (name.toString()
+				.startsWith(".")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Record the jars fetched from the build cache like jars that were built.
+	 * The warnings of the build are reported again and the jars are baselined
+	 * since the baseline repository is not an input of the key.
+	 */
+	private void cached(BuildCache.Entry entry) throws Exception {
+		Map<String, Builder> builders = new LinkedHashMap<>();
+		for (Builder builder : getSubBuilders()) {
+			builders.put(builder.getBsn(), builder);
+		}
+		for (Jar jar : entry.jars) {
+			cached(jar);
+			Builder builder = builders.get(jar.getName());
+			if (builder instanceof ProjectBuilder projectBuilder) {
+				projectBuilder.doBaseline(jar);
+			}
+			if (builder != null && builder != this) {
+				getInfo(builder, builder.getBsn() + ": ");
+			}
+		}
+		List<String> warnings = getWarnings();
+		for (String warning : entry.warnings) {
+			if (!warnings.contains(warning)) {
+				warning("%s", warning);
+			}
+		}
+	}
+
+	/**
+	 * Record a jar fetched from the build cache like a jar that was built.
+	 */
+	private void cached(Jar jar) throws Exception {
+		Domain domain = Domain.domain(jar.getManifest());
+		Packages exports = packages(domain.getExportPackage());
+		Packages imports = packages(domain.getImportPackage());
+		Packages contained = new Packages();
+		jar.getDirectories()
+			.forEach((dir, resources) -> {
+				if (resources != null && resources.keySet()
+					.stream()
+					.anyMatch(path -> path.endsWith(".class"))) {
+					contained.put(getPackageRef(dir));
+				}
+			});
+		project.exportedPackages.putAll(exports);
+		project.importedPackages.putAll(imports);
+		project.containedPackages.putAll(contained);
+		project.versionMap.put(jar.getBsn(), new Version(cleanupVersion(jar.getVersion())));
+		buildInfo.artifacts.add(new ArtifactInfoImpl(jar, exports, imports, contained));
+	}
+
+	private Packages packages(Parameters parameters) {
+		Packages packages = new Packages();
+		parameters.forEach((name, attrs) -> packages.put(getPackageRef(removeDuplicateMarker(name)), attrs));
+		return packages;
+	}
+
+	/**
+	 * Answer the fingerprint of the inputs of the last {@link #builds()}.
+	 *
+	 * @param jars the jars answered by {@link #builds()}, they must not have
+	 *            been closed
+	 * @param previous the previous fingerprint of the project or {@code null}
+	 */
+	BuildFingerprint getFingerprint(Jar[] jars, BuildFingerprint previous) throws Exception {
+		BuildFingerprint fingerprint = new BuildFingerprint(previous);
+		Workspace workspace = project.getWorkspace();
+		fingerprint.file(workspace.getPropertiesFile());
+		for (File file : workspace.getIncluded()) {
+			fingerprint.file(file);
+		}
+		fingerprint.file(project.getPropertiesFile());
+		for (File file : project.getIncluded()) {
+			fingerprint.file(file);
+		}
+		for (File file : getIncluded()) {
+			fingerprint.file(file);
+		}
+		for (File file : subInputs) {
+			fingerprint.file(file);
+		}
+		// the build files of the dependencies first, the class path
+		// contains some of them
+		for (Project dependency : project.getDependson()) {
+			File[] buildFiles = dependency.getBuildFiles(false);
+			if (buildFiles != null) {
+				for (File file : buildFiles) {
+					fingerprint.content(file);
+				}
+			}
+		}
+		for (Jar jar : getClasspath()) {
+			fingerprint.file(jar.getSource());
+		}
+		fingerprint.directory(project.getOutput());
+		for (File dir : project.getSourcePath()) {
+			fingerprint.directory(dir);
+		}
+		for (Jar jar : jars) {
+			for (Resource resource : jar.getResources()
+				.values()) {
+				if (resource instanceof FileResource fileResource) {
+					fingerprint.file(fileResource.getFile());
+				}
+			}
+		}
+		Set<String> environment = new TreeSet<>(project.getAccessedEnvironment());
+		environment.addAll(getAccessedEnvironment());
+		environment.forEach(fingerprint::environment);
+		return fingerprint;
 	}
 
 
@@ -950,6 +1258,10 @@ public class ProjectBuilder extends Builder {
 
 		Version version = new Version(cleanupVersion(builder.getVersion()));
 		project.versionMap.put(builder.getBsn(), version);
+		if (builder != this) {
+			subInputs.add(builder.getPropertiesFile());
+			subInputs.addAll(builder.getIncluded());
+		}
 		super.doneBuild(builder);
 
 		ArtifactInfoImpl artifactInfo = new ArtifactInfoImpl(builder);
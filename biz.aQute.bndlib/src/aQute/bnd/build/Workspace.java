@@ -75,6 +75,7 @@ import aQute.bnd.osgi.BundleId;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Descriptors;
 import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.JarCache;
 import aQute.bnd.osgi.Macro;
 import aQute.bnd.osgi.PluginsContainer;
 import aQute.bnd.osgi.Processor;
@@ -90,6 +91,7 @@ import aQute.bnd.remoteworkspace.server.RemoteWorkspaceServer;
 import aQute.bnd.resource.repository.ResourceRepositoryImpl;
 import aQute.bnd.result.Result;
 import aQute.bnd.service.BndListener;
+import aQute.bnd.service.BuildCacheStore;
 import aQute.bnd.service.RepositoryListenerPlugin;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.service.action.Action;
@@ -211,6 +213,9 @@ public class Workspace extends Processor {
 	private final WorkspaceLock		workspaceLock						= new WorkspaceLock(true);
 	private static final long		WORKSPACE_LOCK_DEFAULT_TIMEOUTMS	= 120_000L;
 	final WorkspaceNotifier			notifier							= new WorkspaceNotifier(this);
+	private final JarCache			jarCache							= new JarCache(0L);
+	private static final long		JARCACHE_DEFAULT_MB					= 256L;
+	private final Map<String, BuildCache>	buildCaches						= new ConcurrentHashMap<>();
 
 	public static boolean			remoteWorkspaces					= false;
 
@@ -1053,12 +1058,63 @@ public class Workspace extends Processor {
 		table.put("Plugins", getPlugins(Object.class));
 		table.put("Repos", getRepositories());
 		table.put("Projects in build order", getBuildOrder());
+		buildCaches.forEach((store, cache) -> table.put("Build cache " + store, cache.statistics()));
 	}
 
 	public File getCache(String name) {
 		return getFile(buildDir, CACHEDIR + "/" + name);
 	}
 
+	/**
+	 * Answer the cache of classpath jars shared by the builders of this
+	 * workspace. The {@link Constants#JARCACHE} instruction sets its budget in
+	 * megabytes.
+	 *
+	 * @return the cache or {@code null} if it is not enabled
+	 */
+	JarCache getJarCache() {
+		String value = getProperty(JARCACHE);
+		long budget = 0L;
+		if (value != null) {
+			value = value.trim();
+			if (value.matches("\\d+")) {
+				budget = Long.parseLong(value);
+			} else if (isTrue(value)) {
+				budget = JARCACHE_DEFAULT_MB;
+			}
+		}
+		jarCache.setBudget(budget * 1024L * 1024L);
+		return (budget > 0L) ? jarCache : null;
+	}
+
+	/**
+	 * Answer the cache of built jars for a project. The
+	 * {@link Constants#BUILDCACHE} instruction selects a directory or an http(s)
+	 * url, when it is not set a {@link BuildCacheStore} plugin is used. Projects
+	 * that use the same store share the cache and its statistics.
+	 *
+	 * @return the cache or {@code null} if it is not enabled
+	 */
+	BuildCache getBuildCache(Project project) {
+		Parameters parameters = new Parameters(project.getProperty(BUILDCACHE), project);
+		if (parameters.isEmpty()) {
+			BuildCacheStore store = getPlugin(BuildCacheStore.class);
+			return (store == null) ? null
+				: buildCaches.computeIfAbsent(store.toString(), k -> new BuildCache(store, true));
+		}
+		Map.Entry<String, Attrs> entry = parameters.entrySet()
+			.iterator()
+			.next();
+		String location = removeDuplicateMarker(entry.getKey());
+		String push = entry.getValue()
+			.get("push");
+		BuildCacheStore store = location.matches("(?i)https?:.*")
+			? new BuildCache.HttpStore(getPlugin(HttpClient.class), location)
+			: new BuildCache.DirectoryStore(project.getFile(location));
+		boolean enabled = (push == null) || isTrue(push);
+		return buildCaches.computeIfAbsent(store + ";push=" + enabled, k -> new BuildCache(store, enabled));
+	}
+
 	/**
 	 * Return the workspace repo
 	 */
@@ -1114,6 +1170,7 @@ public class Workspace extends Processor {
 		}
 
 		projects.close();
+		jarCache.close();
 
 		try {
 			super.close();
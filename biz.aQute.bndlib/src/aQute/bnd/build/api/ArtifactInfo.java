@@ -34,4 +34,14 @@ public interface ArtifactInfo {
 	 */
 	Packages getContained();
 
+	/**
+	 * Answer if the artifact was not written because its manifest and entries
+	 * are identical to the artifact of the previous build, see
+	 * {@link aQute.bnd.osgi.Constants#SKIPUNCHANGED}. Consumers can skip the
+	 * work that depends on the artifact.
+	 *
+	 * @return true if the artifact is unchanged
+	 */
+	boolean isUnchanged();
+
 }
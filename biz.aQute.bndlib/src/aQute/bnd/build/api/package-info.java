@@ -1,7 +1,7 @@
 /**
  */
 
-@Version("4.0.0")
+@Version("4.1.0")
 package aQute.bnd.build.api;
 
 import org.osgi.annotation.versioning.Version;
@@ -403,6 +403,14 @@ public class Syntax implements Constants {
 		new Syntax(CONNECTION_SETTINGS, "Setting up the communications for bnd.",
 			CONNECTION_SETTINGS + "= ~/.bnd/connection-settings.xml", null, null),
 
+		new Syntax(CONNECTION_HTTP2,
+			"Use the HTTP client of the JDK for http and https urls, sharing connections and using HTTP/2 when the server supports it.",
+			CONNECTION_HTTP2 + "=true", "true,false", Verifier.TRUEORFALSEPATTERN),
+
+		new Syntax(CONNECTION_SEGMENTS,
+			"Download large artifacts into the url cache as up to this number of parallel byte ranges.",
+			CONNECTION_SEGMENTS + "=4", null, Verifier.NUMBERPATTERN),
+
 		new Syntax(CONDUIT, "Allows a bnd file to point to files which will be returned when the bnd file is build.",
 			CONDUIT + "= jar/osgi.jar", null, null),
 
@@ -622,6 +630,28 @@ public class Syntax implements Constants {
 			"Do not calculate " + IMPORT_PACKAGE
 				+ " references for 'Proxy.newProxyInstance' usage found in method bodies during class processing.",
 			NOPROXYINTERFACES + "=true", "true,false", Verifier.TRUEORFALSEPATTERN),
+		new Syntax(PARALLELANALYSIS,
+			"Parse the class files of the bundle and its Bundle-ClassPath concurrently. The value is either a boolean or the number of workers to use.",
+			PARALLELANALYSIS + "=true", "true,false", null),
+		new Syntax(PARALLELWRITE,
+			"Read and deflate the entries of the JAR concurrently when it is written. The value is either a boolean or the number of workers to use.",
+			PARALLELWRITE + "=true", "true,false", null),
+		new Syntax(CLASSCACHE,
+			"A directory used to cache the information bnd calculates from class files, keyed by the SHA-256 of the class file.",
+			CLASSCACHE + "=${workspace}/cnf/cache/classes", null, null),
+		new Syntax(JARCACHE,
+			"Share the classpath jars of the projects in the workspace in a memory cache. The value is either a boolean or the budget of the cache in megabytes.",
+			JARCACHE + "=512", "true,false", null),
+		new Syntax(BUILDCACHE,
+			"Fetch the jars of a project from a cache, a directory or an http(s) url, when the digest of the inputs of its build is known. Built jars are stored in the cache unless push is false.",
+			BUILDCACHE + "=https://cache.example.com/bnd;push=false", null, null, new Syntax("push",
+				"Store built jars in the cache, the default is true.", "push=false", "true,false",
+				Verifier.TRUEORFALSEPATTERN)),
+		new Syntax(MACROCACHE,
+			"Memoize the expansion of macros until a property or file they read changes. Macros that have side effects or read other state are never memoized.",
+			MACROCACHE + "=true;nocache=fmodified", "true,false", null,
+			new Syntax("cache", "Additional macros that can be memoized.", "cache=\"repo,findpath\"", null, null),
+			new Syntax("nocache", "Macros that must never be memoized.", "nocache=fmodified", null, null)),
 		new Syntax(NOIMPORTJAVA, "Do not calculate " + IMPORT_PACKAGE + " references for java.* packages.",
 			NOIMPORTJAVA + "=true", "true,false", Verifier.TRUEORFALSEPATTERN),
 		new Syntax(NOSUBSTITUTION,
@@ -682,6 +712,10 @@ public class Syntax implements Constants {
 			"Display debugging information for a resolve operation to System.out. The values `1`, `2`, and `3` display progressively more debug information.",
 			"-resolvedebug: 1", "0,1,2,3", null),
 
+		new Syntax(RESOLVE_CACHE,
+			"Cache the run bundles of a resolve keyed by the properties and the digests of the repositories.",
+			RESOLVE_CACHE + "=true", "true,false", Verifier.TRUEORFALSEPATTERN),
+
 		new Syntax(RESOLVE_EFFECTIVE,
 			"Each requirement and capability has an effective or is effective=resolve. An effective of resolve is always processed by the resolver.",
 			RESOLVE_EFFECTIVE + "=resolve,active", "qname (',' qname )", null),
@@ -690,6 +724,9 @@ public class Syntax implements Constants {
 			"A property used by the resolver, if set to true (default) it excludes the system resource", null,
 			"true|false", null),
 
+		new Syntax(RESOLVE_PARALLEL, "Ask the repositories of a resolve in parallel.",
+			RESOLVE_PARALLEL + "=true", "true,false", Verifier.TRUEORFALSEPATTERN),
+
 		new Syntax(RESOLVE_PREFERENCES, "Override the default order and selection of repositories.",
 			RESOLVE_PREFERENCES + "=com.example.bundle.most.priority", "${packages}", null),
 
@@ -734,6 +771,10 @@ public class Syntax implements Constants {
 			SUB + "=com.acme.*.bnd", null, null),
 		new Syntax(REPORTNEWER, "Report any entries that were added to the build since the last JAR was made.",
 			REPORTNEWER + "=true", "true,false", Verifier.TRUEORFALSEPATTERN),
+
+		new Syntax(SKIPUNCHANGED,
+			"Do not write a build jar when its manifest, ignoring Bnd-LastModified, and its entries are identical to the jar of the previous build.",
+			SKIPUNCHANGED + "=true", "true,false", Verifier.TRUEORFALSEPATTERN),
 		new Syntax(RUNPROPERTIES, "Properties that are set as system properties before the framework is started.",
 			RUNPROPERTIES + "= foo=3, bar=4", null, null),
 		new Syntax(RUNREMOTE, "It provides remote debugging support for bnd projects.",
@@ -45,13 +45,28 @@ public interface LauncherInstructions {
 			+ "If the storage area is not cleaned, use the example pattern", example = "location='${@bsn}-${version;=;${@version}}.jar'")
 		String location();
 
+		/**
+		 * A directory for the framework storage of a prepared launch. The
+		 * first launch installs the embedded bundles in this storage, later
+		 * launches reuse them as long as the digests of the embedded bundles
+		 * do not change.
+		 *
+		 * @return a directory or null
+		 */
+		@SyntaxAnnotation(lead = "A directory for the framework storage of a prepared launch. The first launch, "
+			+ "or a launch with -Dlaunch.prepare.only=true, installs the embedded bundles in this storage. Later launches "
+			+ "reuse these bundles until the digests of the embedded bundles change. A relative path is resolved "
+			+ "against the working directory of the launch", example = "prepared=cache")
+		String prepared();
+
 	}
 
 	@SyntaxAnnotation(lead = "Options for the export of an executable", example = "rejar=STORE,strip=*:OSGI-OPT/*")
 	Executable executable();
 
 	enum RunOption {
-		eager
+		eager,
+		parallel
 	}
 
 	@SyntaxAnnotation(lead = "Options for the launch", example = "-runoptions eager")
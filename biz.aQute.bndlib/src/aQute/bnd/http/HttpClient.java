@@ -7,6 +7,7 @@ import static java.net.HttpURLConnection.HTTP_MOVED_TEMP;
 import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
 import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_PARTIAL;
 import static java.net.HttpURLConnection.HTTP_SEE_OTHER;
 import static java.util.Objects.requireNonNull;
 
@@ -27,6 +28,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Formatter;
@@ -35,6 +39,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -50,6 +55,8 @@ import org.slf4j.LoggerFactory;
 import aQute.bnd.connection.settings.ConnectionSettings;
 import aQute.bnd.exceptions.Exceptions;
 import aQute.bnd.http.URLCache.Info;
+import aQute.bnd.http.URLCache.InfoDTO;
+import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Processor;
 import aQute.bnd.service.Registry;
 import aQute.bnd.service.progress.ProgressPlugin;
@@ -64,6 +71,7 @@ import aQute.bnd.stream.MapStream;
 import aQute.bnd.util.home.Home;
 import aQute.lib.date.Dates;
 import aQute.lib.io.IO;
+import aQute.lib.io.IOConstants;
 import aQute.lib.json.JSONCodec;
 import aQute.libg.reporter.ReporterAdapter;
 import aQute.service.reporter.Reporter;
@@ -79,6 +87,7 @@ public class HttpClient implements Closeable, URLConnector {
 	static final long						INITIAL_TIMEOUT	= TimeUnit.MINUTES.toMillis(3);
 	static final long						FINAL_TIMEOUT	= TimeUnit.MINUTES.toMillis(5);
 	static final long						MAX_RETRY_DELAY	= TimeUnit.MINUTES.toMillis(10);
+	static final long						SEGMENT_SIZE	= 8L * 1024L * 1024L;
 
 	private final List<ProxyHandler>			proxyHandlers			= new ArrayList<>();
 	private final List<URLConnectionHandler>	connectionHandlers		= new ArrayList<>();
@@ -95,6 +104,9 @@ public class HttpClient implements Closeable, URLConnector {
 	int											retries					= 3;
 	long										retryDelay				= 0L;
 	final Map<URLConnectionHandler, Semaphore>	blocker					= new HashMap<>();
+	private volatile boolean					http2;
+	private volatile int						segments;
+	private final Map<JavaHttpConnection.ClientKey, java.net.http.HttpClient>	clients	= new ConcurrentHashMap<>();
 
 	public HttpClient() {
 		promiseFactory = Processor.getPromiseFactory();
@@ -118,6 +130,15 @@ public class HttpClient implements Closeable, URLConnector {
 	@Override
 	public void close() {
 		Authenticator.setDefault(null);
+		// the JDK client is AutoCloseable since Java 21, before it is released
+		// when it is no longer referenced
+		clients.values()
+			.forEach(client -> {
+				if (client instanceof AutoCloseable closeable) {
+					IO.close(closeable);
+				}
+			});
+		clients.clear();
 	}
 
 	@Override
@@ -320,6 +341,15 @@ public class HttpClient implements Closeable, URLConnector {
 	public void readSettings(Processor processor) throws IOException, Exception {
 		connectionSettings = new ConnectionSettings(processor, this);
 		connectionSettings.readSettings();
+		http2(processor.is(Constants.CONNECTION_HTTP2));
+		String value = processor.getProperty(Constants.CONNECTION_SEGMENTS);
+		if (value != null) {
+			try {
+				segments(Integer.parseInt(value.trim()));
+			} catch (NumberFormatException e) {
+				processor.error("%s must be a number of segments: %s", Constants.CONNECTION_SEGMENTS, value);
+			}
+		}
 	}
 
 	public URI makeDir(URI uri) throws URISyntaxException {
@@ -367,10 +397,40 @@ public class HttpClient implements Closeable, URLConnector {
 		return this;
 	}
 
+	/**
+	 * Use the {@link java.net.http.HttpClient} of the JDK for http and https
+	 * urls. Its connections are shared between requests and HTTPS requests
+	 * use HTTP/2 when the server supports it.
+	 *
+	 * @param http2 {@code true} to use the {@link java.net.http.HttpClient}
+	 * @return this
+	 */
+	public HttpClient http2(boolean http2) {
+		this.http2 = http2;
+		return this;
+	}
+
+	/**
+	 * Download large artifacts into the cache as parallel byte ranges. The
+	 * first {@value #SEGMENT_SIZE} bytes are requested with a range request,
+	 * when the server answers with a part of a larger content the rest is
+	 * fetched in up to the given number of segments of at least that size.
+	 * The segments are only accepted for the same version of the content.
+	 *
+	 * @param segments the maximum number of parallel segments, 1 or less to
+	 *            disable
+	 * @return this
+	 */
+	public HttpClient segments(int segments) {
+		this.segments = segments;
+		return this;
+	}
+
 	class HttpConnection<T> implements Callable<T> {
 		// These are not in HttpURLConnection
 		private static final int		HTTP_TEMPORARY_REDIRECT			= 307;	// https://developer.mozilla.org/en-US/docs/Web/HTTP/Status/307
 		private static final int		HTTP_PERMANENT_REDIRECT			= 308;	// https://developer.mozilla.org/en-US/docs/Web/HTTP/Status/308
+		private static final int		HTTP_RANGE_NOT_SATISFIABLE		= 416;	// https://developer.mozilla.org/en-US/docs/Web/HTTP/Status/416
 		private static final int		HTTP_UNKNOWN_ERROR				= 520;	// https://support.cloudflare.com/hc/en-us/articles/200171936-Error-520-Web-server-is-returning-an-unknown-error
 		private static final int		HTTP_INVALID_SSL_CERTIFICATE	= 526;	// https://support.cloudflare.com/hc/en-us/articles/200721975-Error-526-Invalid-SSL-certificate
 		private final HttpRequest<T>	request;
@@ -502,7 +562,7 @@ public class HttpClient implements Closeable, URLConnector {
 							}
 						}
 
-						TaggedData tag = connect();
+						TaggedData tag = connectCached(info, false);
 
 						if (tag.getState() == State.NOT_FOUND) {
 							cache().clear(uri);
@@ -511,7 +571,7 @@ public class HttpClient implements Closeable, URLConnector {
 							// update the cache from the input stream
 							//
 
-							info.update(tag.getInputStream(), tag.getTag(), tag.getModified());
+							store(info, tag);
 						} else if (tag.getState() == State.UNMODIFIED) {
 							info.jsonFile.setLastModified(System.currentTimeMillis());
 						}
@@ -532,15 +592,193 @@ public class HttpClient implements Closeable, URLConnector {
 					return new TaggedData(uri, HTTP_NOT_FOUND, request.useCacheFile);
 				}
 
-				TaggedData tag = connect();
+				TaggedData tag = connectCached(info, segments > 1);
 
 				if (tag.isOk()) {
-					info.update(tag.getInputStream(), tag.getTag(), tag.getModified());
+					store(info, tag);
 				}
 				return tag;
 			}
 		}
 
+		/*
+		 * Connect for the content of a cache entry. A partial download left by
+		 * an earlier attempt is continued with a range request that the server
+		 * only honors when the content did not change. Otherwise, if segmented
+		 * downloads are enabled, the first segment is requested.
+		 */
+		private TaggedData connectCached(Info info, boolean segmented) throws Exception {
+			request.headers.remove("Range");
+			request.headers.remove("If-Range");
+			long offset = info.getResumeOffset();
+			if (offset > 0L) {
+				logger.debug("Resuming {} at {}", request.url, offset);
+				request.headers.put("Range", "bytes=" + offset + "-");
+				request.headers.put("If-Range", info.getResumeValidator());
+			} else if (segmented && "GET".equals(request.verb)) {
+				request.headers.put("Range", "bytes=0-" + (SEGMENT_SIZE - 1L));
+			}
+
+			TaggedData tag = connect();
+			if (tag.getResponseCode() == HTTP_RANGE_NOT_SATISFIABLE && request.headers.containsKey("Range")) {
+				logger.debug("Range not satisfiable for {}, downloading the whole content", request.url);
+				IO.close(tag);
+				info.discardPartial();
+				request.headers.remove("Range");
+				request.headers.remove("If-Range");
+				tag = connect();
+			}
+			return tag;
+		}
+
+		/*
+		 * Store the content of a response in the cache entry. A partial
+		 * response continues the partial download or is the first segment of
+		 * a segmented download.
+		 */
+		private void store(Info info, TaggedData tag) throws Exception {
+			URLConnection con = tag.getConnection();
+			if (tag.getResponseCode() != HTTP_PARTIAL || con == null) {
+				boolean identity = con != null && con.getHeaderField("Content-Encoding") == null;
+				info.update(tag.getInputStream(), tag.getTag(), tag.getModified(), 0L,
+					identity ? con.getContentLengthLong() : -1L, identity);
+				return;
+			}
+
+			long[] range = contentRange(con.getHeaderField("Content-Range"));
+			long offset = info.getResumeOffset();
+			if (range == null || range[0] != offset) {
+				IO.close(tag);
+				info.discardPartial();
+				throw new IOException("Unexpected Content-Range " + con.getHeaderField("Content-Range") + " for "
+					+ request.url + ", expected the content from " + offset);
+			}
+			if (offset > 0L || range[2] < 0L || range[1] + 1L >= range[2]) {
+				info.update(tag.getInputStream(), tag.getTag(), tag.getModified(), offset, range[1] + 1L, true);
+				return;
+			}
+			String validator = URLCache.getValidator(dto(tag));
+			if (validator == null) {
+				// we cannot verify that the segments belong to the same content
+				logger.debug("No ETag or Last-Modified for {}, downloading the whole content", request.url);
+				IO.close(tag);
+				request.headers.remove("Range");
+				TaggedData whole = connect();
+				if (whole.getResponseCode() != HTTP_OK) {
+					throw new HttpRequestException(whole);
+				}
+				info.update(whole.getInputStream(), whole.getTag(), whole.getModified(), 0L, -1L, false);
+				return;
+			}
+			storeSegments(info, tag, validator, range[1] + 1L, range[2]);
+		}
+
+		/*
+		 * Store the first segment and fetch the remaining segments in
+		 * parallel. If a segment fails, the partial file is cut back to the
+		 * first segment so that a retry can continue from there.
+		 */
+		private void storeSegments(Info info, TaggedData first, String validator, long start, long total)
+			throws Exception {
+			info.begin();
+			try (FileChannel channel = FileChannel.open(info.partialFile.toPath(), StandardOpenOption.WRITE)) {
+				try (InputStream in = first.getInputStream()) {
+					if (write(in, channel, 0L, start - 1L) != start) {
+						throw new IOException("Premature end of the first segment of " + request.url);
+					}
+				}
+
+				long remaining = total - start;
+				int count = (int) Math.max(1L, Math.min(segments, remaining / SEGMENT_SIZE));
+				long size = (remaining + count - 1L) / count;
+				List<Promise<Long>> parts = new ArrayList<>(count);
+				for (long from = start; from < total; from += size) {
+					long begin = from;
+					long end = Math.min(from + size, total) - 1L;
+					parts.add(promiseFactory().submit(() -> segment(channel, begin, end, validator)));
+				}
+				Throwable failure = promiseFactory().all(parts)
+					.getFailure();
+				if (failure != null) {
+					// only the first segment is known to be contiguous
+					channel.truncate(start);
+					info.resumable(first.getTag(), first.getModified());
+					throw Exceptions.duck(failure);
+				}
+				if (channel.size() != total) {
+					throw new IOException(
+						"Segmented download of " + request.url + " has " + channel.size() + " bytes, expected " + total);
+				}
+			}
+			info.complete(first.getTag(), first.getModified());
+			logger.debug("Downloaded {} in segments, sha256={}", request.url, info.dto.sha_256);
+		}
+
+		/*
+		 * Fetch a range of the content. When the transfer fails, the rest of
+		 * the range is requested again. This loop is the only retry of a
+		 * segment, the request itself is not retried.
+		 */
+		private long segment(FileChannel channel, long from, long to, String validator) throws Exception {
+			long position = from;
+			for (int attempt = 0;; attempt++) {
+				HttpRequest<TaggedData> segment = build().headers(request.headers)
+					.headers("Range", "bytes=" + position + "-" + to)
+					.headers("If-Range", validator)
+					.timeout(request.timeout)
+					.retries(0)
+					.get(TaggedData.class);
+				segment.headers.remove("If-None-Match");
+				segment.headers.remove("If-Modified-Since");
+				try (TaggedData tag = segment.go(request.url)) {
+					if (tag.getResponseCode() != HTTP_PARTIAL) {
+						// the content changed or the range was refused
+						throw new HttpRequestException(tag);
+					}
+					long[] range = contentRange(tag.getConnection()
+						.getHeaderField("Content-Range"));
+					if (range == null || range[0] != position || range[1] != to) {
+						throw new IOException("Unexpected Content-Range for " + request.url + ": " + tag.getConnection()
+							.getHeaderField("Content-Range") + ", expected " + position + "-" + to);
+					}
+					position = write(tag.getInputStream(), channel, position, to);
+					if (position > to) {
+						return position - from;
+					}
+					throw new IOException("Premature end of segment " + from + "-" + to + " of " + request.url);
+				} catch (IOException e) {
+					if (attempt >= request.retries) {
+						throw e;
+					}
+					logger.debug("Retrying segment {}-{} of {} at {}", from, to, request.url, position, e);
+				}
+			}
+		}
+
+		private InfoDTO dto(TaggedData tag) {
+			InfoDTO dto = new InfoDTO();
+			dto.etag = tag.getTag();
+			dto.modified = tag.getModified();
+			return dto;
+		}
+
+		/*
+		 * Write the stream at the position in the channel, up to and including
+		 * the last position. Answer the position after the written bytes.
+		 */
+		private long write(InputStream in, FileChannel channel, long position, long last) throws IOException {
+			byte[] buffer = new byte[IOConstants.PAGE_SIZE * 16];
+			int n;
+			while (position <= last
+				&& (n = in.read(buffer, 0, (int) Math.min(buffer.length, last - position + 1L))) > 0) {
+				ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+				while (bb.hasRemaining()) {
+					position += channel.write(bb, position);
+				}
+			}
+			return position;
+		}
+
 		private TaggedData connect() throws Exception {
 			final ProxySetup proxy = getProxySetup(request.url);
 			final URLConnectionHandler matching = findMatchingHandler(request.url);
@@ -712,7 +950,10 @@ public class HttpClient implements Closeable, URLConnector {
 
 		private void configureHttpConnection(String verb, HttpURLConnection hcon) throws ProtocolException {
 			if (hcon != null) {
-				hcon.setRequestProperty("Accept-Encoding", "deflate, gzip");
+				// a range is a range of the bytes of the content, not of its
+				// encoding
+				hcon.setRequestProperty("Accept-Encoding",
+					request.headers.containsKey("Range") ? "identity" : "deflate, gzip");
 				hcon.setInstanceFollowRedirects(false); // we handle it
 				hcon.setRequestMethod(verb);
 			}
@@ -789,6 +1030,19 @@ public class HttpClient implements Closeable, URLConnector {
 
 		private URLConnection getProxiedAndConfiguredConnection(URL url, ProxySetup proxy,
 			URLConnectionHandler matching) throws Exception {
+			if (http2 && JavaHttpConnection.supports(url, proxy)) {
+				JavaHttpConnection jhc = new JavaHttpConnection(url, proxy,
+					key -> clients.computeIfAbsent(key, JavaHttpConnection::newClient));
+				if (matching == null) {
+					return jhc;
+				}
+				matching.handle(jhc);
+				if (!jhc.hasCustomTls()) {
+					return jhc;
+				}
+				logger.debug("Custom TLS settings for {}, using a URLConnection", url);
+			}
+
 			final URLConnection urlc = proxy != null ? url.openConnection(proxy.proxy) : url.openConnection();
 
 			if (matching == null) {
@@ -880,6 +1134,31 @@ public class HttpClient implements Closeable, URLConnector {
 			return in;
 		}
 
+		/*
+		 * Parse a Content-Range header "bytes first-last/total". The total is
+		 * -1 when unknown.
+		 */
+		private long[] contentRange(String header) {
+			if (header == null || !header.startsWith("bytes ")) {
+				return null;
+			}
+			try {
+				int dash = header.indexOf('-', 6);
+				int slash = header.indexOf('/', dash);
+				long first = Long.parseLong(header.substring(6, dash)
+					.trim());
+				long last = Long.parseLong(header.substring(dash + 1, slash)
+					.trim());
+				String total = header.substring(slash + 1)
+					.trim();
+				return new long[] {
+					first, last, total.equals("*") ? -1L : Long.parseLong(total)
+				};
+			} catch (RuntimeException e) {
+				return null;
+			}
+		}
+
 		private boolean isUpdateInfo(int code, URLConnection con) {
 			return request.upload instanceof File && request.updateTag && code == HTTP_CREATED
 				&& con.getHeaderField("ETag") != null;
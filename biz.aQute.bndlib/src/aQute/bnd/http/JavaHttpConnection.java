@@ -0,0 +1,467 @@
+package aQute.bnd.http;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.security.cert.Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import aQute.bnd.service.url.ProxyHandler.ProxySetup;
+import aQute.lib.io.ByteBufferOutputStream;
+
+/**
+ * A {@link java.net.URLConnection} that performs the exchange with a
+ * {@link java.net.http.HttpClient}. The clients are shared, so connections are
+ * kept alive and reused and HTTPS requests are multiplexed over HTTP/2 when
+ * the server supports it.
+ * <p>
+ * Since this class is a {@link HttpsURLConnection}, the
+ * {@link aQute.bnd.service.url.URLConnectionHandler}s can decorate it as
+ * usual. The request properties they set are sent with the request. The TLS
+ * settings of the shared clients cannot be changed per connection, a handler
+ * that changes the socket factory or host name verifier is detected by
+ * {@link #hasCustomTls()} so the caller can use a {@link java.net.URLConnection}
+ * instead.
+ * <p>
+ * Like the {@link java.net.HttpURLConnection} of the JDK, the request body is
+ * buffered so it can be sent with a content length. The response body is
+ * streamed, the read timeout bounds the wait for the headers and for every
+ * read of the body.
+ */
+final class JavaHttpConnection extends HttpsURLConnection {
+	private final static Set<String>	RESTRICTED	= Set.of("connection", "content-length", "expect", "host",
+		"upgrade");
+
+	/**
+	 * The settings that need a separate client.
+	 */
+	record ClientKey(Proxy proxy, PasswordAuthentication authentication, int connectTimeout) {}
+
+	private final ProxySetup												proxy;
+	private final Function<ClientKey, java.net.http.HttpClient>				clients;
+	private ByteBufferOutputStream											body;
+	private HttpResponse<InputStream>										response;
+	private List<Map.Entry<String, String>>									headers;
+
+	/**
+	 * @param url the http or https url
+	 * @param proxy the proxy or {@code null}
+	 * @param clients answers the client for the given settings
+	 */
+	JavaHttpConnection(URL url, ProxySetup proxy, Function<ClientKey, java.net.http.HttpClient> clients) {
+		super(url);
+		this.proxy = proxy;
+		this.clients = clients;
+	}
+
+	/**
+	 * Answer if the url and proxy can be handled. SOCKS proxies are not
+	 * supported by {@link java.net.http.HttpClient}.
+	 */
+	static boolean supports(URL url, ProxySetup proxy) {
+		String protocol = url.getProtocol()
+			.toLowerCase(Locale.ROOT);
+		if (!protocol.equals("http") && !protocol.equals("https")) {
+			return false;
+		}
+		return (proxy == null) || (proxy.proxy == null) || (proxy.proxy.type() != Proxy.Type.SOCKS);
+	}
+
+	/**
+	 * Create a client for the given settings.
+	 */
+	static java.net.http.HttpClient newClient(ClientKey key) {
+		java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+			.version(Version.HTTP_2)
+			.followRedirects(Redirect.NEVER); // we handle it
+		if (key.connectTimeout() > 0) {
+			builder.connectTimeout(Duration.ofMillis(key.connectTimeout()));
+		}
+		Proxy proxy = key.proxy();
+		if (proxy != null) {
+			if (proxy.type() == Proxy.Type.DIRECT) {
+				builder.proxy(java.net.http.HttpClient.Builder.NO_PROXY);
+			} else {
+				builder.proxy(ProxySelector.of((InetSocketAddress) proxy.address()));
+			}
+		}
+		PasswordAuthentication authentication = key.authentication();
+		if (authentication != null) {
+			builder.authenticator(new Authenticator() {
+				@Override
+				protected PasswordAuthentication getPasswordAuthentication() {
+					return authentication;
+				}
+			});
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Answer if a handler changed the TLS settings of this connection.
+	 */
+	boolean hasCustomTls() {
+		return getSSLSocketFactory() != getDefaultSSLSocketFactory()
+			|| getHostnameVerifier() != getDefaultHostnameVerifier();
+	}
+
+	@Override
+	public void connect() throws IOException {
+		if (connected) {
+			return;
+		}
+		java.net.http.HttpRequest.Builder builder;
+		try {
+			builder = java.net.http.HttpRequest.newBuilder(url.toURI());
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid url " + url, e);
+		}
+		if (url.getProtocol()
+			.equalsIgnoreCase("http")) {
+			// avoid the h2c upgrade, many servers and proxies mishandle it
+			builder.version(Version.HTTP_1_1);
+		}
+		if (getReadTimeout() > 0) {
+			builder.timeout(Duration.ofMillis(getReadTimeout()));
+		}
+		getRequestProperties().forEach((key, values) -> {
+			if (key != null && !RESTRICTED.contains(key.toLowerCase(Locale.ROOT))) {
+				values.forEach(value -> builder.header(key, value));
+			}
+		});
+		builder.method(method, (body != null) ? BodyPublishers.ofByteArray(body.toByteArray())
+			: BodyPublishers.noBody());
+
+		ClientKey key = new ClientKey((proxy != null) ? proxy.proxy : null,
+			(proxy != null) ? proxy.authentication : null, getConnectTimeout());
+		int readTimeout = getReadTimeout();
+		try {
+			response = clients.apply(key)
+				.send(builder.build(), info -> new BodyStream(readTimeout));
+		} catch (HttpTimeoutException e) {
+			SocketTimeoutException timeout = new SocketTimeoutException(e.getMessage());
+			timeout.initCause(e);
+			throw timeout;
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			InterruptedIOException interrupted = new InterruptedIOException(e.getMessage());
+			interrupted.initCause(e);
+			throw interrupted;
+		}
+		connected = true;
+		responseCode = response.statusCode();
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		if (connected) {
+			throw new IllegalStateException("Already connected");
+		}
+		if (!doOutput) {
+			throw new IOException("Output is not enabled, call setDoOutput(true)");
+		}
+		if (method.equals("GET")) {
+			method = "POST"; // like HttpURLConnection
+		}
+		if (body == null) {
+			body = new ByteBufferOutputStream();
+		}
+		return body;
+	}
+
+	@Override
+	public int getResponseCode() throws IOException {
+		connect();
+		return responseCode;
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		connect();
+		if (responseCode >= 400) {
+			if (responseCode == HTTP_NOT_FOUND || responseCode == HTTP_GONE) {
+				throw new FileNotFoundException(url.toString());
+			}
+			throw new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + url);
+		}
+		return response.body();
+	}
+
+	@Override
+	public InputStream getErrorStream() {
+		if (!connected || responseCode < 400) {
+			return null;
+		}
+		return response.body();
+	}
+
+	@Override
+	public String getHeaderField(String name) {
+		try {
+			connect();
+		} catch (IOException e) {
+			return null;
+		}
+		return response.headers()
+			.firstValue(name)
+			.orElse(null);
+	}
+
+	@Override
+	public Map<String, List<String>> getHeaderFields() {
+		try {
+			connect();
+		} catch (IOException e) {
+			return Collections.emptyMap();
+		}
+		Map<String, List<String>> fields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		fields.putAll(response.headers()
+			.map());
+		return Collections.unmodifiableMap(fields);
+	}
+
+	@Override
+	public String getHeaderFieldKey(int n) {
+		Map.Entry<String, String> entry = header(n);
+		return (entry != null) ? entry.getKey() : null;
+	}
+
+	@Override
+	public String getHeaderField(int n) {
+		Map.Entry<String, String> entry = header(n);
+		return (entry != null) ? entry.getValue() : null;
+	}
+
+	private Map.Entry<String, String> header(int n) {
+		try {
+			connect();
+		} catch (IOException e) {
+			return null;
+		}
+		if (headers == null) {
+			List<Map.Entry<String, String>> list = new ArrayList<>();
+			HttpHeaders httpHeaders = response.headers();
+			httpHeaders.map()
+				.forEach((key, values) -> values.forEach(value -> list.add(Map.entry(key, value))));
+			headers = list;
+		}
+		return (n >= 0 && n < headers.size()) ? headers.get(n) : null;
+	}
+
+	@Override
+	public void disconnect() {
+		if (response != null) {
+			try {
+				response.body()
+					.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	@Override
+	public boolean usingProxy() {
+		return (proxy != null) && (proxy.proxy != null) && (proxy.proxy.type() != Proxy.Type.DIRECT);
+	}
+
+	@Override
+	public String getCipherSuite() {
+		return response.sslSession()
+			.map(s -> s.getCipherSuite())
+			.orElse(null);
+	}
+
+	@Override
+	public Certificate[] getLocalCertificates() {
+		return response.sslSession()
+			.map(s -> s.getLocalCertificates())
+			.orElse(null);
+	}
+
+	@Override
+	public Certificate[] getServerCertificates() throws SSLPeerUnverifiedException {
+		if (response == null || response.sslSession()
+			.isEmpty()) {
+			throw new SSLPeerUnverifiedException("No TLS session");
+		}
+		return response.sslSession()
+			.get()
+			.getPeerCertificates();
+	}
+
+	@Override
+	public String toString() {
+		return "JavaHttpConnection:" + url;
+	}
+
+	/**
+	 * The response body. The
+	 * {@link java.net.http.HttpResponse.BodyHandlers#ofInputStream()} stream
+	 * blocks without a limit, this stream waits at most the read timeout for
+	 * the next part of the body and then throws a
+	 * {@link SocketTimeoutException}, like the socket of a
+	 * {@link java.net.HttpURLConnection}. The read can be retried.
+	 */
+	private static final class BodyStream extends InputStream implements BodySubscriber<InputStream> {
+		private final static List<ByteBuffer>			END			= List.of();
+		private final BlockingQueue<List<ByteBuffer>>	queue		= new LinkedBlockingQueue<>();
+		private final int								timeout;
+		private volatile Flow.Subscription				subscription;
+		private volatile Throwable						failure;
+		private volatile boolean						closed;
+		private Iterator<ByteBuffer>					buffers		= Collections.emptyIterator();
+		private ByteBuffer								current;
+		private boolean									eof;
+
+		BodyStream(int timeout) {
+			this.timeout = timeout;
+		}
+
+		@Override
+		public CompletionStage<InputStream> getBody() {
+			return CompletableFuture.completedStage(this);
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (closed) {
+				subscription.cancel();
+			} else {
+				subscription.request(1);
+			}
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> item) {
+			queue.offer(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			failure = throwable;
+			queue.offer(END);
+		}
+
+		@Override
+		public void onComplete() {
+			queue.offer(END);
+		}
+
+		@Override
+		public int read() throws IOException {
+			ByteBuffer bb = current();
+			return (bb != null) ? bb.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			ByteBuffer bb = current();
+			if (bb == null) {
+				return -1;
+			}
+			int n = Math.min(len, bb.remaining());
+			bb.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (!closed && current != null) ? current.remaining() : 0;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+			Flow.Subscription s = subscription;
+			if (s != null) {
+				s.cancel();
+			}
+			queue.clear();
+		}
+
+		private ByteBuffer current() throws IOException {
+			while (current == null || !current.hasRemaining()) {
+				if (closed) {
+					throw new IOException("Stream closed");
+				}
+				if (buffers.hasNext()) {
+					current = buffers.next();
+					continue;
+				}
+				if (eof) {
+					return null;
+				}
+				List<ByteBuffer> item = poll();
+				if (item == END) {
+					eof = true;
+					Throwable t = failure;
+					if (t != null) {
+						throw (t instanceof IOException e) ? e : new IOException(t.getMessage(), t);
+					}
+					return null;
+				}
+				buffers = item.iterator();
+				subscription.request(1);
+			}
+			return current;
+		}
+
+		private List<ByteBuffer> poll() throws IOException {
+			try {
+				List<ByteBuffer> item = (timeout > 0) ? queue.poll(timeout, TimeUnit.MILLISECONDS) : queue.take();
+				if (item == null) {
+					throw new SocketTimeoutException("Read timed out");
+				}
+				return item;
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					.interrupt();
+				InterruptedIOException interrupted = new InterruptedIOException(e.getMessage());
+				interrupted.initCause(e);
+				throw interrupted;
+			}
+		}
+	}
+}
@@ -4,8 +4,12 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.Map;
@@ -18,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import aQute.bnd.exceptions.Exceptions;
+import aQute.lib.date.Dates;
 import aQute.lib.io.IO;
 import aQute.lib.json.JSONCodec;
 import aQute.libg.cryptography.SHA1;
@@ -39,9 +44,18 @@ public class URLCache {
 		public String	sha_256;
 	}
 
+	/**
+	 * The content is downloaded to a partial file that replaces the content
+	 * file when the download is complete. When the server identifies the
+	 * content with a strong ETag or a last modified time, these are stored
+	 * next to the partial file so that a later attempt can continue the
+	 * download with a range request.
+	 */
 	public class Info implements Closeable {
 		File			file;
 		File			jsonFile;
+		File			partialFile;
+		File			partialJsonFile;
 		InfoDTO			dto;
 		URI				url;
 		ReentrantLock	lock	= new ReentrantLock();
@@ -50,6 +64,8 @@ public class URLCache {
 			this.file = content;
 			this.url = url;
 			this.jsonFile = new File(content.getParentFile(), content.getName() + ".json");
+			this.partialFile = new File(content.getParentFile(), content.getName() + ".partial");
+			this.partialJsonFile = new File(content.getParentFile(), content.getName() + ".partial.json");
 			if (this.jsonFile.isFile()) {
 				try {
 					this.dto = codec.dec()
@@ -72,14 +88,120 @@ public class URLCache {
 		}
 
 		public void update(InputStream inputStream, String etag, long modified) throws Exception {
+			update(inputStream, etag, modified, 0L, -1L, false);
+		}
+
+		/**
+		 * Update the content from a stream.
+		 *
+		 * @param inputStream the content starting at offset
+		 * @param etag the ETag of the content
+		 * @param modified the last modified time of the content
+		 * @param offset the offset in the partial file where the stream
+		 *            starts, 0 for the whole content
+		 * @param length the length of the whole content or -1 if unknown. A
+		 *            shorter stream fails the update and leaves the partial
+		 *            file.
+		 * @param resumable if the download can be continued with a range
+		 *            request when the stream fails
+		 */
+		void update(InputStream inputStream, String etag, long modified, long offset, long length,
+			boolean resumable) throws Exception {
+			if (offset == 0L) {
+				begin();
+				if (resumable) {
+					resumable(etag, modified);
+				}
+			}
+			try (FileChannel channel = FileChannel.open(partialFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE)) {
+				channel.truncate(offset);
+				channel.position(offset);
+				OutputStream out = Channels.newOutputStream(channel);
+				IO.copy(inputStream, out);
+				if (length >= 0L && channel.size() != length) {
+					throw new IOException(
+						"Premature end of " + url + ", received " + channel.size() + " of " + length + " bytes");
+				}
+			}
+			complete(etag, modified);
+		}
+
+		/**
+		 * Start a new download into an empty partial file.
+		 */
+		void begin() throws IOException {
 			IO.mkdirs(this.file.getParentFile());
-			IO.copy(inputStream, this.file);
+			IO.delete(partialJsonFile);
+			IO.copy(new byte[0], partialFile);
+		}
+
+		/**
+		 * Record that the partial file holds the start of the content with the
+		 * given ETag and last modified time.
+		 */
+		void resumable(String etag, long modified) throws Exception {
+			InfoDTO partial = new InfoDTO();
+			partial.uri = url;
+			partial.etag = etag;
+			partial.modified = modified;
+			if (getValidator(partial) != null) {
+				codec.enc()
+					.to(partialJsonFile)
+					.put(partial);
+			}
+		}
+
+		/**
+		 * Replace the content with the completed partial file.
+		 */
+		void complete(String etag, long modified) throws Exception {
+			IO.rename(partialFile, file);
+			IO.delete(partialJsonFile);
 			if (modified > 0) {
 				this.file.setLastModified(modified);
 			}
 			update(etag);
 		}
 
+		/**
+		 * Answer the length of the partial content that can be resumed, 0 if
+		 * there is none.
+		 */
+		long getResumeOffset() {
+			return (getResumeValidator() != null) ? partialFile.length() : 0L;
+		}
+
+		/**
+		 * Answer the value of the If-Range header for continuing the partial
+		 * download or {@code null} if it cannot be continued.
+		 */
+		String getResumeValidator() {
+			if (!partialFile.isFile() || !partialJsonFile.isFile()) {
+				return null;
+			}
+			try {
+				InfoDTO partial = codec.dec()
+					.from(partialJsonFile)
+					.get(InfoDTO.class);
+				if (!url.equals(partial.uri)) {
+					return null;
+				}
+				return getValidator(partial);
+			} catch (Exception e) {
+				logger.debug("URLCache Failed to load partial data for {} from {}", file, partialJsonFile, e);
+				return null;
+			}
+		}
+
+		/**
+		 * Discard the partial download.
+		 */
+		void discardPartial() {
+			IO.delete(partialFile);
+			IO.delete(partialJsonFile);
+		}
+
 		public void update(String etag) throws Exception {
 			this.dto.sha_1 = SHA1.digest(file)
 				.asHex();
@@ -101,6 +223,7 @@ public class URLCache {
 		public void delete() {
 			IO.delete(file);
 			IO.delete(jsonFile);
+			discardPartial();
 		}
 
 		public String getETag() {
@@ -119,6 +242,20 @@ public class URLCache {
 
 	}
 
+	/*
+	 * A weak ETag cannot be used in an If-Range header, the last modified time
+	 * is used instead.
+	 */
+	static String getValidator(InfoDTO dto) {
+		if (dto.etag != null && !dto.etag.isEmpty() && !dto.etag.startsWith("W/")) {
+			return dto.etag;
+		}
+		if (dto.modified > 0L) {
+			return Dates.formatMillis(Dates.RFC_7231_DATE_TIME, dto.modified);
+		}
+		return null;
+	}
+
 	public URLCache(File root) {
 		this.root = new File(root, "shas");
 		try {
@@ -188,6 +325,8 @@ public class URLCache {
 		if (f.isFile()) {
 			IO.deleteWithException(f);
 		}
+		IO.delete(new File(root, toName(uri) + ".content.partial"));
+		IO.delete(new File(root, toName(uri) + ".content.partial.json"));
 		infos.remove(f);
 		return exists;
 	}
@@ -11,6 +11,7 @@ import static java.util.stream.Collectors.toSet;
 import static org.osgi.framework.Constants.RESOLUTION_MANDATORY;
 import static org.osgi.framework.Constants.RESOLUTION_OPTIONAL;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -40,6 +41,8 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.StringJoiner;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.jar.Attributes;
 import java.util.jar.Attributes.Name;
@@ -63,6 +66,7 @@ import aQute.bnd.header.Attrs;
 import aQute.bnd.header.OSGiHeader;
 import aQute.bnd.header.Parameters;
 import aQute.bnd.http.HttpClient;
+import aQute.bnd.memoize.Memoize;
 import aQute.bnd.osgi.Clazz.JAVA;
 import aQute.bnd.osgi.Clazz.QUERY;
 import aQute.bnd.osgi.Descriptors.Descriptor;
@@ -148,6 +152,8 @@ public class Analyzer extends Processor {
 	private final Set<PackageRef>					packagesVisited			= new HashSet<>();
 	private Set<PackageRef>							nonClassReferences		= new HashSet<>();
 	private Set<Check>								checks;
+	private Memoize<ClazzCache>						clazzCache				= Memoize
+		.supplier(this::createClazzCache);
 	private final Map<TypeRef, String>				bcpTypes				= map();
 	final TypeRef									providerType			= getTypeRef(
 		"org/osgi/annotation/versioning/ProviderType");
@@ -2667,11 +2673,20 @@ public class Analyzer extends Processor {
 	}
 
 	public void addClasspath(Jar jar) {
+		addClasspath(jar, jar);
+	}
+
+	/**
+	 * Add a jar that is shared with other analyzers to the classpath. The
+	 * given closeable is closed instead of the jar when this analyzer is
+	 * closed.
+	 */
+	protected void addClasspath(Jar jar, Closeable closeable) {
 		if (isPedantic() && jar.getResources()
 			.isEmpty())
 			warning("There is an empty jar or directory on the classpath: %s", jar.getName());
 
-		addClose(jar);
+		addClose(closeable);
 		classpath.add(jar);
 		updateModified(jar.lastModified(), jar.toString());
 	}
@@ -2706,6 +2721,7 @@ public class Analyzer extends Processor {
 	public void forceRefresh() {
 		super.forceRefresh();
 		checks = null;
+		clazzCache = Memoize.supplier(this::createClazzCache);
 	}
 
 	public Jar getTarget() {
@@ -2777,12 +2793,15 @@ public class Analyzer extends Processor {
 	private boolean analyzeJar(Jar jar, String prefix, boolean okToIncludeDirs, String bcpEntry, boolean allowOverride)
 		throws Exception {
 		Map<String, Clazz> mismatched = new HashMap<>();
+		List<Clazz> proxies = new ArrayList<>();
 
 		Parameters importPackage = Optional.ofNullable(jar.getManifest())
 			.map(Domain::domain)
 			.map(Domain::getImportPackage)
 			.orElseGet(() -> new Parameters());
 
+		Map<String, ParsedClass> parsed = parseClasses(jar, prefix);
+
 		next: for (String path : jar.getResources()
 			.keySet()) {
 			if (path.startsWith(prefix)) {
@@ -2803,16 +2822,16 @@ public class Analyzer extends Processor {
 
 				// Check class resources, we need to analyze them
 				if (path.endsWith(".class")) {
-					Resource resource = jar.getResource(path);
-					Clazz clazz;
-
-					try {
-						clazz = new Clazz(this, path, resource);
-						clazz.parseClassFile();
-					} catch (Exception e) {
+					ParsedClass parsedClass = parsed.get(path);
+					if (parsedClass == null) {
+						parsedClass = ParsedClass.parse(this, path, jar.getResource(path));
+					}
+					if (parsedClass.failure() != null) {
+						Exception e = parsedClass.failure();
 						exception(e, "Invalid class file %s (%s)", relativePath, e);
 						continue next;
 					}
+					Clazz clazz = parsedClass.clazz();
 
 					TypeRef className = clazz.getClassName();
 					String calculatedPath = className.getPath();
@@ -2830,19 +2849,12 @@ public class Analyzer extends Processor {
 						PackageRef packageRef = className.getPackageRef();
 						learnPackage(jar, prefix, packageRef, contained);
 
-						// Look at the referred packages
-						// and copy them to our baseline
-						Set<PackageRef> refs = new LinkedHashSet<>(clazz.getReferred());
-						refs.addAll(referencesByAnnotation(clazz));
-						for (PackageRef p : refs) {
-							referred.compute(p,
-								(pRef, existing) -> mergeImportAttrs(existing, importPackage.get(pRef.getFQN())));
+						if (clazz.hasPendingProxyInterfaces()) {
+							// Merged when all classes of the jar are known
+							proxies.add(clazz);
+						} else {
+							mergeReferences(clazz, importPackage);
 						}
-						refs.remove(packageRef);
-						uses.addAll(packageRef, refs);
-
-						// Collect the API
-						apiUses.addAll(packageRef, clazz.getAPIUses());
 
 						if (bcpEntry != null) {
 							bcpTypes.put(className, bcpEntry);
@@ -2852,6 +2864,13 @@ public class Analyzer extends Processor {
 			}
 		}
 
+		// Proxy interfaces are loaded after the whole jar is in the
+		// classspace so the result does not depend on the parse order
+		for (Clazz clazz : proxies) {
+			clazz.resolveProxyInterfaces();
+			mergeReferences(clazz, importPackage);
+		}
+
 		if (mismatched.size() > 0) {
 			error("Classes found in the wrong directory: %s", mismatched);
 			return false;
@@ -2859,6 +2878,155 @@ public class Analyzer extends Processor {
 		return true;
 	}
 
+	/**
+	 * Copy the referred packages of a class to our baseline and collect its
+	 * uses and API.
+	 */
+	private void mergeReferences(Clazz clazz, Parameters importPackage) {
+		PackageRef packageRef = clazz.getClassName()
+			.getPackageRef();
+		Set<PackageRef> refs = new LinkedHashSet<>(clazz.getReferred());
+		refs.addAll(referencesByAnnotation(clazz));
+		for (PackageRef p : refs) {
+			referred.compute(p, (pRef, existing) -> mergeImportAttrs(existing, importPackage.get(pRef.getFQN())));
+		}
+		refs.remove(packageRef);
+		uses.addAll(packageRef, refs);
+
+		// Collect the API
+		apiUses.addAll(packageRef, clazz.getAPIUses());
+	}
+
+	/**
+	 * The result of parsing a single class file. Either the parsed class or the
+	 * exception thrown while parsing it.
+	 */
+	private record ParsedClass(Clazz clazz, Exception failure) {
+		static ParsedClass parse(Analyzer analyzer, String path, Resource resource) {
+			try {
+				Clazz clazz = new Clazz(analyzer, path, resource);
+				// Parsing must not depend on other classes, see analyzeJar
+				clazz.deferProxyInterfaces();
+				analyzer.parseClass(clazz);
+				return new ParsedClass(clazz, null);
+			} catch (Exception e) {
+				return new ParsedClass(null, e);
+			}
+		}
+	}
+
+	/**
+	 * Parse a class file. If {@link Constants#CLASSCACHE} is set, the class is
+	 * restored from the cache when its content was parsed before.
+	 */
+	private void parseClass(Clazz clazz) throws Exception {
+		ClazzCache cache = clazzCache.get();
+		if (cache != null) {
+			cache.parse(clazz);
+		} else {
+			clazz.parseClassFile();
+		}
+	}
+
+	private ClazzCache createClazzCache() {
+		String dir = getProperty(CLASSCACHE);
+		if (dir == null || dir.isBlank()) {
+			return null;
+		}
+		// Parsing depends on these options so they are part of the key
+		String variant = (is(NOCLASSFORNAME) ? "-f" : "").concat(is(NOPROXYINTERFACES) ? "-p" : "");
+		return new ClazzCache(getFile(dir.trim()), variant);
+	}
+
+	/**
+	 * Minimum number of class files per worker before it is worth parsing in
+	 * parallel.
+	 */
+	private final static int PARALLEL_ANALYSIS_BATCH = 32;
+
+	/**
+	 * If {@link Constants#PARALLELANALYSIS} is set, parse the class files of
+	 * the jar concurrently on a bounded number of workers. Parsing only
+	 * touches the class itself and the (thread safe) descriptors, proxy
+	 * interfaces are loaded afterwards on the calling thread. All merging
+	 * into the analyzer state is still done by the serial loop in
+	 * {@link #analyzeJar(Jar, String, boolean, String, boolean)} in the order
+	 * of the jar's resources, so the result is identical to a serial analysis.
+	 *
+	 * @return a map of path to parsed class, empty if the classes must be
+	 *         parsed serially
+	 */
+	private Map<String, ParsedClass> parseClasses(Jar jar, String prefix) {
+		int workers = getParallelAnalysis();
+		if (workers <= 1) {
+			return Collections.emptyMap();
+		}
+		List<Entry<String, Resource>> classes = jar.getResources()
+			.entrySet()
+			.stream()
+			.filter(e -> {
+				String path = e.getKey();
+				return path.startsWith(prefix) && path.endsWith(".class")
+					&& !path.startsWith("META-INF/", prefix.length());
+			})
+			.collect(toList());
+
+		workers = Math.min(workers, classes.size() / PARALLEL_ANALYSIS_BATCH);
+		if (workers <= 1) {
+			return Collections.emptyMap();
+		}
+
+		ParsedClass[] results = new ParsedClass[classes.size()];
+		AtomicInteger next = new AtomicInteger();
+		Runnable worker = () -> {
+			for (int i; (i = next.getAndIncrement()) < results.length;) {
+				Entry<String, Resource> entry = classes.get(i);
+				results[i] = ParsedClass.parse(this, entry.getKey(), entry.getValue());
+			}
+		};
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[workers - 1];
+		for (int i = 0; i < futures.length; i++) {
+			futures[i] = CompletableFuture.runAsync(worker, getExecutor());
+		}
+		worker.run();
+		CompletableFuture.allOf(futures)
+			.join();
+
+		Map<String, ParsedClass> parsed = new HashMap<>(classes.size());
+		for (int i = 0; i < results.length; i++) {
+			parsed.put(classes.get(i)
+				.getKey(), results[i]);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Answer the number of workers to use for parsing class files, see
+	 * {@link #getWorkers(String)}.
+	 */
+	private int getParallelAnalysis() {
+		return getWorkers(PARALLELANALYSIS);
+	}
+
+	/**
+	 * Answer the number of workers set by an instruction like
+	 * {@link Constants#PARALLELANALYSIS}. The instruction is either a boolean,
+	 * in which case the number of available processors is used, or the number
+	 * of workers.
+	 */
+	int getWorkers(String instruction) {
+		String value = getProperty(instruction);
+		if (value == null) {
+			return 0;
+		}
+		value = value.trim();
+		if (value.matches("\\d+")) {
+			return Integer.parseInt(value);
+		}
+		return isTrue(value) ? Runtime.getRuntime()
+			.availableProcessors() : 0;
+	}
+
 	/**
 	 * Clean up version parameters. Other builders use more fuzzy definitions of
 	 * the version syntax. This method cleans up such a version to match an OSGi
@@ -3208,7 +3376,7 @@ public class Analyzer extends Processor {
 		}
 		if (r != null) {
 			c = new Clazz(this, typeRef.getPath(), r);
-			c.parseClassFile();
+			parseClass(c);
 			importedClassesCache.put(typeRef, c);
 		}
 		return c;
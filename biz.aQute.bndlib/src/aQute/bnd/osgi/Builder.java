@@ -217,6 +217,7 @@ public class Builder extends Analyzer {
 			.ifPresent(dot::setCompression);
 
 		dot.setReproducible(getProperty(REPRODUCIBLE));
+		dot.setParallelWrite(getWorkers(PARALLELWRITE));
 
 		try {
 			long modified = Long.parseLong(getProperty("base.modified"));
@@ -19,6 +19,7 @@ import static java.util.stream.Collectors.toSet;
 
 import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.RetentionPolicy;
@@ -34,6 +35,7 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -773,7 +775,10 @@ public class Clazz {
 	}
 
 	public static final Comparator<Clazz>	NAME_COMPARATOR					= (Clazz a,
-		Clazz b) -> a.classFile.this_class.compareTo(b.classFile.this_class);
+		Clazz b) -> a.getClassName()
+			.getBinary()
+			.compareTo(b.getClassName()
+				.getBinary());
 
 	private boolean							hasRuntimeAnnotations;
 	private boolean							hasClassAnnotations;
@@ -786,6 +791,7 @@ public class Clazz {
 	private int								class$							= 0;
 	private int								newProxyInstance				= 0;
 	private Set<PackageRef>					api;
+	private Set<TypeRef>					pendingProxyInterfaces;
 
 	private ClassFile						classFile						= null;
 	private ConstantPool					constantPool					= null;
@@ -793,6 +799,17 @@ public class Clazz {
 	private TypeRef[]						interfaces;
 	ClassDef								classDef;
 
+	/*
+	 * The following fields are also available when this class was restored
+	 * from a summary, i.e. when the class file itself has not been parsed
+	 */
+	private TypeRef							className;
+	private int								access;
+	private int								majorVersion;
+	private int								minorVersion;
+	private boolean							summarized;
+	private boolean							cacheable						= true;
+
 	private Map<TypeRef, Integer>			referred						= null;
 
 	final Analyzer							analyzer;
@@ -817,6 +834,15 @@ public class Clazz {
 	}
 
 	public Set<TypeRef> parseClassFileWithCollector(ClassDataCollector cd) throws Exception {
+		if ((cd != null) && isSummarized()) {
+			// The summary is enough to ask the collector if it is interested
+			if (!cd.classStart(this)) {
+				return xref;
+			}
+			parseClassFile();
+			visitStartedClassFile(cd);
+			return xref;
+		}
 		ByteBuffer bb = resource.buffer();
 		if (bb != null) {
 			return parseClassFileData(ByteBufferDataInput.wrap(bb), cd);
@@ -846,6 +872,10 @@ public class Clazz {
 		classFile = ClassFile.parseClassFile(in);
 		classDef = new ClassDef(classFile);
 		constantPool = classFile.constant_pool;
+		className = classDef.getType();
+		access = classFile.access;
+		majorVersion = classFile.major_version;
+		minorVersion = classFile.minor_version;
 		referred = new HashMap<>(constantPool.size());
 
 		if (classDef.isPublic()) {
@@ -959,6 +989,10 @@ public class Clazz {
 		if (!cd.classStart(this)) {
 			return;
 		}
+		visitStartedClassFile(cd);
+	}
+
+	private void visitStartedClassFile(ClassDataCollector cd) throws Exception {
 		try {
 			cd.version(classFile.minor_version, classFile.major_version);
 			if (superClass != null) {
@@ -994,15 +1028,168 @@ public class Clazz {
 	}
 
 	public Stream<FieldDef> fields() {
-		return Arrays.stream(classFile.fields)
+		return Arrays.stream(classFile().fields)
 			.map(FieldDef::new);
 	}
 
 	public Stream<MethodDef> methods() {
-		return Arrays.stream(classFile.methods)
+		return Arrays.stream(classFile().methods)
 			.map(MethodDef::new);
 	}
 
+	/**
+	 * Answer the class file, parsing it if this class was restored from a
+	 * summary.
+	 */
+	private ClassFile classFile() {
+		if (classFile == null) {
+			try {
+				parseClassFile();
+			} catch (Exception e) {
+				throw Exceptions.duck(e);
+			}
+		}
+		return classFile;
+	}
+
+	private ClassDef classDef() {
+		classFile();
+		return classDef;
+	}
+
+	/**
+	 * Write a summary of the parsed class file. The summary holds everything
+	 * that is calculated while parsing. A class restored with
+	 * {@link #readSummary(DataInput)} can answer the class name, access,
+	 * hierarchy and references without parsing the class file. Anything else
+	 * will parse the class file on demand.
+	 */
+	synchronized void writeSummary(DataOutput out) throws IOException {
+		out.writeUTF(className.getBinary());
+		out.writeInt(access);
+		out.writeShort(majorVersion);
+		out.writeShort(minorVersion);
+		writeTypeRef(out, superClass);
+		writeTypeRefs(out, interfaces());
+		out.writeBoolean(hasRuntimeAnnotations);
+		out.writeBoolean(hasClassAnnotations);
+		out.writeBoolean(hasDefaultConstructor);
+		writeTypeRefs(out, xref);
+		out.writeInt(imports.size());
+		for (PackageRef packageRef : imports) {
+			out.writeUTF(packageRef.getBinary());
+		}
+		out.writeInt(referred.size());
+		for (Map.Entry<TypeRef, Integer> entry : referred.entrySet()) {
+			out.writeUTF(entry.getKey()
+				.getBinary());
+			out.writeInt(entry.getValue());
+		}
+		out.writeBoolean(api != null);
+		if (api != null) {
+			out.writeInt(api.size());
+			for (PackageRef packageRef : api) {
+				out.writeUTF(packageRef.getBinary());
+			}
+		}
+		out.writeBoolean(annotations != null);
+		if (annotations != null) {
+			writeTypeRefs(out, annotations);
+		}
+	}
+
+	/**
+	 * Restore this class from a summary written by
+	 * {@link #writeSummary(DataOutput)}. The class is only changed when the
+	 * whole summary could be read.
+	 */
+	synchronized void readSummary(DataInput in) throws IOException {
+		TypeRef className = analyzer.getTypeRef(in.readUTF());
+		int access = in.readInt();
+		int majorVersion = in.readUnsignedShort();
+		int minorVersion = in.readUnsignedShort();
+		TypeRef superClass = readTypeRef(in);
+		List<TypeRef> interfaces = readTypeRefs(in, new ArrayList<>());
+		boolean hasRuntimeAnnotations = in.readBoolean();
+		boolean hasClassAnnotations = in.readBoolean();
+		boolean hasDefaultConstructor = in.readBoolean();
+		Set<TypeRef> xref = readTypeRefs(in, new HashSet<>());
+		Set<PackageRef> imports = new HashSet<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			imports.add(analyzer.getPackageRef(in.readUTF()));
+		}
+		int size = in.readInt();
+		Map<TypeRef, Integer> referred = new HashMap<>(size);
+		for (int i = 0; i < size; i++) {
+			referred.put(analyzer.getTypeRef(in.readUTF()), Integer.valueOf(in.readInt()));
+		}
+		Set<PackageRef> api = null;
+		if (in.readBoolean()) {
+			api = new HashSet<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				api.add(analyzer.getPackageRef(in.readUTF()));
+			}
+		}
+		Set<TypeRef> annotations = in.readBoolean() ? readTypeRefs(in, new HashSet<>()) : null;
+
+		this.className = className;
+		this.access = access;
+		this.majorVersion = majorVersion;
+		this.minorVersion = minorVersion;
+		this.superClass = superClass;
+		this.interfaces = interfaces.isEmpty() ? null : interfaces.toArray(new TypeRef[0]);
+		this.hasRuntimeAnnotations = hasRuntimeAnnotations;
+		this.hasClassAnnotations = hasClassAnnotations;
+		this.hasDefaultConstructor = hasDefaultConstructor;
+		this.xref.addAll(xref);
+		this.imports.addAll(imports);
+		this.referred = referred;
+		this.api = api;
+		this.annotations = annotations;
+		summarized = true;
+	}
+
+	private static void writeTypeRef(DataOutput out, TypeRef typeRef) throws IOException {
+		out.writeBoolean(typeRef != null);
+		if (typeRef != null) {
+			out.writeUTF(typeRef.getBinary());
+		}
+	}
+
+	private TypeRef readTypeRef(DataInput in) throws IOException {
+		return in.readBoolean() ? analyzer.getTypeRef(in.readUTF()) : null;
+	}
+
+	private static void writeTypeRefs(DataOutput out, Collection<TypeRef> typeRefs) throws IOException {
+		out.writeInt(typeRefs.size());
+		for (TypeRef typeRef : typeRefs) {
+			out.writeUTF(typeRef.getBinary());
+		}
+	}
+
+	private <C extends Collection<TypeRef>> C readTypeRefs(DataInput in, C typeRefs) throws IOException {
+		for (int i = in.readInt(); i > 0; i--) {
+			typeRefs.add(analyzer.getTypeRef(in.readUTF()));
+		}
+		return typeRefs;
+	}
+
+	/**
+	 * Answer true if this class was restored from a summary and its class
+	 * file has not been parsed.
+	 */
+	boolean isSummarized() {
+		return summarized && (classFile == null);
+	}
+
+	/**
+	 * Answer true if the result of parsing only depends on the content of the
+	 * class file, i.e. parsing did not need to look at other classes.
+	 */
+	boolean isCacheable() {
+		return cacheable;
+	}
+
 	/**
 	 * Find a method reference in the pool that points to the given class,
 	 * methodname and descriptor.
@@ -1912,7 +2099,7 @@ public class Clazz {
 			}
 			case VERSION -> {
 				requireNonNull(instr);
-				String v = classFile.major_version + "." + classFile.minor_version;
+				String v = majorVersion + "." + minorVersion;
 				yield instr.matches(v) ^ instr.isNegated();
 			}
 			case IMPLEMENTS -> {
@@ -1979,15 +2166,15 @@ public class Clazz {
 
 	@Override
 	public String toString() {
-		return (classDef != null) ? classDef.getName() : resource.toString();
+		return (className != null) ? className.getFQN() : resource.toString();
 	}
 
 	public boolean isPublic() {
-		return classDef.isPublic();
+		return Modifier.isPublic(access);
 	}
 
 	public boolean isProtected() {
-		return classDef.isProtected();
+		return Modifier.isProtected(access);
 	}
 
 	public boolean isEnum() {
@@ -1995,12 +2182,12 @@ public class Clazz {
 		 * The additional check for superClass name avoids stating that an
 		 * anonymous inner class of an enum is an enum class.
 		 */
-		return classDef.isEnum() && superClass.getBinary()
+		return isEnum(access) && superClass.getBinary()
 			.equals("java/lang/Enum");
 	}
 
 	public boolean isSynthetic() {
-		return classDef.isSynthetic();
+		return isSynthetic(access);
 	}
 
 	static boolean isSynthetic(int access) {
@@ -2008,11 +2195,12 @@ public class Clazz {
 	}
 
 	public boolean isModule() {
-		return classDef.isModule();
+		return isModule(access);
 	}
 
 	public boolean isPackageInfo() {
-		return classDef.isPackageInfo();
+		return className.getBinary()
+			.endsWith("/package-info");
 	}
 
 	static boolean isModule(int access) {
@@ -2024,7 +2212,7 @@ public class Clazz {
 	}
 
 	public JAVA getFormat() {
-		return JAVA.format(classFile.major_version);
+		return JAVA.format(majorVersion);
 
 	}
 
@@ -2087,11 +2275,11 @@ public class Clazz {
 	}
 
 	public boolean isInterface() {
-		return classDef.isInterface();
+		return Modifier.isInterface(access);
 	}
 
 	public boolean isAbstract() {
-		return classDef.isAbstract();
+		return Modifier.isAbstract(access);
 	}
 
 	public boolean hasPublicNoArgsConstructor() {
@@ -2099,23 +2287,23 @@ public class Clazz {
 	}
 
 	public int getAccess() {
-		return classDef.getAccess();
+		return access;
 	}
 
 	public Stream<Annotation> annotations(String binaryNameFilter) {
-		return classDef.annotations(binaryNameFilter);
+		return classDef().annotations(binaryNameFilter);
 	}
 
 	public Stream<TypeAnnotation> typeAnnotations(String binaryNameFilter) {
-		return classDef.typeAnnotations(binaryNameFilter);
+		return classDef().typeAnnotations(binaryNameFilter);
 	}
 
 	public TypeRef getClassName() {
-		return classDef.getType();
+		return className;
 	}
 
 	public boolean isInnerClass() {
-		return classDef.isInnerClass();
+		return classDef().isInnerClass();
 	}
 
 	public TypeRef getSuper() {
@@ -2123,7 +2311,7 @@ public class Clazz {
 	}
 
 	public String getFQN() {
-		return classDef.getName();
+		return className.getFQN();
 	}
 
 	public TypeRef[] getInterfaces() {
@@ -2139,15 +2327,15 @@ public class Clazz {
 	}
 
 	public boolean isFinal() {
-		return classDef.isFinal();
+		return Modifier.isFinal(access);
 	}
 
 	public boolean isDeprecated() {
-		return classDef.isDeprecated();
+		return classDef().isDeprecated();
 	}
 
 	public boolean isAnnotation() {
-		return classDef.isAnnotation();
+		return isAnnotation(access);
 	}
 
 	static boolean isAnnotation(int access) {
@@ -2193,7 +2381,17 @@ public class Clazz {
 
 		TypeRef interfaceType = analyzer.getTypeRef(interfaceName);
 		referTo(interfaceType, 0);
+		// The references now depend on the classpath, not only on our content
+		cacheable = false;
 
+		if (pendingProxyInterfaces != null) {
+			pendingProxyInterfaces.add(interfaceType);
+			return;
+		}
+		processProxyInterface(interfaceType);
+	}
+
+	private void processProxyInterface(TypeRef interfaceType) {
 		// Load the interface class to analyze its methods
 		try {
 			Clazz interfaceClazz = analyzer.findClass(interfaceType);
@@ -2208,16 +2406,49 @@ public class Clazz {
 			}
 		} catch (Exception e) {
 			// If we can't load the interface, just reference the interface type itself
-			logger.debug("Unable to load proxy interface {} for detailed analysis: {}", interfaceName, e.getMessage());
+			logger.debug("Unable to load proxy interface {} for detailed analysis: {}", interfaceType, e.getMessage());
+		}
+	}
+
+	/**
+	 * Do not load the interfaces passed to {@code Proxy.newProxyInstance}
+	 * while parsing. Parsing then only depends on the class file and can be
+	 * done on any thread. The interfaces are loaded when
+	 * {@link #resolveProxyInterfaces()} is called. Must be called before the
+	 * class file is parsed.
+	 */
+	void deferProxyInterfaces() {
+		pendingProxyInterfaces = new LinkedHashSet<>();
+	}
+
+	/**
+	 * Answer true if parsing found proxy interfaces that have not been loaded
+	 * yet.
+	 */
+	boolean hasPendingProxyInterfaces() {
+		return (pendingProxyInterfaces != null) && !pendingProxyInterfaces.isEmpty();
+	}
+
+	/**
+	 * Load the proxy interfaces deferred by {@link #deferProxyInterfaces()}
+	 * and refer to the types used in their methods. This uses
+	 * {@link Analyzer#findClass(TypeRef)} and must therefore be called on the
+	 * thread that owns the analyzer.
+	 */
+	synchronized void resolveProxyInterfaces() {
+		Set<TypeRef> pending = pendingProxyInterfaces;
+		pendingProxyInterfaces = null;
+		if (pending != null) {
+			pending.forEach(this::processProxyInterface);
 		}
 	}
 
 	public String getClassSignature() {
-		return classDef.getSignature();
+		return classDef().getSignature();
 	}
 
 	public String getSourceFile() {
-		return classDef.getSourceFile();
+		return classDef().getSourceFile();
 	}
 
 	public Map<String, Object> getDefaults() throws Exception {
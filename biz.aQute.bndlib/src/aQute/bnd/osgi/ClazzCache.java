@@ -0,0 +1,104 @@
+package aQute.bnd.osgi;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.lib.io.IO;
+import aQute.libg.cryptography.SHA256;
+
+/**
+ * A persistent, content addressed cache of the information calculated when a
+ * class file is parsed. The key is the SHA-256 of the class file, so the cache
+ * can be shared between builds, projects and workspaces. A class restored from
+ * the cache only parses its class file when information is needed that is not
+ * part of the summary, see {@link Clazz#writeSummary(java.io.DataOutput)}.
+ * <p>
+ * Entries are written to a temporary file and then moved in place so
+ * concurrent builds using the same directory never see partial entries. A
+ * corrupt or outdated entry is treated as a cache miss.
+ */
+class ClazzCache {
+	private final static Logger	logger	= LoggerFactory.getLogger(ClazzCache.class);
+	private final static int	VERSION	= 1;
+	private final File			dir;
+	private final String		variant;
+
+	/**
+	 * @param dir the cache directory
+	 * @param variant identifies the analyzer options that influence parsing,
+	 *            it is appended to the key
+	 */
+	ClazzCache(File dir, String variant) {
+		this.dir = dir;
+		this.variant = variant;
+	}
+
+	/**
+	 * Parse the class, restoring it from the cache if possible.
+	 */
+	void parse(Clazz clazz) throws Exception {
+		String sha;
+		try (InputStream in = clazz.getResource()
+			.openInputStream()) {
+			sha = SHA256.digest(in)
+				.asHex()
+				.toLowerCase();
+		}
+		File file = new File(dir, sha.substring(0, 2) + "/" + sha + variant);
+		if (file.isFile() && read(clazz, file)) {
+			return;
+		}
+
+		clazz.parseClassFile();
+		if (clazz.isCacheable()) {
+			write(clazz, file);
+		}
+	}
+
+	private boolean read(Clazz clazz, File file) {
+		try (DataInputStream in = new DataInputStream(IO.stream(file))) {
+			if (in.readInt() != VERSION) {
+				return false;
+			}
+			clazz.readSummary(in);
+			return true;
+		} catch (Exception e) {
+			logger.debug("Invalid class cache entry {}", file, e);
+			return false;
+		}
+	}
+
+	private void write(Clazz clazz, File file) {
+		try {
+			Path target = file.toPath();
+			Path parent = IO.mkdirs(target.getParent());
+			Path tmp = Files.createTempFile(parent, file.getName(), ".tmp");
+			try {
+				try (OutputStream out = IO.outputStream(tmp); DataOutputStream dout = new DataOutputStream(out)) {
+					dout.writeInt(VERSION);
+					clazz.writeSummary(dout);
+				}
+				Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				IO.delete(tmp);
+			}
+		} catch (IOException e) {
+			logger.debug("Unable to write class cache entry {}", file, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ClazzCache[" + dir + "]";
+	}
+}
@@ -120,6 +120,8 @@ public interface Constants {
 	String		CONDITIONALPACKAGE							= "-conditionalpackage";
 	String		CONNECTION_SETTINGS							= "-connection-settings";
 	String		CONNECTION_LOG								= "-connection-log";
+	String		CONNECTION_HTTP2							= "-connection-http2";
+	String		CONNECTION_SEGMENTS							= "-connection-segments";
 
 	String		COMPRESSION									= "-compression";
 	String		DIFFIGNORE									= "-diffignore";
@@ -203,6 +205,19 @@ public interface Constants {
 	String		NOSUBSTITUTION								= "-nosubstitution";
 	String		NOBUNDLES									= "-nobundles";
 	String		NOPARALLEL									= "-noparallel";
+	String		PARALLELANALYSIS							= "-parallelanalysis";
+	String		PARALLELWRITE								= "-parallelwrite";
+	String		CLASSCACHE									= "-classcache";
+	String		JARCACHE									= "-jarcache";
+	/**
+	 * The directory or http(s) url of a cache of built jars, keyed by a digest
+	 * of the inputs of the project build
+	 */
+	String		BUILDCACHE									= "-buildcache";
+	/**
+	 * Memoize macro expansions until a property or file they read changes
+	 */
+	String		MACROCACHE									= "-macrocache";
 	String		OUTPUTMASK									= "-outputmask";																																						// default
 																																																									// ${@bsn}.jar
 
@@ -239,11 +254,22 @@ public interface Constants {
 	String		RESOLVE_EXCLUDESYSTEM						= "-resolve.excludesystem";
 	String		RESOLVE_EFFECTIVE							= "-resolve.effective";
 	String		RESOLVE_PREFERENCES							= "-resolve.preferences";
+	/**
+	 * Cache the run bundles of a resolve keyed by the properties and the
+	 * digests of the repositories. The default is false
+	 */
+	String		RESOLVE_CACHE								= "-resolve.cache";
+	/**
+	 * Ask the repositories of a resolve in parallel. Only valid when all the
+	 * repositories can be asked concurrently. The default is false
+	 */
+	String		RESOLVE_PARALLEL							= "-resolve.parallel";
 
 	String		RUNNOREFERENCES								= "-runnoreferences";
 	String		RUNFRAMEWORKRESTART							= "-runframeworkrestart";
 	String		RUNOPTIONS									= "-runoptions";
 	String		RUNOPTIONS_EAGER							= "eager";
+	String		RUNOPTIONS_PARALLEL							= "parallel";
 
 	String		RUNPROPERTIES								= "-runproperties";
 	String		RUNSYSTEMPACKAGES							= "-runsystempackages";
@@ -295,6 +321,11 @@ public interface Constants {
 	String		RUNFRAMEWORK_SERVICES						= "services";
 	String		RUNFRAMEWORK_NONE							= "none";
 	String		REPORTNEWER									= "-reportnewer";
+	/**
+	 * Do not write a build jar whose manifest and entries are identical to the
+	 * jar of the previous build. The default is false
+	 */
+	String		SKIPUNCHANGED								= "-skipunchanged";
 	String		SIGN										= "-sign";
 	String		STALECHECK									= "-stalecheck";
 	String		STANDALONE									= "-standalone";
@@ -352,7 +383,9 @@ public interface Constants {
 		CDIANNOTATIONS, REMOTEWORKSPACE, MAVEN_DEPENDENCIES, BUILDERIGNORE, STALECHECK, MAVEN_SCOPE, RUNSTARTLEVEL,
 		RUNOPTIONS, NOCLASSFORNAME, NOPROXYINTERFACES, EXPORT_APIGUARDIAN, RESOLVE, DEFINE_CONTRACT, GENERATE,
 		RUNFRAMEWORKRESTART,
-		NOIMPORTJAVA, NOSUBSTITUTION, VERSIONDEFAULTS, LIBRARY, METAINF_SERVICES);
+		NOIMPORTJAVA, NOSUBSTITUTION, VERSIONDEFAULTS, LIBRARY, METAINF_SERVICES, PARALLELANALYSIS, PARALLELWRITE,
+		CLASSCACHE, JARCACHE, RESOLVE_CACHE, RESOLVE_PARALLEL, CONNECTION_HTTP2, CONNECTION_SEGMENTS, SKIPUNCHANGED,
+		BUILDCACHE, MACROCACHE);
 
 	// Ignore bundle specific headers. These headers do not make a lot of sense
 	// to inherit
@@ -469,6 +502,7 @@ public interface Constants {
 	String		CURRENT_BUNDLEVERSION						= "@bundleversion";
 
 	String		BUILDFILES									= "buildfiles";
+	String		BUILDFINGERPRINT							= "buildfingerprint";
 
 	String		EMPTY_HEADER								= "<<EMPTY>>";
 
@@ -611,6 +645,11 @@ public interface Constants {
 	String		LAUNCH_RUNBUNDLES_ATTRS						= "launch.runbundles.attrs";
 	String		LAUNCH_ACTIVATORS							= "launch.activators";
 	String		LAUNCH_ACTIVATION_EAGER						= "launch.activation.eager";
+	/**
+	 * Read the embedded run bundles concurrently and start them in parallel
+	 * per start level. The bundles are installed in the run bundle order.
+	 */
+	String		LAUNCH_PARALLEL								= "launch.parallel";
 
 	/**
 	 * A list of headers that use merged properties
@@ -13,11 +13,15 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
@@ -93,6 +97,13 @@ public class Jar implements Closeable {
 	 * timezone and locale. The date is 1980-02-01T00:00:00Z.
 	 */
 	private static final long	ZIP_ENTRY_CONSTANT_TIME	= 318211200000L;
+	/**
+	 * System property to read JAR files by memory mapping them and parsing
+	 * only their central directory. This is opt-in since a mapped file cannot
+	 * be deleted or replaced on Windows until the mapping is garbage
+	 * collected.
+	 */
+	static final String			MAPPED_PROPERTY			= "bnd.jar.mapped";
 
 	public enum Compression {
 		DEFLATE,
@@ -124,6 +135,7 @@ public class Jar implements Closeable {
 	private int													fileLength				= -1;
 	private long												zipEntryConstantTime	= ZIP_ENTRY_CONSTANT_TIME;
 	private boolean												closeResources			= true;
+	private int													parallelWrite;
 
 	public static final Pattern									METAINF_SIGNING_P		= Pattern
 		.compile("META-INF/([^/]+\\.(?:DSA|RSA|EC|SF)|SIG-[^/]+)", Pattern.CASE_INSENSITIVE);
@@ -145,6 +157,17 @@ public class Jar implements Closeable {
 		}
 	}
 
+	/**
+	 * Create a JAR for a file from the complete content of the file.
+	 *
+	 * @throws ZipException if the content has no valid central directory
+	 */
+	Jar(File file, ByteBuffer zip) throws ZipException {
+		this(getName(file));
+		source = file;
+		buildFromBuffer(zip, file.getName());
+	}
+
 	public Jar(String name, InputStream in, long lastModified) throws IOException {
 		this(name, in);
 	}
@@ -300,6 +323,9 @@ public class Jar implements Closeable {
 	}
 
 	private Jar buildFromZip(File file) throws IOException {
+		if (Boolean.getBoolean(MAPPED_PROPERTY) && file.length() <= Integer.MAX_VALUE) {
+			return buildFromMappedZip(file);
+		}
 		try {
 			zipFile = new ZipFile(file);
 			for (ZipEntry entry : Iterables.iterable(zipFile.entries())) {
@@ -324,12 +350,43 @@ public class Jar implements Closeable {
 		}
 	}
 
+	private Jar buildFromMappedZip(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer zip = channel.map(MapMode.READ_ONLY, 0L, channel.size());
+			return buildFromBuffer(zip, file.getName());
+		} catch (ZipException e) {
+			ZipException ze = new ZipException(
+				"The JAR/ZIP file (" + file.getAbsolutePath() + ") seems corrupted, error: " + e.getMessage());
+			ze.initCause(e);
+			throw ze;
+		} catch (NoSuchFileException e) {
+			throw new IllegalArgumentException("Problem opening JAR: " + file.getAbsolutePath(), e);
+		}
+	}
+
+	private Jar buildFromBuffer(ByteBuffer zip, String source) throws ZipException {
+		for (MappedZipResource resource : MappedZipResource.entries(zip, source)) {
+			putResource(resource.getName(), resource, true);
+		}
+		return this;
+	}
+
 	private Jar buildFromResource(Resource resource) throws Exception {
 		return buildFromInputStream(resource.openInputStream());
 	}
 
 	private Jar buildFromInputStream(InputStream in) throws IOException {
-		try (ZipInputStream jin = new ZipInputStream(in);
+		ByteBuffer zip;
+		try (in) {
+			zip = IO.copy(in, new ByteBufferOutputStream(BUFFER_SIZE))
+				.toByteBuffer();
+		}
+		try {
+			return buildFromBuffer(zip, getName());
+		} catch (ZipException e) {
+			// no usable central directory, read what the local headers provide
+		}
+		try (ZipInputStream jin = new ZipInputStream(IO.stream(zip));
 			ByteBufferOutputStream bbos = new ByteBufferOutputStream(BUFFER_SIZE)) {
 			for (ZipEntry entry; (entry = jin.getNextEntry()) != null;) {
 				if (entry.isDirectory()) {
@@ -544,6 +601,11 @@ public class Jar implements Closeable {
 	public void write(OutputStream to) throws Exception {
 		check();
 
+		if (parallelWrite > 1) {
+			writeParallel(to);
+			return;
+		}
+
 		if (!doNotTouchManifest && !nomanifest && algorithms != null) {
 			doChecksums(to);
 			return;
@@ -614,6 +676,159 @@ public class Jar implements Closeable {
 		}
 	}
 
+	/**
+	 * Write the jar with a {@link JarWriter} that reads and deflates the
+	 * entries concurrently. The entries, their order and their times are the
+	 * same as for a serial write. When digests must be calculated, the digests
+	 * are calculated while the entries are deflated. These entries are staged
+	 * in a temporary file since the manifest, which holds the digests, must be
+	 * the first entry.
+	 */
+	private void writeParallel(OutputStream to) throws Exception {
+		OutputStream out = to;
+		Digester<SHA256> digester = null;
+		sha256 = null;
+		fileLength = -1;
+
+		if (calculateFileDigest) {
+			out = digester = SHA256.getDigester(out);
+		}
+
+		boolean writeManifest = !doNotTouchManifest && !nomanifest;
+		if (writeManifest) {
+			// writing the manifest strips the signatures
+			stripSignatures();
+		}
+
+		Set<String> done = new HashSet<>();
+		Set<String> directories = new HashSet<>();
+		List<JarWriter.Entry> head = new ArrayList<>();
+		List<JarWriter.Entry> tail = new ArrayList<>();
+
+		boolean checksums = writeManifest && algorithms != null;
+		Manifest checksummed = null;
+		if (doNotTouchManifest) {
+			Resource r = getResource(manifestName);
+			if (r != null) {
+				addEntry(head, directories, manifestName, r);
+				done.add(manifestName);
+			}
+		} else if (!nomanifest) {
+			Manifest manifest = getManifest();
+			Manifest written = checksums ? checksummed = (manifest == null ? new Manifest() : new Manifest(manifest))
+				: manifest;
+			addDirectories(head, directories, manifestName);
+			ZipEntry ze = new JarEntry(manifestName);
+			ZipUtil.setModifiedTime(ze, isReproducible() ? zipEntryConstantTime : lastModified());
+			head.add(new JarWriter.Entry(ze, new WriteResource() {
+				@Override
+				public void write(OutputStream out) throws Exception {
+					writeManifest(written, out);
+				}
+
+				@Override
+				public long lastModified() {
+					return 0; // a manifest should not change the date
+				}
+			}));
+			done.add(manifestName);
+		}
+
+		List<JarWriter.Entry> entries = checksums ? tail : head;
+		Map<String, Resource> metainf = getDirectory("META-INF");
+		if (metainf != null) {
+			List<String> signing = metainf.keySet()
+				.stream()
+				.filter(path -> METAINF_SIGNING_P.matcher(path)
+					.matches())
+				.collect(toList());
+			for (String path : signing) {
+				if (done.add(path)) {
+					addEntry(entries, directories, path, metainf.get(path));
+				}
+			}
+		}
+
+		for (Map.Entry<String, Resource> entry : getResources().entrySet()) {
+			if (!done.contains(entry.getKey()))
+				addEntry(entries, directories, entry.getKey(), entry.getValue());
+		}
+
+		JarWriter writer = new JarWriter(out, compression, writeManifest, null, parallelWrite);
+		if (checksums) {
+			File tmp = File.createTempFile(padString(getName(), 3, '_'), ".jar");
+			try {
+				JarWriter staged;
+				try (OutputStream stage = IO.outputStream(tmp)) {
+					staged = new JarWriter(stage, compression, false, algorithms, parallelWrite);
+					staged.write(tail);
+				}
+				for (Map.Entry<String, byte[][]> entry : staged.getDigests()
+					.entrySet()) {
+					Attributes attributes = checksummed.getAttributes(entry.getKey());
+					attributes = attributes == null ? new Attributes() : new Attributes(attributes);
+					checksummed.getEntries()
+						.put(entry.getKey(), attributes);
+					byte[][] digests = entry.getValue();
+					for (int i = 0; i < algorithms.length; i++) {
+						attributes.putValue(algorithms[i] + "-Digest", Base64.encodeBase64(digests[i]));
+					}
+				}
+				writer.write(head);
+				try (InputStream in = IO.stream(tmp)) {
+					writer.append(staged, in);
+				}
+			} finally {
+				IO.delete(tmp);
+			}
+		} else {
+			writer.write(head);
+		}
+		writer.finish();
+
+		if (digester != null) {
+			this.sha256 = digester.digest();
+			this.fileLength = digester.getLength();
+		}
+	}
+
+	private void addEntry(List<JarWriter.Entry> entries, Set<String> directories, String path, Resource resource) {
+		if (resource == null)
+			return;
+		addDirectories(entries, directories, path);
+		if (path.endsWith(Constants.EMPTY_HEADER))
+			return;
+		ZipEntry ze = new ZipEntry(path);
+		if (isReproducible()) {
+			ZipUtil.setModifiedTime(ze, zipEntryConstantTime);
+		} else {
+			long lastModified = resource.lastModified();
+			if (lastModified == 0L) {
+				lastModified = System.currentTimeMillis();
+			}
+			ZipUtil.setModifiedTime(ze, lastModified);
+		}
+		String extra = resource.getExtra();
+		if (extra != null) {
+			ze.setExtra(Resource.decodeExtra(extra));
+		}
+		entries.add(new JarWriter.Entry(ze, resource));
+	}
+
+	private void addDirectories(List<JarWriter.Entry> entries, Set<String> directories, String name) {
+		int index = name.lastIndexOf('/');
+		if (index > 0) {
+			String path = name.substring(0, index);
+			if (directories.contains(path))
+				return;
+			addDirectories(entries, directories, path);
+			ZipEntry ze = new ZipEntry(path + '/');
+			ZipUtil.setModifiedTime(ze, isReproducible() ? zipEntryConstantTime : lastModified());
+			entries.add(new JarWriter.Entry(ze, null));
+			directories.add(path);
+		}
+	}
+
 	public void writeFolder(File dir) throws Exception {
 		IO.mkdirs(dir);
 
@@ -1214,6 +1429,20 @@ public class Jar implements Closeable {
 		return this.compression;
 	}
 
+	/**
+	 * Set the number of workers used to read and deflate the entries when the
+	 * jar is written. A value of 1 or less writes the jar serially.
+	 *
+	 * @param workers the number of workers, including the writing thread
+	 */
+	public void setParallelWrite(int workers) {
+		this.parallelWrite = workers;
+	}
+
+	public int getParallelWrite() {
+		return parallelWrite;
+	}
+
 	void check() {
 		if (closed)
 			throw new RuntimeException("Already closed " + name);
@@ -0,0 +1,219 @@
+package aQute.bnd.osgi;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.lib.io.IO;
+
+/**
+ * A cache of read only {@link Jar}s for the files on a classpath so that the
+ * builders of a workspace share one index of a classpath entry instead of
+ * opening the file again and again. A jar is keyed by the path, size and last
+ * modified time of its file. The file is read completely into memory and its
+ * entries are inflated on demand, so a cached jar keeps no file open and can
+ * be used by concurrent builders.
+ * <p>
+ * A jar is reference counted by the {@link Lease}s handed out for it. When the
+ * total size of the cached files exceeds the budget, unreferenced jars are
+ * evicted in least recently used order. The users of a cached jar must not
+ * modify it.
+ */
+public class JarCache implements Closeable {
+	private final static Logger		logger	= LoggerFactory.getLogger(JarCache.class);
+	private final Map<Key, Entry>	entries	= new LinkedHashMap<>(16, 0.75f, true);
+	private long					budget;
+	private long					size;
+
+	record Key(String path, long size, long lastModified) {}
+
+	final static class Entry {
+		final Key	key;
+		final Jar	jar;
+		int			references;
+
+		Entry(Key key, Jar jar) {
+			this.key = key;
+			this.jar = jar;
+		}
+	}
+
+	/**
+	 * A reference to a cached jar. Closing the lease releases the reference,
+	 * it does not close the jar.
+	 */
+	public final class Lease implements Closeable {
+		private final Jar	jar;
+		private Entry		entry;
+
+		Lease(Entry entry) {
+			this.jar = entry.jar;
+			this.entry = entry;
+		}
+
+		public Jar getJar() {
+			return jar;
+		}
+
+		@Override
+		public void close() {
+			synchronized (JarCache.this) {
+				if (entry != null) {
+					entry.references--;
+					entry = null;
+					evict();
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "Lease[" + jar + "]";
+		}
+	}
+
+	/**
+	 * @param budget the maximum total size in bytes of the cached files
+	 */
+	public JarCache(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Change the budget, evicting unreferenced jars if necessary.
+	 *
+	 * @param budget the maximum total size in bytes of the cached files
+	 */
+	public synchronized void setBudget(long budget) {
+		this.budget = budget;
+		evict();
+	}
+
+	/**
+	 * Acquire the jar for a file.
+	 *
+	 * @param file the file
+	 * @return a lease for the jar or {@code null} if the file is not cached
+	 *         because it is not a regular file, does not fit in the budget or
+	 *         is not a ZIP file with a valid central directory. The caller must
+	 *         then open the file itself.
+	 */
+	public Lease acquire(File file) throws IOException {
+		Path path = file.toPath()
+			.toAbsolutePath()
+			.normalize();
+		Key key = key(path);
+		if (key == null) {
+			return null;
+		}
+		synchronized (this) {
+			if (key.size() > budget) {
+				return null;
+			}
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				entry.references++;
+				return new Lease(entry);
+			}
+		}
+
+		byte[] content = Files.readAllBytes(path);
+		if (!key.equals(key(path)) || content.length != key.size()) {
+			logger.debug("{} changed while it was read, not caching it", path);
+			return null;
+		}
+		Jar jar;
+		try {
+			jar = new Jar(path.toFile(), ByteBuffer.wrap(content));
+		} catch (ZipException e) {
+			logger.debug("{} cannot be indexed, not caching it", path, e);
+			return null;
+		}
+
+		List<Jar> stale = new ArrayList<>();
+		Lease lease;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				// a new version of the file replaces unreferenced old versions
+				for (Iterator<Entry> it = entries.values()
+					.iterator(); it.hasNext();) {
+					Entry old = it.next();
+					if (old.references == 0 && old.key.path()
+						.equals(key.path())) {
+						it.remove();
+						size -= old.key.size();
+						stale.add(old.jar);
+					}
+				}
+				entry = new Entry(key, jar);
+				entries.put(key, entry);
+				size += key.size();
+			} else {
+				stale.add(jar);
+			}
+			entry.references++;
+			lease = new Lease(entry);
+			evict();
+		}
+		stale.forEach(IO::close);
+		return lease;
+	}
+
+	/**
+	 * Answer the total size of the cached files.
+	 */
+	public synchronized long size() {
+		return size;
+	}
+
+	/**
+	 * Evict all unreferenced jars. Jars that are still referenced are evicted
+	 * when their last lease is closed.
+	 */
+	@Override
+	public synchronized void close() {
+		budget = 0L;
+		evict();
+	}
+
+	private void evict() {
+		for (Iterator<Entry> it = entries.values()
+			.iterator(); size > budget && it.hasNext();) {
+			Entry entry = it.next();
+			if (entry.references == 0) {
+				it.remove();
+				size -= entry.key.size();
+				entry.jar.close();
+			}
+		}
+	}
+
+	private static Key key(Path path) throws IOException {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		if (!attributes.isRegularFile()) {
+			return null;
+		}
+		return new Key(path.toString(), attributes.size(), attributes.lastModifiedTime()
+			.toMillis());
+	}
+}
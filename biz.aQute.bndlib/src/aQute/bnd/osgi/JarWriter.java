@@ -0,0 +1,582 @@
+package aQute.bnd.osgi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import aQute.bnd.exceptions.Exceptions;
+import aQute.bnd.osgi.Jar.Compression;
+import aQute.lib.io.ByteBufferOutputStream;
+import aQute.lib.io.IO;
+import aQute.lib.io.IOConstants;
+
+/**
+ * Writes the entries of a {@link Jar} as a ZIP file. The content of the
+ * entries is read, checksummed, digested and deflated concurrently by a number
+ * of workers while the calling thread writes the finished entries in their
+ * given order. The output therefore only depends on the entries and not on the
+ * number of workers.
+ * <p>
+ * The workers never run more than a window of entries ahead of the entry
+ * being written, which bounds the memory used for the deflated content. The
+ * content of a single entry is always kept in memory.
+ */
+final class JarWriter {
+	private final static int		LOCSIG				= 0x04034b50;
+	private final static int		CENSIG				= 0x02014b50;
+	private final static int		ENDSIG				= 0x06054b50;
+	private final static int		ZIP64_ENDSIG		= 0x06064b50;
+	private final static int		ZIP64_LOCSIG		= 0x07064b50;
+	private final static long		ZIP64_MAGICVAL		= 0xFFFFFFFFL;
+	private final static int		ZIP64_MAGICCOUNT	= 0xFFFF;
+	private final static int		ZIP64_EXTID			= 0x0001;
+	private final static int		JAR_MAGIC			= 0xCAFE;
+	private final static int		USE_UTF8			= 0x0800;
+	private final static int		BUFFER_SIZE			= IOConstants.PAGE_SIZE * 16;
+	private final static int		MAX_BUFFER_SIZE		= Integer.MAX_VALUE - 8;
+
+	/**
+	 * An entry to write. The zip entry holds the name, the time and the extra
+	 * field. A directory has no resource.
+	 */
+	record Entry(ZipEntry zipEntry, Resource resource) {}
+
+	/**
+	 * The checksummed and possibly deflated content of an entry.
+	 */
+	private record Content(ByteBuffer data, long crc, long size, byte[][] digests) {}
+
+	/**
+	 * The information needed for the central directory.
+	 */
+	private record Central(byte[] name, byte[] extra, int method, int time, long crc, long csize, long size,
+		long offset) {}
+
+	private final OutputStream			out;
+	private final Compression			compression;
+	private final String[]				algorithms;
+	private final int					workers;
+	private final List<Central>			central	= new ArrayList<>();
+	private final Map<String, byte[][]>	digests	= new LinkedHashMap<>();
+	private boolean						jarMagic;
+	private long						written;
+
+	/**
+	 * @param out the output stream, it is not closed
+	 * @param compression the compression of the entries
+	 * @param jarMagic if true, the first entry is marked as the first entry of
+	 *            a JAR file like the {@link java.util.jar.JarOutputStream}
+	 * @param algorithms the digest algorithms to calculate for each entry with
+	 *            a resource or null
+	 * @param workers the number of concurrent workers, including the calling
+	 *            thread
+	 */
+	JarWriter(OutputStream out, Compression compression, boolean jarMagic, String[] algorithms, int workers) {
+		this.out = out;
+		this.compression = compression;
+		this.jarMagic = jarMagic;
+		this.algorithms = algorithms;
+		this.workers = Math.max(1, workers);
+	}
+
+	/**
+	 * Answer the digests calculated for the entries written so far, keyed by
+	 * the entry name. The digests are in the order of the algorithms.
+	 */
+	Map<String, byte[][]> getDigests() {
+		return digests;
+	}
+
+	/**
+	 * Write the entries in the given order.
+	 */
+	void write(List<Entry> entries) throws Exception {
+		new Pipeline(entries).run();
+	}
+
+	/**
+	 * Append the entries written by another writer whose output is provided by
+	 * the input stream. The other writer must not have been finished.
+	 */
+	void append(JarWriter staged, InputStream in) throws IOException {
+		long base = written;
+		long length = in.transferTo(out);
+		if (length != staged.written) {
+			throw new IOException("Staged entries have " + length + " bytes, expected " + staged.written);
+		}
+		written += length;
+		for (Central c : staged.central) {
+			central.add(new Central(c.name(), c.extra(), c.method(), c.time(), c.crc(), c.csize(), c.size(),
+				c.offset() + base));
+		}
+		digests.putAll(staged.digests);
+	}
+
+	/**
+	 * Write the central directory.
+	 *
+	 * @return the total number of bytes written
+	 */
+	long finish() throws IOException {
+		long offset = written;
+		for (Central c : central) {
+			writeCentral(c);
+		}
+		long size = written - offset;
+		int count = central.size();
+		boolean zip64 = count >= ZIP64_MAGICCOUNT || offset >= ZIP64_MAGICVAL || size >= ZIP64_MAGICVAL;
+		if (zip64) {
+			long end = written;
+			ByteBuffer bb = header(56 + 20);
+			bb.putInt(ZIP64_ENDSIG)
+				.putLong(44)
+				.putShort((short) 45)
+				.putShort((short) 45)
+				.putInt(0)
+				.putInt(0)
+				.putLong(count)
+				.putLong(count)
+				.putLong(size)
+				.putLong(offset);
+			bb.putInt(ZIP64_LOCSIG)
+				.putInt(0)
+				.putLong(end)
+				.putInt(1);
+			write(bb);
+		}
+		ByteBuffer bb = header(22);
+		bb.putInt(ENDSIG)
+			.putShort((short) 0)
+			.putShort((short) 0)
+			.putShort((short) Math.min(count, ZIP64_MAGICCOUNT))
+			.putShort((short) Math.min(count, ZIP64_MAGICCOUNT))
+			.putInt((int) Math.min(size, ZIP64_MAGICVAL))
+			.putInt((int) Math.min(offset, ZIP64_MAGICVAL))
+			.putShort((short) 0);
+		write(bb);
+		out.flush();
+		return written;
+	}
+
+	/**
+	 * Reads and deflates the entries concurrently and writes them in order.
+	 * The workers claim the next entry as long as it is inside the window. A
+	 * worker that cannot claim an entry ends, new workers are started when the
+	 * window moves. The calling thread also claims entries while it waits for
+	 * the entry it has to write next, so the pipeline never depends on the
+	 * availability of executor threads.
+	 */
+	private final class Pipeline {
+		private final List<Entry>							entries;
+		private final List<CompletableFuture<Content>>		results;
+		private final int									window;
+		private int											next;
+		private int											done;
+		private int											active;
+		private boolean										aborted;
+
+		Pipeline(List<Entry> entries) {
+			this.entries = entries;
+			this.results = new ArrayList<>(entries.size());
+			for (int i = 0; i < entries.size(); i++) {
+				results.add(new CompletableFuture<>());
+			}
+			this.window = workers * 4;
+		}
+
+		void run() throws Exception {
+			try {
+				for (int i = 0; i < entries.size(); i++) {
+					startWorkers();
+					CompletableFuture<Content> result = results.get(i);
+					while (!result.isDone()) {
+						int claimed = claim();
+						if (claimed < 0) {
+							break;
+						}
+						process(claimed);
+					}
+					Entry entry = entries.get(i);
+					Content content;
+					try {
+						content = result.join();
+					} catch (CompletionException e) {
+						throw new Exception("Problem writing resource " + entry.zipEntry()
+							.getName(), Exceptions.unrollCause(e, CompletionException.class));
+					}
+					writeEntry(entry, content);
+					synchronized (this) {
+						done = i + 1;
+					}
+				}
+			} finally {
+				synchronized (this) {
+					aborted = true;
+				}
+			}
+		}
+
+		private void startWorkers() {
+			int start;
+			synchronized (this) {
+				start = Math.min(workers - 1 - active, Math.min(entries.size(), done + window) - next);
+				if (start <= 0) {
+					return;
+				}
+				active += start;
+			}
+			for (int i = 0; i < start; i++) {
+				Processor.getExecutor()
+					.execute(this::work);
+			}
+		}
+
+		private void work() {
+			try {
+				for (int claimed; (claimed = claim()) >= 0;) {
+					process(claimed);
+				}
+			} finally {
+				synchronized (this) {
+					active--;
+				}
+			}
+		}
+
+		private synchronized int claim() {
+			if (aborted || next >= entries.size() || next >= done + window) {
+				return -1;
+			}
+			return next++;
+		}
+
+		private void process(int index) {
+			CompletableFuture<Content> result = results.get(index);
+			try {
+				result.complete(content(entries.get(index)));
+			} catch (Throwable t) {
+				result.completeExceptionally(t);
+			}
+		}
+	}
+
+	private Content content(Entry entry) throws Exception {
+		Resource resource = entry.resource();
+		long size = -1L;
+		if (resource != null) {
+			try {
+				size = resource.size();
+			} catch (Exception e) {
+				// only a hint
+			}
+		}
+		boolean store = compression == Compression.STORE;
+		int hint = size < 0L ? BUFFER_SIZE
+			: (int) Math.min(store ? size : (size / 2L) + 64L, Integer.MAX_VALUE - BUFFER_SIZE);
+		ByteBufferOutputStream bout = new ByteBufferOutputStream(hint);
+		MessageDigest[] mds = null;
+		if (algorithms != null && resource != null) {
+			mds = new MessageDigest[algorithms.length];
+			for (int i = 0; i < algorithms.length; i++) {
+				mds[i] = MessageDigest.getInstance(algorithms[i]);
+			}
+		}
+		CRC32 crc = new CRC32();
+		Deflater deflater = store ? null : new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			OutputStream bounded = new BoundedOutputStream(bout, entry.zipEntry()
+				.getName());
+			ContentOutputStream cout = new ContentOutputStream(
+				store ? bounded : new DeflaterOutputStream(bounded, deflater, BUFFER_SIZE), crc, mds);
+			if (resource != null) {
+				resource.write(cout);
+			}
+			cout.close();
+			byte[][] digested = null;
+			if (mds != null) {
+				digested = new byte[mds.length][];
+				for (int i = 0; i < mds.length; i++) {
+					digested[i] = mds[i].digest();
+				}
+			}
+			return new Content(bout.toByteBuffer(), crc.getValue(), cout.size, digested);
+		} finally {
+			if (deflater != null) {
+				deflater.end();
+			}
+		}
+	}
+
+	private void writeEntry(Entry entry, Content content) throws IOException {
+		ZipEntry ze = entry.zipEntry();
+		byte[] name = ze.getName()
+			.getBytes(UTF_8);
+		byte[] extra = withoutZip64(ze.getExtra());
+		if (jarMagic) {
+			extra = jarMagic(extra);
+			jarMagic = false;
+		}
+		if (extra == null) {
+			extra = new byte[0];
+		}
+		int method = compression == Compression.STORE ? ZipEntry.STORED : ZipEntry.DEFLATED;
+		int time = dosTime(ze.getTimeLocal());
+		long csize = content.data()
+			.remaining();
+		long size = content.size();
+		long offset = written;
+
+		// the local header has both sizes in the ZIP64 extra field or neither
+		boolean zip64 = csize >= ZIP64_MAGICVAL || size >= ZIP64_MAGICVAL;
+		int extraLength = extra.length + (zip64 ? 20 : 0);
+		ByteBuffer bb = header(30 + name.length + extraLength);
+		bb.putInt(LOCSIG)
+			.putShort((short) (zip64 ? 45 : version(method)))
+			.putShort((short) USE_UTF8)
+			.putShort((short) method)
+			.putInt(time)
+			.putInt((int) content.crc())
+			.putInt((int) (zip64 ? ZIP64_MAGICVAL : csize))
+			.putInt((int) (zip64 ? ZIP64_MAGICVAL : size))
+			.putShort((short) name.length)
+			.putShort((short) extraLength)
+			.put(name);
+		if (zip64) {
+			bb.putShort((short) ZIP64_EXTID)
+				.putShort((short) 16)
+				.putLong(size)
+				.putLong(csize);
+		}
+		bb.put(extra);
+		write(bb);
+		IO.copy(content.data(), out);
+		written += csize;
+
+		central.add(new Central(name, extra, method, time, content.crc(), csize, size, offset));
+		if (content.digests() != null) {
+			digests.put(ze.getName(), content.digests());
+		}
+	}
+
+	private void writeCentral(Central c) throws IOException {
+		// the ZIP64 extra field only holds the values that do not fit
+		boolean zip64Size = c.size() >= ZIP64_MAGICVAL;
+		boolean zip64Csize = c.csize() >= ZIP64_MAGICVAL;
+		boolean zip64Offset = c.offset() >= ZIP64_MAGICVAL;
+		int zip64Length = (zip64Size ? 8 : 0) + (zip64Csize ? 8 : 0) + (zip64Offset ? 8 : 0);
+		boolean zip64 = zip64Length > 0;
+		int extraLength = c.extra().length + (zip64 ? 4 + zip64Length : 0);
+		ByteBuffer bb = header(46 + c.name().length + extraLength);
+		int version = zip64 ? 45 : version(c.method());
+		bb.putInt(CENSIG)
+			.putShort((short) version)
+			.putShort((short) version)
+			.putShort((short) USE_UTF8)
+			.putShort((short) c.method())
+			.putInt(c.time())
+			.putInt((int) c.crc())
+			.putInt((int) Math.min(c.csize(), ZIP64_MAGICVAL))
+			.putInt((int) Math.min(c.size(), ZIP64_MAGICVAL))
+			.putShort((short) c.name().length)
+			.putShort((short) extraLength)
+			.putShort((short) 0)
+			.putShort((short) 0)
+			.putShort((short) 0)
+			.putInt(0)
+			.putInt((int) Math.min(c.offset(), ZIP64_MAGICVAL))
+			.put(c.name());
+		if (zip64) {
+			bb.putShort((short) ZIP64_EXTID)
+				.putShort((short) zip64Length);
+			if (zip64Size) {
+				bb.putLong(c.size());
+			}
+			if (zip64Csize) {
+				bb.putLong(c.csize());
+			}
+			if (zip64Offset) {
+				bb.putLong(c.offset());
+			}
+		}
+		bb.put(c.extra());
+		write(bb);
+	}
+
+	private static int version(int method) {
+		return method == ZipEntry.STORED ? 10 : 20;
+	}
+
+	/*
+	 * Remove a ZIP64 extra field copied from the source of an entry, the
+	 * writer adds its own when the entry needs it.
+	 */
+	private static byte[] withoutZip64(byte[] extra) {
+		if (extra == null) {
+			return null;
+		}
+		ByteBuffer bb = ByteBuffer.wrap(extra)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer result = header(extra.length);
+		while (bb.remaining() >= 4) {
+			int start = bb.position();
+			int id = Short.toUnsignedInt(bb.getShort());
+			int size = Short.toUnsignedInt(bb.getShort());
+			if (size > bb.remaining()) {
+				return extra;
+			}
+			bb.position(bb.position() + size);
+			if (id != ZIP64_EXTID) {
+				result.put(extra, start, 4 + size);
+			}
+		}
+		if (result.position() + bb.remaining() == extra.length) {
+			return extra;
+		}
+		result.put(bb);
+		return Arrays.copyOf(result.array(), result.position());
+	}
+
+	/*
+	 * Like the JarOutputStream, mark the first entry with the JAR magic extra
+	 * field if it is not already present.
+	 */
+	private static byte[] jarMagic(byte[] extra) {
+		if (extra != null) {
+			ByteBuffer bb = ByteBuffer.wrap(extra)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			while (bb.remaining() >= 4) {
+				int id = Short.toUnsignedInt(bb.getShort());
+				int size = Short.toUnsignedInt(bb.getShort());
+				if (id == JAR_MAGIC) {
+					return extra;
+				}
+				if (size > bb.remaining()) {
+					break;
+				}
+				bb.position(bb.position() + size);
+			}
+		}
+		int length = extra == null ? 0 : extra.length;
+		ByteBuffer bb = header(4 + length);
+		bb.putShort((short) JAR_MAGIC)
+			.putShort((short) 0);
+		if (extra != null) {
+			bb.put(extra);
+		}
+		return bb.array();
+	}
+
+	private static int dosTime(LocalDateTime time) {
+		int year = time.getYear();
+		if (year < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		if (year > 2107) {
+			time = LocalDateTime.of(2107, 12, 31, 23, 59, 58);
+			year = 2107;
+		}
+		return ((year - 1980) << 25) | (time.getMonthValue() << 21) | (time.getDayOfMonth() << 16)
+			| (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+	}
+
+	private static ByteBuffer header(int size) {
+		return ByteBuffer.allocate(size)
+			.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private void write(ByteBuffer bb) throws IOException {
+		out.write(bb.array(), 0, bb.position());
+		written += bb.position();
+	}
+
+	/**
+	 * Rejects content that does not fit in the buffer of an entry.
+	 */
+	private static final class BoundedOutputStream extends FilterOutputStream {
+		private final String	name;
+		private long			size;
+
+		BoundedOutputStream(OutputStream out, String name) {
+			super(out);
+			this.name = name;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			check(1);
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			check(len);
+			out.write(b, off, len);
+		}
+
+		private void check(int len) throws IOException {
+			size += len;
+			if (size > MAX_BUFFER_SIZE) {
+				throw new IOException("Entry " + name + " is too large to write, its "
+					+ "stored content exceeds " + MAX_BUFFER_SIZE + " bytes");
+			}
+		}
+	}
+
+	/**
+	 * Calculates the CRC, the size and the digests of the uncompressed content
+	 * while it is written.
+	 */
+	private static final class ContentOutputStream extends FilterOutputStream {
+		private final CRC32				crc;
+		private final MessageDigest[]	mds;
+		long							size;
+
+		ContentOutputStream(OutputStream out, CRC32 crc, MessageDigest[] mds) {
+			super(out);
+			this.crc = crc;
+			this.mds = mds;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			crc.update(b);
+			if (mds != null) {
+				for (MessageDigest md : mds) {
+					md.update((byte) b);
+				}
+			}
+			size++;
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			crc.update(b, off, len);
+			if (mds != null) {
+				for (MessageDigest md : mds) {
+					md.update(b, off, len);
+				}
+			}
+			size += len;
+			out.write(b, off, len);
+		}
+	}
+}
@@ -60,6 +60,7 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 
 import aQute.bnd.exceptions.Exceptions;
+import aQute.bnd.header.Attrs;
 import aQute.bnd.header.Parameters;
 import aQute.bnd.memoize.Memoize;
 import aQute.bnd.osgi.Processor.FileLine;
@@ -102,6 +103,34 @@ public class Macro {
 	public boolean																	inTest;
 	private final Map<Class<?>, Map<String, BiFunction<Object, String[], Object>>>	macrosByClass	= new ConcurrentHashMap<>();
 
+	/**
+	 * The parsed templates of lines. A template does not depend on the domain
+	 * so the templates are shared by all macro processors.
+	 */
+	private final static Map<String, Template>										templates		= new ConcurrentHashMap<>();
+	private final static int														MAX_ENTRIES		= 10_000;
+	/**
+	 * The dependencies of the expansion that is currently memoized on this
+	 * thread.
+	 */
+	private final static ThreadLocal<Recording>										recording		= new ThreadLocal<>();
+	/**
+	 * The built-in macros whose result only depends on their arguments and the
+	 * properties they read.
+	 */
+	private final static Set<String>												CACHEABLE		= Set.of("apply",
+		"average", "basenameext", "bndversion", "bytes", "compare", "def", "endswith", "extension", "filter",
+		"filterout", "find", "findlast", "first", "fmodified", "foreach", "format", "get", "glob", "if", "indexof", "is",
+		"isempty", "isnumber", "join", "last", "lastindexof", "length", "literal", "map", "matches", "max", "min",
+		"ncompare", "nmax", "nmin", "nsort", "pathseparator", "reject", "removeall", "replace", "replacelist",
+		"replacestring", "retainall", "reverse", "select", "separator", "sjoin", "sort", "split", "startswith", "stem",
+		"sublist", "subst", "substring", "sum", "tolower", "toupper", "trim", "uniq", "unescape", "vcompare",
+		"version", "version_cleanup", "versionmask", "vmax", "vmin");
+	private final Map<String, Memo>													memos			= new ConcurrentHashMap<>();
+	private volatile CacheConfig													cacheConfig		= new CacheConfig(null,
+		false, Collections.emptySet(), Collections.emptySet());
+	private volatile long															cacheConfigStamp	= -1L;
+
 	public Macro(Processor domain, Object... targets) {
 		this.domain = domain;
 		this.reporter = domain;
@@ -118,9 +147,316 @@ public class Macro {
 	}
 
 	String process(CharSequence line, Link link) {
-		StringBuilder sb = new StringBuilder();
-		process(line, 0, '\u0000', '\u0000', sb, link, false);
-		return sb.toString();
+		if (line == null) {
+			return "";
+		}
+		Template template = template(line);
+		if (template == null) {
+			uncacheable();
+			StringBuilder sb = new StringBuilder();
+			process(line, 0, '\u0000', '\u0000', sb, link, false);
+			return sb.toString();
+		}
+		if (template.literal != null) {
+			return template.literal;
+		}
+		if (!cacheConfig().enabled()) {
+			return template.expand(this, link);
+		}
+
+		String key = line.toString();
+		Memo memo = memos.get(key);
+		if (memo != null && memo.isValid()) {
+			Recording outer = recording.get();
+			if (outer != null) {
+				Collections.addAll(outer.dependencies, memo.dependencies);
+			}
+			return memo.value;
+		}
+
+		Recording outer = recording.get();
+		Recording current = new Recording();
+		recording.set(current);
+		String value;
+		try {
+			value = template.expand(this, link);
+		} finally {
+			recording.set(outer);
+			if (outer != null) {
+				outer.dependencies.addAll(current.dependencies);
+				outer.uncacheable |= current.uncacheable;
+			}
+		}
+		if (!current.uncacheable) {
+			if (memos.size() >= MAX_ENTRIES) {
+				memos.clear();
+			}
+			memos.put(key, new Memo(value, current.dependencies.toArray(new Dependency[0])));
+		}
+		return value;
+	}
+
+	/**
+	 * Answer the parsed template of a line.
+	 *
+	 * @return the template or {@code null} if the line must be processed
+	 *         character by character since it contains a {@code ./} that
+	 *         expands to the base directory of the domain or a NUL character
+	 */
+	private static Template template(CharSequence line) {
+		String key = line.toString();
+		Template template = templates.get(key);
+		if (template == null) {
+			template = Template.parse(key);
+			if (template == null) {
+				return null;
+			}
+			if (templates.size() >= MAX_ENTRIES) {
+				templates.clear();
+			}
+			templates.put(key, template);
+		}
+		return template;
+	}
+
+	/**
+	 * Forget the memoized expansions. The expansions of macros that were
+	 * marked as cacheable by the {@link Constants#MACROCACHE} instruction do
+	 * not record the state they depend on, they are therefore forgotten when
+	 * the domain is refreshed.
+	 */
+	void clearCache() {
+		memos.clear();
+		cacheConfigStamp = -1L;
+	}
+
+	/**
+	 * Answer the {@link Constants#MACROCACHE} instruction. It is only looked
+	 * up again after a property changed, see
+	 * {@link Processor#propertiesStamp()}.
+	 */
+	private CacheConfig cacheConfig() {
+		long stamp = Processor.propertiesStamp();
+		long checked = cacheConfigStamp;
+		CacheConfig config = cacheConfig;
+		if (stamp == checked) {
+			return config;
+		}
+		String source = domain.getUnexpandedProperty(Constants.MACROCACHE);
+		if (source != config.source()) {
+			cacheConfig = config = CacheConfig.parse(source, getClass() == Macro.class);
+			memos.clear();
+		}
+		cacheConfigStamp = domain.hasTrackedProperties() ? stamp : -1L;
+		return config;
+	}
+
+	/**
+	 * The {@link Constants#MACROCACHE} instruction.
+	 */
+	private record CacheConfig(String source, boolean enabled, Set<String> cache, Set<String> nocache) {
+		static CacheConfig parse(String source, boolean memoize) {
+			if (source == null) {
+				return new CacheConfig(null, false, Collections.emptySet(), Collections.emptySet());
+			}
+			Parameters parameters = new Parameters(source);
+			Entry<String, Attrs> entry = parameters.stream()
+				.findFirst()
+				.orElse(null);
+			if (entry == null || !memoize || !Processor.isTrue(removeDuplicateMarker(entry.getKey()))) {
+				return new CacheConfig(source, false, Collections.emptySet(), Collections.emptySet());
+			}
+			return new CacheConfig(source, true, names(entry.getValue()
+				.get("cache")),
+				names(entry.getValue()
+					.get("nocache")));
+		}
+
+		private static Set<String> names(String list) {
+			return Strings.splitAsStream(list)
+				.map(name -> name.replace('-', '_'))
+				.collect(Collectors.toSet());
+		}
+
+		boolean isCacheable(Object target, String method, Object macro) {
+			String name = method.replace('-', '_');
+			if (nocache.contains(name)) {
+				return false;
+			}
+			return cache.contains(name) || (target == macro && CACHEABLE.contains(name));
+		}
+	}
+
+	/**
+	 * Something a memoized expansion depends on.
+	 */
+	interface Dependency {
+		/**
+		 * Answer if the dependency is unchanged since the expansion.
+		 */
+		boolean isValid();
+	}
+
+	/**
+	 * The raw value of a property as seen by a macro lookup.
+	 */
+	private record PropertyDependency(Processor domain, String key, String value) implements Dependency {
+		@Override
+		public boolean isValid() {
+			return Objects.equals(domain.getUnexpandedProperty(key), value);
+		}
+	}
+
+	private record SystemPropertyDependency(String key, String value) implements Dependency {
+		@Override
+		public boolean isValid() {
+			return Objects.equals(System.getProperty(key), value);
+		}
+	}
+
+	private record FileDependency(File file, long lastModified) implements Dependency {
+		@Override
+		public boolean isValid() {
+			return file.lastModified() == lastModified;
+		}
+	}
+
+	/**
+	 * Record a dependency of the expansion that is currently memoized.
+	 */
+	static void dependsOn(Dependency dependency) {
+		Recording current = recording.get();
+		if (current != null) {
+			current.dependencies.add(dependency);
+		}
+	}
+
+	/**
+	 * Mark the expansion that is currently memoized as not cacheable.
+	 */
+	static void uncacheable() {
+		Recording current = recording.get();
+		if (current != null) {
+			current.uncacheable = true;
+		}
+	}
+
+	private static final class Recording {
+		final Set<Dependency>	dependencies	= new LinkedHashSet<>();
+		boolean					uncacheable;
+	}
+
+	private record Memo(String value, Dependency[] dependencies) {
+		boolean isValid() {
+			for (Dependency dependency : dependencies) {
+				if (!dependency.isValid()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * A line parsed into its literal text and its macros. The parser follows
+	 * {@link #process(CharSequence, int, char, char, StringBuilder, Link, boolean)}
+	 * so the expansion of a template is the same as processing the line.
+	 */
+	private static final class Template {
+		private record Reference(String key, List<String> args, char begin, char end) {}
+
+		final Object[]	parts;
+		final String	literal;
+
+		private Template(List<Object> parts) {
+			this.parts = parts.toArray();
+			this.literal = parts.isEmpty() ? ""
+				: (parts.size() == 1 && parts.get(0) instanceof String string) ? string : null;
+		}
+
+		static Template parse(String line) {
+			int length = line.length();
+			for (int i = 0; i < length; i++) {
+				char c = line.charAt(i);
+				if (c == '\u0000' || (c == '.' && i + 1 < length && line.charAt(i + 1) == '/'
+					&& (i == 0 || Character.isWhitespace(line.charAt(i - 1))))) {
+					return null;
+				}
+			}
+			List<Object> parts = new ArrayList<>();
+			StringBuilder text = new StringBuilder();
+			int index = 0;
+			while (index < length) {
+				char c1 = line.charAt(index++);
+				if (c1 == '\\' && index < length - 1 && (line.charAt(index) == '$' || line.charAt(index) == ';')) {
+					text.append(line.charAt(index));
+					index++;
+					continue;
+				}
+				if (c1 == '$' && index < length - 2) {
+					char c2 = line.charAt(index);
+					char terminator = getTerminator(c2);
+					if (terminator != 0) {
+						index = parse(line, index + 1, c2, terminator, parts, text);
+						continue;
+					}
+				}
+				text.append(c1);
+			}
+			if (text.length() > 0) {
+				parts.add(text.toString());
+			}
+			return new Template(parts);
+		}
+
+		private static int parse(String line, int index, char begin, char end, List<Object> parts,
+			StringBuilder text) {
+			int length = line.length();
+			int nesting = 1;
+			List<String> args = new ArrayList<>();
+			StringBuilder variable = new StringBuilder();
+			int pStart = 0;
+			while (index < length) {
+				char c1 = line.charAt(index++);
+				if (c1 == end) {
+					if (--nesting == 0) {
+						args.add(variable.substring(pStart));
+						if (text.length() > 0) {
+							parts.add(text.toString());
+							text.setLength(0);
+						}
+						parts.add(new Reference(variable.toString(), List.copyOf(args), begin, end));
+						return index;
+					}
+				} else if (c1 == begin) {
+					nesting++;
+				} else if (c1 == '\\' && index < length - 1
+					&& (line.charAt(index) == '$' || line.charAt(index) == ';')) {
+					variable.append(line.charAt(index));
+					index++;
+					continue;
+				} else if (c1 == ';' && nesting == 1) {
+					args.add(variable.substring(pStart));
+					pStart = variable.length() + 1;
+				}
+				variable.append(c1);
+			}
+			text.append(variable);
+			return index;
+		}
+
+		String expand(Macro macro, Link link) {
+			StringBuilder sb = new StringBuilder();
+			for (Object part : parts) {
+				if (part instanceof Reference reference) {
+					sb.append(macro.replace(reference.key(), new ArrayList<>(reference.args()), link,
+						reference.begin(), reference.end()));
+				} else {
+					sb.append((String) part);
+				}
+			}
+			return sb.toString();
+		}
 	}
 
 	int process(CharSequence org, int index, char begin, char end, StringBuilder result, Link link, boolean inMacro) {
@@ -197,8 +533,10 @@ public class Macro {
 	}
 
 	private String getMacro(String key, List<String> args2, Link link, char begin, char end) {
-		if (link != null && link.contains(key))
+		if (link != null && link.contains(key)) {
+			uncacheable();
 			return "${infinite:" + link.toString() + "}";
+		}
 
 		if (key != null) {
 			key = key.trim();
@@ -226,6 +564,7 @@ public class Macro {
 				if (args.length == 1) {
 					Instruction ins = new Instruction(args[0]);
 					if (!ins.isLiteral()) {
+						uncacheable();
 						String keyname = key;
 						return domain.stream()
 							.filter(ins::matches)
@@ -249,6 +588,7 @@ public class Macro {
 				//
 
 				String value = domain.getUnexpandedProperty(args[0]);
+				dependsOn(new PropertyDependency(domain, args[0], value));
 				if (value != null) {
 					Link next = new Link(domain, link, key);
 					if (args.length > 1) {
@@ -278,9 +618,12 @@ public class Macro {
 
 				if (args.length == 1) {
 					value = System.getProperty(args[0]);
+					dependsOn(new SystemPropertyDependency(args[0], value));
 					if (value != null)
 						return value;
 					if (key.startsWith("env.")) {
+						uncacheable();
+						domain.accessedEnvironment(args[0].substring(4));
 						value = System.getenv(args[0].substring(4));
 						if (value != null)
 							return value;
@@ -290,11 +633,13 @@ public class Macro {
 				if (!args[0].startsWith("[")) {
 
 					String profile = domain.getUnexpandedProperty(Constants.PROFILE);
+					dependsOn(new PropertyDependency(domain, Constants.PROFILE, profile));
 
 					if (profile != null) {
 						profile = process(profile, link);
 						String profiledKey = "[" + profile + "]" + args[0];
 						value = domain.getUnexpandedProperty(profiledKey);
+						dependsOn(new PropertyDependency(domain, profiledKey, value));
 						if (value != null) {
 							Link next = new Link(domain, link, key);
 							if (args.length > 1) {
@@ -307,9 +652,11 @@ public class Macro {
 				}
 
 			} else {
+				uncacheable();
 				reporter.warning("Found empty macro key '%s'", key);
 			}
 		} else {
+			uncacheable();
 			reporter.warning("Found null macro key");
 		}
 
@@ -347,6 +694,7 @@ public class Macro {
 		if (value != LITERALVALUE) {
 			if (value != null)
 				return value;
+			uncacheable();
 			if (!flattening && !key.startsWith("@"))
 				reporter.warning("No translation found for macro: %s", key);
 		}
@@ -376,6 +724,7 @@ public class Macro {
 			}
 
 		if (args[0].startsWith("^")) {
+			uncacheable();
 			String varname = args[0].substring(1)
 				.trim();
 
@@ -446,18 +795,24 @@ public class Macro {
 			if (invoker == null) {
 				return null;
 			}
+			if (!cacheConfig.isCacheable(target, method, this)) {
+				uncacheable();
+			}
 			try {
 				Object result = invoker.apply(target, args);
 				return result == null ? NULLVALUE : result.toString();
 			} catch (Error e) {
 				throw e;
 			} catch (WrongMethodTypeException e) {
+				uncacheable();
 				reporter.warning("Exception in replace: method=%s %s ", method, Exceptions.toString(e));
 				return NULLVALUE;
 			} catch (Exception e) {
+				uncacheable();
 				reporter.error("%s, for cmd: %s, arguments; %s", e.getMessage(), method, Arrays.toString(args));
 				return NULLVALUE;
 			} catch (Throwable e) {
+				uncacheable();
 				reporter.warning("Exception in replace: method=%s %s ", method, Exceptions.toString(e));
 				return NULLVALUE;
 			}
@@ -699,6 +1054,7 @@ public class Macro {
 		long time = Arrays.stream(args, 1, args.length)
 			.flatMap(Strings::splitQuotedAsStream)
 			.map(File::new)
+			.peek(file -> dependsOn(new FileDependency(file, file.lastModified())))
 			.filter(File::exists)
 			.mapToLong(File::lastModified)
 			.max()
@@ -1256,6 +1612,7 @@ public class Macro {
 
 	public String _env(String[] args) {
 		verifyCommand(args, _envHelp, null, 2, 3);
+		domain.accessedEnvironment(args[1]);
 
 		try {
 			String ret = System.getenv(args[1]);
@@ -0,0 +1,319 @@
+package aQute.bnd.osgi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import aQute.lib.io.IO;
+import aQute.lib.zip.ZipUtil;
+
+/**
+ * A resource backed by the bytes of an entry in a ZIP file held in a
+ * {@link ByteBuffer}, typically a memory mapped file. Only the central
+ * directory is parsed up front by {@link #entries(ByteBuffer, String)}. A
+ * stored entry is served as a read only slice of the buffer without copying, a
+ * deflated entry is inflated on the first request of its buffer and the
+ * inflated content is then retained, like {@link ZipResource} does, so the
+ * analyzer, the digester and the writer do not inflate it again.
+ */
+final class MappedZipResource implements Resource {
+	private final static int	LOCSIG			= 0x04034b50;
+	private final static int	CENSIG			= 0x02014b50;
+	private final static int	ENDSIG			= 0x06054b50;
+	private final static int	ZIP64_ENDSIG	= 0x06064b50;
+	private final static int	ZIP64_LOCSIG	= 0x07064b50;
+	private final static int	ZIP64_EXTID		= 0x0001;
+	private final static long	ZIP64_MAGICVAL	= 0xFFFFFFFFL;
+	private final static int	ZIP64_MAGICCOUNT	= 0xFFFF;
+	private final static int	ENDHDR			= 22;
+	private final static int	MAX_COMMENT		= 0xFFFF;
+
+	private final String		source;
+	private final ZipEntry		entry;
+	private final ByteBuffer	data;
+	private ByteBuffer			buffer;
+	private long				lastModified	= -11L;
+	private String				extra;
+
+	private MappedZipResource(String source, ZipEntry entry, ByteBuffer data) {
+		this.source = source;
+		this.entry = entry;
+		this.data = data;
+		byte[] extra = entry.getExtra();
+		if (extra != null) {
+			this.extra = Resource.encodeExtra(extra);
+		}
+	}
+
+	/**
+	 * Answer the name of the entry in the ZIP file.
+	 */
+	String getName() {
+		return entry.getName();
+	}
+
+	@Override
+	public ByteBuffer buffer() throws Exception {
+		return getBuffer().duplicate();
+	}
+
+	private ByteBuffer getBuffer() throws Exception {
+		if (entry.getMethod() == ZipEntry.STORED) {
+			return data;
+		}
+		if (buffer != null) {
+			return buffer;
+		}
+		return buffer = inflate();
+	}
+
+	private ByteBuffer inflate() throws Exception {
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(data.duplicate());
+			ByteBuffer bb = ByteBuffer.allocate((int) entry.getSize());
+			boolean padded = false;
+			while (!inflater.finished()) {
+				if (inflater.inflate(bb) == 0) {
+					if (inflater.needsInput() && !padded) {
+						// like ZipFile, provide a dummy byte at the end
+						inflater.setInput(new byte[1]);
+						padded = true;
+					} else if (!inflater.finished()) {
+						throw new ZipException("Invalid deflated content for " + this);
+					}
+				}
+			}
+			if (bb.hasRemaining() || inflater.getBytesWritten() != entry.getSize()) {
+				throw new ZipException("Invalid entry size for " + this);
+			}
+			return bb.flip();
+		} catch (DataFormatException e) {
+			throw new ZipException("Invalid deflated content for " + this + ": " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+	}
+
+	@Override
+	public InputStream openInputStream() throws Exception {
+		return IO.stream(buffer());
+	}
+
+	@Override
+	public void write(OutputStream out) throws Exception {
+		if (buffer != null || entry.getMethod() == ZipEntry.STORED) {
+			IO.copy(buffer(), out);
+		} else {
+			IO.copy(inflate(), out);
+		}
+	}
+
+	@Override
+	public long lastModified() {
+		if (lastModified != -11L) {
+			return lastModified;
+		}
+		return lastModified = ZipUtil.getModifiedTime(entry);
+	}
+
+	@Override
+	public String getExtra() {
+		return extra;
+	}
+
+	@Override
+	public void setExtra(String extra) {
+		this.extra = extra;
+	}
+
+	@Override
+	public long size() throws Exception {
+		return entry.getSize();
+	}
+
+	@Override
+	public void close() {}
+
+	@Override
+	public String toString() {
+		return ":" + source + "(" + entry.getName() + "):";
+	}
+
+	/**
+	 * Parse the central directory of a ZIP file and answer a resource for each
+	 * entry that is not a directory, in the order of the central directory.
+	 *
+	 * @param zip the complete content of the ZIP file
+	 * @param source the name of the ZIP file used in messages
+	 * @return the resources
+	 * @throws ZipException if the buffer is not a ZIP file or uses features
+	 *             that are not supported, like encryption
+	 */
+	static List<MappedZipResource> entries(ByteBuffer zip, String source) throws ZipException {
+		try {
+			ByteBuffer bb = zip.duplicate()
+				.order(ByteOrder.LITTLE_ENDIAN);
+			int end = findEnd(bb);
+			long count = Short.toUnsignedLong(bb.getShort(end + 10));
+			long cenSize = Integer.toUnsignedLong(bb.getInt(end + 12));
+			long cenOffset = Integer.toUnsignedLong(bb.getInt(end + 16));
+			long cenEnd = end;
+			if (count == ZIP64_MAGICCOUNT || cenSize == ZIP64_MAGICVAL || cenOffset == ZIP64_MAGICVAL) {
+				int locator = end - 20;
+				if (locator >= 0 && bb.getInt(locator) == ZIP64_LOCSIG) {
+					int end64 = toInt(bb.getLong(locator + 8));
+					if (bb.getInt(end64) != ZIP64_ENDSIG) {
+						throw new ZipException("Invalid ZIP64 end header");
+					}
+					count = bb.getLong(end64 + 32);
+					cenSize = bb.getLong(end64 + 40);
+					cenOffset = bb.getLong(end64 + 48);
+					cenEnd = end64;
+				}
+			}
+			// Handle data prepended to the ZIP file
+			long base = cenEnd - cenSize - cenOffset;
+			if (base < 0) {
+				throw new ZipException("Invalid central directory offset");
+			}
+			int position = toInt(base + cenOffset);
+
+			List<MappedZipResource> entries = new ArrayList<>((int) Math.min(count, 1024 * 1024));
+			for (long i = 0; i < count; i++) {
+				if (bb.getInt(position) != CENSIG) {
+					throw new ZipException("Invalid central directory header");
+				}
+				int flags = Short.toUnsignedInt(bb.getShort(position + 8));
+				int method = Short.toUnsignedInt(bb.getShort(position + 10));
+				int time = bb.getInt(position + 12);
+				long crc = Integer.toUnsignedLong(bb.getInt(position + 16));
+				long csize = Integer.toUnsignedLong(bb.getInt(position + 20));
+				long size = Integer.toUnsignedLong(bb.getInt(position + 24));
+				int nameLength = Short.toUnsignedInt(bb.getShort(position + 28));
+				int extraLength = Short.toUnsignedInt(bb.getShort(position + 30));
+				int commentLength = Short.toUnsignedInt(bb.getShort(position + 32));
+				long offset = Integer.toUnsignedLong(bb.getInt(position + 42));
+
+				byte[] name = new byte[nameLength];
+				bb.get(position + 46, name);
+				byte[] extra = null;
+				if (extraLength > 0) {
+					extra = new byte[extraLength];
+					bb.get(position + 46 + nameLength, extra);
+				}
+				position += 46 + nameLength + extraLength + commentLength;
+
+				if ((flags & 1) != 0) {
+					throw new ZipException("Encrypted entries are not supported");
+				}
+				if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+					throw new ZipException("Unsupported compression method " + method);
+				}
+
+				if (extra != null && (size == ZIP64_MAGICVAL || csize == ZIP64_MAGICVAL || offset == ZIP64_MAGICVAL)) {
+					ByteBuffer eb = ByteBuffer.wrap(extra)
+						.order(ByteOrder.LITTLE_ENDIAN);
+					while (eb.remaining() >= 4) {
+						int id = Short.toUnsignedInt(eb.getShort());
+						int length = Short.toUnsignedInt(eb.getShort());
+						int next = eb.position() + length;
+						if (next > eb.limit()) {
+							break;
+						}
+						if (id == ZIP64_EXTID) {
+							if (size == ZIP64_MAGICVAL && eb.position() + 8 <= next) {
+								size = eb.getLong();
+							}
+							if (csize == ZIP64_MAGICVAL && eb.position() + 8 <= next) {
+								csize = eb.getLong();
+							}
+							if (offset == ZIP64_MAGICVAL && eb.position() + 8 <= next) {
+								offset = eb.getLong();
+							}
+							break;
+						}
+						eb.position(next);
+					}
+				}
+
+				String entryName = new String(name, UTF_8);
+				if (entryName.endsWith("/")) {
+					continue;
+				}
+				if (method == ZipEntry.STORED && csize != size) {
+					throw new ZipException("Invalid stored entry " + entryName);
+				}
+				if (size > Integer.MAX_VALUE) {
+					throw new ZipException("Entry too large " + entryName);
+				}
+
+				int local = toInt(base + offset);
+				if (bb.getInt(local) != LOCSIG) {
+					throw new ZipException("Invalid local header for " + entryName);
+				}
+				int dataOffset = local + 30 + Short.toUnsignedInt(bb.getShort(local + 26))
+					+ Short.toUnsignedInt(bb.getShort(local + 28));
+				ByteBuffer data = zip.duplicate()
+					.position(dataOffset)
+					.limit(toInt(dataOffset + csize))
+					.slice()
+					.asReadOnlyBuffer();
+
+				ZipEntry entry = new ZipEntry(entryName);
+				entry.setMethod(method);
+				entry.setTimeLocal(dosToLocal(time));
+				entry.setSize(size);
+				entry.setCompressedSize(csize);
+				entry.setCrc(crc);
+				if (extra != null) {
+					entry.setExtra(extra);
+				}
+				entries.add(new MappedZipResource(source, entry, data));
+			}
+			return entries;
+		} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			ZipException ze = new ZipException("Invalid ZIP file " + source + ": " + e.getMessage());
+			ze.initCause(e);
+			throw ze;
+		}
+	}
+
+	private static int findEnd(ByteBuffer bb) throws ZipException {
+		int limit = Math.max(0, bb.limit() - ENDHDR - MAX_COMMENT);
+		for (int position = bb.limit() - ENDHDR; position >= limit; position--) {
+			if (bb.getInt(position) == ENDSIG
+				&& position + ENDHDR + Short.toUnsignedInt(bb.getShort(position + 20)) == bb.limit()) {
+				return position;
+			}
+		}
+		throw new ZipException("No end of central directory found");
+	}
+
+	private static LocalDateTime dosToLocal(int time) {
+		try {
+			return LocalDateTime.of(((time >> 25) & 0x7f) + 1980, (time >> 21) & 0x0f, (time >> 16) & 0x1f,
+				(time >> 11) & 0x1f, (time >> 5) & 0x3f, (time << 1) & 0x3e);
+		} catch (DateTimeException e) {
+			return LocalDateTime.of(1980, 1, 1, 0, 0);
+		}
+	}
+
+	private static int toInt(long value) throws ZipException {
+		if (value < 0L || value > Integer.MAX_VALUE) {
+			throw new ZipException("Offset out of range " + value);
+		}
+		return (int) value;
+	}
+}
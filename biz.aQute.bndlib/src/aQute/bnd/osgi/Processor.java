@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -48,6 +49,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -135,8 +137,11 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 	private boolean								fixup				= true;
 	private Processor							parent;
 	private final CopyOnWriteArrayList<File>	included			= new CopyOnWriteArrayList<>();
+	private final Set<String>					environment			= ConcurrentHashMap.newKeySet();
 
 	Collection<String>							filter;
+	private volatile PropertyView				propertyView;
+	private final static AtomicLong				chainChanges		= new AtomicLong();
 	Boolean										strict;
 	boolean										trace;
 	boolean										pedantic;
@@ -197,6 +202,7 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 		Properties updated = (parent != null) ? new UTF8Properties(parent.getRawProperties()) : new UTF8Properties();
 		updated.putAll(getRawProperties());
 		properties = updated;
+		chainChanges.incrementAndGet();
 		propertiesChanged();
 	}
 
@@ -947,6 +953,7 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 
 	public boolean refresh() {
 		clearPlugins(); // We always refresh our plugins
+		clearMacroCache();
 
 		if (propertiesFile == null)
 			return false;
@@ -981,6 +988,7 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 		included.clear();
 		Processor p = getParent();
 		properties = (p != null) ? new UTF8Properties(p.getRawProperties()) : new UTF8Properties();
+		chainChanges.incrementAndGet();
 
 		setProperties(propertiesFile, base);
 	}
@@ -992,6 +1000,13 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 		}
 
 		clearPlugins(); // force plugins to reload since properties have changed
+		clearMacroCache();
+	}
+
+	private void clearMacroCache() {
+		if (replacer != null) {
+			replacer.clearCache();
+		}
 	}
 
 	/**
@@ -1233,11 +1248,15 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 	}
 
 	private String getWildcardProperty(String deflt, String separator, boolean inherit, Instruction ins) {
+		Macro.uncacheable();
 		// Handle a wildcard key, make sure they're sorted
 		// for consistency
-		String result = stream(inherit).filter(ins::matches)
-			.sorted()
-			.map(k -> getLiteralProperty(k, null, this, inherit))
+		PropertyView view = inherit ? getPropertyView(true) : null;
+		Stream<String> keys = (view != null) ? view.matching(ins)
+			.stream()
+			: stream(inherit).filter(ins::matches)
+				.sorted();
+		String result = keys.map(k -> getLiteralProperty(k, null, this, inherit))
 			.filter(v -> (v != null) && !v.isEmpty())
 			.collect(Strings.joining(separator, "", "", deflt));
 		return result;
@@ -1247,27 +1266,18 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 		String value = null;
 		// Use the key as is first, if found ok
 
-		for (Processor proc = source; proc != null; proc = proc.getParent()) {
+		Processor proc = definingProcessor(key, source, inherit);
+		Macro.dependsOn(new LiteralDependency(key, source, inherit, proc));
+		if (proc != null) {
 			Object raw = proc.getProperties()
 				.get(key);
-			if (raw != null) {
-				if (raw instanceof String string) {
-					value = string;
-				} else if (isPedantic()) {
-					warning("Key '%s' has a non-String value: %s:%s", key, raw.getClass()
-						.getName(), raw);
-				}
-				source = proc;
-				break;
-			}
-
-			if (!inherit) {
-				break;
-			}
-			Collection<String> keyFilter = proc.filter;
-			if ((keyFilter != null) && (keyFilter.contains(key))) {
-				break;
+			if (raw instanceof String string) {
+				value = string;
+			} else if (isPedantic()) {
+				warning("Key '%s' has a non-String value: %s:%s", key, raw.getClass()
+					.getName(), raw);
 			}
+			source = proc;
 		}
 		//
 		// Check if we can find a replacement through the
@@ -1284,6 +1294,185 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 			return null;
 	}
 
+	/**
+	 * Answer the processor that defines a key, starting at the source.
+	 *
+	 * @return the defining processor or {@code null} if the key is not defined
+	 */
+	private static Processor definingProcessor(String key, Processor source, boolean inherit) {
+		if (inherit) {
+			PropertyView view = source.getPropertyView(false);
+			if (view != null) {
+				return view.defining()
+					.get(key);
+			}
+		}
+		for (Processor proc = source; proc != null; proc = proc.getParent()) {
+			if (proc.getProperties()
+				.get(key) != null) {
+				return proc;
+			}
+
+			if (!inherit) {
+				break;
+			}
+			Collection<String> keyFilter = proc.filter;
+			if ((keyFilter != null) && (keyFilter.contains(key))) {
+				break;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The keys visible from a processor and the processors that define them,
+	 * flattened over the inheritance chain. The keys are in the order of
+	 * {@link Processor#iterator()}. The view is valid as long as no processor
+	 * in the chain changed its properties, parent or filter. This is checked
+	 * per processor only when the {@link Processor#propertiesStamp()} changed
+	 * since the last check.
+	 */
+	private record PropertyView(AtomicLong stamp, Processor[] chain, UTF8Properties[] properties,
+		long[] modifications, Collection<?>[] filters, Map<String, Processor> defining, List<String> keys,
+		Map<String, List<String>> matches) {
+
+		static PropertyView of(Processor source) {
+			long stamp = propertiesStamp();
+			List<Processor> chain = new ArrayList<>();
+			for (Processor proc = source; proc != null; proc = proc.getParent()) {
+				if (chain.contains(proc) || !(proc.getProperties() instanceof UTF8Properties)) {
+					return null;
+				}
+				chain.add(proc);
+			}
+			int length = chain.size();
+			UTF8Properties[] properties = new UTF8Properties[length];
+			long[] modifications = new long[length];
+			Collection<?>[] filters = new Collection<?>[length];
+			Map<String, Processor> defining = new LinkedHashMap<>();
+			Set<String> blocked = new HashSet<>();
+			for (int i = 0; i < length; i++) {
+				Processor proc = chain.get(i);
+				properties[i] = (UTF8Properties) proc.getRawProperties();
+				modifications[i] = properties[i].getModificationCount();
+				filters[i] = proc.filter;
+				for (Object key : properties[i].keySet()) {
+					if (key instanceof String string && !blocked.contains(string)) {
+						defining.putIfAbsent(string, proc);
+					}
+				}
+				if (proc.filter != null) {
+					blocked.addAll(proc.filter);
+				}
+			}
+			List<String> keys = List.copyOf(defining.keySet());
+			return new PropertyView(new AtomicLong(stamp), chain.toArray(new Processor[0]), properties, modifications,
+				filters, defining, keys, new ConcurrentHashMap<>());
+		}
+
+		boolean isValid(Processor source) {
+			long current = propertiesStamp();
+			if (stamp.get() == current) {
+				return true;
+			}
+			Processor proc = source;
+			for (int i = 0; i < chain.length; i++, proc = proc.getParent()) {
+				if (proc != chain[i] || proc.getProperties() != properties[i]
+					|| properties[i].getModificationCount() != modifications[i] || proc.filter != filters[i]) {
+					return false;
+				}
+			}
+			if (proc != null) {
+				return false;
+			}
+			stamp.set(current);
+			return true;
+		}
+
+		/**
+		 * Answer the sorted visible keys that match a wildcard instruction.
+		 */
+		List<String> matching(Instruction ins) {
+			return matches.computeIfAbsent(ins.getInput(), k -> keys.stream()
+				.filter(ins::matches)
+				.sorted()
+				.toList());
+		}
+	}
+
+	/**
+	 * Answer a stamp of the properties of all processors. The stamp changes
+	 * after a modification of any {@link UTF8Properties} and after a change of
+	 * the parent, the properties or the filter of any processor. A cache of the
+	 * properties visible from a processor is therefore valid while the stamp
+	 * is unchanged, if the processor {@link #hasTrackedProperties()}.
+	 */
+	static long propertiesStamp() {
+		return UTF8Properties.getGeneration() + chainChanges.get();
+	}
+
+	/**
+	 * Answer if all processors in the chain of this processor use
+	 * {@link UTF8Properties}, so their modifications change the
+	 * {@link #propertiesStamp()}.
+	 */
+	boolean hasTrackedProperties() {
+		Set<Processor> visited = new HashSet<>();
+		for (Processor proc = this; proc != null; proc = proc.getParent()) {
+			if (!visited.add(proc) || !(proc.getRawProperties() instanceof UTF8Properties)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Answer the flattened view of the properties visible from this processor.
+	 * A stale view is only rebuilt on request, a single key is cheaper to look
+	 * up by walking the chain than by rebuilding the view after every change.
+	 *
+	 * @param build rebuild the view if it is stale
+	 * @return the view or {@code null} if there is no valid view
+	 */
+	private PropertyView getPropertyView(boolean build) {
+		PropertyView view = propertyView;
+		if (view != null && view.isValid(this)) {
+			return view;
+		}
+		if (!build) {
+			return null;
+		}
+		return propertyView = PropertyView.of(this);
+	}
+
+	/**
+	 * A property lookup of a memoized macro expansion. The lookup is valid as
+	 * long as the same processor defines the key with the same raw value.
+	 */
+	private static final class LiteralDependency implements Macro.Dependency {
+		private final String	key;
+		private final Processor	source;
+		private final boolean	inherit;
+		private final Processor	proc;
+		private final Object	raw;
+
+		LiteralDependency(String key, Processor source, boolean inherit, Processor proc) {
+			this.key = key;
+			this.source = source;
+			this.inherit = inherit;
+			this.proc = proc;
+			this.raw = (proc != null) ? proc.getProperties()
+				.get(key) : null;
+		}
+
+		@Override
+		public boolean isValid() {
+			Processor current = definingProcessor(key, source, inherit);
+			return (current == proc) && ((current == null) || (current.getProperties()
+				.get(key) == raw));
+		}
+	}
+
 	/**
 	 * Helper to load a properties file from disk.
 	 *
@@ -1754,6 +1943,7 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 
 	public void setForceLocal(Collection<String> local) {
 		filter = local;
+		chainChanges.incrementAndGet();
 	}
 
 	/**
@@ -2026,6 +2216,22 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 		return included;
 	}
 
+	/**
+	 * Answer the names of the environment variables that were read by the
+	 * macros of this processor or of its children.
+	 *
+	 * @return the names of the environment variables read so far
+	 */
+	public Set<String> getAccessedEnvironment() {
+		return Collections.unmodifiableSet(environment);
+	}
+
+	void accessedEnvironment(String name) {
+		for (Processor p = this; p != null; p = p.getParent()) {
+			p.environment.add(name);
+		}
+	}
+
 	/**
 	 * Overrides for the Domain class
 	 */
@@ -2045,7 +2251,9 @@ public class Processor extends Domain implements Reporter, Registry, Constants,
 	}
 
 	Stream<String> stream() {
-		return stream(true);
+		PropertyView view = getPropertyView(true);
+		return (view != null) ? view.keys()
+			.stream() : stream(true);
 	}
 
 	private Stream<String> stream(boolean inherit) {
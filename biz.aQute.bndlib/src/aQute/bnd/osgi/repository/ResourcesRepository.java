@@ -1,7 +1,10 @@
 package aQute.bnd.osgi.repository;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -10,20 +13,44 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collector;
 
+import org.osgi.framework.namespace.BundleNamespace;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.namespace.IdentityNamespace;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.namespace.service.ServiceNamespace;
 import org.osgi.resource.Capability;
+import org.osgi.resource.Namespace;
 import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
 
+import aQute.bnd.osgi.resource.FilterParser;
+import aQute.bnd.osgi.resource.FilterParser.And;
+import aQute.bnd.osgi.resource.FilterParser.BundleExpression;
+import aQute.bnd.osgi.resource.FilterParser.Expression;
+import aQute.bnd.osgi.resource.FilterParser.HostExpression;
+import aQute.bnd.osgi.resource.FilterParser.IdentityExpression;
+import aQute.bnd.osgi.resource.FilterParser.Op;
+import aQute.bnd.osgi.resource.FilterParser.Or;
+import aQute.bnd.osgi.resource.FilterParser.PackageExpression;
+import aQute.bnd.osgi.resource.FilterParser.SimpleExpression;
 import aQute.bnd.osgi.resource.ResourceUtils;
 import aQute.bnd.service.resource.SupportingResource;
 
 /**
  * A repository that contains a set of resources.
+ * <p>
+ * The capabilities of the resources are indexed per namespace and per value of
+ * the main attribute of the namespace, for example the package name in the
+ * {@code osgi.wiring.package} namespace. A requirement whose filter demands an
+ * equal value for the main attribute is then only matched against the
+ * capabilities with that value instead of all capabilities in the namespace.
  */
 
 public class ResourcesRepository extends BaseRepository {
 	private final Set<Resource>									resources;
 	private final Map<String, Predicate<Map<String, Object>>>	cache;
+	private final Map<String, IndexKeys>						keys;
+	private final Index											index;
 
 	/**
 	 * Creates a new resources repository with an empty set of resources.
@@ -31,6 +58,8 @@ public class ResourcesRepository extends BaseRepository {
 	public ResourcesRepository() {
 		resources = new LinkedHashSet<>();
 		cache = new ConcurrentHashMap<>();
+		keys = new ConcurrentHashMap<>();
+		index = new Index();
 	}
 
 	/**
@@ -72,12 +101,99 @@ public class ResourcesRepository extends BaseRepository {
 	 */
 	public List<Capability> findProvider(Requirement requirement) {
 		String namespace = requirement.getNamespace();
-		return resources.stream()
-			.flatMap(resource -> ResourceUtils.capabilityStream(resource, namespace))
+		String filterString = requirement.getDirectives()
+			.get(Namespace.REQUIREMENT_FILTER_DIRECTIVE);
+		Set<String> values = (filterString != null) ? indexKeys(namespace, filterString) : null;
+		return index.candidates(namespace, values)
+			.stream()
 			.filter(ResourceUtils.matcher(requirement, this::filterPredicate))
 			.collect(ResourceUtils.toCapabilities());
 	}
 
+	/**
+	 * Gets the values of the main attribute of the namespace that a capability
+	 * must have to match the specified filter.
+	 *
+	 * @param namespace The namespace of the requirement.
+	 * @param filterString The filter string.
+	 * @return The values of the main attribute or {@code null} if the filter
+	 *         does not restrict the main attribute to a set of values.
+	 */
+	private Set<String> indexKeys(String namespace, String filterString) {
+		return keys.computeIfAbsent(namespace.concat(filterString), k -> {
+			String attribute = mainAttribute(namespace);
+			try {
+				Expression expression = new FilterParser().parse(filterString);
+				return new IndexKeys(indexKeys(expression, attribute));
+			} catch (RuntimeException e) {
+				return new IndexKeys(null);
+			}
+		})
+			.values();
+	}
+
+	private static Set<String> indexKeys(Expression expression, String attribute) {
+		if (expression instanceof PackageExpression pe) {
+			return indexKey(PackageNamespace.PACKAGE_NAMESPACE, attribute, pe.getPackageName());
+		}
+		if (expression instanceof IdentityExpression ie) {
+			return indexKey(IdentityNamespace.IDENTITY_NAMESPACE, attribute, ie.getSymbolicName());
+		}
+		if (expression instanceof HostExpression he) {
+			return indexKey(HostNamespace.HOST_NAMESPACE, attribute, he.getHostName());
+		}
+		if (expression instanceof BundleExpression be) {
+			return indexKey(BundleNamespace.BUNDLE_NAMESPACE, attribute, be.printExcludingRange());
+		}
+		// Pattern and approximate expressions are subclasses with EQUAL op
+		if ((expression != null) && (expression.getClass() == SimpleExpression.class)) {
+			SimpleExpression se = (SimpleExpression) expression;
+			if (se.getOp() == Op.EQUAL) {
+				return indexKey(se.getKey(), attribute, se.getValue());
+			}
+			return null;
+		}
+		if (expression instanceof And and) {
+			for (Expression e : and.getExpressions()) {
+				Set<String> values = indexKeys(e, attribute);
+				if (values != null) {
+					return values;
+				}
+			}
+			return null;
+		}
+		if (expression instanceof Or or) {
+			Set<String> values = new LinkedHashSet<>();
+			for (Expression e : or.getExpressions()) {
+				Set<String> v = indexKeys(e, attribute);
+				if (v == null) {
+					return null;
+				}
+				values.addAll(v);
+			}
+			return values;
+		}
+		return null;
+	}
+
+	private static Set<String> indexKey(String key, String attribute, String value) {
+		// the filter parser does not unescape values
+		if (!key.equals(attribute) || (value.indexOf('\\') >= 0)) {
+			return null;
+		}
+		return Set.of(value);
+	}
+
+	/**
+	 * The attribute used to index the capabilities of a namespace.
+	 */
+	private static String mainAttribute(String namespace) {
+		if (ServiceNamespace.SERVICE_NAMESPACE.equals(namespace)) {
+			return ServiceNamespace.CAPABILITY_OBJECTCLASS_ATTRIBUTE;
+		}
+		return namespace;
+	}
+
 	/**
 	 * Gets the predicate that filters capabilities based on the specified
 	 * filter string.
@@ -100,9 +216,16 @@ public class ResourcesRepository extends BaseRepository {
 	 */
 	public void add(Resource resource) {
 		if (resource != null) {
-			resources.add(resource);
-			if (resource instanceof SupportingResource cr)
-				resources.addAll(cr.getSupportingResources());
+			if (resources.add(resource)) {
+				index.add(resource);
+			}
+			if (resource instanceof SupportingResource cr) {
+				for (Resource supporting : cr.getSupportingResources()) {
+					if (resources.add(supporting)) {
+						index.add(supporting);
+					}
+				}
+			}
 		}
 	}
 
@@ -123,6 +246,7 @@ public class ResourcesRepository extends BaseRepository {
 	 */
 	protected void set(Collection<? extends Resource> resources) {
 		this.resources.clear();
+		index.clear();
 		addAll(resources);
 	}
 
@@ -182,4 +306,150 @@ public class ResourcesRepository extends BaseRepository {
 	public String toString() {
 		return resources.toString();
 	}
+
+	private record IndexKeys(Set<String> values) {}
+
+	private record Entry(int order, Capability capability) {}
+
+	/**
+	 * The capabilities of the resources per namespace and per value of the
+	 * main attribute. Added resources are only indexed when a provider is
+	 * searched for so adding resources does not load their capabilities.
+	 * Entries are numbered in the order of a scan over all resources so
+	 * candidates from several lists can be returned in that order.
+	 */
+	private static final class Index {
+		private final List<Resource>								pending		= new ArrayList<>();
+		private final Map<String, List<Entry>>						namespaces	= new HashMap<>();
+		private final Map<String, Map<String, List<Entry>>>			values		= new HashMap<>();
+		private final Map<String, List<Entry>>						unindexed	= new HashMap<>();
+		private int													order;
+
+		synchronized void add(Resource resource) {
+			pending.add(resource);
+		}
+
+		synchronized void clear() {
+			pending.clear();
+			namespaces.clear();
+			values.clear();
+			unindexed.clear();
+			order = 0;
+		}
+
+		/**
+		 * Gets the capabilities in the namespace that can have one of the
+		 * specified values for the main attribute.
+		 *
+		 * @param namespace The namespace.
+		 * @param keys The values or {@code null} for all capabilities in the
+		 *            namespace.
+		 * @return The candidate capabilities in resource order.
+		 */
+		synchronized List<Capability> candidates(String namespace, Set<String> keys) {
+			update();
+			if (keys == null) {
+				return capabilities(namespaces.getOrDefault(namespace, List.of()));
+			}
+			Map<String, List<Entry>> byValue = values.getOrDefault(namespace, Map.of());
+			List<List<Entry>> lists = new ArrayList<>(keys.size() + 1);
+			for (String key : keys) {
+				List<Entry> entries = byValue.get(key);
+				if (entries != null) {
+					lists.add(entries);
+				}
+			}
+			List<Entry> other = unindexed.get(namespace);
+			if (other != null) {
+				lists.add(other);
+			}
+			switch (lists.size()) {
+				case 0 :
+					return List.of();
+				case 1 :
+					return capabilities(lists.get(0));
+				default :
+					List<Entry> merged = new ArrayList<>();
+					lists.forEach(merged::addAll);
+					merged.sort(Comparator.comparingInt(Entry::order));
+					List<Capability> result = new ArrayList<>(merged.size());
+					int last = -1;
+					for (Entry entry : merged) {
+						// a capability with several matching values
+						if (entry.order() != last) {
+							result.add(entry.capability());
+							last = entry.order();
+						}
+					}
+					return result;
+			}
+		}
+
+		private static List<Capability> capabilities(List<Entry> entries) {
+			List<Capability> result = new ArrayList<>(entries.size());
+			for (Entry entry : entries) {
+				result.add(entry.capability());
+			}
+			return result;
+		}
+
+		private void update() {
+			for (Resource resource : pending) {
+				for (Capability capability : resource.getCapabilities(null)) {
+					Entry entry = new Entry(order++, capability);
+					String namespace = capability.getNamespace();
+					namespaces.computeIfAbsent(namespace, k -> new ArrayList<>())
+						.add(entry);
+					Object value = capability.getAttributes()
+						.get(mainAttribute(namespace));
+					if (!index(namespace, value, entry)) {
+						unindexed.computeIfAbsent(namespace, k -> new ArrayList<>())
+							.add(entry);
+					}
+				}
+			}
+			pending.clear();
+		}
+
+		/**
+		 * Index the entry under the value of its main attribute. A capability
+		 * without the main attribute can never match an equality on it and is
+		 * therefore not indexed.
+		 *
+		 * @return {@code false} if the value cannot be indexed and the entry
+		 *         must always be a candidate
+		 */
+		private boolean index(String namespace, Object value, Entry entry) {
+			if (value == null) {
+				return true;
+			}
+			if (value instanceof String s) {
+				add(namespace, s, entry);
+				return true;
+			}
+			Collection<?> collection;
+			if (value instanceof Collection<?> c) {
+				collection = c;
+			} else if (value instanceof String[] array) {
+				collection = Arrays.asList(array);
+			} else {
+				return false;
+			}
+			for (Object element : collection) {
+				if (!(element instanceof String)) {
+					return false;
+				}
+			}
+			for (Object element : new LinkedHashSet<>(collection)) {
+				add(namespace, (String) element, entry);
+			}
+			return true;
+		}
+
+		private void add(String namespace, String value, Entry entry) {
+			values.computeIfAbsent(namespace, k -> new HashMap<>())
+				.computeIfAbsent(value, k -> new ArrayList<>())
+				.add(entry);
+		}
+	}
 }
@@ -5,28 +5,64 @@ import static java.util.Objects.requireNonNull;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.osgi.annotation.versioning.ConsumerType;
+import org.osgi.resource.Capability;
 import org.osgi.resource.Resource;
+import org.osgi.service.repository.ContentNamespace;
+import org.osgi.util.promise.Promise;
+import org.osgi.util.promise.PromiseFactory;
 
 import aQute.bnd.exceptions.Exceptions;
 import aQute.bnd.osgi.Domain;
+import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.resource.MultiReleaseNamespace;
 import aQute.bnd.osgi.resource.ResourceBuilder;
+import aQute.bnd.osgi.resource.ResourceUtils;
+import aQute.bnd.osgi.resource.ResourceUtils.ContentCapability;
 import aQute.lib.io.IO;
+import aQute.libg.cryptography.SHA256;
 import aQute.libg.reporter.slf4j.Slf4jReporter;
 import aQute.service.reporter.Reporter;
 
 /**
  * Simple program to generate an index from a set of bundles.
+ * <p>
+ * The files are read and digested in parallel and each resource is written to
+ * the index as soon as it and the resources of the files before it are ready.
+ * The files are indexed in the order they were added, so the index does not
+ * depend on the order in which the files were analyzed. At most a fixed number
+ * of resources is in flight, the memory needed does not grow with the number of
+ * files.
+ * <p>
+ * The {@link FileAnalyzer} and the {@link Reporter} are only called from the
+ * thread that writes the index or asks for the {@link #getResources()
+ * resources}, one file at a time and in the order of the files, so they need
+ * not be thread safe.
+ * <p>
+ * When a {@link #previous(File) previous index} is set, the resources of files
+ * whose SHA-256 is found in the previous index are taken from it instead of
+ * analyzing the file again.
  */
 public class SimpleIndexer {
 
@@ -74,6 +110,9 @@ public class SimpleIndexer {
 	private long			increment	= -1L;
 	private FileAnalyzer	analyzer;
 	private Reporter		reporter	= new Slf4jReporter(SimpleIndexer.class);
+	private File			previous;
+	private int				window		= 2 * Runtime.getRuntime()
+		.availableProcessors();
 
 	public SimpleIndexer() {}
 
@@ -131,6 +170,34 @@ public class SimpleIndexer {
 		return this;
 	}
 
+	/**
+	 * Resources are reused from the previous index for files whose SHA-256 did
+	 * not change. The content capability of a reused resource is updated for
+	 * the location of the file, all other capabilities and requirements,
+	 * including the ones added by the {@link #analyzer(FileAnalyzer)}, are
+	 * taken as is. Multi-release jars are always analyzed again.
+	 * <p>
+	 * The previous index may be the file the index is written to.
+	 *
+	 * @param previous the previous index, ignored if it does not exist
+	 */
+	public SimpleIndexer previous(File previous) {
+		this.previous = previous;
+		return this;
+	}
+
+	/**
+	 * @param parallel the maximum number of files read in parallel, also
+	 *            the maximum number of resources held in memory
+	 */
+	public SimpleIndexer parallel(int parallel) {
+		if (parallel < 1) {
+			throw new IllegalArgumentException("parallel must be at least 1: " + parallel);
+		}
+		this.window = parallel;
+		return this;
+	}
+
 	/**
 	 * Generate the index to the specified output stream.
 	 *
@@ -138,7 +205,8 @@ public class SimpleIndexer {
 	 * @throws IOException if a file cannot be indexed
 	 */
 	public void index(OutputStream outputStream) throws IOException {
-		repository().save(requireNonNull(outputStream));
+		requireNonNull(outputStream);
+		repository().save(outputStream, resources());
 	}
 
 	/**
@@ -148,7 +216,8 @@ public class SimpleIndexer {
 	 * @throws IOException if a file cannot be indexed
 	 */
 	public void index(File file) throws IOException {
-		repository().save(requireNonNull(file));
+		requireNonNull(file);
+		repository().save(file, resources());
 	}
 
 	/**
@@ -157,12 +226,7 @@ public class SimpleIndexer {
 	 * @return the set of resources handled so far.
 	 */
 	public List<Resource> getResources() {
-		List<Resource> resources = files.stream()
-			.filter(f -> f.isFile() && !f.isHidden() && f.canRead())
-			.map(this::indexFile)
-			.filter(Objects::nonNull)
-			.collect(Collectors.toList());
-		return resources;
+		return resources().collect(Collectors.toList());
 	}
 
 	public SimpleIndexer reporter(Reporter reporter) {
@@ -172,9 +236,6 @@ public class SimpleIndexer {
 
 	private XMLResourceGenerator repository() {
 		XMLResourceGenerator repository = new XMLResourceGenerator();
-		List<Resource> resources = getResources();
-		repository.resources(resources);
-
 		if (name != null) {
 			repository.name(name);
 		}
@@ -187,21 +248,164 @@ public class SimpleIndexer {
 		return repository;
 	}
 
-	private Resource indexFile(File file) {
+	/*
+	 * The files are submitted in the order they were added. No more than
+	 * window files are submitted ahead of the resource that is consumed next,
+	 * so the memory held is bounded and the order does not depend on the
+	 * analysis. The analyzer and the reporter are called by the consumer.
+	 */
+	private Stream<Resource> resources() {
+		Map<String, Resource> reusable = reusable();
+		PromiseFactory promiseFactory = Processor.getPromiseFactory();
+		Iterator<File> ordered = files.stream()
+			.filter(f -> f.isFile() && !f.isHidden() && f.canRead())
+			.iterator();
+		Deque<Promise<Indexed>> pending = new ArrayDeque<>(window);
+		Iterator<Resource> resources = new Iterator<>() {
+			private Resource next;
+
+			@Override
+			public boolean hasNext() {
+				while (next == null) {
+					while (pending.size() < window && ordered.hasNext()) {
+						File file = ordered.next();
+						URI uri = relativize(file);
+						pending.add(promiseFactory.submit(() -> indexFile(file, uri, reusable)));
+					}
+					if (pending.isEmpty()) {
+						return false;
+					}
+					try {
+						next = complete(pending.remove()
+							.getValue());
+					} catch (InterruptedException e) {
+						Thread.currentThread()
+							.interrupt();
+						throw Exceptions.duck(e);
+					} catch (InvocationTargetException e) {
+						throw Exceptions.duck(Exceptions.unrollCause(e, InvocationTargetException.class));
+					}
+				}
+				return true;
+			}
+
+			@Override
+			public Resource next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Resource resource = next;
+				next = null;
+				return resource;
+			}
+		};
+		return StreamSupport.stream(
+			Spliterators.spliteratorUnknownSize(resources, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/*
+	 * The resources of the previous index by SHA-256.
+	 */
+	private Map<String, Resource> reusable() {
+		if (previous == null || !previous.isFile()) {
+			return Collections.emptyMap();
+		}
 		try {
-			ResourceBuilder resourceBuilder = new ResourceBuilder();
-			if (resourceBuilder.addFile(file, relativize(file))) {
-				if (analyzer != null) {
-					analyzer.analyzeFile(file, resourceBuilder.safeResourceBuilder());
+			Map<String, Resource> reusable = new HashMap<>();
+			for (Resource resource : XMLResourceParser.getResources(previous)) {
+				ContentCapability content = ResourceUtils.getContentCapability(resource);
+				if (content != null && resource.getRequirements(MultiReleaseNamespace.MULTI_RELEASE_NAMESPACE)
+					.isEmpty()) {
+					reusable.put(content.osgi_content(), resource);
 				}
-				return resourceBuilder.build();
 			}
+			return reusable;
 		} catch (Exception e) {
-			reporter.exception(e, "Could not index file %s", file);
+			reporter.warning("Could not read the previous index %s, all files are analyzed: %s", previous, e);
+			return Collections.emptyMap();
+		}
+	}
+
+	/*
+	 * The outcome of reading a file on a worker thread: a reused resource, a
+	 * builder that still needs the analyzer, or the failure to report.
+	 */
+	private static final class Indexed {
+		final File				file;
+		final Resource			resource;
+		final ResourceBuilder	builder;
+		final Exception			failure;
+		final String			message;
+
+		Indexed(File file, Resource resource, ResourceBuilder builder, Exception failure, String message) {
+			this.file = file;
+			this.resource = resource;
+			this.builder = builder;
+			this.failure = failure;
+			this.message = message;
+		}
+	}
+
+	private Indexed indexFile(File file, URI uri, Map<String, Resource> reusable) {
+		if (!reusable.isEmpty()) {
+			try {
+				String sha256 = SHA256.digest(file)
+					.asHex();
+				Resource resource = reusable.get(sha256);
+				if (resource != null) {
+					return new Indexed(file, reuse(resource, file, uri, sha256), null, null, null);
+				}
+			} catch (Exception e) {
+				return new Indexed(file, null, null, e, "Could not digest file %s");
+			}
+		}
+		try {
+			ResourceBuilder resourceBuilder = new ResourceBuilder();
+			if (resourceBuilder.addFile(file, uri)) {
+				return new Indexed(file, null, resourceBuilder, null, null);
+			}
+			return new Indexed(file, null, null, null, null);
+		} catch (Exception e) {
+			return new Indexed(file, null, null, e, "Could not index file %s");
+		}
+	}
+
+	/*
+	 * Called by the consumer in the order of the files.
+	 */
+	private Resource complete(Indexed indexed) {
+		if (indexed.failure != null) {
+			reporter.exception(indexed.failure, indexed.message, indexed.file);
+			return null;
+		}
+		if (indexed.builder == null) {
+			return indexed.resource;
+		}
+		try {
+			if (analyzer != null) {
+				analyzer.analyzeFile(indexed.file, indexed.builder.safeResourceBuilder());
+			}
+			return indexed.builder.build();
+		} catch (Exception e) {
+			reporter.exception(e, "Could not index file %s", indexed.file);
 		}
 		return null;
 	}
 
+	private Resource reuse(Resource resource, File file, URI uri, String sha256) {
+		ResourceBuilder resourceBuilder = new ResourceBuilder();
+		for (Capability capability : resource.getCapabilities(null)) {
+			if (ContentNamespace.CONTENT_NAMESPACE.equals(capability.getNamespace())) {
+				ContentCapability content = ResourceUtils.as(capability, ContentCapability.class);
+				resourceBuilder.addContentCapability(uri, sha256, file.length(), content.mime());
+			} else {
+				resourceBuilder.addCapability(capability);
+			}
+		}
+		resourceBuilder.addRequirements(resource.getRequirements(null));
+		return resourceBuilder.build();
+	}
+
 	private URI relativize(File file) {
 		if (base == null) {
 			return file.toURI();
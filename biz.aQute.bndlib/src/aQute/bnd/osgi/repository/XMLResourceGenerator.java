@@ -29,10 +29,13 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.GZIPOutputStream;
 
 import org.osgi.resource.Capability;
@@ -76,6 +79,19 @@ public class XMLResourceGenerator {
 	 * @throws IOException If an I/O error occurs.
 	 */
 	public void save(File location) throws IOException {
+		save(location, Stream.empty());
+	}
+
+	/**
+	 * Saves the contents of this generator followed by the specified resources
+	 * to the specified file.
+	 *
+	 * @param location The file to save the contents to.
+	 * @param resources The resources to write after the contents of this
+	 *            generator, see {@link #save(OutputStream, Stream)}.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void save(File location, Stream<? extends Resource> resources) throws IOException {
 		if (location.getName()
 			.endsWith(".gz"))
 			compress = true;
@@ -83,10 +99,14 @@ public class XMLResourceGenerator {
 		IO.mkdirs(location.getParentFile());
 		File tmp = IO.createTempFile(location.getParentFile(), "index", ".xml");
 
-		try (OutputStream out = IO.outputStream(tmp)) {
-			save(out);
+		try {
+			try (OutputStream out = IO.outputStream(tmp)) {
+				save(out, resources);
+			}
+			IO.rename(tmp, location);
+		} finally {
+			IO.delete(tmp);
 		}
-		IO.rename(tmp, location);
 	}
 
 	/**
@@ -96,6 +116,27 @@ public class XMLResourceGenerator {
 	 * @throws IOException If an I/O error occurs.
 	 */
 	public void save(OutputStream out) throws IOException {
+		save(out, Stream.empty());
+	}
+
+	/**
+	 * Saves the contents of this generator followed by the specified resources
+	 * to the specified output stream.
+	 * <p>
+	 * The resources are not added to this generator. Each resource is written
+	 * as soon as the stream supplies it and is then no longer referenced, so a
+	 * stream that produces its resources lazily can write an index of any size
+	 * in constant memory. The resources are written in encounter order. Like
+	 * {@link #resource(Resource)}, a resource equal to a resource added or
+	 * written before is skipped. Streamed resources are only remembered by
+	 * their locations for this check.
+	 *
+	 * @param out The output stream to save the contents to.
+	 * @param resources The resources to write after the contents of this
+	 *            generator.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void save(OutputStream out, Stream<? extends Resource> resources) throws IOException {
 		try {
 			if (compress) {
 				out = new GZIPOutputStream(out);
@@ -104,13 +145,89 @@ public class XMLResourceGenerator {
 			try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
 				PrintWriter pw = new PrintWriter(writer)) {
 				pw.printf("<?xml version='1.0' encoding='UTF-8'?>\n");
-				repository.print(indent, pw);
+				print(pw, resources);
 			}
 		} finally {
 			out.close();
 		}
 	}
 
+	/*
+	 * Prints the repository tag with the resource tags of the stream after its
+	 * contents. The resource tags are created and printed one at a time.
+	 */
+	private void print(PrintWriter pw, Stream<? extends Resource> resources) {
+		Iterator<? extends Resource> iterator = resources.iterator();
+		if (!iterator.hasNext()) {
+			repository.print(indent, pw);
+			return;
+		}
+		Tag tag = new Tag(repository.getName(), repository.getAttributes(), repository.getContents()
+			.toArray());
+		tag.addContent(new ResourceTags(iterator));
+		tag.print(indent, pw);
+	}
+
+	/*
+	 * Answer true if a streamed resource is not equal to a resource added or
+	 * written before. Resources are equal when they share a location with the
+	 * same SHA-256, so only the locations of streamed resources are kept.
+	 * Resources without a location are only equal to themselves.
+	 */
+	private boolean visit(Resource resource, Set<String> locations) {
+		if (visited.contains(resource)) {
+			return false;
+		}
+		List<String> keys = locations(resource);
+		if (keys.isEmpty()) {
+			return visited.add(resource);
+		}
+		if (keys.stream()
+			.anyMatch(locations::contains)) {
+			return false;
+		}
+		locations.addAll(keys);
+		return true;
+	}
+
+	private static List<String> locations(Resource resource) {
+		return MapStream.of(ResourceUtils.getLocations(resource))
+			.mapToObj((uri, sha256) -> uri + "#" + sha256)
+			.collect(Collectors.toList());
+	}
+
+	/*
+	 * A placeholder in the repository tag that prints a resource tag for each
+	 * resource of the iterator.
+	 */
+	private final class ResourceTags extends Tag {
+		private final Iterator<? extends Resource>	resources;
+		private final Set<String>					locations	= new HashSet<>();
+
+		ResourceTags(Iterator<? extends Resource> resources) {
+			super(TAG_RESOURCE);
+			this.resources = resources;
+			visited.forEach(resource -> locations.addAll(locations(resource)));
+		}
+
+		@Override
+		public Tag print(int indent, PrintWriter pw) {
+			while (resources.hasNext()) {
+				Resource resource = resources.next();
+				if (!visit(resource, locations)) {
+					continue;
+				}
+				resourceTag(resource).print(indent, pw);
+				if (resource instanceof SupportingResource s) {
+					for (Resource supporting : s.getSupportingResources()) {
+						resourceTag(supporting).print(indent, pw);
+					}
+				}
+			}
+			return this;
+		}
+	}
+
 	/**
 	 * Note that calling {@link #name(String)} sets increment to
 	 * {@link System#currentTimeMillis()}. In order to retain backward
@@ -206,7 +323,11 @@ public class XMLResourceGenerator {
 	}
 
 	void resource0(Resource resource) {
-		Tag r = new Tag(repository, TAG_RESOURCE);
+		repository.addContent(resourceTag(resource));
+	}
+
+	Tag resourceTag(Resource resource) {
+		Tag r = new Tag(TAG_RESOURCE);
 		List<Capability> caps = resource.getCapabilities(null);
 		caps.forEach(cap -> {
 			Tag cr = new Tag(r, TAG_CAPABILITY);
@@ -222,6 +343,7 @@ public class XMLResourceGenerator {
 			directives(cr, req.getDirectives());
 			attributes(cr, req.getAttributes());
 		});
+		return r;
 	}
 
 	private void directives(Tag cr, Map<String, String> directives) {
@@ -1,5 +1,7 @@
 package aQute.bnd.osgi.resource;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
@@ -7,31 +9,86 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import aQute.bnd.exceptions.Exceptions;
 import aQute.bnd.service.resource.SupportingResource;
+import aQute.bnd.util.dto.DTO;
+import aQute.bnd.util.home.Home;
+import aQute.lib.io.IO;
+import aQute.lib.json.JSONCodec;
+import aQute.libg.cryptography.SHA256;
 
 /**
  * A cache for {@link SupportingResource}s associated with {@link File}s. The
  * cache is implemented as a concurrent hash map. The cache key consists of the
  * file path, size, and last modification time. The resources are created on
  * demand via the provided {@link Supplier}.
+ * <p>
+ * When the {@value #DIRECTORY_PROPERTY} system property is set, the cache has a
+ * second tier on disk so that the resources survive the process. The property
+ * is the path of the directory, or {@code true} for a directory in the bnd
+ * home directory. The capabilities and requirements of a resource are stored
+ * as {@link PersistentResource}s in a JSON file named after the path, size,
+ * last modification time and URI of the file, together with the SHA-256 of the
+ * content. The files are read when a resource is missing from memory. When
+ * their total size exceeds {@value #SIZE_PROPERTY} megabytes, default
+ * {@value #SIZE_DEFAULT_MB}, the least recently used files are deleted.
  */
 class FileResourceCache {
+	private final static Logger						logger					= LoggerFactory
+		.getLogger(FileResourceCache.class);
 	private final static long						EXPIRED_DURATION_NANOS	= TimeUnit.NANOSECONDS.convert(30L,
 		TimeUnit.MINUTES);
-	private static final FileResourceCache			INSTANCE				= new FileResourceCache();
+	static final String								DIRECTORY_PROPERTY		= "bnd.resource.cache";
+	static final String								SIZE_PROPERTY			= "bnd.resource.cache.size";
+	static final long								SIZE_DEFAULT_MB			= 64L;
+	private final static JSONCodec					codec					= new JSONCodec();
+	private static final FileResourceCache			INSTANCE				= new FileResourceCache(directory(),
+		Long.getLong(SIZE_PROPERTY, SIZE_DEFAULT_MB) * 1024L * 1024L);
 	private final Map<CacheKey, SupportingResource>	cache;
 	private long									time;
+	private final Path								directory;
+	private final long								limit;
+	private final AtomicLong						storedSize				= new AtomicLong(-1L);
 
-	private FileResourceCache() {
+	/**
+	 * @param directory the directory of the disk tier or {@code null} for a
+	 *            cache in memory only
+	 * @param limit the maximum total size in bytes of the files in the
+	 *            directory
+	 */
+	FileResourceCache(Path directory, long limit) {
 		cache = new ConcurrentHashMap<>();
 		time = System.nanoTime();
+		this.directory = directory;
+		this.limit = limit;
+	}
+
+	private static Path directory() {
+		String property = System.getProperty(DIRECTORY_PROPERTY);
+		if (property == null || property.isBlank() || property.equalsIgnoreCase("false")) {
+			return null;
+		}
+		if (property.equalsIgnoreCase("true")) {
+			return Home.getUserHomeBnd("caches/resources")
+				.toPath();
+		}
+		return IO.getFile(property)
+			.toPath();
 	}
 
 	/**
@@ -62,8 +119,155 @@ class FileResourceCache {
 				.removeIf(key -> (now - key.time) > EXPIRED_DURATION_NANOS);
 		}
 		CacheKey cacheKey = new CacheKey(file.toPath(), uri);
-		SupportingResource resource = cache.computeIfAbsent(cacheKey, key -> create.get());
-		return resource;
+		if (directory == null) {
+			return cache.computeIfAbsent(cacheKey, key -> create.get());
+		}
+		return cache.computeIfAbsent(cacheKey, key -> {
+			Path path = file.toPath()
+				.toAbsolutePath()
+				.normalize();
+			Path entry = directory.resolve(name(path, key));
+			SupportingResource resource = load(entry, path, key);
+			if (resource == null) {
+				resource = create.get();
+				store(entry, path, key, resource);
+			}
+			return resource;
+		});
+	}
+
+	/**
+	 * The content of a file in the disk tier.
+	 */
+	public static class Stored extends DTO {
+		public String				path;
+		public long					size;
+		public long					lastModified;
+		public String				uri;
+		public PersistentResource	resource;
+	}
+
+	private static String name(Path path, CacheKey key) {
+		String id = path + "\n" + key.size + "\n" + key.lastModifiedTime + "\n" + key.uri;
+		try {
+			return SHA256.digest(id.getBytes(UTF_8))
+				.asHex()
+				.concat(".json");
+		} catch (Exception e) {
+			throw Exceptions.duck(e);
+		}
+	}
+
+	private SupportingResource load(Path entry, Path path, CacheKey key) {
+		if (!Files.isRegularFile(entry)) {
+			return null;
+		}
+		try {
+			Stored stored = codec.dec()
+				.from(entry.toFile())
+				.get(Stored.class);
+			if (!path.toString()
+				.equals(stored.path) || stored.size != key.size || stored.lastModified != key.lastModifiedTime
+				|| !Objects.equals(Objects.toString(key.uri, null), stored.uri) || stored.resource == null) {
+				return null;
+			}
+			SupportingResource resource = (SupportingResource) stored.resource.getResource();
+			// the modification time of an entry records its last use
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+			return resource;
+		} catch (Exception e) {
+			logger.debug("Unable to read the cached resource {} for {}", entry, path, e);
+			IO.delete(entry);
+			return null;
+		}
+	}
+
+	private void store(Path entry, Path path, CacheKey key, SupportingResource resource) {
+		try {
+			Stored stored = new Stored();
+			stored.path = path.toString();
+			stored.size = key.size;
+			stored.lastModified = key.lastModifiedTime;
+			stored.uri = Objects.toString(key.uri, null);
+			stored.resource = new PersistentResource(resource);
+			IO.mkdirs(directory);
+			Path tmp = Files.createTempFile(directory, "resource", ".tmp");
+			try {
+				codec.enc()
+					.to(tmp.toFile())
+					.put(stored)
+					.close();
+				IO.rename(tmp, entry);
+			} finally {
+				IO.delete(tmp);
+			}
+			long size = Files.size(entry);
+			if (stored() + size > limit) {
+				evict();
+			} else {
+				storedSize.addAndGet(size);
+			}
+		} catch (Exception e) {
+			logger.debug("Unable to cache the resource for {} in {}", path, entry, e);
+		}
+	}
+
+	/**
+	 * Answer the total size of the files in the directory, which is
+	 * calculated once and then maintained.
+	 */
+	private long stored() throws IOException {
+		long size = storedSize.get();
+		if (size < 0L) {
+			size = entries().mapToLong(e -> e.attributes()
+				.size())
+				.sum();
+			storedSize.compareAndSet(-1L, size);
+		}
+		return size;
+	}
+
+	/**
+	 * Delete the least recently used files until the total size is below 90%
+	 * of the limit.
+	 */
+	private synchronized void evict() throws IOException {
+		List<DiskEntry> entries = entries().sorted(Comparator.comparing(e -> e.attributes()
+			.lastModifiedTime()))
+			.toList();
+		long size = entries.stream()
+			.mapToLong(e -> e.attributes()
+				.size())
+			.sum();
+		long target = limit - (limit / 10L);
+		for (DiskEntry e : entries) {
+			if (size <= target) {
+				break;
+			}
+			IO.delete(e.path());
+			size -= e.attributes()
+				.size();
+		}
+		storedSize.set(size);
+	}
+
+	private record DiskEntry(Path path, BasicFileAttributes attributes) {}
+
+	private Stream<DiskEntry> entries() throws IOException {
+		List<DiskEntry> entries = new ArrayList<>();
+		try (Stream<Path> paths = Files.list(directory)) {
+			paths.filter(p -> p.getFileName()
+				.toString()
+				.endsWith(".json"))
+				.forEach(p -> {
+					try {
+						entries.add(new DiskEntry(p, Files.readAttributes(p, BasicFileAttributes.class)));
+					} catch (IOException e) {
+						// removed concurrently
+					}
+				});
+		}
+		return entries.stream();
 	}
 
 	/**
@@ -25,13 +25,14 @@ import java.lang.reflect.Modifier;
 import java.security.PrivilegedAction;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
 
 import org.osgi.framework.Filter;
 import org.osgi.framework.InvalidSyntaxException;
@@ -246,6 +247,33 @@ abstract class FilterImpl implements Filter {
 
 	abstract boolean matches0(Map<String, ?> map);
 
+	/**
+	 * Returns the relative cost of evaluating this {@code Filter}. The
+	 * operands of an and or or filter are evaluated in order of increasing
+	 * cost so the cheapest operand that decides the result is evaluated first.
+	 *
+	 * @return The relative cost of evaluating this {@code Filter}.
+	 */
+	abstract int cost();
+
+	/**
+	 * Returns the operands in order of increasing cost. The original operands
+	 * are kept for the normalized filter string.
+	 */
+	static FilterImpl[] evaluationOrder(FilterImpl[] operands) {
+		FilterImpl[] evaluation = operands.clone();
+		Arrays.sort(evaluation, Comparator.comparingInt(FilterImpl::cost));
+		return evaluation;
+	}
+
+	static int cost(FilterImpl[] operands) {
+		int cost = 1;
+		for (FilterImpl operand : operands) {
+			cost += operand.cost();
+		}
+		return cost;
+	}
+
 	/**
 	 * Returns this {@code Filter}'s filter string.
 	 * <p>
@@ -313,15 +341,19 @@ abstract class FilterImpl implements Filter {
 	}
 
 	static final class And extends FilterImpl {
-		private final FilterImpl[] operands;
+		private final FilterImpl[]	operands;
+		private final FilterImpl[]	evaluation;
+		private final int			cost;
 
 		And(FilterImpl[] operands) {
 			this.operands = operands;
+			this.evaluation = evaluationOrder(operands);
+			this.cost = cost(operands);
 		}
 
 		@Override
 		boolean matches0(Map<String, ?> map) {
-			for (FilterImpl operand : operands) {
+			for (FilterImpl operand : evaluation) {
 				if (!operand.matches0(map)) {
 					return false;
 				}
@@ -329,6 +361,11 @@ abstract class FilterImpl implements Filter {
 			return true;
 		}
 
+		@Override
+		int cost() {
+			return cost;
+		}
+
 		@Override
 		StringBuilder normalize(StringBuilder sb) {
 			sb.append('(')
@@ -341,15 +378,19 @@ abstract class FilterImpl implements Filter {
 	}
 
 	static final class Or extends FilterImpl {
-		private final FilterImpl[] operands;
+		private final FilterImpl[]	operands;
+		private final FilterImpl[]	evaluation;
+		private final int			cost;
 
 		Or(FilterImpl[] operands) {
 			this.operands = operands;
+			this.evaluation = evaluationOrder(operands);
+			this.cost = cost(operands);
 		}
 
 		@Override
 		boolean matches0(Map<String, ?> map) {
-			for (FilterImpl operand : operands) {
+			for (FilterImpl operand : evaluation) {
 				if (operand.matches0(map)) {
 					return true;
 				}
@@ -357,6 +398,11 @@ abstract class FilterImpl implements Filter {
 			return false;
 		}
 
+		@Override
+		int cost() {
+			return cost;
+		}
+
 		@Override
 		StringBuilder normalize(StringBuilder sb) {
 			sb.append('(')
@@ -380,6 +426,11 @@ abstract class FilterImpl implements Filter {
 			return !operand.matches0(map);
 		}
 
+		@Override
+		int cost() {
+			return operand.cost() + 1;
+		}
+
 		@Override
 		StringBuilder normalize(StringBuilder sb) {
 			sb.append('(')
@@ -611,6 +662,11 @@ abstract class FilterImpl implements Filter {
 			return map.get(attr) != null;
 		}
 
+		@Override
+		int cost() {
+			return 1;
+		}
+
 		@Override
 		StringBuilder normalize(StringBuilder sb) {
 			return sb.append('(')
@@ -629,6 +685,11 @@ abstract class FilterImpl implements Filter {
 			this.substrings = substrings;
 		}
 
+		@Override
+		int cost() {
+			return 4;
+		}
+
 		@Override
 		boolean compare_String(String string) {
 			int pos = 0;
@@ -688,22 +749,40 @@ abstract class FilterImpl implements Filter {
 	}
 
 	static class Equal extends Item {
-		final String	value;
-		private Object	cached;
+		private static final byte	UNCONVERTED	= 0;
+		private static final byte	CONVERTED	= 1;
+		private static final byte	INVALID		= 2;
+
+		final String				value;
+
+		/*
+		 * The value converted to the type of the attribute value. Every type
+		 * has its own slot so attribute values of different types do not
+		 * evict each other. The conversion is done at most once per type and
+		 * numbers are held unboxed. A racing thread may convert again, which
+		 * yields the same result.
+		 */
+		private volatile Version	version;
+		private volatile byte		versionState;
+		private long				longValue;
+		private volatile byte		longState;
+		private double				doubleValue;
+		private volatile byte		doubleState;
+		private float				floatValue;
+		private volatile byte		floatState;
+		private volatile Boolean	booleanValue;
+		private volatile Converted	converted;
+
+		private record Converted(Class<?> type, Object value) {}
 
 		Equal(String attr, String value) {
 			super(attr);
 			this.value = value;
 		}
 
-		private <T> T convert(Class<T> type, Function<String, ? extends T> converter) {
-			@SuppressWarnings("unchecked")
-			T converted = (T) cached;
-			if ((converted != null) && type.isInstance(converted)) {
-				return converted;
-			}
-			cached = converted = converter.apply(value.trim());
-			return converted;
+		@Override
+		int cost() {
+			return 2;
 		}
 
 		boolean comparison(int compare) {
@@ -712,24 +791,35 @@ abstract class FilterImpl implements Filter {
 
 		@Override
 		boolean compare_String(String string) {
-			return comparison((string == value) ? 0 : string.compareTo(value));
+			return string.equals(value);
 		}
 
 		@Override
 		boolean compare_Version(Version value1) {
-			try {
-				Version version2 = convert(Version.class, Version::valueOf);
-				return comparison(value1.compareTo(version2));
-			} catch (Exception e) {
-				// if the valueOf or compareTo method throws an exception
+			byte state = versionState;
+			if (state == UNCONVERTED) {
+				try {
+					version = Version.valueOf(value.trim());
+					state = CONVERTED;
+				} catch (Exception e) {
+					// if the valueOf method throws an exception
+					state = INVALID;
+				}
+				versionState = state;
+			}
+			if (state == INVALID) {
 				return false;
 			}
+			return comparison(value1.compareTo(version));
 		}
 
 		@Override
 		boolean compare_Boolean(boolean boolval) {
-			boolean boolval2 = convert(Boolean.class, Boolean::valueOf).booleanValue();
-			return comparison(Boolean.compare(boolval, boolval2));
+			Boolean boolval2 = booleanValue;
+			if (boolval2 == null) {
+				booleanValue = boolval2 = Boolean.valueOf(value.trim());
+			}
+			return comparison(Boolean.compare(boolval, boolval2.booleanValue()));
 		}
 
 		@Override
@@ -745,40 +835,73 @@ abstract class FilterImpl implements Filter {
 
 		@Override
 		boolean compare_Double(double doubleval) {
-			double doubleval2;
-			try {
-				doubleval2 = convert(Double.class, Double::valueOf).doubleValue();
-			} catch (IllegalArgumentException e) {
+			byte state = doubleState;
+			if (state == UNCONVERTED) {
+				try {
+					doubleValue = Double.parseDouble(value.trim());
+					state = CONVERTED;
+				} catch (IllegalArgumentException e) {
+					state = INVALID;
+				}
+				doubleState = state;
+			}
+			if (state == INVALID) {
 				return false;
 			}
-			return comparison(Double.compare(doubleval, doubleval2));
+			return comparison(Double.compare(doubleval, doubleValue));
 		}
 
 		@Override
 		boolean compare_Float(float floatval) {
-			float floatval2;
-			try {
-				floatval2 = convert(Float.class, Float::valueOf).floatValue();
-			} catch (IllegalArgumentException e) {
+			byte state = floatState;
+			if (state == UNCONVERTED) {
+				try {
+					floatValue = Float.parseFloat(value.trim());
+					state = CONVERTED;
+				} catch (IllegalArgumentException e) {
+					state = INVALID;
+				}
+				floatState = state;
+			}
+			if (state == INVALID) {
 				return false;
 			}
-			return comparison(Float.compare(floatval, floatval2));
+			return comparison(Float.compare(floatval, floatValue));
 		}
 
 		@Override
 		boolean compare_Long(long longval) {
-			long longval2;
-			try {
-				longval2 = convert(Long.class, Long::valueOf).longValue();
-			} catch (IllegalArgumentException e) {
+			byte state = longState;
+			if (state == UNCONVERTED) {
+				try {
+					longValue = Long.parseLong(value.trim());
+					state = CONVERTED;
+				} catch (IllegalArgumentException e) {
+					state = INVALID;
+				}
+				longState = state;
+			}
+			if (state == INVALID) {
 				return false;
 			}
-			return comparison(Long.compare(longval, longval2));
+			return comparison(Long.compare(longval, longValue));
+		}
+
+		/**
+		 * Returns the value converted to the specified type, reusing the last
+		 * conversion if it was to the same type.
+		 */
+		private Object converted(Class<?> target) {
+			Converted c = converted;
+			if ((c == null) || (c.type() != target)) {
+				converted = c = new Converted(target, valueOf(target));
+			}
+			return c.value();
 		}
 
 		@Override
 		boolean compare_Comparable(Comparable<Object> value1) {
-			Object value2 = valueOf(value1.getClass());
+			Object value2 = converted(value1.getClass());
 			if (value2 == null) {
 				return false;
 			}
@@ -792,7 +915,7 @@ abstract class FilterImpl implements Filter {
 
 		@Override
 		boolean compare_Unknown(Object value1) {
-			Object value2 = valueOf(value1.getClass());
+			Object value2 = converted(value1.getClass());
 			if (value2 == null) {
 				return false;
 			}
@@ -870,6 +993,16 @@ abstract class FilterImpl implements Filter {
 			super(attr, value);
 		}
 
+		@Override
+		int cost() {
+			return 3;
+		}
+
+		@Override
+		boolean compare_String(String string) {
+			return comparison((string == value) ? 0 : string.compareTo(value));
+		}
+
 		@Override
 		boolean comparison(int compare) {
 			return compare <= 0;
@@ -890,6 +1023,16 @@ abstract class FilterImpl implements Filter {
 			super(attr, value);
 		}
 
+		@Override
+		int cost() {
+			return 3;
+		}
+
+		@Override
+		boolean compare_String(String string) {
+			return comparison((string == value) ? 0 : string.compareTo(value));
+		}
+
 		@Override
 		boolean comparison(int compare) {
 			return compare >= 0;
@@ -913,6 +1056,11 @@ abstract class FilterImpl implements Filter {
 			this.approx = approxString(value);
 		}
 
+		@Override
+		int cost() {
+			return 4;
+		}
+
 		@Override
 		boolean compare_String(String string) {
 			string = approxString(string);
@@ -13,7 +13,9 @@ import org.osgi.framework.Version;
 import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
+import org.osgi.service.repository.ContentNamespace;
 
+import aQute.bnd.service.resource.SupportingResource;
 import aQute.bnd.stream.MapStream;
 import aQute.bnd.util.dto.DTO;
 import aQute.lib.collections.MultiMap;
@@ -27,9 +29,10 @@ import aQute.lib.hex.Hex;
  */
 public class PersistentResource extends DTO implements Resource {
 
-	public Namespace[]	namespaces;
-	transient Resource	resource;
-	public byte[]		sha;
+	public Namespace[]			namespaces;
+	transient Resource			resource;
+	public byte[]				sha;
+	public PersistentResource[]	supporting;
 
 	public static class Namespace extends DTO implements Comparable<Namespace> {
 		public String	name;
@@ -156,44 +159,69 @@ public class PersistentResource extends DTO implements Resource {
 			namespaces[i++] = ns;
 		}
 		Arrays.sort(namespaces);
+
+		for (Capability content : resource.getCapabilities(ContentNamespace.CONTENT_NAMESPACE)) {
+			if (content.getAttributes()
+				.get(ContentNamespace.CONTENT_NAMESPACE) instanceof String hex && Hex.isHex(hex)) {
+				sha = Hex.toByteArray(hex);
+			}
+		}
+
+		if (resource instanceof SupportingResource supportingResource) {
+			List<Resource> resources = supportingResource.getSupportingResources();
+			if (!resources.isEmpty()) {
+				supporting = resources.stream()
+					.map(PersistentResource::new)
+					.toArray(PersistentResource[]::new);
+			}
+		}
 	}
 
+	/**
+	 * Answer the resource, which is a {@link SupportingResource} with the
+	 * supporting resources of the persisted resource.
+	 */
 	public Resource getResource() throws Exception {
 		if (resource == null) {
-			ResourceBuilder rb = new ResourceBuilder();
+			resource = ResourceBuilder.restore(this);
+		}
+		return resource;
+	}
 
-			for (Namespace ns : namespaces) {
-				if (ns.capabilities != null)
-					for (RCData rcdata : ns.capabilities) {
+	/**
+	 * Add the capabilities and requirements of this resource to a builder.
+	 *
+	 * @param rb the builder
+	 */
+	void addTo(ResourceBuilder rb) throws Exception {
+		for (Namespace ns : namespaces) {
+			if (ns.capabilities != null)
+				for (RCData rcdata : ns.capabilities) {
+
+					CapReqBuilder capb = new CapReqBuilder(ns.name);
+
+					for (Attr attrs : rcdata.properties) {
+						if (attrs.directive)
+							capb.addDirective(attrs.key, (String) attrs.value);
+						else
+							capb.addAttribute(attrs.key, attrs.getValue());
+					}
+					rb.addCapability(capb);
+				}
+			if (ns.requirements != null)
+				for (RCData rcdata : ns.requirements) {
 
-						CapReqBuilder capb = new CapReqBuilder(ns.name);
+					CapReqBuilder reqb = new CapReqBuilder(ns.name);
 
-						for (Attr attrs : rcdata.properties) {
-							if (attrs.directive)
-								capb.addDirective(attrs.key, (String) attrs.value);
-							else
-								capb.addAttribute(attrs.key, attrs.getValue());
-						}
-						rb.addCapability(capb);
+					for (Attr attrs : rcdata.properties) {
+						if (attrs.directive)
+							reqb.addDirective(attrs.key, (String) attrs.value);
+						else
+							reqb.addAttribute(attrs.key, attrs.getValue());
 					}
-				if (ns.requirements != null)
-					for (RCData rcdata : ns.requirements) {
-
-						CapReqBuilder reqb = new CapReqBuilder(ns.name);
-
-						for (Attr attrs : rcdata.properties) {
-							if (attrs.directive)
-								reqb.addDirective(attrs.key, (String) attrs.value);
-							else
-								reqb.addAttribute(attrs.key, attrs.getValue());
-						}
-						rb.addRequirement(reqb);
-					}
-			}
-
-			resource = rb.build();
+					rb.addRequirement(reqb);
+				}
 		}
-		return resource;
 	}
 
 	private static int getType(Object value) {
@@ -247,6 +275,7 @@ public class PersistentResource extends DTO implements Resource {
 			} else {
 				attr.type = DataType.STRING.ordinal();
 			}
+			return attr;
 		}
 
 		attr.type = getType(value);
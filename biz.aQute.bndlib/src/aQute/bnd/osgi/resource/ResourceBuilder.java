@@ -20,6 +20,7 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import java.util.jar.Manifest;
 import java.util.stream.Stream;
@@ -1054,6 +1055,27 @@ public class ResourceBuilder {
 		}
 	}
 
+	/**
+	 * Restore a resource from its persistent form, the supporting resources
+	 * get the restored resource as their parent.
+	 *
+	 * @param persistent the capabilities and requirements of the resource and
+	 *            its supporting resources
+	 * @return the restored resource
+	 */
+	static SupportingResource restore(PersistentResource persistent) throws Exception {
+		ResourceBuilder rb = new ResourceBuilder();
+		persistent.addTo(rb);
+		if (persistent.supporting != null) {
+			for (PersistentResource s : persistent.supporting) {
+				ResourceBuilder builder = new ResourceBuilder(rb.resource);
+				s.addTo(builder);
+				rb.addSupportingResource(builder.build());
+			}
+		}
+		return rb.build();
+	}
+
 	public boolean addJar(Jar jar) {
 		try {
 			Domain manifest = Domain.domain(jar.getManifest());
@@ -1497,21 +1519,51 @@ public class ResourceBuilder {
 			.isPresent() : "jar must have sha256";
 		assert uri != null : "uri must be set";
 
-		ResourceBuilder rb = new ResourceBuilder();
-		boolean hasIdentity = rb.addJar(jar);
-
 		byte[] digest = jar.getSHA256()
 			.get();
 		int length = jar.getLength();
-		String mime = hasIdentity ? MIME_TYPE_BUNDLE : MIME_TYPE_JAR;
 		String sha256 = Hex.toHexString(digest);
-		rb.addContentCapability(uri, sha256, length, mime);
+		return memoize(jar, projectName, (rb, mime) -> rb.addContentCapability(uri, sha256, length, mime));
+	}
+
+	/**
+	 * Create a deferred resource builder for a jar whose content was not
+	 * written because it is identical to an existing file. The digest of the
+	 * file is only calculated when needed.
+	 *
+	 * @param jar a Jar with the same content as the file
+	 * @param file the existing file
+	 * @param uri the uri to use or null (will use file uri as default)
+	 * @param projectName if in a workspace, the project name or otherwise null
+	 * @return a memo for creating the corresponding resource
+	 */
+	public static Supplier<Resource> memoize(Jar jar, File file, URI uri, String projectName) throws Exception {
+
+		assert file != null : "file is mandatory";
+
+		URI location = (uri != null) ? uri : file.toURI();
+		DeferredValue<String> sha256 = new DeferredComparableValue<String>(String.class,
+			SupplierWithException.asSupplier(() -> SHA256.digest(file)
+				.asHex()),
+			file.hashCode());
+		long length = file.length();
+		return memoize(jar, projectName, (rb, mime) -> rb.addContentCapability(location, sha256, length, mime));
+	}
+
+	private static Supplier<Resource> memoize(Jar jar, String projectName,
+		BiConsumer<ResourceBuilder, String> content) throws Exception {
+
+		assert jar != null : "jar is mandatory";
+
+		ResourceBuilder rb = new ResourceBuilder();
+		boolean hasIdentity = rb.addJar(jar);
+
+		String mime = hasIdentity ? MIME_TYPE_BUNDLE : MIME_TYPE_JAR;
+		content.accept(rb, mime);
 		if (projectName != null) {
 			rb.addWorkspaceNamespace(projectName);
 		}
 
-		jar = null; // ensure jar not referenced from lambda
-
 		return rb::get;
 	}
 }
@@ -0,0 +1,34 @@
+package aQute.bnd.service;
+
+import java.io.File;
+
+/**
+ * A store for the bundles built by the projects of a workspace. An entry is
+ * keyed by a digest of the inputs of a project build so projects that did not
+ * change do not have to be built again, also not on another machine.
+ * <p>
+ * A plugin of this type is used when the {@code -buildcache} instruction is
+ * not set.
+ */
+public interface BuildCacheStore {
+	/**
+	 * Fetch an entry.
+	 *
+	 * @param key The hexadecimal key of the entry
+	 * @param target The file to write the entry to
+	 * @return true if the entry was written to the target, false if there is
+	 *         no entry for the key
+	 * @throws Exception When anything goes wrong
+	 */
+	boolean fetch(String key, File target) throws Exception;
+
+	/**
+	 * Store an entry. Storing an entry for a key that is already present must
+	 * not fail.
+	 *
+	 * @param key The hexadecimal key of the entry
+	 * @param entry The file with the content of the entry
+	 * @throws Exception When anything goes wrong
+	 */
+	void store(String key, File entry) throws Exception;
+}
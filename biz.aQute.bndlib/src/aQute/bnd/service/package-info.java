@@ -1,4 +1,4 @@
-@Version("4.10.0")
+@Version("4.11.0")
 package aQute.bnd.service;
 
 import org.osgi.annotation.versioning.Version;
@@ -31,6 +31,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.AllPermission;
 import java.security.CodeSource;
+import java.security.MessageDigest;
 import java.security.Permission;
 import java.security.PermissionCollection;
 import java.time.ZoneOffset;
@@ -53,8 +54,12 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -87,6 +92,7 @@ import aQute.launcher.agent.LauncherAgent;
 import aQute.launcher.constants.LauncherConstants;
 import aQute.launcher.minifw.MiniFramework;
 import aQute.launcher.pre.EmbeddedLauncher;
+import aQute.lib.hex.Hex;
 import aQute.lib.io.ByteBufferDataOutput;
 import aQute.lib.io.IO;
 import aQute.lib.startlevel.StartLevelRuntimeHandler;
@@ -100,6 +106,7 @@ import aQute.libg.uri.URIUtil;
 public class Launcher implements ServiceListener, FrameworkListener {
 
 	private static final String				BND_LAUNCHER			= ".bnd.launcher";
+	private static final String				PREPARED				= "bnd.prepared";
 	private static final String				JRT_PROTOCOL			= "jrt";
 
 	private PrintStream						out						= System.out;
@@ -112,9 +119,13 @@ public class Launcher implements ServiceListener, FrameworkListener {
 	private SimplePermissionPolicy			policy;
 	private Callable<Integer>				mainThread;
 	private final Map<File, Bundle>			installedBundles		= new LinkedHashMap<>();
+	private File							preparedStorage;
+	private String							preparedSignature;
+	private List<String>					preparedLocations;
 	private File							home					= new File(System.getProperty("user.home"));
 	private File							bnd						= new File(home, "bnd");
 	private List<Bundle>					wantsToBeStarted		= new ArrayList<>();
+	private final Map<Bundle, long[]>		timings					= Collections.synchronizedMap(new LinkedHashMap<>());
 	private AtomicBoolean					active					= new AtomicBoolean();
 	private AtomicReference<DatagramSocket>	commsSocket				= new AtomicReference<>();
 	private StartLevelRuntimeHandler		startLevelhandler;
@@ -406,6 +417,11 @@ public class Launcher implements ServiceListener, FrameworkListener {
 				System.exit(status);
 			}
 
+			if (parms.prepareOnly) {
+				trace("prepared launch in %s", preparedStorage);
+				return 0;
+			}
+
 			trace("framework=%s", systemBundle);
 
 			// Register the command line with ourselves as the
@@ -579,6 +595,11 @@ public class Launcher implements ServiceListener, FrameworkListener {
 		}
 		List<Bundle> tobestarted = update(System.currentTimeMillis() + 100);
 
+		if (parms.prepareOnly) {
+			trace("prepare only, not starting the framework");
+			return result;
+		}
+
 		systemBundle.start();
 
 		trace("system bundle started ok");
@@ -631,14 +652,144 @@ public class Launcher implements ServiceListener, FrameworkListener {
 
 		trace("Updating framework with %s", parms.runbundles);
 		List<Bundle> tobestarted = new ArrayList<>();
-		if (parms.embedded)
+		if (parms.embedded) {
+			if (preparedLocations != null) {
+				List<Bundle> prepared = getPrepared();
+				preparedLocations = null;
+				if (prepared != null)
+					return prepared;
+			}
 			installEmbedded(tobestarted);
-		else
+			if (preparedStorage != null)
+				writePrepared(tobestarted);
+		} else
 			synchronizeFiles(tobestarted, before);
 
 		return tobestarted;
 	}
 
+	/*
+	 * Get the bundles of a prepared launch from the framework storage. Returns
+	 * null if a bundle is missing so that the caller installs normally.
+	 */
+	private List<Bundle> getPrepared() {
+		BundleContext context = systemBundle.getBundleContext();
+		List<Bundle> bundles = new ArrayList<>();
+		for (String location : preparedLocations) {
+			Bundle bundle = context.getBundle(location);
+			if (bundle == null) {
+				trace("prepared bundle %s is missing, installing normally", location);
+				return null;
+			}
+			bundles.add(bundle);
+		}
+		trace("using %s prepared bundles from %s", bundles.size(), preparedStorage);
+		return bundles;
+	}
+
+	/*
+	 * Record the installed bundles so that the next launch can use them
+	 * without reading the embedded jars.
+	 */
+	private void writePrepared(List<Bundle> bundles) {
+		if (preparedSignature == null) {
+			trace("no digests for all embedded bundles, cannot prepare the launch");
+			return;
+		}
+		StringBuilder sb = new StringBuilder(preparedSignature).append('\n');
+		for (Bundle bundle : bundles) {
+			sb.append(bundle.getLocation())
+				.append('\n');
+		}
+		try {
+			IO.store(sb.toString(), new File(preparedStorage, PREPARED));
+			trace("prepared launch in %s with signature %s", preparedStorage, preparedSignature);
+		} catch (IOException e) {
+			trace("could not write the prepared launch marker in %s: %s", preparedStorage, e);
+		}
+	}
+
+	/*
+	 * Read the locations of a prepared launch when it was prepared for the
+	 * same embedded bundles.
+	 */
+	private List<String> readPrepared(File storage, String signature) {
+		File marker = new File(storage, PREPARED);
+		if (signature == null || !marker.isFile())
+			return null;
+		try {
+			List<String> lines = IO.collect(marker)
+				.lines()
+				.toList();
+			if (lines.isEmpty() || !lines.get(0)
+				.equals(signature)) {
+				trace("prepared launch in %s is stale", storage);
+				return null;
+			}
+			return lines.subList(1, lines.size());
+		} catch (IOException e) {
+			trace("could not read the prepared launch marker in %s: %s", storage, e);
+			return null;
+		}
+	}
+
+	private String getPreparedSignature() throws Exception {
+		return getPreparedSignature(EmbeddedLauncher.MANIFEST, parms, properties);
+	}
+
+	/*
+	 * The signature of a prepared launch, null if an embedded jar has no
+	 * digest. It covers the digests of the embedded run path, which holds the
+	 * framework, and of the run bundles, the framework properties and the
+	 * launcher options that change what is stored. The other launcher options,
+	 * like trace or timeout, do not invalidate the storage.
+	 */
+	static String getPreparedSignature(Manifest manifest, LauncherConstants parms, Properties properties)
+		throws Exception {
+		MessageDigest md = MessageDigest.getInstance("SHA-256");
+		List<String> runpath = new ArrayList<>();
+		if (manifest != null) {
+			String value = manifest.getMainAttributes()
+				.getValue(EmbeddedLauncher.EMBEDDED_RUNPATH);
+			if (value != null) {
+				for (String path : value.split(",")) {
+					path = path.trim();
+					if (!path.isEmpty())
+						runpath.add(path);
+				}
+			}
+		}
+		for (List<String> paths : Arrays.asList(runpath, parms.runbundles)) {
+			for (String path : paths) {
+				String digest = getDigest(manifest, path);
+				if (digest == null)
+					return null;
+				update(md, path, digest);
+			}
+			md.update((byte) 1);
+		}
+		Map<String, String> sorted = new TreeMap<>();
+		for (String key : properties.stringPropertyNames()) {
+			if (!key.startsWith("launch."))
+				sorted.put(key, properties.getProperty(key));
+		}
+		sorted.put("launch.noreferences", String.valueOf(parms.noreferences));
+		sorted.put("launch.system.packages", String.valueOf(parms.systemPackages));
+		sorted.put("launch.system.capabilities", String.valueOf(parms.systemCapabilities));
+		sorted.put("java.specification.version", System.getProperty("java.specification.version"));
+		for (Entry<String, String> entry : sorted.entrySet()) {
+			update(md, entry.getKey(), String.valueOf(entry.getValue()));
+		}
+		return Hex.toHexString(md.digest());
+	}
+
+	private static void update(MessageDigest md, String key, String value) {
+		md.update(key.getBytes(UTF_8));
+		md.update((byte) 0);
+		md.update(value.getBytes(UTF_8));
+		md.update((byte) 0);
+	}
+
 	private void startBundles(List<Bundle> tobestarted) throws Exception {
 		refresh();
 
@@ -678,10 +829,15 @@ public class Launcher implements ServiceListener, FrameworkListener {
 		all.addAll(wantsToBeStarted);
 		wantsToBeStarted.clear();
 
+		if (parms.parallel) {
+			startParallel(all);
+			return;
+		}
+
 		for (Bundle b : all) {
 			try {
 				trace("starting %s", b.getSymbolicName());
-				start(b);
+				startTimed(b);
 				trace("started  %s", b.getSymbolicName());
 			} catch (BundleException e) {
 				wantsToBeStarted.add(b);
@@ -691,6 +847,105 @@ public class Launcher implements ServiceListener, FrameworkListener {
 
 	}
 
+	/**
+	 * Start the bundles concurrently. The bundles are grouped by their start
+	 * level, a level is only started when all bundles of the lower levels have
+	 * been started. Within a level, the bundles are started in parallel.
+	 */
+	private void startParallel(List<Bundle> all) throws Exception {
+		Map<Integer, List<Bundle>> levels = new TreeMap<>();
+		for (Bundle b : all) {
+			levels.computeIfAbsent(getStartLevel(b), k -> new ArrayList<>())
+				.add(b);
+		}
+		for (Entry<Integer, List<Bundle>> level : levels.entrySet()) {
+			trace("starting %s bundles in parallel at start level %s", level.getValue()
+				.size(), level.getKey());
+			List<Callable<Boolean>> tasks = new ArrayList<>();
+			for (Bundle b : level.getValue()) {
+				tasks.add(() -> {
+					try {
+						startTimed(b);
+						trace("started  %s", b.getSymbolicName());
+						return true;
+					} catch (BundleException e) {
+						error("Failed to start bundle %s-%s, exception %s", b.getSymbolicName(), b.getVersion(), e);
+						return false;
+					}
+				});
+			}
+			List<Boolean> started = invokeAll(tasks);
+			for (int i = 0; i < started.size(); i++) {
+				if (!started.get(i)) {
+					wantsToBeStarted.add(level.getValue()
+						.get(i));
+				}
+			}
+		}
+	}
+
+	private int getStartLevel(Bundle b) {
+		try {
+			return startLevelhandler.getBundleStartLevel(b);
+		} catch (Exception e) {
+			return 1;
+		}
+	}
+
+	/**
+	 * Run the tasks concurrently, at most one per processor.
+	 *
+	 * @return the results in the order of the tasks
+	 */
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) throws Exception {
+		List<T> results = new ArrayList<>(tasks.size());
+		int threads = Math.min(tasks.size(), Runtime.getRuntime()
+			.availableProcessors());
+		if (threads <= 1) {
+			for (Callable<T> task : tasks) {
+				results.add(task.call());
+			}
+			return results;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "bnd launcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			for (Future<T> future : executor.invokeAll(tasks)) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof Exception exception)
+						throw exception;
+					if (cause instanceof Error error)
+						throw error;
+					throw e;
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void startTimed(Bundle b) throws BundleException {
+		long begin = System.nanoTime();
+		start(b);
+		timing(b, 1, System.nanoTime() - begin);
+	}
+
+	/**
+	 * Record the install (0) or start (1) time of a bundle.
+	 */
+	private void timing(Bundle b, int index, long nanos) {
+		timings.computeIfAbsent(b, k -> new long[2])[index] = nanos;
+		trace("%s %s in %s ms", index == 0 ? "installed" : "activated", b.getSymbolicName(),
+			TimeUnit.NANOSECONDS.toMillis(nanos));
+	}
+
 	void start(Bundle b) throws BundleException {
 		if (isFragment(b))
 			return;
@@ -769,10 +1024,9 @@ public class Launcher implements ServiceListener, FrameworkListener {
 
 		for (File f : tobeinstalled)
 			try {
-				int index = desired.get(f);
 				trace("installing %s", f);
 				if (f.exists()) {
-					Bundle b = install(f);
+					Bundle b = installTimed(f);
 					installedBundles.put(f, b);
 					tobestarted.add(b);
 				} else
@@ -880,7 +1134,10 @@ public class Launcher implements ServiceListener, FrameworkListener {
 	};
 
 	private String getDigest(String path) {
-		Manifest m = EmbeddedLauncher.MANIFEST;
+		return getDigest(EmbeddedLauncher.MANIFEST, path);
+	}
+
+	private static String getDigest(Manifest m, String path) {
 		if (m != null) {
 			for (String name : DIGESTS) {
 				Attributes attributes = m.getAttributes(path);
@@ -896,69 +1153,107 @@ public class Launcher implements ServiceListener, FrameworkListener {
 	}
 
 	/*
-	 * Install/Update the bundles from the current jar.
+	 * Install/Update the bundles from the current jar. The bundles are always
+	 * installed in the order of the run bundles so their bundle ids do not
+	 * depend on the timing. With the parallel option the embedded content is
+	 * read ahead concurrently.
 	 */
 	private void installEmbedded(List<Bundle> tobestarted) throws Exception {
 		trace("starting in embedded mode");
 		BundleContext context = systemBundle.getBundleContext();
+		List<byte[]> contents;
+		if (parms.parallel) {
+			List<Callable<byte[]>> reads = new ArrayList<>();
+			for (String path : parms.runbundles) {
+				reads.add(() -> readEmbedded(path));
+			}
+			contents = invokeAll(reads);
+		} else {
+			contents = Collections.nCopies(parms.runbundles.size(), null);
+		}
 		int n = 0;
-		for (Object o : parms.runbundles) {
+		for (String path : parms.runbundles) {
+			long begin = System.nanoTime();
+			Bundle bundle = installEmbedded(context, path, contents.get(n++));
+			timing(bundle, 0, System.nanoTime() - begin);
+			tobestarted.add(bundle);
+		}
+	}
 
-			String path = (String) o;
-			String digest = getDigest(path);
+	/*
+	 * Read the content of an embedded bundle that must be installed or updated
+	 * by copying, null if the framework does not need it.
+	 */
+	private byte[] readEmbedded(String path) throws Exception {
+		URL resource = getClass().getClassLoader()
+			.getResource(path);
+		if (connect || useReferences() && resource.getProtocol()
+			.equalsIgnoreCase("file")) {
+			return null;
+		}
+		Bundle bundle = getBundleByLocation(path);
+		if (bundle != null && !mustUpdate(getDigest(path), bundle)) {
+			return null;
+		}
+		try (InputStream in = resource.openStream()) {
+			return IO.read(in);
+		}
+	}
 
-			URL resource = getClass().getClassLoader()
-				.getResource(path);
-			Bundle bundle;
-			if (connect) {
-				if (parms.embedded && JRT_PROTOCOL.equals(resource.getProtocol())) {
-					path = resource.toString();
-				}
-				trace("installing %s by connect", path);
-				bundle = context.installBundle(path);
-				updateDigest(digest, bundle);
-				tobestarted.add(bundle);
-			} else if (useReferences() && resource.getProtocol()
-				.equalsIgnoreCase("file")) {
-				trace("installing %s by reference", path);
-
-				//
-				// Install by reference
-				//
-
-				File file = new File(resource.toURI());
-				bundle = context.installBundle(getReferenceUrl(file));
-				updateDigest(digest, bundle);
-				tobestarted.add(bundle);
+	/*
+	 * Install/Update a bundle from the current jar.
+	 */
+	private Bundle installEmbedded(BundleContext context, String path, byte[] content) throws Exception {
+		String digest = getDigest(path);
+
+		URL resource = getClass().getClassLoader()
+			.getResource(path);
+		Bundle bundle;
+		if (connect) {
+			if (parms.embedded && JRT_PROTOCOL.equals(resource.getProtocol())) {
+				path = resource.toString();
+			}
+			trace("installing %s by connect", path);
+			bundle = context.installBundle(path);
+			updateDigest(digest, bundle);
+		} else if (useReferences() && resource.getProtocol()
+			.equalsIgnoreCase("file")) {
+			trace("installing %s by reference", path);
 
-			} else {
+			//
+			// Install by reference
+			//
 
-				//
-				// Install by copying since the URL we got
-				// is not a file url.
-				//
+			File file = new File(resource.toURI());
+			bundle = context.installBundle(getReferenceUrl(file));
+			updateDigest(digest, bundle);
 
-				try (InputStream in = resource.openStream()) {
-					bundle = getBundleByLocation(path);
-					if (bundle == null) {
-						trace("installing %s", path);
-						bundle = context.installBundle(path, in);
+		} else {
+
+			//
+			// Install by copying since the URL we got
+			// is not a file url.
+			//
+
+			try (InputStream in = (content != null) ? IO.stream(content) : resource.openStream()) {
+				bundle = getBundleByLocation(path);
+				if (bundle == null) {
+					trace("installing %s", path);
+					bundle = context.installBundle(path, in);
+					updateDigest(digest, bundle);
+				} else {
+					if (mustUpdate(digest, bundle)) {
+						trace("updating %s, digest=%s", path, digest);
+						stop(bundle);
+						bundle.update(in);
 						updateDigest(digest, bundle);
 					} else {
-						if (mustUpdate(digest, bundle)) {
-							trace("updating %s, digest=%s", path, digest);
-							stop(bundle);
-							bundle.update(in);
-							updateDigest(digest, bundle);
-						} else {
-							trace("not updating %s because identical digest=%s", path, digest);
-						}
+						trace("not updating %s because identical digest=%s", path, digest);
 					}
-					tobestarted.add(bundle);
 				}
 			}
-			n++;
 		}
+		return bundle;
 	}
 
 	/*
@@ -1010,6 +1305,13 @@ public class Launcher implements ServiceListener, FrameworkListener {
 		}
 	}
 
+	private Bundle installTimed(File f) throws Exception {
+		long begin = System.nanoTime();
+		Bundle b = install(f);
+		timing(b, 0, System.nanoTime() - begin);
+		return b;
+	}
+
 	private Bundle install(File f) throws Exception {
 		BundleContext context = systemBundle.getBundleContext();
 		Bundle b = context.getBundle("atomos:boot:" + f.getPath());
@@ -1180,7 +1482,9 @@ public class Launcher implements ServiceListener, FrameworkListener {
 		Properties p = new Properties();
 		p.putAll(properties);
 		File workingdir = null;
-		if (parms.storageDir != null)
+		if (parms.prepared != null && parms.embedded)
+			workingdir = preparedStorage = parms.prepared;
+		else if (parms.storageDir != null)
 			workingdir = parms.storageDir;
 		else if (parms.keep && parms.name != null) {
 			workingdir = new File(bnd, parms.name);
@@ -1200,7 +1504,15 @@ public class Launcher implements ServiceListener, FrameworkListener {
 
 		trace("using working dir: %s with keeping=%s", workingdir, parms.keep);
 
-		if (!parms.keep && workingdir.exists()) {
+		if (preparedStorage != null) {
+			preparedSignature = getPreparedSignature();
+			preparedLocations = readPrepared(workingdir, preparedSignature);
+			if (preparedLocations == null && workingdir.exists()) {
+				trace("deleting prepared working dir %s", workingdir);
+				delete(workingdir);
+				p.setProperty(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+			}
+		} else if (!parms.keep && workingdir.exists()) {
 			trace("deleting working dir %s because not kept", workingdir);
 			delete(workingdir);
 			p.setProperty(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
@@ -1362,6 +1674,7 @@ public class Launcher implements ServiceListener, FrameworkListener {
 						}
 					}
 				}
+				reportTimings(out);
 				out.flush();
 			}
 		} catch (Throwable t) {
@@ -1369,6 +1682,28 @@ public class Launcher implements ServiceListener, FrameworkListener {
 		}
 	}
 
+	/**
+	 * Print the install and activation times of the bundles, the slowest
+	 * activators first.
+	 */
+	private void reportTimings(PrintStream out) {
+		List<Entry<Bundle, long[]>> entries;
+		synchronized (timings) {
+			entries = new ArrayList<>(timings.entrySet());
+		}
+		if (entries.isEmpty())
+			return;
+
+		entries.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+		out.print(String.format("%nTimings (ms)%n"));
+		out.print(String.format("%-8s %-8s %s%n", "Install", "Activate", "Bundle"));
+		for (Entry<Bundle, long[]> entry : entries) {
+			Bundle bundle = entry.getKey();
+			out.print(String.format("%-8s %-8s %s-%s%n", TimeUnit.NANOSECONDS.toMillis(entry.getValue()[0]),
+				TimeUnit.NANOSECONDS.toMillis(entry.getValue()[1]), bundle.getSymbolicName(), bundle.getVersion()));
+		}
+	}
+
 	private void row(PrintStream out, String label, Object value) {
 		// We use String.format instead of PrintStream.format to ensure
 		// the complete string is output without any interleaved text
@@ -46,13 +46,16 @@ public class LauncherConstants {
 	final static String				LAUNCH_NAME						= "launch.name";
 	final static String				LAUNCH_NOREFERENCES				= "launch.noreferences";
 	final static String				LAUNCH_NOTIFICATION_PORT		= "launch.notificationPort";
+	final static String				LAUNCH_PREPARED					= "launch.prepared";
+	final static String				LAUNCH_PREPARE_ONLY				= "launch.prepare.only";
 	public final static String		LAUNCH_FRAMEWORK_RESTART		= "launch.framework.restart";
 
 	public final static String[]	LAUNCHER_PROPERTY_KEYS			= {
 		LAUNCH_SERVICES, LAUNCH_STORAGE_DIR, LAUNCH_KEEP, LAUNCH_NOREFERENCES, LAUNCH_RUNBUNDLES, LAUNCH_SYSTEMPACKAGES,
 		LAUNCH_SYSTEMCAPABILITIES, LAUNCH_SYSTEMPACKAGES, Constants.LAUNCH_TRACE, LAUNCH_TIMEOUT,
 		Constants.LAUNCH_ACTIVATORS, LAUNCH_FRAMEWORK_RESTART, LAUNCH_EMBEDDED, LAUNCH_NAME, LAUNCH_NOREFERENCES,
-		LAUNCH_NOTIFICATION_PORT, Constants.LAUNCH_ACTIVATION_EAGER
+		LAUNCH_NOTIFICATION_PORT, Constants.LAUNCH_ACTIVATION_EAGER, Constants.LAUNCH_PARALLEL, LAUNCH_PREPARED,
+		LAUNCH_PREPARE_ONLY
 	};
 	/**
 	 * The command line arguments of the launcher. Launcher are not supposed to
@@ -76,6 +79,17 @@ public class LauncherConstants {
 	public String					name;
 	public int						notificationPort				= -1;
 	public boolean					activationEager					= false;
+	public boolean					parallel						= false;
+	/**
+	 * The framework storage of a prepared launch. An embedded launch installs
+	 * the bundles once into this storage and reuses it while the embedded
+	 * bundles do not change.
+	 */
+	public File						prepared;
+	/**
+	 * Only install the bundles into the prepared storage and exit.
+	 */
+	public boolean					prepareOnly						= false;
 	public boolean					frameworkRestart				= false;
 
 	/**
@@ -105,6 +119,10 @@ public class LauncherConstants {
 
 		p.setProperty(LAUNCH_NOTIFICATION_PORT, String.valueOf(notificationPort));
 		p.setProperty(Constants.LAUNCH_ACTIVATION_EAGER, String.valueOf(activationEager));
+		p.setProperty(Constants.LAUNCH_PARALLEL, String.valueOf(parallel));
+		if (prepared != null)
+			p.setProperty(LAUNCH_PREPARED, prepared.getPath());
+		p.setProperty(LAUNCH_PREPARE_ONLY, String.valueOf(prepareOnly));
 
 		for (Map.Entry<String, String> entry : runProperties.entrySet()) {
 			if (entry.getValue() == null) {
@@ -147,6 +165,10 @@ public class LauncherConstants {
 		name = p.getProperty(LAUNCH_NAME);
 		notificationPort = Integer.parseInt(p.getProperty(LAUNCH_NOTIFICATION_PORT, "-1"));
 		activationEager = Boolean.parseBoolean(p.getProperty(Constants.LAUNCH_ACTIVATION_EAGER));
+		parallel = Boolean.parseBoolean(p.getProperty(Constants.LAUNCH_PARALLEL));
+		if (p.getProperty(LAUNCH_PREPARED) != null)
+			prepared = new File(p.getProperty(LAUNCH_PREPARED));
+		prepareOnly = Boolean.parseBoolean(p.getProperty(LAUNCH_PREPARE_ONLY));
 		frameworkRestart = Boolean.parseBoolean(p.getProperty(LAUNCH_FRAMEWORK_RESTART));
 		@SuppressWarnings({
 			"unchecked", "rawtypes"
@@ -240,6 +240,8 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 		lc.name = getProject().getName();
 		lc.activationEager = launcherInstrs.runoptions()
 			.contains(RunOption.eager);
+		lc.parallel = launcherInstrs.runoptions()
+			.contains(RunOption.parallel);
 		lc.frameworkRestart = isRunFrameworkRestart();
 
 		if (!exported && !getNotificationListeners().isEmpty()) {
@@ -321,9 +323,14 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 			// Use properties from the project
 			copyProperties(project::getProperty, builder::setProperty,
 				// jar properties
-				Constants.COMPRESSION, Constants.REPRODUCIBLE, Constants.DIGESTS,
+				Constants.COMPRESSION, Constants.REPRODUCIBLE, Constants.DIGESTS, Constants.PARALLELWRITE,
 				// jpms properties
 				Constants.JPMS_MODULE_INFO, Constants.JPMS_MODULE_INFO_OPTIONS, Constants.AUTOMATIC_MODULE_NAME);
+			if (instrs.prepared() != null && builder.getProperty(Constants.DIGESTS) == null) {
+				// a prepared launch compares the digests of the embedded
+				// bundles
+				builder.setProperty(Constants.DIGESTS, "SHA-256");
+			}
 			copyProperties(project::mergeProperties, builder::setProperty,
 				// include resource properties
 				Constants.INCLUDERESOURCE, Constants.INCLUDE_RESOURCE);
@@ -379,6 +386,8 @@ public class ProjectLauncherImpl extends ProjectLauncher {
 
 			LauncherConstants lc = getConstants(actualPaths, true);
 			lc.embedded = true;
+			if (instrs.prepared() != null)
+				lc.prepared = new File(instrs.prepared());
 
 			jar.putResource(LauncherConstants.DEFAULT_LAUNCHER_PROPERTIES,
 				new PropertiesResource(lc.getProperties(new UTF8Properties())));
@@ -0,0 +1,73 @@
+package aQute.launcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import org.junit.jupiter.api.Test;
+
+import aQute.launcher.constants.LauncherConstants;
+import aQute.launcher.pre.EmbeddedLauncher;
+
+public class PreparedSignatureTest {
+
+	@Test
+	public void testSignature() throws Exception {
+		Properties properties = properties();
+		String signature = signature(manifest("felix-1"), properties);
+		assertThat(signature).isNotNull()
+			.isEqualTo(signature(manifest("felix-1"), properties()));
+
+		// another framework invalidates the prepared storage
+		assertThat(signature(manifest("felix-2"), properties)).isNotEqualTo(signature);
+
+		// so do the framework properties
+		properties.setProperty("org.osgi.framework.bootdelegation", "sun.*");
+		assertThat(signature(manifest("felix-1"), properties)).isNotEqualTo(signature);
+
+		// but not the launcher options that do not change the storage
+		properties = properties();
+		properties.setProperty("launch.trace", "true");
+		properties.setProperty("launch.prepare.only", "true");
+		assertThat(signature(manifest("felix-1"), properties)).isEqualTo(signature);
+
+		// a run path entry without a digest cannot be prepared
+		Manifest manifest = manifest("felix-1");
+		manifest.getEntries()
+			.remove("jar/felix.jar");
+		assertThat(signature(manifest, properties())).isNull();
+	}
+
+	private static String signature(Manifest manifest, Properties properties) throws Exception {
+		return Launcher.getPreparedSignature(manifest, new LauncherConstants(properties), properties);
+	}
+
+	private static Properties properties() {
+		LauncherConstants parms = new LauncherConstants();
+		parms.runbundles.addAll(Arrays.asList("jar/a.jar", "jar/b.jar"));
+		Properties properties = parms.getProperties(new Properties());
+		properties.setProperty("test.cmd", "exit");
+		return properties;
+	}
+
+	private static Manifest manifest(String framework) {
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes()
+			.putValue(EmbeddedLauncher.EMBEDDED_RUNPATH, "jar/felix.jar,jar/biz.aQute.launcher.jar");
+		digest(manifest, "jar/felix.jar", framework);
+		digest(manifest, "jar/biz.aQute.launcher.jar", "launcher");
+		digest(manifest, "jar/a.jar", "a");
+		digest(manifest, "jar/b.jar", "b");
+		return manifest;
+	}
+
+	private static void digest(Manifest manifest, String path, String digest) {
+		Attributes attributes = new Attributes();
+		attributes.putValue("SHA-256-Digest", digest);
+		manifest.getEntries()
+			.put(path, attributes);
+	}
+}
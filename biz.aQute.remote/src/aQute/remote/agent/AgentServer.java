@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Attributes;
 import java.util.jar.JarInputStream;
@@ -53,6 +54,8 @@ import org.osgi.resource.dto.RequirementDTO;
 import aQute.lib.converter.Converter;
 import aQute.lib.converter.TypeReference;
 import aQute.lib.io.ByteBufferInputStream;
+import aQute.lib.io.IO;
+import aQute.lib.regex.PatternConstants;
 import aQute.lib.startlevel.StartLevelRuntimeHandler;
 import aQute.libg.shacache.ShaCache;
 import aQute.libg.shacache.ShaSource;
@@ -61,6 +64,7 @@ import aQute.remote.api.Agent;
 import aQute.remote.api.Event;
 import aQute.remote.api.Event.Type;
 import aQute.remote.api.Supervisor;
+import aQute.remote.util.Delta;
 import aQute.remote.util.Link;
 
 /**
@@ -79,6 +83,14 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 
 	private static final long[]								EMPTY				= new long[0];
 
+	private static final Pattern							SHA_P				= Pattern.compile(PatternConstants.SHA1);
+
+	//
+	// Seconds to wait for a delta, an older supervisor does not answer
+	//
+
+	private static final long								DELTA_TIMEOUT		= 30L;
+
 	//
 	// Known keys in the framework properties since we cannot
 	// iterate over framework properties
@@ -101,6 +113,8 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 	private final ShaCache									cache;
 	private ShaSource										source;
 	private final Map<String, String>						installed			= new HashMap<>();
+	private volatile boolean								deltas				= true;
+	private Supervisor										deltaRemote;
 	volatile boolean										quit;
 	private Redirector										redirector			= new NullRedirector();
 	private Link<Agent, Supervisor>							link;
@@ -173,7 +187,7 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 
 	@Override
 	public BundleDTO install(String location, String sha) throws Exception {
-		InputStream in = cache.getStream(sha, source);
+		InputStream in = getStream(location, sha);
 		if (in == null)
 			return null;
 
@@ -306,7 +320,7 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 			String sha = bundles.get(location);
 
 			try {
-				InputStream in = cache.getStream(sha, source);
+				InputStream in = getStream(location, sha);
 				if (in == null) {
 					out.format("Could not find file with sha %s for bundle %s", sha, location);
 					continue;
@@ -327,7 +341,7 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 			String sha = e.getValue();
 
 			try {
-				InputStream in = cache.getStream(sha, source);
+				InputStream in = getStream(location, sha);
 				if (in == null) {
 					out.format("Cannot find file for sha %s to update %s", sha, location);
 					continue;
@@ -343,6 +357,7 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 					context.installBundle(location, in);
 				else
 					bundle.update(in);
+				installed.put(location, sha);
 
 			} catch (Exception e1) {
 				printStack(e1);
@@ -371,15 +386,18 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 
 	@Override
 	public String update(long id, String sha) throws Exception {
-		InputStream in = cache.getStream(sha, source);
+		Bundle bundle = context.getBundle(id);
+		String location = bundle == null ? null : bundle.getLocation();
+		InputStream in = getStream(location, sha);
 		if (in == null)
 			return null;
 
 		StringBuilder sb = new StringBuilder();
 
 		try {
-			Bundle bundle = context.getBundle(id);
 			bundle.update(in);
+			if (installed.containsKey(location))
+				installed.put(location, sha);
 			refresh(true);
 		} catch (Exception e) {
 			sb.append(e.getMessage())
@@ -595,6 +613,52 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 		}
 	}
 
+	/*
+	 * Get the stream for a SHA. If we have the previously installed version of
+	 * the location in the cache, we first ask the supervisor for a delta
+	 * against it. The cache verifies the SHA of the rebuilt file and falls back
+	 * to the full file.
+	 */
+	private InputStream getStream(String location, String sha) throws Exception {
+		String base = location == null ? null : installed.get(location);
+		if (!deltas || deltaRemote == null || base == null || base.equals(sha) || !SHA_P.matcher(base)
+			.matches())
+			return cache.getStream(sha, source);
+
+		ShaSource deltaSource = new ShaSource() {
+
+			@Override
+			public boolean isFast() {
+				return false;
+			}
+
+			@Override
+			public InputStream get(String sha) throws Exception {
+				File file = cache.getFile(base);
+				if (file == null)
+					return null;
+
+				byte[] data = IO.read(file);
+				byte[] delta;
+				try {
+					delta = deltaRemote.getDelta(sha, Delta.signature(data));
+				} catch (Exception e) {
+					// older supervisors do not know deltas
+					deltas = false;
+					throw e;
+				}
+				if (delta == null) {
+					// no delta support or the call timed out
+					deltas = false;
+					return null;
+				}
+
+				return new ByteArrayInputStream(Delta.apply(data, delta));
+			}
+		};
+		return cache.getStream(sha, deltaSource, source);
+	}
+
 	private void printStack(Exception e1) {
 		try {
 			e1.printStackTrace();
@@ -605,6 +669,7 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 
 	public void setRemote(Supervisor supervisor) {
 		this.remote = supervisor;
+		this.deltaRemote = supervisor;
 		this.source = new ShaSource() {
 
 			@Override
@@ -646,6 +711,8 @@ public class AgentServer implements Agent, Closeable, FrameworkListener {
 
 	public void setLink(Link<Agent, Supervisor> link) {
 		setRemote(link.getRemote());
+		// an older supervisor never answers an unknown method
+		this.deltaRemote = link.getRemote(DELTA_TIMEOUT, TimeUnit.SECONDS);
 		this.link = link;
 	}
 
@@ -41,4 +41,20 @@ public interface Supervisor {
 	 * @return the contents of that file or null if no such file exists.
 	 */
 	byte[] getFile(String sha) throws Exception;
+
+	/**
+	 * Return a delta to rebuild the file that has the given SHA-1 from a file
+	 * that the agent already has in its local cache, in general the previously
+	 * installed version of the same bundle. The agent calculates the signature
+	 * of its file with {@code aQute.remote.util.Delta}. The agent must verify
+	 * the SHA-1 of the rebuilt file and use {@link #getFile(String)} when this
+	 * fails.
+	 *
+	 * @param sha the SHA-1 of the requested file
+	 * @param signature the signature of the file the agent has
+	 * @return the delta or null if no delta can be calculated
+	 */
+	default byte[] getDelta(String sha, byte[] signature) throws Exception {
+		return null;
+	}
 }
@@ -93,6 +93,14 @@ public class AgentSupervisor<Supervisor, Agent> {
 		return EMPTY;
 	}
 
+	public byte[] getDelta(String sha, byte[] signature) throws Exception {
+		byte[] data = getFile(sha);
+		if (data.length == 0)
+			return null;
+
+		return Delta.delta(signature, data);
+	}
+
 	public void setAgent(Link<Supervisor, Agent> link) {
 		this.agent = link.getRemote();
 		this.link = link;
@@ -0,0 +1,234 @@
+package aQute.remote.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A block level delta between two files, in the style of rsync. The side that
+ * has an old version of a file calculates a {@link #signature(byte[])} of it.
+ * The side that has the new version uses this signature to calculate a
+ * {@link #delta(byte[], byte[])} that only contains the bytes that are not in
+ * a block of the old version. The old side then rebuilds the new version with
+ * {@link #apply(byte[], byte[])}.
+ * <p>
+ * Entries of a JAR are compressed independently so a small change in a bundle
+ * only changes the blocks of the changed entries and the central directory.
+ * <p>
+ * The strong checksum of a block is a truncated SHA-1. The caller must verify
+ * the digest of the rebuilt file.
+ */
+public class Delta {
+	private final static int	MIN_BLOCK	= 512;
+	private final static int	MAX_BLOCK	= 16 * 1024;
+	private final static int	STRONG		= 8;
+	private final static byte	END			= 0;
+	private final static byte	COPY		= 1;
+	private final static byte	DATA		= 2;
+
+	/**
+	 * Calculate the signature of a file.
+	 *
+	 * @param base the contents of the old version
+	 * @return the signature
+	 */
+	public static byte[] signature(byte[] base) throws Exception {
+		int blockSize = Math.max(MIN_BLOCK, Math.min(MAX_BLOCK, (int) Math.sqrt(base.length)));
+		int blocks = base.length / blockSize;
+		MessageDigest md = MessageDigest.getInstance("SHA-1");
+		ByteArrayOutputStream bout = new ByteArrayOutputStream(8 + blocks * (4 + STRONG));
+		DataOutputStream out = new DataOutputStream(bout);
+		out.writeInt(blockSize);
+		out.writeInt(blocks);
+		for (int i = 0; i < blocks; i++) {
+			int offset = i * blockSize;
+			out.writeInt(weak(base, offset, blockSize));
+			out.write(strong(md, base, offset, blockSize));
+		}
+		out.flush();
+		return bout.toByteArray();
+	}
+
+	/**
+	 * Calculate the delta that turns the file the signature was calculated
+	 * from into the target.
+	 *
+	 * @param signature the signature of the old version
+	 * @param target the contents of the new version
+	 * @return the delta
+	 */
+	public static byte[] delta(byte[] signature, byte[] target) throws Exception {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(signature));
+		int blockSize = in.readInt();
+		int blocks = in.readInt();
+		if (blockSize <= 0 || blocks < 0)
+			throw new IOException("Invalid signature");
+
+		Map<Integer, List<Integer>> weaks = new HashMap<>();
+		byte[][] strongs = new byte[blocks][];
+		for (int i = 0; i < blocks; i++) {
+			int weak = in.readInt();
+			strongs[i] = new byte[STRONG];
+			in.readFully(strongs[i]);
+			weaks.computeIfAbsent(weak, k -> new ArrayList<>(1))
+				.add(i);
+		}
+
+		MessageDigest md = MessageDigest.getInstance("SHA-1");
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bout);
+		out.writeInt(blockSize);
+		int literal = 0;
+		int copyStart = -1;
+		int copyCount = 0;
+		int n = target.length;
+		int i = 0;
+		int a = 0;
+		int b = 0;
+		boolean rolling = false;
+
+		while (!weaks.isEmpty() && i + blockSize <= n) {
+			if (!rolling) {
+				a = 0;
+				b = 0;
+				for (int j = 0; j < blockSize; j++) {
+					int x = target[i + j] & 0xFF;
+					a += x;
+					b += (blockSize - j) * x;
+				}
+				rolling = true;
+			}
+			int block = match(weaks, strongs, md, (b & 0xFFFF) << 16 | (a & 0xFFFF), target, i, blockSize);
+			if (block >= 0) {
+				if (literal < i) {
+					copy(out, copyStart, copyCount);
+					copyCount = 0;
+					data(out, target, literal, i - literal);
+				}
+				if (copyCount > 0 && copyStart + copyCount == block) {
+					copyCount++;
+				} else {
+					copy(out, copyStart, copyCount);
+					copyStart = block;
+					copyCount = 1;
+				}
+				i += blockSize;
+				literal = i;
+				rolling = false;
+				continue;
+			}
+			if (i + blockSize < n) {
+				int first = target[i] & 0xFF;
+				int next = target[i + blockSize] & 0xFF;
+				a += next - first;
+				b += a - blockSize * first;
+			}
+			i++;
+		}
+
+		copy(out, copyStart, copyCount);
+		if (literal < n)
+			data(out, target, literal, n - literal);
+		out.writeByte(END);
+		out.flush();
+		return bout.toByteArray();
+	}
+
+	/**
+	 * Rebuild the new version from the old version and a delta.
+	 *
+	 * @param base the contents of the old version
+	 * @param delta the delta calculated against the signature of the old
+	 *            version
+	 * @return the contents of the new version
+	 */
+	public static byte[] apply(byte[] base, byte[] delta) throws Exception {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta));
+		int blockSize = in.readInt();
+		if (blockSize <= 0)
+			throw new IOException("Invalid delta");
+		ByteArrayOutputStream out = new ByteArrayOutputStream(base.length);
+		while (true) {
+			byte op = in.readByte();
+			switch (op) {
+				case END :
+					return out.toByteArray();
+
+				case COPY : {
+					int block = in.readInt();
+					int count = in.readInt();
+					long offset = (long) block * blockSize;
+					long length = (long) count * blockSize;
+					if (block < 0 || count < 0 || offset + length > base.length)
+						throw new IOException("Invalid delta, block out of range " + block);
+					out.write(base, (int) offset, (int) length);
+					break;
+				}
+
+				case DATA : {
+					int length = in.readInt();
+					byte[] data = new byte[length];
+					in.readFully(data);
+					out.write(data);
+					break;
+				}
+
+				default :
+					throw new IOException("Invalid delta, unknown operation " + op);
+			}
+		}
+	}
+
+	private static int match(Map<Integer, List<Integer>> weaks, byte[][] strongs, MessageDigest md, int weak,
+		byte[] target, int offset, int blockSize) {
+		List<Integer> candidates = weaks.get(weak);
+		if (candidates == null)
+			return -1;
+
+		byte[] strong = strong(md, target, offset, blockSize);
+		for (int block : candidates) {
+			if (Arrays.equals(strongs[block], strong))
+				return block;
+		}
+		return -1;
+	}
+
+	private static void copy(DataOutputStream out, int block, int count) throws IOException {
+		if (count > 0) {
+			out.writeByte(COPY);
+			out.writeInt(block);
+			out.writeInt(count);
+		}
+	}
+
+	private static void data(DataOutputStream out, byte[] data, int offset, int length) throws IOException {
+		out.writeByte(DATA);
+		out.writeInt(length);
+		out.write(data, offset, length);
+	}
+
+	private static int weak(byte[] data, int offset, int length) {
+		int a = 0;
+		int b = 0;
+		for (int j = 0; j < length; j++) {
+			int x = data[offset + j] & 0xFF;
+			a += x;
+			b += (length - j) * x;
+		}
+		return (b & 0xFFFF) << 16 | (a & 0xFFFF);
+	}
+
+	private static byte[] strong(MessageDigest md, byte[] data, int offset, int length) {
+		md.reset();
+		md.update(data, offset, length);
+		return Arrays.copyOf(md.digest(), STRONG);
+	}
+}
@@ -36,6 +36,7 @@ import aQute.lib.json.JSONCodec;
  */
 public class Link<L, R> extends Thread implements Closeable {
 	private static final String[]			EMPTY		= new String[] {};
+	private static final long				TIMEOUT		= 300000L;
 	static JSONCodec						codec		= new JSONCodec();
 
 	final DataInputStream					in;
@@ -109,44 +110,63 @@ public class Link<L, R> extends Thread implements Closeable {
 		executor.shutdownNow();
 	}
 
-	@SuppressWarnings("unchecked")
 	public synchronized R getRemote() {
 		if (quit.get())
 			return null;
 
 		if (remote == null)
-			remote = (R) Proxy.newProxyInstance(remoteClass.getClassLoader(), new Class<?>[] {
-				remoteClass
-			}, (target, method, args) -> {
-				Object hash = new Object();
+			remote = proxy(TIMEOUT);
+		return remote;
+	}
 
-				try {
-					if (method.getDeclaringClass() == Object.class)
-						return method.invoke(hash, args);
+	/**
+	 * Answer a proxy to the remote whose calls wait at most the given time for
+	 * their result. A call that times out returns null. This is useful for
+	 * methods that an older remote may not implement, it then never answers.
+	 *
+	 * @param timeout the maximum time to wait for a result
+	 * @param unit the unit of the timeout
+	 */
+	public R getRemote(long timeout, TimeUnit unit) {
+		if (quit.get())
+			return null;
 
-					int msgId;
-					try {
-						msgId = send(id.getAndIncrement(), method, args);
-						if (method.getReturnType() == void.class) {
-							promises.remove(msgId);
-							return null;
-						}
-					} catch (Exception e1) {
-						terminate(e1);
+		return proxy(unit.toMillis(timeout));
+	}
+
+	@SuppressWarnings("unchecked")
+	private R proxy(long timeout) {
+		return (R) Proxy.newProxyInstance(remoteClass.getClassLoader(), new Class<?>[] {
+			remoteClass
+		}, (target, method, args) -> {
+			Object hash = new Object();
+
+			try {
+				if (method.getDeclaringClass() == Object.class)
+					return method.invoke(hash, args);
+
+				int msgId;
+				try {
+					msgId = send(id.getAndIncrement(), method, args);
+					if (method.getReturnType() == void.class) {
+						promises.remove(msgId);
 						return null;
 					}
-
-					return waitForResult(msgId, method.getGenericReturnType());
-				} catch (InvocationTargetException e2) {
-					throw Exceptions.unrollCause(e2, InvocationTargetException.class);
-				} catch (InterruptedException e3) {
-					interrupt();
-					throw e3;
-				} catch (Exception e4) {
-					throw e4;
+				} catch (Exception e1) {
+					terminate(e1);
+					return null;
 				}
-			});
-		return remote;
+
+				return waitForResult(msgId, method.getGenericReturnType(), timeout);
+			} catch (InvocationTargetException e2) {
+				throw Exceptions.unrollCause(e2, InvocationTargetException.class);
+			} catch (InterruptedException e3) {
+				interrupt();
+				throw e3;
+			} catch (Exception e4) {
+				throw e4;
+			}
+		});
 	}
 
 	@Override
@@ -262,8 +282,7 @@ public class Link<L, R> extends Thread implements Closeable {
 	}
 
 	@SuppressWarnings("unchecked")
-	<T> T waitForResult(int id, Type type) throws Exception {
-		final long deadline = 300000L;
+	<T> T waitForResult(int id, Type type, long deadline) throws Exception {
 		final long startNanos = System.nanoTime();
 		Result result = promises.get(id);
 
@@ -325,6 +344,14 @@ public class Link<L, R> extends Thread implements Closeable {
 
 			Method m = getMethod(cmd, args.size());
 			if (m == null) {
+				// let the caller fail instead of waiting for a result
+				try {
+					send(-id, null, new Object[] {
+						"No such method " + cmd
+					});
+				} catch (Exception e) {
+					terminate(e);
+				}
 				return;
 			}
 
@@ -0,0 +1,57 @@
+package aQute.remote.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class DeltaTest {
+
+	@Test
+	public void testIdentical() throws Exception {
+		byte[] base = random(1, 100_000);
+		byte[] delta = Delta.delta(Delta.signature(base), base);
+
+		assertThat(Delta.apply(base, delta)).isEqualTo(base);
+		assertThat(delta.length).isLessThan(base.length / 100);
+	}
+
+	@Test
+	public void testInsertAndChange() throws Exception {
+		byte[] base = random(2, 100_000);
+		byte[] target = new byte[base.length + 10];
+		System.arraycopy(base, 0, target, 0, 40_000);
+		System.arraycopy(random(3, 10), 0, target, 40_000, 10);
+		System.arraycopy(base, 40_000, target, 40_010, base.length - 40_000);
+		target[90_000] ^= 0xFF;
+
+		byte[] delta = Delta.delta(Delta.signature(base), target);
+
+		assertThat(Delta.apply(base, delta)).isEqualTo(target);
+		assertThat(delta.length).isLessThan(base.length / 50);
+	}
+
+	@Test
+	public void testUnrelated() throws Exception {
+		byte[] base = random(4, 10_000);
+		byte[] target = random(5, 12_345);
+
+		assertThat(Delta.apply(base, Delta.delta(Delta.signature(base), target))).isEqualTo(target);
+	}
+
+	@Test
+	public void testSmallAndEmpty() throws Exception {
+		byte[] small = random(6, 100);
+		byte[] empty = new byte[0];
+
+		assertThat(Delta.apply(small, Delta.delta(Delta.signature(small), empty))).isEqualTo(empty);
+		assertThat(Delta.apply(empty, Delta.delta(Delta.signature(empty), small))).isEqualTo(small);
+	}
+
+	private static byte[] random(long seed, int length) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}
@@ -176,6 +176,68 @@ public class AgentTest {
 		assertEquals("3.0.0", bundle.version);
 	}
 
+	@Test
+	public void testAgentUpdateBundleWithDelta() throws Exception {
+		String location = t4.getAbsolutePath();
+		BundleDTO bundle = supervisor.getAgent()
+			.install(location, supervisor.addFile(t4));
+		assertThat(bundle.version).isEqualTo("4.0.0");
+		assertThat(supervisor.deltas).isZero();
+
+		Map<String, String> update = new HashMap<>();
+		update.put(location, supervisor.addFile(t41));
+		assertThat(supervisor.getAgent()
+			.update(update)).isNull();
+
+		assertThat(supervisor.deltas).isEqualTo(1);
+		assertThat(framework.getBundleContext()
+			.getBundle(location)
+			.getVersion()
+			.toString()).isEqualTo("4.1.0");
+	}
+
+	@Test
+	public void testAgentUpdateBundleWithoutDelta() throws Exception {
+		String location = t4.getAbsolutePath();
+		supervisor.getAgent()
+			.install(location, supervisor.addFile(t4));
+		supervisor.noDeltas = true;
+
+		Map<String, String> update = new HashMap<>();
+		update.put(location, supervisor.addFile(t41));
+		assertThat(supervisor.getAgent()
+			.update(update)).isNull();
+		assertThat(supervisor.deltas).isEqualTo(1);
+
+		update.put(location, supervisor.addFile(create("bsn-4", new Version(4, 2, 0))));
+		assertThat(supervisor.getAgent()
+			.update(update)).isNull();
+		assertThat(supervisor.deltas).isEqualTo(1);
+		assertThat(framework.getBundleContext()
+			.getBundle(location)
+			.getVersion()
+			.toString()).isEqualTo("4.2.0");
+	}
+
+	@Test
+	public void testAgentUpdateBundleInstalledFromURL() throws Exception {
+		String location = t4.getAbsolutePath();
+		supervisor.getAgent()
+			.installFromURL(location, t4.toURI()
+				.toURL()
+				.toExternalForm());
+
+		Map<String, String> update = new HashMap<>();
+		update.put(location, supervisor.addFile(t41));
+		assertThat(supervisor.getAgent()
+			.update(update)).isNull();
+		assertThat(supervisor.deltas).isZero();
+		assertThat(framework.getBundleContext()
+			.getBundle(location)
+			.getVersion()
+			.toString()).isEqualTo("4.1.0");
+	}
+
 	@Test
 	public void testAgentInstallBundleWithData() throws Exception {
 		BundleDTO bundle = supervisor.getAgent()
@@ -413,7 +475,18 @@ public class AgentTest {
 		return file;
 	}
 
-	static class TestSupervisor extends AgentSupervisor<Supervisor, Agent> implements Supervisor {
+	public static class TestSupervisor extends AgentSupervisor<Supervisor, Agent> implements Supervisor {
+		int		deltas;
+		boolean	noDeltas;
+
+		@Override
+		public byte[] getDelta(String sha, byte[] signature) throws Exception {
+			deltas++;
+			if (noDeltas)
+				return null;
+			return super.getDelta(sha, signature);
+		}
+
 		@Override
 		public boolean stdout(String out) throws Exception {
 			return true;
@@ -12,6 +12,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -54,9 +55,11 @@ import aQute.bnd.osgi.resource.ResourceUtils.BundleCap;
 import aQute.bnd.stream.MapStream;
 import aQute.bnd.version.MavenVersion;
 import aQute.bnd.version.Version;
+import aQute.lib.hex.Hex;
 import aQute.lib.io.IO;
 import aQute.lib.strings.Strings;
 import aQute.lib.zip.ZipUtil;
+import aQute.libg.cryptography.SHA256;
 import aQute.maven.api.Archive;
 import aQute.maven.api.IMavenRepo;
 import aQute.maven.api.Program;
@@ -86,6 +89,7 @@ class IndexFile {
 	final Map<Archive, Resource>				archives	= new ConcurrentHashMap<>();
 	final Set<String>							multi;
 	final String								source;
+	private final IndexSnapshot					snapshot;
 
 	private volatile long						lastModified;
 	private long								last		= 0L;
@@ -99,6 +103,15 @@ class IndexFile {
 	 */
 	IndexFile(Processor domain, Reporter reporter, File file, String source, IMavenRepo repo,
 		PromiseFactory promiseFactory, Set<String> multi) throws Exception {
+		this(domain, reporter, file, source, repo, promiseFactory, multi, null);
+	}
+
+	/*
+	 * Constructor with a snapshot file for the parsed resources, null to not
+	 * use a snapshot
+	 */
+	IndexFile(Processor domain, Reporter reporter, File file, String source, IMavenRepo repo,
+		PromiseFactory promiseFactory, Set<String> multi, File snapshotFile) throws Exception {
 		this.source = source;
 		this.domain = (domain != null) ? domain : new Processor();
 		this.replacer = this.domain.getReplacer();
@@ -110,6 +123,9 @@ class IndexFile {
 		this.isPom = looksLikePomXml(indexFile);
 		this.updateSerializer = promiseFactory.resolved(Boolean.TRUE);
 		this.bridge = Memoize.supplier(BridgeRepository::new);
+		this.snapshot = (snapshotFile != null)
+			? new IndexSnapshot(snapshotFile, repo.getName() + ";" + new TreeSet<>(multi))
+			: null;
 	}
 
 	/*
@@ -267,14 +283,14 @@ class IndexFile {
 					if (!archive.isSnapshot()) {
 						File localFile = repo.toLocalFile(archive);
 						if (localFile.isFile() && localFile.length() > 0) {
-							return promiseFactory.submit(() -> parseSingleOrMultiFile(archive, localFile))
+							return promiseFactory.submit(() -> parse(archive, localFile))
 								.recover(p -> failed(archive, p.getFailure()));
 						}
 					}
 					try {
 						return repo.get(archive)
 							.map(file -> (file == null) ? failed(archive, "Not found")
-								: parseSingleOrMultiFile(archive, file))
+								: parse(archive, file))
 							.recover(p -> failed(archive, p.getFailure()));
 					} catch (Exception e) {
 						return promiseFactory.resolved(failed(archive, e));
@@ -289,10 +305,47 @@ class IndexFile {
 				// snapshot archive resources
 				ResourcesRepository resourcesRepository = new ResourcesRepository(archives.values());
 				bridge = Memoize.supplier(() -> new BridgeRepository(resourcesRepository));
+				saveSnapshot();
 				return Boolean.TRUE;
 			});
 	}
 
+	/*
+	 * Parse an archive unless the snapshot has the resources for its local
+	 * file. A successful parse is recorded in the snapshot.
+	 */
+	private Map<Archive, Resource> parse(Archive archive, File file) {
+		if (snapshot == null) {
+			return parseSingleOrMultiFile(archive, file);
+		}
+		Map<Archive, Resource> result = snapshot.get(archive, file);
+		if (result == null) {
+			result = parseSingleOrMultiFile(archive, file);
+			snapshot.put(archive, file, result);
+		}
+		return result;
+	}
+
+	private void saveSnapshot() {
+		if (snapshot == null) {
+			return;
+		}
+		String digest;
+		try {
+			MessageDigest md = MessageDigest.getInstance(SHA256.ALGORITHM);
+			if (indexFile.isFile()) {
+				md.update(IO.read(indexFile));
+			}
+			if (source != null) {
+				md.update(source.getBytes(StandardCharsets.UTF_8));
+			}
+			digest = Hex.toHexString(md.digest());
+		} catch (Exception e) {
+			digest = null;
+		}
+		snapshot.save(archives.keySet(), digest);
+	}
+
 	private Map<Archive, Resource> failed(Archive archive, Throwable t) {
 		Throwable failure = Exceptions.unrollCause(t, InvocationTargetException.class);
 		String message = getMessage(failure);
@@ -405,6 +458,10 @@ class IndexFile {
 				try {
 					Map<Archive, Resource> result = parseSingleOrMultiFile(archive, file);
 					archives.putAll(result);
+					if (snapshot != null) {
+						snapshot.put(archive, file, result);
+						saveSnapshot();
+					}
 					return Boolean.TRUE;
 				} catch (Exception e) {
 					Map<Archive, Resource> failed = failed(archive, e);
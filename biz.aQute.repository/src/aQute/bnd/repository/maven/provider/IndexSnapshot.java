@@ -0,0 +1,203 @@
+package aQute.bnd.repository.maven.provider;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.osgi.resource.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.bnd.osgi.resource.PersistentResource;
+import aQute.bnd.osgi.resource.ResourceUtils;
+import aQute.bnd.util.dto.DTO;
+import aQute.lib.io.IO;
+import aQute.lib.json.JSONCodec;
+import aQute.maven.api.Archive;
+
+/**
+ * A snapshot of the resources parsed for the archives of an {@link IndexFile}.
+ * It is stored as compressed JSON of {@link PersistentResource}s so that opening
+ * the index only parses the archives whose local file has changed.
+ * <p>
+ * The resources of an archive are reused when the size and last modified time
+ * of its local file match the snapshot. The snapshot records the digest of the
+ * index it was written for, it is only written again when the index or the
+ * parsed archives changed. A snapshot written for another repository name or
+ * other multi extensions is ignored.
+ */
+class IndexSnapshot {
+	private final static Logger			logger	= LoggerFactory.getLogger(IndexSnapshot.class);
+	private final static JSONCodec		codec	= new JSONCodec();
+	private final static int			VERSION	= 1;
+
+	final File							file;
+	private final String				configuration;
+	private final Map<String, Entry>	current	= new ConcurrentHashMap<>();
+	private Map<String, Entry>			previous;
+	private String						digest;
+	private volatile boolean			dirty;
+
+	public static class Data extends DTO {
+		public int			version;
+		public String		configuration;
+		public String		digest;
+		public List<Entry>	entries	= new ArrayList<>();
+	}
+
+	/**
+	 * The resources parsed from the local file of an archive. A multi archive
+	 * has a resource for each embedded jar.
+	 */
+	public static class Entry extends DTO {
+		public String					archive;
+		public long						size;
+		public long						lastModified;
+		public List<String>				archives	= new ArrayList<>();
+		public List<PersistentResource>	resources	= new ArrayList<>();
+	}
+
+	/**
+	 * @param file the snapshot file
+	 * @param configuration identifies the settings of the repository that
+	 *            affect the parsed resources
+	 */
+	IndexSnapshot(File file, String configuration) {
+		this.file = file;
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Answer the resources of an archive from the snapshot.
+	 *
+	 * @param archive the archive in the index
+	 * @param local the local file of the archive
+	 * @return the resources or {@code null} if the snapshot does not have
+	 *         resources for the current content of the local file
+	 */
+	Map<Archive, Resource> get(Archive archive, File local) {
+		Entry entry = previous().get(archive.toString());
+		if (entry == null || entry.size != local.length() || entry.lastModified != local.lastModified()) {
+			return null;
+		}
+		try {
+			Map<Archive, Resource> result = new HashMap<>();
+			for (int i = 0; i < entry.archives.size(); i++) {
+				Archive a = Archive.valueOf(entry.archives.get(i));
+				if (a == null) {
+					return null;
+				}
+				result.put(a, entry.resources.get(i)
+					.getResource());
+			}
+			current.put(entry.archive, entry);
+			return result;
+		} catch (Exception e) {
+			logger.debug("Failed to restore {} from snapshot {}", archive, file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Record the resources parsed for an archive. Results with failures, i.e.
+	 * resources without content, are not recorded so they are parsed again.
+	 *
+	 * @param archive the archive in the index
+	 * @param local the local file of the archive
+	 * @param resources the resources parsed from the local file
+	 */
+	void put(Archive archive, File local, Map<Archive, Resource> resources) {
+		boolean parsed = resources.values()
+			.stream()
+			.noneMatch(r -> ResourceUtils.getContentCapabilities(r)
+				.isEmpty());
+		if (!parsed) {
+			current.remove(archive.toString());
+			dirty = true;
+			return;
+		}
+		Entry entry = new Entry();
+		entry.archive = archive.toString();
+		entry.size = local.length();
+		entry.lastModified = local.lastModified();
+		resources.forEach((a, r) -> {
+			entry.archives.add(a.toString());
+			entry.resources.add(new PersistentResource(r));
+		});
+		current.put(entry.archive, entry);
+		dirty = true;
+	}
+
+	/**
+	 * Write the snapshot for the given archives if anything changed.
+	 *
+	 * @param archives the archives of the index
+	 * @param digest the digest of the content of the index
+	 */
+	synchronized void save(Set<Archive> archives, String digest) {
+		Set<String> names = new HashSet<>();
+		archives.forEach(a -> names.add(a.toString()));
+		if (current.keySet()
+			.retainAll(names)) {
+			dirty = true;
+		}
+		if (!dirty && Objects.equals(digest, this.digest)) {
+			return;
+		}
+		Data data = new Data();
+		data.version = VERSION;
+		data.configuration = configuration;
+		data.digest = digest;
+		data.entries.addAll(current.values());
+		data.entries.sort((a, b) -> a.archive.compareTo(b.archive));
+		try {
+			IO.mkdirs(file.getParentFile());
+			File tmp = IO.createTempFile(file.getParentFile(), file.getName(), ".tmp");
+			try {
+				try (OutputStream out = new GZIPOutputStream(IO.outputStream(tmp))) {
+					codec.enc()
+						.to(out)
+						.put(data)
+						.flush();
+				}
+				IO.rename(tmp, file);
+			} finally {
+				IO.delete(tmp);
+			}
+			this.digest = digest;
+			dirty = false;
+		} catch (Exception e) {
+			logger.debug("Failed to write snapshot {}", file, e);
+		}
+	}
+
+	private synchronized Map<String, Entry> previous() {
+		if (previous == null) {
+			previous = new HashMap<>();
+			if (file.isFile()) {
+				try (InputStream in = new GZIPInputStream(IO.stream(file))) {
+					Data data = codec.dec()
+						.from(in)
+						.get(Data.class);
+					if (data.version == VERSION && Objects.equals(configuration, data.configuration)) {
+						data.entries.forEach(entry -> previous.put(entry.archive, entry));
+						digest = data.digest;
+					}
+				} catch (Exception e) {
+					logger.debug("Failed to read snapshot {}", file, e);
+				}
+			}
+		}
+		return previous;
+	}
+}
@@ -2,6 +2,7 @@ package aQute.bnd.repository.maven.provider;
 
 import static aQute.bnd.osgi.Constants.BSN_SOURCE_SUFFIX;
 import static aQute.bnd.service.tags.Tags.parse;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.Closeable;
 import java.io.File;
@@ -75,6 +76,7 @@ import aQute.bnd.service.maven.PomOptions;
 import aQute.bnd.service.maven.ToDependencyPom;
 import aQute.bnd.service.release.ReleaseBracketingPlugin;
 import aQute.bnd.unmodifiable.Sets;
+import aQute.bnd.util.home.Home;
 import aQute.bnd.util.repository.DownloadListenerPromise;
 import aQute.bnd.version.Version;
 import aQute.lib.converter.Converter;
@@ -740,7 +742,8 @@ public class MavenBndRepository extends BaseRepository implements RepositoryPlug
 			}
 			Set<String> multi = Strings.splitAsStream(configuration.multi())
 				.collect(Sets.toSet());
-			this.index = new IndexFile(domain, reporter, indexFile, source, storage, client.promiseFactory(), multi);
+			this.index = new IndexFile(domain, reporter, indexFile, source, storage, client.promiseFactory(), multi,
+				getSnapshotFile());
 			this.index.open();
 
 			try (Formatter f = new Formatter()) {
@@ -1104,6 +1107,23 @@ public class MavenBndRepository extends BaseRepository implements RepositoryPlug
 		return IO.getFile(base, configuration.index(name.toLowerCase(Locale.ROOT) + ".mvn"));
 	}
 
+	/**
+	 * Answer the file for the snapshot of the parsed index. It is in the
+	 * workspace cache of the repository or, without a workspace, in the bnd
+	 * home cache under a name derived from the path of the index file. It is
+	 * never placed next to the index, which is often in a source tree.
+	 */
+	File getSnapshotFile() throws Exception {
+		if (workspace.isPresent()) {
+			return IO.getFile(workspace.get()
+				.getCache(name), "index.snapshot");
+		}
+		String key = SHA1.digest(IO.absolutePath(getIndexFile())
+			.getBytes(UTF_8))
+			.asHex();
+		return Home.getUserHomeBnd("caches/index/" + key + ".snapshot");
+	}
+
 	public Set<Archive> getArchives() {
 		if (!init())
 			return Collections.emptySet();
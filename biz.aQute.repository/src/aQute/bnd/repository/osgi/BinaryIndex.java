@@ -0,0 +1,279 @@
+package aQute.bnd.repository.osgi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.osgi.framework.Version;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import aQute.bnd.osgi.resource.CapReqBuilder;
+import aQute.bnd.osgi.resource.ResourceBuilder;
+import aQute.lib.io.ByteBufferOutputStream;
+import aQute.lib.io.IO;
+
+/**
+ * A binary companion of a downloaded OSGi repository index. Reading an index
+ * from XML means inflating and parsing the whole document. The binary form is
+ * read in one go and decoded without a parser, the strings are stored once in a
+ * string table so equal attribute values share a single {@link String}.
+ * <p>
+ * The file is deliberately neither memory mapped nor materialized lazily.
+ * {@link aQute.bnd.osgi.repository.BridgeRepository} and
+ * {@link aQute.bnd.osgi.repository.ResourcesRepository} index every capability
+ * of every resource when they are created, so all resources are decoded right
+ * away and the buffer is dropped after the read. A mapping would then only save
+ * a single copy of the file, but it is only released when the buffer is garbage
+ * collected and, on Windows, a mapped file cannot be deleted or replaced. Both
+ * happen here: a file that fails to decode is deleted and a changed index
+ * renames a new binary form over the old one.
+ * <p>
+ * The binary form records the length and last modified time of the index file
+ * it was written for. It is ignored when the index file changed, when it was
+ * written for another uri, or when it cannot be read, the index is then parsed
+ * from XML again.
+ * <p>
+ * The format is
+ *
+ * <pre>
+ * magic version sourceLength sourceModified uri
+ * stringCount (length utf8)*
+ * resourceCount resource*
+ * resource    := capCount capreq* reqCount capreq*
+ * capreq      := namespace attrCount (key type value)* dirCount (key value)*
+ * </pre>
+ *
+ * where all strings after the string table are indexes in the string table.
+ */
+class BinaryIndex {
+	private final static Logger	logger			= LoggerFactory.getLogger(BinaryIndex.class);
+	private final static int	MAGIC			= 0x424E4458;	// BNDX
+	private final static int	VERSION			= 1;
+
+	private final static byte	STRING			= 0;
+	private final static byte	LONG			= 1;
+	private final static byte	DOUBLE			= 2;
+	private final static byte	VERSION_TYPE	= 3;
+	private final static byte	LIST			= 4;
+
+	private BinaryIndex() {}
+
+	/**
+	 * Read the resources of an index from its binary form.
+	 *
+	 * @param binary the binary form
+	 * @param source the downloaded index file
+	 * @param uri the uri of the index
+	 * @return the resources or {@code null} if the binary form is absent or
+	 *         does not match the index file
+	 */
+	static List<Resource> read(File binary, File source, URI uri) {
+		if (!binary.isFile()) {
+			return null;
+		}
+		try {
+			ByteBuffer bb = ByteBuffer.wrap(IO.read(binary));
+			if (bb.getInt() != MAGIC || bb.getInt() != VERSION || bb.getLong() != source.length()
+				|| bb.getLong() != source.lastModified() || !uri.toString()
+					.equals(utf8(bb))) {
+				logger.debug("Binary index {} is not for {}", binary, source);
+				return null;
+			}
+			String[] strings = new String[bb.getInt()];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = utf8(bb);
+			}
+			int count = bb.getInt();
+			List<Resource> resources = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				ResourceBuilder rb = new ResourceBuilder();
+				for (int n = bb.getInt(); n > 0; n--) {
+					rb.addCapability(capReq(bb, strings));
+				}
+				for (int n = bb.getInt(); n > 0; n--) {
+					rb.addRequirement(capReq(bb, strings));
+				}
+				resources.add(rb.build());
+			}
+			return resources;
+		} catch (Exception e) {
+			logger.debug("Failed to read binary index {}", binary, e);
+			IO.delete(binary);
+			return null;
+		}
+	}
+
+	/**
+	 * Write the binary form of the resources parsed from an index.
+	 *
+	 * @param binary the binary form
+	 * @param source the downloaded index file
+	 * @param uri the uri of the index
+	 * @param resources the resources parsed from the index file
+	 */
+	static void write(File binary, File source, URI uri, List<Resource> resources) {
+		try {
+			Map<String, Integer> strings = new LinkedHashMap<>();
+			ByteBufferOutputStream body = new ByteBufferOutputStream();
+			DataOutputStream out = new DataOutputStream(body);
+			out.writeInt(resources.size());
+			for (Resource resource : resources) {
+				List<Capability> capabilities = resource.getCapabilities(null);
+				out.writeInt(capabilities.size());
+				for (Capability capability : capabilities) {
+					capReq(out, strings, capability.getNamespace(), capability.getAttributes(),
+						capability.getDirectives());
+				}
+				List<Requirement> requirements = resource.getRequirements(null);
+				out.writeInt(requirements.size());
+				for (Requirement requirement : requirements) {
+					capReq(out, strings, requirement.getNamespace(), requirement.getAttributes(),
+						requirement.getDirectives());
+				}
+			}
+			out.flush();
+
+			IO.mkdirs(binary.getParentFile());
+			File tmp = IO.createTempFile(binary.getParentFile(), binary.getName(), ".tmp");
+			try {
+				try (OutputStream fout = IO.outputStream(tmp);
+					DataOutputStream dout = new DataOutputStream(fout)) {
+					dout.writeInt(MAGIC);
+					dout.writeInt(VERSION);
+					dout.writeLong(source.length());
+					dout.writeLong(source.lastModified());
+					utf8(dout, uri.toString());
+					dout.writeInt(strings.size());
+					for (String s : strings.keySet()) {
+						utf8(dout, s);
+					}
+					IO.copy(body.toByteBuffer(), (OutputStream) dout);
+				}
+				IO.rename(tmp, binary);
+			} finally {
+				IO.delete(tmp);
+			}
+		} catch (Exception e) {
+			logger.debug("Failed to write binary index {}", binary, e);
+		}
+	}
+
+	private static CapReqBuilder capReq(ByteBuffer bb, String[] strings) throws Exception {
+		CapReqBuilder builder = new CapReqBuilder(strings[bb.getInt()]);
+		for (int n = bb.getInt(); n > 0; n--) {
+			String key = strings[bb.getInt()];
+			builder.addAttribute(key, value(bb, strings, bb.get()));
+		}
+		for (int n = bb.getInt(); n > 0; n--) {
+			builder.addDirective(strings[bb.getInt()], strings[bb.getInt()]);
+		}
+		return builder;
+	}
+
+	private static Object value(ByteBuffer bb, String[] strings, byte type) {
+		return switch (type) {
+			case STRING -> strings[bb.getInt()];
+			case LONG -> bb.getLong();
+			case DOUBLE -> bb.getDouble();
+			case VERSION_TYPE -> Version.parseVersion(strings[bb.getInt()]);
+			case LIST -> {
+				byte elementType = bb.get();
+				int size = bb.getInt();
+				List<Object> list = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					list.add(value(bb, strings, elementType));
+				}
+				yield list;
+			}
+			default -> throw new IllegalArgumentException("Unknown type " + type);
+		};
+	}
+
+	private static void capReq(DataOutputStream out, Map<String, Integer> strings, String namespace,
+		Map<String, Object> attributes, Map<String, String> directives) throws IOException {
+		out.writeInt(index(strings, namespace));
+		out.writeInt(attributes.size());
+		for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+			out.writeInt(index(strings, entry.getKey()));
+			value(out, strings, entry.getValue());
+		}
+		out.writeInt(directives.size());
+		for (Map.Entry<String, String> entry : directives.entrySet()) {
+			out.writeInt(index(strings, entry.getKey()));
+			out.writeInt(index(strings, entry.getValue()));
+		}
+	}
+
+	private static void value(DataOutputStream out, Map<String, Integer> strings, Object value) throws IOException {
+		if (value instanceof List<?> list) {
+			byte elementType = list.isEmpty() ? STRING : type(list.get(0));
+			out.writeByte(LIST);
+			out.writeByte(elementType);
+			out.writeInt(list.size());
+			for (Object element : list) {
+				if (type(element) != elementType) {
+					throw new IOException("Mixed list " + list);
+				}
+				element(out, strings, elementType, element);
+			}
+		} else {
+			byte type = type(value);
+			out.writeByte(type);
+			element(out, strings, type, value);
+		}
+	}
+
+	private static void element(DataOutputStream out, Map<String, Integer> strings, byte type, Object value)
+		throws IOException {
+		switch (type) {
+			case LONG -> out.writeLong(((Number) value).longValue());
+			case DOUBLE -> out.writeDouble(((Number) value).doubleValue());
+			default -> out.writeInt(index(strings, value.toString()));
+		}
+	}
+
+	private static byte type(Object value) throws IOException {
+		if (value instanceof String) {
+			return STRING;
+		}
+		if (value instanceof Long) {
+			return LONG;
+		}
+		if (value instanceof Double) {
+			return DOUBLE;
+		}
+		if (value instanceof Version) {
+			return VERSION_TYPE;
+		}
+		throw new IOException("Unsupported attribute type " + value.getClass());
+	}
+
+	private static int index(Map<String, Integer> strings, String s) {
+		return strings.computeIfAbsent(s, k -> strings.size());
+	}
+
+	private static String utf8(ByteBuffer bb) {
+		byte[] bytes = new byte[bb.getInt()];
+		bb.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	private static void utf8(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
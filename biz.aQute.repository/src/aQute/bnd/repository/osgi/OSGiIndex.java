@@ -8,11 +8,15 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -36,7 +40,10 @@ import aQute.bnd.osgi.resource.ResourceUtils.ContentCapability;
 import aQute.bnd.service.url.State;
 import aQute.bnd.service.url.TaggedData;
 import aQute.bnd.version.Version;
+import aQute.lib.hex.Hex;
 import aQute.lib.io.IO;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA1;
 import aQute.libg.cryptography.SHA256;
 
 class OSGiIndex {
@@ -48,6 +55,7 @@ class OSGiIndex {
 	private final File						cache;
 	private final String					name;
 	private final List<URI>					uris;
+	private final Map<URI, File>			files	= new ConcurrentHashMap<>();
 	private volatile String					status;
 
 	OSGiIndex(String name, HttpClient client, File cache, List<URI> uris, int staleTime, boolean refresh)
@@ -100,34 +108,59 @@ class OSGiIndex {
 					this.status = "Not Found " + uri;
 					return Collections.emptyList();
 				}
-				// file could be xml, gzipped xml, OR zip with index.xml or
-				// index.xml.gz entry
-				try (InputStream in = new BufferedInputStream(IO.stream(file))) {
-					in.mark(2);
-					int magic = readUnsignedShort(in);
-					in.reset();
-					if (magic == 0x504b) { // "PK" means a zip file
-						try (ZipInputStream zin = new ZipInputStream(in)) {
-							for (ZipEntry entry; (entry = zin.getNextEntry()) != null;) {
-								switch (entry.getName()) {
-									case "index.xml" :
-									case "index.xml.gz" :
-										try (XMLResourceParser xrp = new XMLResourceParser(zin, name, uri)) {
-											return xrp.parse();
-										}
-									default :
-										break;
+				files.put(uri, file);
+				File binary = binaryIndexFile(uri);
+				List<Resource> resources = BinaryIndex.read(binary, file, uri);
+				if (resources != null) {
+					return resources;
+				}
+				return parse(file, uri, binary);
+			});
+	}
+
+	private File binaryIndexFile(URI uri) throws Exception {
+		String hex = SHA1.digest(uri.toASCIIString()
+			.getBytes(StandardCharsets.UTF_8))
+			.asHex();
+		return IO.getFile(cache, "index/" + hex + ".bin");
+	}
+
+	private List<Resource> parse(File file, URI uri, File binary) throws Exception {
+		// file could be xml, gzipped xml, OR zip with index.xml or
+		// index.xml.gz entry
+		try (InputStream in = new BufferedInputStream(IO.stream(file))) {
+			in.mark(2);
+			int magic = readUnsignedShort(in);
+			in.reset();
+			if (magic == 0x504b) { // "PK" means a zip file
+				try (ZipInputStream zin = new ZipInputStream(in)) {
+					for (ZipEntry entry; (entry = zin.getNextEntry()) != null;) {
+						switch (entry.getName()) {
+							case "index.xml" :
+							case "index.xml.gz" :
+								try (XMLResourceParser xrp = new XMLResourceParser(zin, name, uri)) {
+									return parse(xrp, file, uri, binary);
 								}
-							}
-							logger.debug("{}: No index.xml or index.xml.gz entry found in zip file {}", name, uri);
-							return Collections.emptyList();
+							default :
+								break;
 						}
 					}
-					try (XMLResourceParser xrp = new XMLResourceParser(in, name, uri)) {
-						return xrp.parse();
-					}
+					logger.debug("{}: No index.xml or index.xml.gz entry found in zip file {}", name, uri);
+					return Collections.emptyList();
 				}
-			});
+			}
+			try (XMLResourceParser xrp = new XMLResourceParser(in, name, uri)) {
+				return parse(xrp, file, uri, binary);
+			}
+		}
+	}
+
+	private List<Resource> parse(XMLResourceParser xrp, File file, URI uri, File binary) throws Exception {
+		List<Resource> resources = xrp.parse();
+		if (resources != null && xrp.isOk()) {
+			BinaryIndex.write(binary, file, uri, resources);
+		}
+		return resources;
 	}
 
 	private static final int readUnsignedShort(InputStream in) throws IOException {
@@ -207,6 +240,31 @@ class OSGiIndex {
 		return repository.getValue();
 	}
 
+	/**
+	 * Answer the SHA-1 of the downloaded index files. For a single index this
+	 * is the SHA-1 of the index file, otherwise the SHA-1 of the sorted SHA-1s
+	 * of the index files.
+	 *
+	 * @return the digest of the index files
+	 */
+	byte[] getDigest() throws Exception {
+		getBridge();
+		SortedSet<String> shas = new TreeSet<>();
+		for (File file : files.values()) {
+			shas.add(SHA1.digest(file)
+				.asHex());
+		}
+		if (shas.size() == 1) {
+			return Hex.toByteArray(shas.first());
+		}
+		Digester<SHA1> digester = SHA1.getDigester();
+		for (String sha : shas) {
+			digester.write(sha.getBytes(StandardCharsets.UTF_8));
+		}
+		return digester.digest()
+			.digest();
+	}
+
 	File getCache() {
 		return cache;
 	}
@@ -1169,6 +1169,37 @@ public class MavenBndRepoTest {
 		repo.setProperties(config);
 	}
 
+	@Test
+	public void testIndexSnapshot() throws Exception {
+		config(null);
+		assertThat(repo.list(null)).contains("org.osgi.dto");
+		File snapshot = repo.getSnapshotFile();
+		assertThat(snapshot).isFile();
+		// without a workspace the snapshot is not written next to the index
+		assertThat(snapshot.getParentFile()).isNotEqualTo(repo.getIndexFile()
+			.getParentFile());
+		assertThat(tmp.list()).noneMatch(n -> n.endsWith(".snapshot"));
+		IO.close(repo);
+		IO.close(domain);
+
+		// an unchanged local file is not parsed again
+		File dto = IO.getFile(local, "org/osgi/org.osgi.dto/1.0.0/org.osgi.dto-1.0.0.jar");
+		assertThat(dto).isFile();
+		long lastModified = dto.lastModified();
+		IO.copy(new byte[(int) dto.length()], dto);
+		dto.setLastModified(lastModified);
+		config(null);
+		assertThat(repo.list(null)).contains("org.osgi.dto");
+		IO.close(repo);
+		IO.close(domain);
+
+		// a changed local file is parsed again
+		dto.setLastModified(lastModified + 10000L);
+		config(null);
+		assertThat(repo.list(null)).doesNotContain("org.osgi.dto");
+		IO.delete(snapshot);
+	}
+
 	@Test
 	public void testPutPlainJarInRepo() throws Exception {
 
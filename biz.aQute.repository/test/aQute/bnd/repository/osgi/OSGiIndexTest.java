@@ -2,19 +2,24 @@ package aQute.bnd.repository.osgi;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.SortedSet;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.osgi.resource.Resource;
 import org.osgi.util.promise.Promise;
 
 import aQute.bnd.http.HttpClient;
+import aQute.bnd.osgi.repository.XMLResourceParser;
 import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
 import aQute.bnd.version.Version;
 import aQute.lib.io.IO;
@@ -84,6 +89,68 @@ public class OSGiIndexTest {
 		assertEquals(1, versions.size());
 	}
 
+	@Test
+	public void testBinaryIndex() throws Exception {
+		File source = IO.getFile("testdata/big_index.xml.gz");
+		URI uri = source.toURI();
+		List<Resource> parsed;
+		try (XMLResourceParser xrp = new XMLResourceParser(source)) {
+			parsed = xrp.parse();
+		}
+		File binary = IO.getFile(tmp, "index.bin");
+		BinaryIndex.write(binary, source, uri, parsed);
+		assertTrue(binary.isFile());
+
+		List<Resource> restored = BinaryIndex.read(binary, source, uri);
+		assertNotNull(restored);
+		assertEquals(parsed.size(), restored.size());
+		for (int i = 0; i < parsed.size(); i++) {
+			assertEquals(capReqs(parsed.get(i)), capReqs(restored.get(i)));
+		}
+
+		assertEquals(null, BinaryIndex.read(binary, source, new URI("https://example.com/index.xml")));
+		assertEquals(null, BinaryIndex.read(binary, IO.getFile("testdata/index2.xml.gz"), uri));
+	}
+
+	@Test
+	public void testIndexUsesBinaryIndex() throws Exception {
+		HttpClient client = new HttpClient();
+		client.setCache(tmp);
+		List<URI> uris = Collections.singletonList(IO.getFile("testdata/repo7/index-aggregate.xml")
+			.toURI());
+		OSGiIndex oi = new OSGiIndex("name", client, cache, uris, 0, false);
+		List<String> list = oi.getBridge()
+			.list("org.eclipse.*");
+		assertEquals(9, list.size());
+		File[] binaries = IO.getFile(cache, "index")
+			.listFiles((dir, name) -> name.endsWith(".bin"));
+		assertNotNull(binaries);
+		assertEquals(1, binaries.length);
+
+		// break the cached index without changing its length or last modified
+		// time, only the binary index can still provide the resources
+		File cached = client.getCacheFileFor(uris.get(0));
+		long lastModified = cached.lastModified();
+		byte[] corrupt = new byte[(int) cached.length()];
+		Arrays.fill(corrupt, (byte) ' ');
+		IO.copy(corrupt, cached);
+		assertTrue(cached.setLastModified(lastModified));
+
+		oi = new OSGiIndex("name", client, cache, uris, 0, false);
+		assertEquals(list, oi.getBridge()
+			.list("org.eclipse.*"));
+	}
+
+	private static List<List<Object>> capReqs(Resource resource) {
+		return Stream.concat(resource.getCapabilities(null)
+			.stream()
+			.map(c -> List.<Object> of(c.getNamespace(), c.getAttributes(), c.getDirectives())),
+			resource.getRequirements(null)
+				.stream()
+				.map(r -> List.<Object> of(r.getNamespace(), r.getAttributes(), r.getDirectives())))
+			.toList();
+	}
+
 	public OSGiIndex getIndex(HttpClient client) throws Exception, URISyntaxException {
 		return new OSGiIndex("name", client, cache, Collections.singletonList(
 			new URI("https://raw.githubusercontent.com/osgi/osgi.enroute/v1.0.0/cnf/distro/index.xml")), 0, false);
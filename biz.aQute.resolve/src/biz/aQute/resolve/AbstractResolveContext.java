@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -28,6 +29,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -48,6 +51,7 @@ import org.osgi.service.resolver.HostedCapability;
 import org.osgi.service.resolver.ResolveContext;
 
 import aQute.bnd.deployer.repository.CapabilityIndex;
+import aQute.bnd.exceptions.Exceptions;
 import aQute.bnd.header.Attrs;
 import aQute.bnd.header.Parameters;
 import aQute.bnd.osgi.Constants;
@@ -100,13 +104,36 @@ public abstract class AbstractResolveContext extends ResolveContext {
 	private Resource								systemResource;
 	private Resource								inputResource;
 	private Set<Resource>							blacklistedResources					= new HashSet<>();
-	private final Set<Capability>					blacklistedCapabilities					= new HashSet<>();
+	private final Set<Capability>					blacklistedCapabilities					= ConcurrentHashMap.newKeySet();
 	private int										level									= 0;
 	private Resource								framework;
 	private final AtomicBoolean						reported								= new AtomicBoolean();
+	private final boolean							requirementRepositoryHook;
+	private final boolean							requirementProvidersHook;
+	private boolean									parallel								= false;
+
+	private final Map<CacheKey, List<Collection<Capability>>>	repositoryCache	= new HashMap<>();
 
 	public AbstractResolveContext(LogService log) {
 		this.log = log;
+		this.requirementRepositoryHook = overrides("findProviders", Repository.class, Requirement.class);
+		this.requirementProvidersHook = overrides("findProvidersFromRepositories", Requirement.class,
+			LinkedHashSet.class);
+	}
+
+	/**
+	 * Answer true if a subclass overrides the given method of this class.
+	 */
+	private boolean overrides(String name, Class<?>... parameterTypes) {
+		for (Class<?> c = getClass(); c != AbstractResolveContext.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(name, parameterTypes);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// not declared in this class
+			}
+		}
+		return false;
 	}
 
 	protected synchronized void init() {
@@ -194,47 +221,160 @@ public abstract class AbstractResolveContext extends ResolveContext {
 	}
 
 	private List<Capability> findProviders0(Requirement requirement) {
-		List<Capability> cached = providerCache.computeIfAbsent(getCacheKey(requirement), k -> {
-			// First stage: framework and self-capabilities. This should never
-			// be reordered by preferences or resolver
-			// hooks
-			LinkedHashSet<Capability> firstStageResult = new LinkedHashSet<>();
-
-			// The selected OSGi framework always has the first chance to
-			// provide the capabilities
-			systemCapabilityIndex.appendMatchingCapabilities(requirement, firstStageResult);
-
-			// Next find out if the requirement is satisfied by a capability on
-			// the same resource
-			processMandatoryResource(requirement, firstStageResult, requirement.getResource());
-			// Next find out if the requirement is satisfied by a capability on
-			// a Mandatory resource
-			for (Resource res : getMandatoryResources()) {
-				processMandatoryResource(requirement, firstStageResult, res);
+		List<Capability> cached = providerCache.get(getCacheKey(requirement));
+		if (cached == null) {
+			cached = cacheProviders(Collections.singletonList(requirement)).get(requirement);
+		}
+		List<Capability> capabilities = new ArrayList<>(cached);
+		log.log(LogService.LOG_DEBUG, "for " + requirement + " found " + capabilities);
+		return capabilities;
+	}
+
+	/**
+	 * Find the providers of all the requirements that are not yet in the
+	 * provider cache and cache them. The repositories are asked once for all
+	 * these requirements.
+	 *
+	 * @param requirements the requirements
+	 * @return the providers of the requirements
+	 */
+	protected Map<Requirement, List<Capability>> cacheProviders(Collection<? extends Requirement> requirements) {
+		Map<Requirement, List<Capability>> providers = new LinkedHashMap<>();
+		Map<CacheKey, Requirement> missing = new LinkedHashMap<>();
+		for (Requirement requirement : requirements) {
+			CacheKey key = getCacheKey(requirement);
+			List<Capability> cached = providerCache.get(key);
+			if (cached != null) {
+				providers.put(requirement, cached);
+			} else {
+				missing.putIfAbsent(key, requirement);
+			}
+		}
+		if (missing.isEmpty()) {
+			return providers;
+		}
+
+		Map<Requirement, LinkedHashSet<Capability>> firstStageResults = new LinkedHashMap<>();
+		List<Requirement> repositoryRequirements = new ArrayList<>();
+		for (Requirement requirement : missing.values()) {
+			firstStageResults.put(requirement, findFirstStageProviders(requirement));
+			if (isRepositoryRequirement(requirement)) {
+				repositoryRequirements.add(requirement);
 			}
+		}
+
+		Map<Requirement, ArrayList<Capability>> secondStageResults = findProvidersFromRepositories(
+			repositoryRequirements, firstStageResults);
 
-			// If the requirement is optional and doesn't come from an optional
-			// root resource,
-			// then we are done already, no need to look for providers from the
-			// repos.
-			boolean optional = Namespace.RESOLUTION_OPTIONAL.equals(requirement.getDirectives()
-				.get(Namespace.REQUIREMENT_RESOLUTION_DIRECTIVE));
-			List<Capability> result = new ArrayList<>(firstStageResult);
+		missing.forEach((key, requirement) -> {
+			List<Capability> result = new ArrayList<>(firstStageResults.get(requirement));
 			Collections.sort(result, capabilityComparator);
-			if (!optional || optionalRoots.contains(requirement.getResource())) {
+			List<Capability> secondStageResult = secondStageResults.get(requirement);
+			if (secondStageResult != null) {
 				// We sort capabilities from the same resource and mandatory
 				// resources (first stage) BEFORE capabilities from repo
 				// resources (second stage) removing any duplicate capabilities.
-				findProvidersFromRepositories(requirement, firstStageResult).stream()
+				secondStageResult.stream()
 					.filter(provider -> !result.contains(provider))
 					.sorted(capabilityComparator)
 					.forEach(result::add);
 			}
-			return result;
+			providerCache.put(key, result);
+			providers.put(requirement, result);
 		});
-		List<Capability> capabilities = new ArrayList<>(cached);
-		log.log(LogService.LOG_DEBUG, "for " + requirement + " found " + capabilities);
-		return capabilities;
+		return providers;
+	}
+
+	/**
+	 * First stage: framework and self-capabilities. This should never be
+	 * reordered by preferences or resolver hooks.
+	 */
+	private LinkedHashSet<Capability> findFirstStageProviders(Requirement requirement) {
+		LinkedHashSet<Capability> firstStageResult = new LinkedHashSet<>();
+
+		// The selected OSGi framework always has the first chance to
+		// provide the capabilities
+		systemCapabilityIndex.appendMatchingCapabilities(requirement, firstStageResult);
+
+		// Next find out if the requirement is satisfied by a capability on
+		// the same resource
+		processMandatoryResource(requirement, firstStageResult, requirement.getResource());
+		// Next find out if the requirement is satisfied by a capability on
+		// a Mandatory resource
+		for (Resource res : getMandatoryResources()) {
+			processMandatoryResource(requirement, firstStageResult, res);
+		}
+		return firstStageResult;
+	}
+
+	/**
+	 * If the requirement is optional and doesn't come from an optional root
+	 * resource, then we are done after the first stage, no need to look for
+	 * providers from the repos.
+	 */
+	private boolean isRepositoryRequirement(Requirement requirement) {
+		boolean optional = Namespace.RESOLUTION_OPTIONAL.equals(requirement.getDirectives()
+			.get(Namespace.REQUIREMENT_RESOLUTION_DIRECTIVE));
+		return !optional || optionalRoots.contains(requirement.getResource());
+	}
+
+	/**
+	 * Ask the repositories for the providers of requirements before the
+	 * resolver starts. The requirements of the mandatory and optional
+	 * resources are walked breadth first, followed by the requirements of the
+	 * resources that provide them. The repositories are asked once per level
+	 * for all the requirements of that level instead of once per requirement
+	 * when the resolver discovers it.
+	 * <p>
+	 * Only the answers of the repositories are kept. The providers are post
+	 * processed by the resolver hooks and the {@link ResolutionCallback}s only
+	 * when the resolver asks for them, so these never see requirements the
+	 * resolver does not ask about.
+	 * <p>
+	 * Only the preferred provider of a requirement is followed since the
+	 * resolver tries it first. The walk therefore stays close to the resources
+	 * of the resolution instead of the transitive closure of all candidates in
+	 * the repositories. The providers of the other candidates are found on
+	 * demand.
+	 *
+	 * @return the number of requirements whose providers were fetched
+	 */
+	public int prefetchProviders() {
+		initAndReport();
+		Set<Resource> visited = new HashSet<>();
+		Set<Resource> level = new LinkedHashSet<>(getMandatoryResources());
+		level.addAll(getOptionalResources());
+		int count = 0;
+		while (!level.isEmpty()) {
+			List<Requirement> requirements = new ArrayList<>();
+			for (Resource resource : level) {
+				if (visited.add(resource)) {
+					for (Requirement requirement : resource.getRequirements(null)) {
+						if (isEffective(requirement) && !PackageNamespace.RESOLUTION_DYNAMIC.equals(requirement.getDirectives()
+							.get(Namespace.REQUIREMENT_RESOLUTION_DIRECTIVE)) && isRepositoryRequirement(requirement)) {
+							requirements.add(requirement);
+						}
+					}
+				}
+			}
+			Map<Requirement, List<Collection<Capability>>> providers = findRepositoryProviders(requirements);
+			count += providers.size();
+			Set<Resource> next = new LinkedHashSet<>();
+			// the first stage providers are preferred over the repositories
+			providers.keySet()
+				.removeIf(requirement -> !findFirstStageProviders(requirement).isEmpty());
+			providers.forEach((requirement, repositoryResults) -> repositoryResults.stream()
+				.filter(Objects::nonNull)
+				.flatMap(Collection::stream)
+				.filter(capability -> isPermitted(capability.getResource())
+					&& ResourceUtils.isEffective(requirement, capability))
+				.min(capabilityComparator)
+				.map(Capability::getResource)
+				.filter(resource -> !visited.contains(resource))
+				.ifPresent(next::add));
+			level = next;
+		}
+		return count;
 	}
 
 	protected void processMandatoryResource(Requirement requirement, LinkedHashSet<Capability> firstStageResult,
@@ -248,30 +388,149 @@ public abstract class AbstractResolveContext extends ResolveContext {
 
 	protected ArrayList<Capability> findProvidersFromRepositories(Requirement requirement,
 		LinkedHashSet<Capability> existingWiredCapabilities) {
-		// Second stage results: repository contents.
-		Set<Capability> set = new LinkedHashSet<>();
+		return findRepositoryProviders(Collections.singletonList(requirement),
+			Collections.singletonMap(requirement, existingWiredCapabilities)).get(requirement);
+	}
 
-		// Iterate over the repos
-		int order = 0;
-		for (Repository repo : repositories) {
-			for (Capability capability : findProviders(repo, requirement)) {
-				if (isPermitted(capability.getResource()) && ResourceUtils.isEffective(requirement, capability)) {
-					if (set.add(capability)) {
-						setResourcePriority(order, capability.getResource());
+	/**
+	 * Find the providers of the requirements in the repositories. Every
+	 * repository is asked once for all the requirements. The results are
+	 * merged in the order of the repositories so the outcome does not depend
+	 * on which repository answers first.
+	 * <p>
+	 * A subclass that overrides
+	 * {@link #findProvidersFromRepositories(Requirement, LinkedHashSet)} is
+	 * asked for each requirement instead.
+	 *
+	 * @param requirements the requirements
+	 * @param existingWiredCapabilities the first stage results per requirement
+	 * @return the post processed repository providers per requirement
+	 */
+	protected Map<Requirement, ArrayList<Capability>> findProvidersFromRepositories(
+		List<? extends Requirement> requirements,
+		Map<Requirement, LinkedHashSet<Capability>> existingWiredCapabilities) {
+		if (requirementProvidersHook) {
+			Map<Requirement, ArrayList<Capability>> result = new LinkedHashMap<>();
+			for (Requirement requirement : requirements) {
+				result.put(requirement,
+					findProvidersFromRepositories(requirement, existingWiredCapabilities.get(requirement)));
+			}
+			return result;
+		}
+		return findRepositoryProviders(requirements, existingWiredCapabilities);
+	}
+
+	private Map<Requirement, ArrayList<Capability>> findRepositoryProviders(List<? extends Requirement> requirements,
+		Map<Requirement, LinkedHashSet<Capability>> existingWiredCapabilities) {
+		Map<Requirement, ArrayList<Capability>> result = new LinkedHashMap<>();
+		if (requirements.isEmpty()) {
+			return result;
+		}
+		Map<Requirement, List<Collection<Capability>>> repositoryResults = findRepositoryProviders(requirements);
+
+		for (Requirement requirement : requirements) {
+			// Second stage results: repository contents.
+			Set<Capability> set = new LinkedHashSet<>();
+
+			// Iterate over the repos
+			int order = 0;
+			for (Collection<Capability> providers : repositoryResults.get(requirement)) {
+				if (providers != null) {
+					for (Capability capability : providers) {
+						if (isPermitted(capability.getResource()) && ResourceUtils.isEffective(requirement, capability)) {
+							if (set.add(capability)) {
+								setResourcePriority(order, capability.getResource());
+							}
+						}
 					}
 				}
+				order++;
 			}
-			order++;
+
+			// Convert second-stage results to a list and post-process
+			ArrayList<Capability> capabilities = set.stream()
+				.sorted(capabilityComparator)
+				.collect(toCollection(ArrayList::new));
+
+			// Post-processing second stage results
+			postProcessProviders(requirement, existingWiredCapabilities.get(requirement), capabilities);
+			result.put(requirement, capabilities);
 		}
+		return result;
+	}
 
-		// Convert second-stage results to a list and post-process
-		ArrayList<Capability> capabilities = set.stream()
-			.sorted(capabilityComparator)
-			.collect(toCollection(ArrayList::new));
+	/**
+	 * Answer the providers of the requirements in each repository. The
+	 * answers of the repositories are cached, only the requirements not yet in
+	 * the cache are asked for.
+	 *
+	 * @param requirements the requirements
+	 * @return the providers per requirement in the order of the repositories
+	 */
+	private Map<Requirement, List<Collection<Capability>>> findRepositoryProviders(
+		Collection<? extends Requirement> requirements) {
+		Map<Requirement, List<Collection<Capability>>> result = new LinkedHashMap<>();
+		Map<CacheKey, Requirement> missing = new LinkedHashMap<>();
+		for (Requirement requirement : requirements) {
+			CacheKey key = getCacheKey(requirement);
+			List<Collection<Capability>> cached = repositoryCache.get(key);
+			if (cached != null) {
+				result.put(requirement, cached);
+			} else {
+				missing.putIfAbsent(key, requirement);
+			}
+		}
+		if (missing.isEmpty()) {
+			return result;
+		}
+		List<Map<Requirement, Collection<Capability>>> repositoryResults = findProviders(repositories,
+			missing.values());
+		missing.forEach((key, requirement) -> {
+			List<Collection<Capability>> providers = new ArrayList<>(repositoryResults.size());
+			for (Map<Requirement, Collection<Capability>> repositoryResult : repositoryResults) {
+				providers.add(repositoryResult.get(requirement));
+			}
+			repositoryCache.put(key, providers);
+		});
+		for (Requirement requirement : requirements) {
+			result.putIfAbsent(requirement, repositoryCache.get(getCacheKey(requirement)));
+		}
+		return result;
+	}
 
-		// Post-processing second stage results
-		postProcessProviders(requirement, existingWiredCapabilities, capabilities);
-		return capabilities;
+	/**
+	 * Ask every repository for the providers of the requirements with
+	 * {@link #findProviders(Repository, Collection)}. When
+	 * {@link #isParallel()} the repositories are asked in parallel, the calling
+	 * thread asks the first repository.
+	 *
+	 * @param repos the repositories
+	 * @param requirements the requirements
+	 * @return the results of the repositories in the order of the repositories
+	 */
+	private List<Map<Requirement, Collection<Capability>>> findProviders(List<Repository> repos,
+		Collection<? extends Requirement> requirements) {
+		List<Map<Requirement, Collection<Capability>>> results = new ArrayList<>(repos.size());
+		if (!parallel || (repos.size() < 2)) {
+			for (Repository repo : repos) {
+				results.add(findProviders(repo, requirements));
+			}
+			return results;
+		}
+
+		List<CompletableFuture<Map<Requirement, Collection<Capability>>>> futures = new ArrayList<>(repos.size() - 1);
+		for (Repository repo : repos.subList(1, repos.size())) {
+			futures.add(CompletableFuture.supplyAsync(() -> findProviders(repo, requirements), Processor.getExecutor()));
+		}
+		results.add(findProviders(repos.get(0), requirements));
+		try {
+			for (CompletableFuture<Map<Requirement, Collection<Capability>>> future : futures) {
+				results.add(future.join());
+			}
+		} catch (CompletionException e) {
+			throw Exceptions.duck(Exceptions.unrollCause(e, CompletionException.class));
+		}
+		return results;
 	}
 
 	/**
@@ -282,12 +541,48 @@ public abstract class AbstractResolveContext extends ResolveContext {
 	 * @param requirement the requirement
 	 * @return a list of caps for the asked requirement minus and capabilities
 	 *         that are skipped.
+	 * @deprecated The resolve asks a repository for a batch of requirements,
+	 *             override {@link #findProviders(Repository, Collection)}
+	 *             instead.
 	 */
+	@Deprecated
 	protected Collection<Capability> findProviders(Repository repo, Requirement requirement) {
-		Map<Requirement, Collection<Capability>> map = repo.findProviders(Collections.singleton(requirement));
-		Collection<Capability> caps = map.get(requirement);
-		caps.removeIf(capability -> isBlacklisted(capability));
-		return caps;
+		return queryRepository(repo, Collections.singleton(requirement)).get(requirement);
+	}
+
+	/**
+	 * Return any capabilities from the given repo for a batch of requirements.
+	 * This method will filter the blacklist. When {@link #isParallel()} the
+	 * repositories of a batch are asked in parallel and this method is called
+	 * concurrently.
+	 * <p>
+	 * A subclass that overrides {@link #findProviders(Repository, Requirement)}
+	 * is asked for each requirement instead.
+	 *
+	 * @param repo The repo to fetch requirements from
+	 * @param requirements the requirements
+	 * @return the caps per asked requirement minus the capabilities that are
+	 *         skipped.
+	 */
+	protected Map<Requirement, Collection<Capability>> findProviders(Repository repo,
+		Collection<? extends Requirement> requirements) {
+		if (requirementRepositoryHook) {
+			Map<Requirement, Collection<Capability>> map = new LinkedHashMap<>();
+			for (Requirement requirement : requirements) {
+				map.put(requirement, findProviders(repo, requirement));
+			}
+			return map;
+		}
+		return queryRepository(repo, requirements);
+	}
+
+	private Map<Requirement, Collection<Capability>> queryRepository(Repository repo,
+		Collection<? extends Requirement> requirements) {
+		Map<Requirement, Collection<Capability>> map = repo.findProviders(requirements);
+		for (Collection<Capability> caps : map.values()) {
+			caps.removeIf(capability -> isBlacklisted(capability));
+		}
+		return map;
 	}
 
 	private boolean isBlacklisted(Capability capability) {
@@ -314,6 +609,22 @@ public abstract class AbstractResolveContext extends ResolveContext {
 		this.optionalRoots.addAll(roots);
 	}
 
+	/**
+	 * Ask the repositories in parallel. The {@link Repository} interface does
+	 * not require an implementation to be thread safe, so this must only be
+	 * set when all the repositories can be asked concurrently. The default is
+	 * false.
+	 *
+	 * @param parallel true to ask the repositories in parallel
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
 	public void addRepository(Repository repo) {
 		repositories.add(repo);
 	}
@@ -420,7 +731,9 @@ public abstract class AbstractResolveContext extends ResolveContext {
 			if (resource == null) {
 				if (other.resource != null)
 					return false;
-			} else if (!resourceIdentityEquals(resource, other.resource))
+			} else if (!resourceIdentityEquals(resource, other.resource) && !resource.equals(other.resource))
+				// resources without an identity, like the input resource, are
+				// only equal to themselves
 				return false;
 			return true;
 		}
@@ -564,7 +877,7 @@ public abstract class AbstractResolveContext extends ResolveContext {
 		Set<Resource> resources = new HashSet<>();
 
 		for (Repository repo : repos) {
-			Collection<Capability> providers = findProviders(repo, req);
+			Collection<Capability> providers = findProviders(repo, Collections.singleton(req)).get(req);
 			resources.addAll(ResourceUtils.getResources(providers));
 		}
 		return new ArrayList<>(resources);
@@ -108,12 +108,25 @@ public class Bndrun extends Run {
 		Converter<T, Collection<? extends HeaderClause>> runbundlesFormatter) throws Exception {
 
 		checkValidate();
+		boolean useCache = is(Constants.RESOLVE_CACHE);
+		if (useCache) {
+			List<VersionedClause> cached = RunResolution.getCachedRunBundles(this);
+			if (cached != null) {
+				List<VersionedClause> runBundlesBeforeUpdate = model.getRunBundles();
+				boolean changed = RunResolution.updateBundles(this, RunResolution.getConfig(this), model, cached);
+				update(runBundlesBeforeUpdate, cached, changed, failOnChanges, writeOnChanges);
+				return runbundlesFormatter.convert(model.getRunBundles());
+			}
+		}
 		RunResolution resolution = RunResolution.resolve(this, this, null);
 
 		if (!resolution.isOK()) {
 			throw resolution.exception;
 		}
 		update(resolution, failOnChanges, writeOnChanges);
+		if (useCache) {
+			resolution.cache();
+		}
 		return runbundlesFormatter.convert(model.getRunBundles());
 	}
 
@@ -138,14 +151,20 @@ public class Bndrun extends Run {
 
 	public boolean update(RunResolution resolution, boolean failOnChanges, boolean writeOnChanges) throws Exception {
 		List<VersionedClause> runBundlesBeforeUpdate = model.getRunBundles();
-		if (resolution.updateBundles(model)) {
+		return update(runBundlesBeforeUpdate, resolution.getRunBundles(), resolution.updateBundles(model), failOnChanges,
+			writeOnChanges);
+	}
+
+	private boolean update(List<VersionedClause> runBundlesBeforeUpdate, List<VersionedClause> runbundles,
+		boolean changed, boolean failOnChanges, boolean writeOnChanges) throws Exception {
+		if (changed) {
 			if (failOnChanges) {
 				error("Fail on changes set to true (--xchange,-x) and there are changes");
 				error("   Existing runbundles   %s", runBundlesBeforeUpdate);
-				error("   Calculated runbundles %s", resolution.getRunBundles());
+				error("   Calculated runbundles %s", runbundles);
 
 				String diff = Utils.printHumanReadableDifference(new LinkedHashSet<>(runBundlesBeforeUpdate),
-					new LinkedHashSet<>(resolution.getRunBundles()), "existing runbundles", "calculated runbundles");
+					new LinkedHashSet<>(runbundles), "existing runbundles", "calculated runbundles");
 
 				if (diff != null) {
 					error("   Diff %s", diff);
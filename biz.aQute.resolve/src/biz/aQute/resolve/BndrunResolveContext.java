@@ -128,6 +128,8 @@ public class BndrunResolveContext extends AbstractResolveContext {
 					setLevel(level);
 			}
 
+			setParallel(Processor.isTrue(properties.getProperty(Constants.RESOLVE_PARALLEL)));
+
 			loadPreferences();
 
 			Processor augments = loadRepositories();
@@ -338,6 +340,34 @@ public class BndrunResolveContext extends AbstractResolveContext {
 	 */
 
 	private Processor loadRepositories() throws Exception {
+		Collection<Repository> orderedRepositories = getConsultedRepositories();
+
+		Processor repositoryAugments = findRepositoryAugments(orderedRepositories);
+
+		Parameters augments = new Parameters(repositoryAugments.mergeProperties(Constants.AUGMENT), project);
+		augments.putAll(new Parameters(properties.mergeProperties(Constants.AUGMENT), project));
+
+		if (!augments.isEmpty()) {
+			AggregateRepository aggregate = new AggregateRepository(orderedRepositories);
+			AugmentRepository augment = new AugmentRepository(augments, aggregate);
+			orderedRepositories = Collections.singleton(augment);
+		}
+
+		for (Repository repository : orderedRepositories) {
+			super.addRepository(repository);
+		}
+
+		return repositoryAugments;
+	}
+
+	/**
+	 * Answer the repositories from our registry selected by
+	 * {@link Constants#RUNREPOS}, in order and before they are augmented.
+	 * This does not require the context to be initialized.
+	 *
+	 * @return the repositories the resolver consults
+	 */
+	Collection<Repository> getConsultedRepositories() {
 		//
 		// Get all of the repositories from the plugin registry
 		//
@@ -381,23 +411,7 @@ public class BndrunResolveContext extends AbstractResolveContext {
 					orderedRepositories.add(repo);
 			}
 		}
-
-		Processor repositoryAugments = findRepositoryAugments(orderedRepositories);
-
-		Parameters augments = new Parameters(repositoryAugments.mergeProperties(Constants.AUGMENT), project);
-		augments.putAll(new Parameters(properties.mergeProperties(Constants.AUGMENT), project));
-
-		if (!augments.isEmpty()) {
-			AggregateRepository aggregate = new AggregateRepository(orderedRepositories);
-			AugmentRepository augment = new AugmentRepository(augments, aggregate);
-			orderedRepositories = Collections.singleton(augment);
-		}
-
-		for (Repository repository : orderedRepositories) {
-			super.addRepository(repository);
-		}
-
-		return repositoryAugments;
+		return orderedRepositories;
 	}
 
 	private List<Repository> getAllRepos() {
@@ -83,7 +83,7 @@ public class ResolveProcess {
 		// 1. Resolve initial requirements
 		Map<Resource, List<Wire>> wirings;
 		try {
-			wirings = resolver.resolve(rc);
+			wirings = resolve(resolver, rc, log);
 		} catch (ResolutionException re) {
 			throw augment(rc, re);
 		}
@@ -188,7 +188,7 @@ public class ResolveProcess {
 
 		rc2.addCallbacks(callbacks);
 		try {
-			wirings = resolver.resolve(rc2);
+			wirings = resolve(resolver, rc2, log);
 		} catch (ResolutionException re) {
 			throw augment(rc2, re);
 		}
@@ -204,6 +204,31 @@ public class ResolveProcess {
 		return result;
 	}
 
+	/**
+	 * Prefetch the providers and then resolve. The time spent in both stages
+	 * is logged separately.
+	 */
+	private static Map<Resource, List<Wire>> resolve(Resolver resolver, AbstractResolveContext rc, LogService log)
+		throws ResolutionException {
+		long start = System.nanoTime();
+		int prefetched = 0;
+		try {
+			prefetched = rc.prefetchProviders();
+		} catch (Exception e) {
+			// the resolver will ask for the providers it needs
+			log.log(LogService.LOG_WARNING, "Prefetching the providers failed", e);
+		}
+		long resolveStart = System.nanoTime();
+		try {
+			return resolver.resolve(rc);
+		} finally {
+			long end = System.nanoTime();
+			log.log(LogService.LOG_INFO,
+				String.format("Prefetched the providers of %d requirements in %d ms, resolved in %d ms", prefetched,
+					TimeUnit.NANOSECONDS.toMillis(resolveStart - start), TimeUnit.NANOSECONDS.toMillis(end - resolveStart)));
+		}
+	}
+
 	/*
 	 * The Felix resolver reports an initial resource as unresolved if one of
 	 * its requirements cannot be found, even though it is in the repo. This
@@ -1,6 +1,7 @@
 package biz.aQute.resolve;
 
 import static aQute.bnd.osgi.Processor.removeDuplicateMarker;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 
 import java.io.File;
@@ -11,12 +12,15 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.osgi.resource.Resource;
 import org.osgi.resource.Wire;
+import org.osgi.service.repository.Repository;
 import org.osgi.service.resolver.ResolutionException;
 import org.osgi.service.resolver.Resolver;
 import org.slf4j.Logger;
@@ -40,12 +44,17 @@ import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Instructions;
 import aQute.bnd.osgi.Processor;
 import aQute.bnd.osgi.resource.ResourceUtils;
+import aQute.bnd.osgi.resource.ResourceUtils.ContentCapability;
 import aQute.bnd.osgi.resource.ResourceUtils.IdentityCapability;
 import aQute.bnd.osgi.resource.ResourceUtils.IdentityCapability.Type;
 import aQute.bnd.result.Result;
+import aQute.bnd.service.repository.RepositoryDigest;
 import aQute.lib.dot.DOT;
+import aQute.lib.hex.Hex;
 import aQute.lib.io.IO;
 import aQute.lib.json.JSONCodec;
+import aQute.libg.cryptography.Digester;
+import aQute.libg.cryptography.SHA1;
 import aQute.libg.tarjan.Tarjan;
 
 /**
@@ -194,7 +203,16 @@ public class RunResolution {
 		if (exception != null)
 			throw Exceptions.duck(exception);
 
-		List<VersionedClause> newer = new ArrayList<>(nonNull(getRunBundles()));
+		return updateBundles(project, runstartlevel, model, getRunBundles());
+	}
+
+	/**
+	 * Update the {@link BndEditModel} with the given run bundles, see
+	 * {@link #updateBundles(BndEditModel)}.
+	 */
+	static boolean updateBundles(Project project, RunStartLevel runstartlevel, BndEditModel model,
+		List<VersionedClause> runbundles) {
+		List<VersionedClause> newer = new ArrayList<>(nonNull(runbundles));
 		List<VersionedClause> older = new ArrayList<>(nonNull(model.getRunBundles()));
 
 		// Apply the -runbundles decorator on the computed RunBundles
@@ -390,14 +408,14 @@ public class RunResolution {
 		return containers;
 	}
 
-	private <L, T> Collection<T> nonNull(Collection<T> rl) {
+	private static <L, T> Collection<T> nonNull(Collection<T> rl) {
 		if (rl != null)
 			return rl;
 
 		return Collections.emptyList();
 	}
 
-	private RunStartLevel getConfig(Processor properties) {
+	static RunStartLevel getConfig(Processor properties) {
 		ResolutionInstructions instructions = Syntax.getInstructions(properties, ResolutionInstructions.class);
 		return instructions.runstartlevel(new RunStartLevel() {
 
@@ -453,6 +471,11 @@ public class RunResolution {
 	public static class CacheDTO {
 		public String					checksum;
 		public List<VersionedClause>	runbundles;
+		/**
+		 * The digest of the repositories, only set when
+		 * {@link Constants#RESOLVE_CACHE} is true
+		 */
+		public String					repositories;
 	}
 
 	/**
@@ -468,6 +491,9 @@ public class RunResolution {
 			RunResolution.CacheDTO dto = new RunResolution.CacheDTO();
 			dto.checksum = project.getChecksum();
 			dto.runbundles = getRunBundles();
+			if (project.is(Constants.RESOLVE_CACHE)) {
+				dto.repositories = getRepositoriesDigest(project);
+			}
 
 			IO.store(ff -> {
 				JSON_CODEC.enc()
@@ -491,25 +517,10 @@ public class RunResolution {
 
 	public static Result<String> getRunBundles(Project project, boolean resolveIfNecessary) {
 		try {
-			File f = getCacheFile(project);
-
-			if (f.isFile()) {
-				try {
-
-					RunResolution.CacheDTO dto = JSON_CODEC.dec()
-						.from(f)
-						.get(RunResolution.CacheDTO.class);
-
-					if (dto.checksum.equals(project.getChecksum())) {
-						logger.info("read cache for {}", project);
-						return Result.ok(HeaderClause.toParameters(dto.runbundles)
-							.toString());
-					}
-
-				} catch (Exception e) {
-					logger.warn("{} getRunBundles  exception in reading cache {}, ignoring", project, e);
-					IO.delete(f);
-				}
+			List<VersionedClause> cached = getCachedRunBundles(project);
+			if (cached != null) {
+				return Result.ok(HeaderClause.toParameters(cached)
+					.toString());
 			}
 
 			if (!resolveIfNecessary) {
@@ -532,6 +543,95 @@ public class RunResolution {
 		}
 	}
 
+	/**
+	 * Get the run bundles from the cache. The cache is valid when the checksum
+	 * of the project did not change. If {@link Constants#RESOLVE_CACHE} is
+	 * set, the digest of the repositories must not have changed either.
+	 *
+	 * @param project the project to get the run bundles from
+	 * @return the cached run bundles or null if there is no valid cache
+	 */
+	static List<VersionedClause> getCachedRunBundles(Project project) {
+		File f = getCacheFile(project);
+		if (!f.isFile()) {
+			return null;
+		}
+		try {
+			RunResolution.CacheDTO dto = JSON_CODEC.dec()
+				.from(f)
+				.get(RunResolution.CacheDTO.class);
+
+			if (!dto.checksum.equals(project.getChecksum())) {
+				return null;
+			}
+			if (project.is(Constants.RESOLVE_CACHE)) {
+				String repositories = getRepositoriesDigest(project);
+				if (!repositories.equals(dto.repositories)) {
+					return null;
+				}
+			}
+			logger.info("read cache for {}", project);
+			return dto.runbundles;
+		} catch (Exception e) {
+			logger.warn("{} getRunBundles  exception in reading cache {}, ignoring", project, e);
+			IO.delete(f);
+			return null;
+		}
+	}
+
+	/**
+	 * Answer the digest of the repositories the resolver consults for the
+	 * project. A repository that provides its own digest with
+	 * {@link RepositoryDigest} is not enumerated, the digest of any other
+	 * repository is calculated from its resources, see
+	 * {@link #getResourcesDigest(Repository)}.
+	 *
+	 * @param project the project
+	 * @return the digest
+	 */
+	static String getRepositoriesDigest(Project project) throws Exception {
+		try (ResolverLogger log = ResolverLogger.newLogger(project, false)) {
+			BndrunResolveContext context = new BndrunResolveContext(project, project, project, log);
+			StringBuilder sb = new StringBuilder();
+			for (Repository repository : context.getConsultedRepositories()) {
+				byte[] digest = (repository instanceof RepositoryDigest repositoryDigest) ? repositoryDigest.getDigest()
+					: getResourcesDigest(repository);
+				sb.append(Hex.toHexString(digest))
+					.append(',');
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Answer the digest of the resources of a repository. A resource
+	 * contributes its content hash or, without a content capability, its
+	 * capabilities and requirements. As in {@link RepositoryDigest}, the
+	 * digest is the SHA-1 of the sorted set of these.
+	 *
+	 * @param repository the repository
+	 * @return the digest of the resources
+	 */
+	static byte[] getResourcesDigest(Repository repository) throws Exception {
+		SortedSet<String> contents = new TreeSet<>();
+		for (Resource resource : ResourceUtils.getAllResources(repository)) {
+			ContentCapability content = ResourceUtils.getContentCapability(resource);
+			if (content != null) {
+				contents.add(content.osgi_content());
+			} else {
+				contents.add(SHA1.digest((resource.getCapabilities(null) + "" + resource.getRequirements(null))
+					.getBytes(UTF_8))
+					.asHex());
+			}
+		}
+		Digester<SHA1> digester = SHA1.getDigester();
+		for (String content : contents) {
+			digester.write(content.getBytes(UTF_8));
+		}
+		return digester.digest()
+			.digest();
+	}
+
 	/**
 	 * Return a result based on the isOk status. If OK, the result is a
 	 * resolution, otherwise it is an error string.
@@ -7,12 +7,18 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static test.lib.Utils.createRepo;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 import org.osgi.framework.namespace.IdentityNamespace;
@@ -25,8 +31,10 @@ import org.osgi.service.resolver.Resolver;
 import aQute.bnd.build.model.EE;
 import aQute.bnd.header.Attrs;
 import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.repository.BaseRepository;
 import aQute.bnd.osgi.repository.ResourcesRepository;
 import aQute.bnd.osgi.repository.SimpleIndexer;
+import aQute.bnd.osgi.repository.XMLResourceParser;
 import aQute.bnd.osgi.resource.CapReqBuilder;
 import aQute.bnd.osgi.resource.RequirementBuilder;
 import aQute.bnd.osgi.resource.ResourceBuilder;
@@ -241,6 +249,128 @@ public class GenericResolveContextResolveTest {
 		assertNames(providers, "test.a", "test.b", "test.c");
 	}
 
+	/**
+	 * Several repositories are asked in parallel and once for a batch of
+	 * requirements. The providers must be the same as when all resources are
+	 * in a single repository.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMultipleRepositories() throws Exception {
+		List<Resource> resources;
+		try (XMLResourceParser parser = new XMLResourceParser(IO.getFile("testdata/repo3.index.xml"))) {
+			resources = parser.parse();
+		}
+		GenericResolveContext single = new GenericResolveContext(logger);
+		single.addRepository(new ResourcesRepository(resources));
+
+		AtomicInteger calls = new AtomicInteger();
+		GenericResolveContext multiple = new GenericResolveContext(logger);
+		multiple.setParallel(true);
+		for (int i = 0; i < 3; i++) {
+			List<Resource> part = new ArrayList<>();
+			for (int r = i; r < resources.size(); r += 3) {
+				part.add(resources.get(r));
+			}
+			multiple.addRepository(countingRepository(new ResourcesRepository(part), calls));
+		}
+
+		List<Requirement> requirements = resources.stream()
+			.flatMap(resource -> resource.getRequirements(null)
+				.stream())
+			.collect(Collectors.toList());
+		multiple.cacheProviders(requirements);
+		assertThat(calls.get()).isEqualTo(3);
+
+		for (Requirement requirement : requirements) {
+			assertEquals(single.findProviders(requirement), multiple.findProviders(requirement));
+		}
+		assertThat(calls.get()).isEqualTo(3);
+	}
+
+	/**
+	 * A subclass overriding the single requirement repository hook must still
+	 * be asked for every requirement.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSingleRequirementHook() throws Exception {
+		Repository repository = createRepo(IO.getFile("testdata/repo6/index.xml"), getTestName(), tmp);
+		List<Requirement> asked = new ArrayList<>();
+		GenericResolveContext grc = new GenericResolveContext(logger) {
+			@Override
+			@Deprecated
+			protected Collection<Capability> findProviders(Repository repo, Requirement requirement) {
+				asked.add(requirement);
+				return super.findProviders(repo, requirement);
+			}
+		};
+		grc.addRepository(repository);
+
+		Requirement logservice = new CapReqBuilder("osgi.service")
+			.addDirective("filter", "(objectClass=org.osgi.service.log.LogService)")
+			.addDirective("effective", "active")
+			.buildSyntheticRequirement();
+		List<Capability> providers = grc.findProviders(logservice);
+		assertNames(providers, "test.a", "test.b", "test.c");
+		assertThat(asked).containsExactly(logservice);
+	}
+
+	/**
+	 * After prefetching the providers the resolver must not have to ask the
+	 * repositories again. The callbacks must only see the requirements the
+	 * resolver asks for.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testPrefetchProviders() throws Exception {
+		List<Resource> resources;
+		try (XMLResourceParser parser = new XMLResourceParser(IO.getFile("testdata/repo3.index.xml"))) {
+			resources = parser.parse();
+		}
+		AtomicInteger calls = new AtomicInteger();
+		List<Requirement> asked = new ArrayList<>();
+		GenericResolveContext grc = new GenericResolveContext(logger) {
+			@Override
+			public List<Capability> findProviders(Requirement requirement) {
+				asked.add(requirement);
+				return super.findProviders(requirement);
+			}
+		};
+		grc.addRepository(countingRepository(new ResourcesRepository(resources), calls));
+		grc.addFramework("org.apache.felix.framework", null);
+		grc.addEE(EE.JavaSE_1_7);
+		grc.addRequireBundle("org.apache.felix.gogo.shell", new VersionRange("[0,1]"));
+		grc.done();
+		List<Requirement> processed = new ArrayList<>();
+		grc.addCallbacks(Collections.singleton((requirement, wired, candidates) -> processed.add(requirement)));
+
+		assertThat(grc.prefetchProviders()).isGreaterThan(0);
+		int prefetchCalls = calls.get();
+		assertThat(processed).isEmpty();
+
+		Resolver resolver = new BndResolver(new ResolverLogger(4));
+		Set<Resource> resolved = resolver.resolve(grc)
+			.keySet();
+		assertNotNull(getResource(resolved, "org.apache.felix.gogo.runtime", "0.10"));
+		assertThat(calls.get()).isEqualTo(prefetchCalls);
+		assertThat(asked).containsAll(processed);
+	}
+
+	private static Repository countingRepository(ResourcesRepository repository, AtomicInteger calls) {
+		return new BaseRepository() {
+			@Override
+			public Map<Requirement, Collection<Capability>> findProviders(
+				Collection<? extends Requirement> requirements) {
+				calls.incrementAndGet();
+				return repository.findProviders(requirements);
+			}
+		};
+	}
+
 	private static Resource getResource(Set<Resource> resources, String bsn, String versionString) {
 		for (Resource resource : resources) {
 			List<Capability> identities = resource.getCapabilities(IdentityNamespace.IDENTITY_NAMESPACE);
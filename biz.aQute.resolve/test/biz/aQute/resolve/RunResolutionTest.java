@@ -37,7 +37,9 @@ import aQute.bnd.build.model.conversions.NoopConverter;
 import aQute.bnd.header.Parameters;
 import aQute.bnd.help.instructions.ResolutionInstructions.Runorder;
 import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Jar;
 import aQute.bnd.result.Result;
+import aQute.bnd.service.Refreshable;
 import aQute.bnd.service.RepositoryPlugin;
 import aQute.bnd.service.Strategy;
 import aQute.bnd.test.jupiter.InjectTemporaryDirectory;
@@ -137,6 +139,62 @@ public class RunResolutionTest {
 		// assertThat(runbundles).hasSize(22);
 	}
 
+	@Test
+	public void testResolveResultCache() throws Exception {
+		Bndrun bndrun = Bndrun.createBndrun(workspace, IO.getFile(tmp.toFile(), "resolver.bndrun"));
+		bndrun.setProperty(Constants.RESOLVE_CACHE, "true");
+		bndrun.unsetProperty("-runbundles");
+		RunResolution.clearCache(bndrun.getWorkspace());
+
+		assertThat(RunResolution.getCachedRunBundles(bndrun)).isNull();
+		String resolved = bndrun.resolve(false, false);
+		assertThat(bndrun.check()).isTrue();
+
+		List<VersionedClause> cached = RunResolution.getCachedRunBundles(bndrun);
+		assertThat(cached).isNotEmpty();
+		assertThat(bndrun.resolve(false, false)).isEqualTo(resolved);
+		assertThat(RunResolution.getRunBundles(bndrun, false)
+			.unwrap()).isEqualTo(HeaderClause.toParameters(cached)
+				.toString());
+
+		// a changed index invalidates the cache
+		File index = IO.getFile(tmp.toFile(), "index.xml");
+		IO.store(IO.collect(index)
+			.concat("\n"), index);
+		for (Refreshable repository : bndrun.getWorkspace()
+			.getPlugins(Refreshable.class)) {
+			repository.refresh();
+		}
+		assertThat(RunResolution.getCachedRunBundles(bndrun)).isNull();
+	}
+
+	@Test
+	public void testResolveResultCacheWorkspace() throws Exception {
+		Bndrun bndrun = Bndrun.createBndrun(workspace, workspace.getFile("test.simple/resolve.bndrun"));
+		bndrun.setProperty(Constants.RESOLVE_CACHE, "true");
+		bndrun.unsetProperty("-runbundles");
+		RunResolution.clearCache(bndrun.getWorkspace());
+
+		assertThat(RunResolution.getCachedRunBundles(bndrun)).isNull();
+		String resolved = bndrun.resolve(false, false);
+		assertThat(bndrun.check()).isTrue();
+
+		List<VersionedClause> cached = RunResolution.getCachedRunBundles(bndrun);
+		assertThat(cached).isNotEmpty();
+		assertThat(bndrun.resolve(false, false)).isEqualTo(resolved);
+
+		// a rebuilt workspace bundle invalidates the cache
+		File jar = IO.getFile(ws.toFile(), "test.simple/generated/test.simple.jar");
+		try (Jar rebuilt = new Jar(jar)) {
+			rebuilt.getManifest()
+				.getMainAttributes()
+				.putValue("Rebuilt", "true");
+			rebuilt.write(IO.getFile(tmp.toFile(), "rebuilt.jar"));
+		}
+		IO.copy(IO.getFile(tmp.toFile(), "rebuilt.jar"), jar);
+		assertThat(RunResolution.getCachedRunBundles(bndrun)).isNull();
+	}
+
 	@Test
 	public void testResolveCachedWithStandalone() throws Exception {
 		Bndrun bndrun = Bndrun.createBndrun(workspace, IO.getFile(tmp.toFile(), "resolver.bndrun"));